@@ -4,11 +4,13 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @EntityScan(
 		basePackageClasses = {Application.class, Jsr310JpaConverters.class}
 )
 @SpringBootApplication
+@EnableScheduling
 public class Application {
 
 	public static void main(String[] args) {
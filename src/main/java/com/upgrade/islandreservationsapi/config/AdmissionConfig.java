@@ -0,0 +1,36 @@
+package com.upgrade.islandreservationsapi.config;
+
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.service.BookingAdmission;
+import com.upgrade.islandreservationsapi.service.ReservationServiceImpl;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.NameMatchMethodPointcutAdvisor;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class AdmissionConfig {
+
+    /**
+     * Checks every reservation with the {@link BookingAdmission} before the retry and transaction advisors
+     * (see {@link RetryConfig}) and before its dates are locked (see {@link DateLockConfig}), so a reservation
+     * that can't fit is rejected without waiting for the dates or opening a transaction.
+     * The admission bean is looked up on the first call, as advisors are created before most beans.
+     */
+    @Bean
+    public Advisor bookingAdmissionAdvisor(ObjectProvider<BookingAdmission> admission) {
+        final NameMatchMethodPointcutAdvisor advisor = new NameMatchMethodPointcutAdvisor(
+                (MethodInterceptor) invocation -> {
+                    admission.getObject().admit((Reservation) invocation.getArguments()[0]);
+                    return invocation.proceed();
+                });
+        advisor.setMappedName("createReservation");
+        advisor.setClassFilter(new RootClassFilter(ReservationServiceImpl.class));
+        advisor.setOrder(Ordered.LOWEST_PRECEDENCE - 3);
+        return advisor;
+    }
+}
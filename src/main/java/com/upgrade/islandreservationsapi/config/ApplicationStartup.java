@@ -1,28 +1,66 @@
 package com.upgrade.islandreservationsapi.config;
 
+import com.upgrade.islandreservationsapi.service.CalendarMaintenanceJob;
 import com.upgrade.islandreservationsapi.service.ConfigurationService;
+import com.upgrade.islandreservationsapi.service.DayAvailabilityService;
+import com.upgrade.islandreservationsapi.service.HoldExpiryScheduler;
+import com.upgrade.islandreservationsapi.service.WaitingRoom;
+import com.upgrade.islandreservationsapi.service.WaitlistService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.stereotype.Component;
 
+/**
+ * Prepares the state kept in memory (availability ledger, hold expiries, waitlist, waiting room) when the
+ * application context is refreshed. The embedded web server only starts accepting connections after the refresh,
+ * so no request is served before the ledger is loaded.
+ */
 @Component
-public class ApplicationStartup implements ApplicationListener<ApplicationReadyEvent> {
+public class ApplicationStartup implements ApplicationListener<ContextRefreshedEvent> {
+
+    @Autowired
+    private ApplicationContext applicationContext;
 
     @Autowired
     private ConfigurationService configurationService;
 
+    @Autowired
+    private CalendarMaintenanceJob calendarMaintenanceJob;
+
+    @Autowired
+    private DayAvailabilityService availabilityService;
+
+    @Autowired
+    private HoldExpiryScheduler holdExpiryScheduler;
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    @Autowired
+    private WaitingRoom waitingRoom;
+
     private Logger logger = LogManager.getLogger(ApplicationStartup.class);
 
     @Override
-    public void onApplicationEvent(ApplicationReadyEvent applicationReadyEvent) {
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if(event.getApplicationContext() != applicationContext) {
+            // refresh of a child context, like the management context
+            return;
+        }
         logger.info("Starting application. Setting default values for configurations in case they are not defined.");
-        configurationService.getMaxAvailability();
-        configurationService.getMaxDateRange();
-        configurationService.getMaxAheadDays();
-        configurationService.getMinAheadDays();
-        configurationService.getMaxReservation();
+        configurationService.refresh();
+        logger.info("Updating calendar and loading availability ledger.");
+        calendarMaintenanceJob.maintainCalendar();
+        availabilityService.loadLedger();
+        logger.info("Scheduling active holds to expire.");
+        holdExpiryScheduler.reload();
+        logger.info("Loading waitlist.");
+        waitlistService.loadIndex();
+        logger.info("Restoring waiting room.");
+        waitingRoom.reload();
     }
 }
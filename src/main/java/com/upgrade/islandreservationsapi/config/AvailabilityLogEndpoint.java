@@ -0,0 +1,51 @@
+package com.upgrade.islandreservationsapi.config;
+
+import com.upgrade.islandreservationsapi.model.AvailabilitySnapshot;
+import com.upgrade.islandreservationsapi.service.AvailabilitySnapshotService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Actuator endpoint to check the availability change log and rebuild the availability from it.
+ * GET shows the latest snapshot and the number of changes logged after it; POST rebuilds the availability.
+ * Not exposed over HTTP unless added to management.endpoints.web.exposure.include. Disabled in journal mode.
+ */
+@Component
+@ConditionalOnProperty(prefix = "island.journal", name = "enabled", havingValue = "false", matchIfMissing = true)
+@Endpoint(id = "availabilitylog")
+public class AvailabilityLogEndpoint {
+
+    @Autowired
+    private AvailabilitySnapshotService snapshotService;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        final Map<String, Object> status = new LinkedHashMap<>();
+        final Optional<AvailabilitySnapshot> snapshot = snapshotService.getLatestSnapshot();
+        snapshot.ifPresent(s -> {
+            status.put("snapshotId", s.getId());
+            status.put("snapshotCreatedAt", s.getCreatedAt().toString());
+            status.put("lastChangeId", s.getLastChangeId());
+        });
+        status.put("pendingChanges", snapshotService.getPendingChanges());
+        return status;
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        final long start = System.currentTimeMillis();
+        final long replayed = snapshotService.rebuildAvailability();
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("replayedChanges", replayed);
+        result.put("elapsedMs", System.currentTimeMillis() - start);
+        return result;
+    }
+}
@@ -0,0 +1,86 @@
+package com.upgrade.islandreservationsapi.config;
+
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.service.BookingMode;
+import com.upgrade.islandreservationsapi.service.DateLockManager;
+import com.upgrade.islandreservationsapi.service.HoldServiceImpl;
+import com.upgrade.islandreservationsapi.service.ReservationServiceImpl;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.NameMatchMethodPointcutAdvisor;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+@Configuration
+public class DateLockConfig {
+
+    /**
+     * Locks the dates of a reservation before the retry and transaction advisors (see {@link RetryConfig}), so a
+     * booking waiting for the dates doesn't hold a database connection. Runs after the admission advisor (see
+     * {@link AdmissionConfig}), so reservations that can't fit don't wait either.
+     * Reservations and holds don't lock their dates in OPTIMISTIC booking mode, where conflicts are retried
+     * instead (see {@link BookingMode}). Batches always lock them.
+     * The lock manager is looked up on the first call, as advisors are created before most beans.
+     */
+    @Bean
+    public Advisor reservationDateLockAdvisor(ObjectProvider<DateLockManager> dateLocks,
+                                              @Value("${island.booking.mode:GUARDED}") BookingMode bookingMode) {
+        return dateLockAdvisor(dateLocks, ReservationServiceImpl.class, "createReservation",
+                arguments -> bookingMode == BookingMode.OPTIMISTIC ? List.of() : dates((Reservation) arguments[0]));
+    }
+
+    @Bean
+    @SuppressWarnings("unchecked")
+    public Advisor batchDateLockAdvisor(ObjectProvider<DateLockManager> dateLocks) {
+        return dateLockAdvisor(dateLocks, ReservationServiceImpl.class, "createReservations", arguments -> {
+            final Set<LocalDate> dates = new TreeSet<>();
+            ((List<Reservation>) arguments[0]).forEach(r -> dates.addAll(dates(r)));
+            return dates;
+        });
+    }
+
+    @Bean
+    public Advisor holdDateLockAdvisor(ObjectProvider<DateLockManager> dateLocks,
+                                       @Value("${island.booking.mode:GUARDED}") BookingMode bookingMode) {
+        return dateLockAdvisor(dateLocks, HoldServiceImpl.class, "createHold",
+                arguments -> bookingMode == BookingMode.OPTIMISTIC ? List.of()
+                        : ((LocalDate) arguments[0]).datesUntil((LocalDate) arguments[1]).collect(Collectors.toList()));
+    }
+
+    private static Advisor dateLockAdvisor(ObjectProvider<DateLockManager> dateLocks, Class<?> targetClass,
+                                           String methodName, DateExtractor dateExtractor) {
+        final NameMatchMethodPointcutAdvisor advisor = new NameMatchMethodPointcutAdvisor(
+                (MethodInterceptor) invocation -> {
+                    final Collection<LocalDate> dates = dateExtractor.dates(invocation.getArguments());
+                    dateLocks.getObject().lock(dates);
+                    try {
+                        return invocation.proceed();
+                    } finally {
+                        dateLocks.getObject().unlock(dates);
+                    }
+                });
+        advisor.setMappedName(methodName);
+        advisor.setClassFilter(new RootClassFilter(targetClass));
+        advisor.setOrder(Ordered.LOWEST_PRECEDENCE - 2);
+        return advisor;
+    }
+
+    private static List<LocalDate> dates(Reservation reservation) {
+        return reservation.getStart().datesUntil(reservation.getEnd()).collect(Collectors.toList());
+    }
+
+    private interface DateExtractor {
+        Collection<LocalDate> dates(Object[] arguments);
+    }
+}
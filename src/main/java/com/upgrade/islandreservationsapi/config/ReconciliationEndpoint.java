@@ -0,0 +1,34 @@
+package com.upgrade.islandreservationsapi.config;
+
+import com.upgrade.islandreservationsapi.service.AvailabilityReconciliationJob;
+import com.upgrade.islandreservationsapi.service.ReconciliationReport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint to run the availability reconciliation on demand. GET only reports the drifted dates;
+ * POST repairs them too. Not exposed over HTTP unless added to management.endpoints.web.exposure.include.
+ * Disabled in journal mode.
+ */
+@Component
+@ConditionalOnProperty(prefix = "island.journal", name = "enabled", havingValue = "false", matchIfMissing = true)
+@Endpoint(id = "reconciliation")
+public class ReconciliationEndpoint {
+
+    @Autowired
+    private AvailabilityReconciliationJob reconciliationJob;
+
+    @ReadOperation
+    public ReconciliationReport check() {
+        return reconciliationJob.reconcile(false);
+    }
+
+    @WriteOperation
+    public ReconciliationReport repair() {
+        return reconciliationJob.reconcile(true);
+    }
+}
@@ -1,11 +1,14 @@
 package com.upgrade.islandreservationsapi.config;
 
 import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.upgrade.islandreservationsapi.controller.ReservationController;
 import com.upgrade.islandreservationsapi.dto.ApiError;
 import com.upgrade.islandreservationsapi.dto.ApiFieldError;
 import com.upgrade.islandreservationsapi.exception.*;
 import org.springframework.beans.ConversionNotSupportedException;
 import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -28,6 +31,7 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
+import java.net.URI;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
@@ -45,6 +49,51 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
                 new HttpHeaders(), error.getStatus(), request);
     }
 
+    @ExceptionHandler(value
+            = { HoldNotFoundException.class})
+    protected ResponseEntity<Object> handleHoldNotFound(
+            HoldNotFoundException ex, WebRequest request) {
+        ApiError error = new ApiError(HttpStatus.NOT_FOUND, ex.getMessage());
+        return handleExceptionInternal(ex, error,
+                new HttpHeaders(), error.getStatus(), request);
+    }
+
+    @ExceptionHandler(value
+            = { HoldNotActiveException.class})
+    protected ResponseEntity<Object> handleHoldNotActive(
+            HoldNotActiveException ex, WebRequest request) {
+        ApiError error = new ApiError(HttpStatus.BAD_REQUEST, ex.getMessage());
+        return handleExceptionInternal(ex, error,
+                new HttpHeaders(), error.getStatus(), request);
+    }
+
+    @ExceptionHandler(value
+            = { SubmissionNotFoundException.class})
+    protected ResponseEntity<Object> handleSubmissionNotFound(
+            SubmissionNotFoundException ex, WebRequest request) {
+        ApiError error = new ApiError(HttpStatus.NOT_FOUND, ex.getMessage());
+        return handleExceptionInternal(ex, error,
+                new HttpHeaders(), error.getStatus(), request);
+    }
+
+    @ExceptionHandler(value
+            = { WaitlistEntryNotFoundException.class})
+    protected ResponseEntity<Object> handleWaitlistEntryNotFound(
+            WaitlistEntryNotFoundException ex, WebRequest request) {
+        ApiError error = new ApiError(HttpStatus.NOT_FOUND, ex.getMessage());
+        return handleExceptionInternal(ex, error,
+                new HttpHeaders(), error.getStatus(), request);
+    }
+
+    @ExceptionHandler(value
+            = { WaitlistEntryNotWaitingException.class})
+    protected ResponseEntity<Object> handleWaitlistEntryNotWaiting(
+            WaitlistEntryNotWaitingException ex, WebRequest request) {
+        ApiError error = new ApiError(HttpStatus.BAD_REQUEST, ex.getMessage());
+        return handleExceptionInternal(ex, error,
+                new HttpHeaders(), error.getStatus(), request);
+    }
+
     @ExceptionHandler(value
             = { ReservationAlreadyCancelledException.class})
     protected ResponseEntity<Object> handleAlreadyCancelled(
@@ -90,6 +139,58 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
                 new HttpHeaders(), error.getStatus(), request);
     }
 
+    @ExceptionHandler(value
+            = { PessimisticLockingFailureException.class})
+    protected ResponseEntity<Object> handleLockFailure(
+            PessimisticLockingFailureException ex, WebRequest request) {
+        ApiError error = new ApiError(HttpStatus.SERVICE_UNAVAILABLE,
+                "The dates are being booked by other clients. Please try again.");
+        return handleExceptionInternal(ex, error,
+                new HttpHeaders(), error.getStatus(), request);
+    }
+
+    @ExceptionHandler(value
+            = { WaitingRoomTicketNotFoundException.class})
+    protected ResponseEntity<Object> handleWaitingRoomTicketNotFound(
+            WaitingRoomTicketNotFoundException ex, WebRequest request) {
+        ApiError error = new ApiError(HttpStatus.NOT_FOUND, ex.getMessage());
+        return handleExceptionInternal(ex, error,
+                new HttpHeaders(), error.getStatus(), request);
+    }
+
+    @ExceptionHandler(value
+            = { RequestInProgressException.class})
+    protected ResponseEntity<Object> handleRequestInProgress(
+            RequestInProgressException ex, WebRequest request) {
+        ApiError error = new ApiError(HttpStatus.CONFLICT, ex.getMessage() + " Please try again.");
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return handleExceptionInternal(ex, error,
+                headers, error.getStatus(), request);
+    }
+
+    @ExceptionHandler(value
+            = { NotAdmittedException.class})
+    protected ResponseEntity<Object> handleNotAdmitted(
+            NotAdmittedException ex, WebRequest request) {
+        ApiError error = new ApiError(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage());
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(ReservationController.WAITING_ROOM_TOKEN, ex.getTicket().getToken());
+        headers.setLocation(URI.create("/v1/waiting-room/" + ex.getTicket().getToken()));
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return handleExceptionInternal(ex, error,
+                headers, error.getStatus(), request);
+    }
+
+    @ExceptionHandler(value
+            = { TaskRejectedException.class})
+    protected ResponseEntity<Object> handleTaskRejected(
+            TaskRejectedException ex, WebRequest request) {
+        ApiError error = new ApiError(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage() + " Please try again.");
+        return handleExceptionInternal(ex, error,
+                new HttpHeaders(), error.getStatus(), request);
+    }
+
     @ExceptionHandler({ ConstraintViolationException.class })
     public ResponseEntity<Object> handleConstraintViolation(
             ConstraintViolationException ex, WebRequest request) {
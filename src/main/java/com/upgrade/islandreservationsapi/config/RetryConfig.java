@@ -0,0 +1,80 @@
+package com.upgrade.islandreservationsapi.config;
+
+import com.upgrade.islandreservationsapi.service.BookingRetryStatistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.RetryListener;
+import org.springframework.retry.RetryPolicy;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.retry.annotation.RetryConfiguration;
+import org.springframework.retry.backoff.ExponentialRandomBackOffPolicy;
+import org.springframework.retry.interceptor.RetryInterceptorBuilder;
+import org.springframework.retry.interceptor.RetryOperationsInterceptor;
+import org.springframework.retry.policy.CompositeRetryPolicy;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.policy.TimeoutRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.Map;
+
+@Configuration
+@EnableRetry
+public class RetryConfig {
+
+    /**
+     * The retry advisor has the same (lowest) precedence as the transaction advisor by default. It must run first
+     * so every attempt of a @Retryable @Transactional method runs in a new transaction.
+     */
+    @Bean
+    public static BeanPostProcessor retryAdvisorOrderPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if(bean instanceof RetryConfiguration) {
+                    ((RetryConfiguration) bean).setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Retries booking transactions that failed because of concurrent bookings: optimistic conflicts, deadlocks
+     * and lock timeouts (all of them are subclasses of the two exceptions retried). Attempts are bounded by
+     * number and by a deadline for the whole request, and are spaced by a jittered exponential backoff.
+     */
+    @Bean
+    public RetryOperationsInterceptor bookingRetryInterceptor(
+            BookingRetryStatistics retryStatistics,
+            @Value("${island.booking.retry.max-attempts:5}") int maxAttempts,
+            @Value("${island.booking.retry.deadline-ms:3000}") long deadlineMs,
+            @Value("${island.booking.retry.delay-ms:10}") long delayMs,
+            @Value("${island.booking.retry.max-delay-ms:200}") long maxDelayMs) {
+
+        final TimeoutRetryPolicy deadline = new TimeoutRetryPolicy();
+        deadline.setTimeout(deadlineMs);
+        final CompositeRetryPolicy retryPolicy = new CompositeRetryPolicy();
+        retryPolicy.setPolicies(new RetryPolicy[] {
+                new SimpleRetryPolicy(maxAttempts, Map.of(
+                        ObjectOptimisticLockingFailureException.class, true,
+                        PessimisticLockingFailureException.class, true), true),
+                deadline
+        });
+
+        final ExponentialRandomBackOffPolicy backOffPolicy = new ExponentialRandomBackOffPolicy();
+        backOffPolicy.setInitialInterval(delayMs);
+        backOffPolicy.setMaxInterval(maxDelayMs);
+        backOffPolicy.setMultiplier(2);
+
+        final RetryTemplate retryTemplate = new RetryTemplate();
+        retryTemplate.setRetryPolicy(retryPolicy);
+        retryTemplate.setBackOffPolicy(backOffPolicy);
+        retryTemplate.setListeners(new RetryListener[] { retryStatistics });
+        return RetryInterceptorBuilder.stateless().retryOperations(retryTemplate).build();
+    }
+}
@@ -1,27 +1,40 @@
 package com.upgrade.islandreservationsapi.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrade.islandreservationsapi.dto.AvailableStayDTO;
 import com.upgrade.islandreservationsapi.dto.DayAvailabilityDTO;
 import com.upgrade.islandreservationsapi.exception.InvalidDatesException;
-import com.upgrade.islandreservationsapi.model.DayAvailability;
+import com.upgrade.islandreservationsapi.service.AvailabilityBroadcaster;
 import com.upgrade.islandreservationsapi.service.ConfigurationService;
+import com.upgrade.islandreservationsapi.service.ConfigurationSnapshot;
 import com.upgrade.islandreservationsapi.service.DayAvailabilityService;
 import io.swagger.annotations.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
+@Validated
 @Api(value = "availability")
 public class AvailabilityController {
 
@@ -31,38 +44,126 @@ public class AvailabilityController {
     @Autowired
     private ConfigurationService configurationService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AvailabilityBroadcaster broadcaster;
+
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     private DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     private final Logger logger = LogManager.getLogger(AvailabilityController.class);
 
     @GetMapping(path = "v1/availability", produces = "application/json; charset=utf-8")
     @ResponseBody
-    @ApiOperation(value = "Get campsite availability", notes = "Returns availability for the provided date range")
+    @ApiOperation(value = "Get campsite availability", notes = "Returns availability for the provided date range. " +
+            "Responses carry an ETag to revalidate them with If-None-Match. The ETag changes with the bookings made " +
+            "through the server that answers; bookings made through other servers may take a couple of minutes " +
+            "(two ledger resyncs, see island.availability.ledger-resync-ms) to change it.",
+            response = DayAvailabilityDTO.class, responseContainer = "List")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Availability for dates returned"),
+            @ApiResponse(code = 304, message = "Availability did not change since the provided ETag"),
             @ApiResponse(code = 400, message = "Dates are invalid")
     })
-    public List<DayAvailabilityDTO> getAvailabilities(
+    public void getAvailabilities(
             @ApiParam(name = "fromDate", format = "yyyy-MM-dd", defaultValue = "(tomorrow's date)")
             @RequestParam(name = "fromDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate fromDate,
             @ApiParam(name = "toDate", format = "yyyy-MM-dd", defaultValue = "(fromDate plus one month)")
-            @RequestParam(name = "toDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate toDate)
-            throws InvalidDatesException {
+            @RequestParam(name = "toDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate toDate,
+            WebRequest webRequest, HttpServletResponse response)
+            throws InvalidDatesException, IOException {
+        final ConfigurationSnapshot configuration = configurationService.getSnapshot();
         if(fromDate == null) {
-            int minAheadDays = configurationService.getMinAheadDays();
+            int minAheadDays = configuration.getMinAheadDays();
             fromDate = LocalDate.now().plusDays(minAheadDays);
             logger.debug("fromDate not provided. using default value: {}", fromDate.format(formatter));
         }
         if(toDate == null) {
-            int defaultRange = configurationService.getDefaultDateRange();
+            int defaultRange = configuration.getDefaultDateRange();
             toDate = fromDate.plusDays(defaultRange).minusDays(1);
             logger.debug("toDate not provided. using default value {}", toDate.format(formatter));
         }
-        List<DayAvailability> availabilities = availabilityService.getAvailabilities(fromDate, toDate);
-        final ModelMapper mapper = new ModelMapper();
-        return availabilities.stream()
-                .map(da -> mapper.map(da, DayAvailabilityDTO.class))
-                .collect(Collectors.toList());
+        // invalid ranges are answered with an error, which must not carry an ETag that could be revalidated
+        availabilityService.validateDates(fromDate, toDate);
+        // availability only changes when a change is committed, so the availability and configuration versions
+        // identify the response for the range. the version is read before the availability, never after.
+        // it is the version of this node's ledger, which sees the changes of other nodes only once resynced.
+        final String etag = "\"" + availabilityService.getAvailabilityVersion() + "-" + configuration.getVersion() +
+                "-" + fromDate.format(formatter) + "-" + toDate.format(formatter) + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if(webRequest.checkNotModified(etag)) {
+            logger.debug("availability not modified since {}", etag);
+            return;
+        }
+        response.setContentType("application/json; charset=utf-8");
+        final DayAvailabilityJsonWriter writer =
+                new DayAvailabilityJsonWriter(objectMapper.getFactory(), response.getOutputStream());
+        try {
+            availabilityService.visitAvailabilities(fromDate, toDate, writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
     }
 
+    @GetMapping(path = "v1/availability/search", produces = "application/json; charset=utf-8")
+    @ResponseBody
+    @ApiOperation(value = "Search campsite availability",
+            notes = "Returns the first stays, within the provided start date window, with availability for all nights")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Available stays returned"),
+            @ApiResponse(code = 400, message = "Parameters are invalid")
+    })
+    public List<AvailableStayDTO> searchAvailability(
+            @ApiParam(name = "persons", required = true)
+            @RequestParam(name = "persons") @Positive Integer persons,
+            @ApiParam(name = "nights", required = true)
+            @RequestParam(name = "nights") @Positive Integer nights,
+            @ApiParam(name = "fromDate", format = "yyyy-MM-dd", defaultValue = "(first date a reservation can start)")
+            @RequestParam(name = "fromDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate fromDate,
+            @ApiParam(name = "toDate", format = "yyyy-MM-dd", defaultValue = "(last date a reservation can start)")
+            @RequestParam(name = "toDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate toDate,
+            @ApiParam(name = "limit", defaultValue = "10")
+            @RequestParam(name = "limit", defaultValue = "10") @Positive @Max(MAX_SEARCH_LIMIT) Integer limit)
+            throws InvalidDatesException {
+        final ConfigurationSnapshot configuration = configurationService.getSnapshot();
+        if(fromDate == null) {
+            fromDate = LocalDate.now().plusDays(configuration.getMinAheadDays());
+        }
+        if(toDate == null) {
+            toDate = LocalDate.now().plusDays(configuration.getMaxAheadDays());
+        }
+        final List<LocalDate> startDates = availabilityService.findStartDates(persons, nights, fromDate, toDate, limit);
+        final List<AvailableStayDTO> stays = new ArrayList<>(startDates.size());
+        for(LocalDate start: startDates) {
+            stays.add(new AvailableStayDTO(start, start.plusDays(nights)));
+        }
+        return stays;
+    }
+
+    @GetMapping(path = "v1/availability/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiOperation(value = "Stream campsite availability changes",
+            notes = "Sends an 'availability' event with the new availability every time the availability " +
+                    "of a date within the range changes. Slow clients are disconnected.")
+    public SseEmitter streamAvailability(
+            @ApiParam(name = "fromDate", format = "yyyy-MM-dd", defaultValue = "(tomorrow's date)")
+            @RequestParam(name = "fromDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate fromDate,
+            @ApiParam(name = "toDate", format = "yyyy-MM-dd", defaultValue = "(last date of the booking horizon)")
+            @RequestParam(name = "toDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate toDate)
+            throws InvalidDatesException {
+        final ConfigurationSnapshot configuration = configurationService.getSnapshot();
+        if(fromDate == null) {
+            fromDate = LocalDate.now().plusDays(1);
+        }
+        if(toDate == null) {
+            toDate = LocalDate.now().plusDays(configuration.getHorizonDays() - 1);
+        }
+        if(fromDate.isAfter(toDate)) {
+            throw new InvalidDatesException("toDate must be after fromDate.");
+        }
+        return broadcaster.subscribe(fromDate, toDate);
+    }
 }
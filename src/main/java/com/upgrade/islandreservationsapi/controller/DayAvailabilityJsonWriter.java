@@ -0,0 +1,60 @@
+package com.upgrade.islandreservationsapi.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.upgrade.islandreservationsapi.dto.DayAvailabilityDTO;
+import com.upgrade.islandreservationsapi.service.DayAvailabilityVisitor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+
+/**
+ * Writes visited dates straight to the output as a JSON array with the same shape as a list of
+ * {@link DayAvailabilityDTO}. Nothing is written until the first date is visited, so validation errors
+ * can still be returned as a regular error response.
+ */
+class DayAvailabilityJsonWriter implements DayAvailabilityVisitor {
+
+    private final JsonFactory factory;
+    private final OutputStream out;
+    private JsonGenerator generator;
+
+    DayAvailabilityJsonWriter(JsonFactory factory, OutputStream out) {
+        this.factory = factory;
+        this.out = out;
+    }
+
+    @Override
+    public void visit(LocalDate date, int availability, int maxAvailability) {
+        try {
+            start();
+            generator.writeStartObject();
+            // LocalDate.toString() is formatted as yyyy-MM-dd
+            generator.writeStringField("date", date.toString());
+            generator.writeNumberField("availability", availability);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Closes the JSON array and flushes it to the output.
+     */
+    void finish() throws IOException {
+        start();
+        generator.writeEndArray();
+        generator.close();
+    }
+
+    private void start() throws IOException {
+        if(generator == null) {
+            generator = factory.createGenerator(out, JsonEncoding.UTF8);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.upgrade.islandreservationsapi.controller;
+
+import com.upgrade.islandreservationsapi.dto.ConfirmHoldDTO;
+import com.upgrade.islandreservationsapi.dto.CreateHoldDTO;
+import com.upgrade.islandreservationsapi.dto.HoldDTO;
+import com.upgrade.islandreservationsapi.dto.ReservationCreated;
+import com.upgrade.islandreservationsapi.exception.HoldNotActiveException;
+import com.upgrade.islandreservationsapi.exception.HoldNotFoundException;
+import com.upgrade.islandreservationsapi.exception.NoAvailabilityForDateException;
+import com.upgrade.islandreservationsapi.exception.NotAdmittedException;
+import com.upgrade.islandreservationsapi.mapper.HoldMapper;
+import com.upgrade.islandreservationsapi.model.Hold;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.service.HoldService;
+import com.upgrade.islandreservationsapi.service.WaitingRoom;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+
+@RestController
+@Api(value = "holds")
+public class HoldController {
+
+    @Autowired
+    private HoldService service;
+
+    @Autowired
+    private WaitingRoom waitingRoom;
+
+    @GetMapping(path = "v1/holds/{token}", produces = "application/json; charset=utf-8")
+    @ResponseBody
+    @ApiOperation(value = "Read a hold by its token")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Hold returned"),
+            @ApiResponse(code = 404, message = "Hold not found")
+    })
+    public HoldDTO getHold(@PathVariable String token) throws HoldNotFoundException {
+        return HoldMapper.toDto(service.getHold(token));
+    }
+
+    @PostMapping(path = "v1/holds", produces = "application/json; charset=utf-8")
+    @ResponseBody
+    @ApiOperation(value = "Hold availability for some dates while the reservation is completed. Holds of dates " +
+            "in high demand need a Waiting-Room-Token admitted by the waiting room")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Hold created. Returns its token and expiration time"),
+            @ApiResponse(code = 400, message = "There's no availability, or validation error"),
+            @ApiResponse(code = 429, message = "Not admitted yet. Poll the Location URL of the Waiting-Room-Token " +
+                    "until it is ADMITTED, then retry with it")
+    })
+    public HoldDTO createHold(
+            @RequestHeader(name = ReservationController.WAITING_ROOM_TOKEN, required = false) String waitingRoomToken,
+            @Valid @RequestBody CreateHoldDTO holdDto) throws NoAvailabilityForDateException, NotAdmittedException {
+        if(!waitingRoom.isHot(holdDto.getStart(), holdDto.getEnd())) {
+            return createHold(holdDto);
+        }
+        waitingRoom.attempt(waitingRoomToken);
+        boolean used = false;
+        try {
+            final HoldDTO hold = createHold(holdDto);
+            used = true;
+            return hold;
+        } catch (NoAvailabilityForDateException e) {
+            used = true;
+            throw e;
+        } finally {
+            waitingRoom.complete(waitingRoomToken, used);
+        }
+    }
+
+    private HoldDTO createHold(CreateHoldDTO holdDto) throws NoAvailabilityForDateException {
+        final Hold hold = service.createHold(holdDto.getStart(), holdDto.getEnd(), holdDto.getNumberOfPersons());
+        return HoldMapper.toDto(hold);
+    }
+
+    @PostMapping(path = "v1/holds/{token}/confirm", produces = "application/json; charset=utf-8")
+    @ResponseBody
+    @ApiOperation(value = "Create a reservation for the dates and persons of a hold")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Reservation created successfully"),
+            @ApiResponse(code = 400, message = "Hold is no longer active, or validation error"),
+            @ApiResponse(code = 404, message = "Hold not found")
+    })
+    public ReservationCreated confirmHold(@PathVariable String token, @Valid @RequestBody ConfirmHoldDTO guestDto)
+            throws HoldNotFoundException, HoldNotActiveException {
+        final Reservation reservation = service.confirmHold(token, HoldMapper.toGuest(guestDto));
+        return new ReservationCreated(reservation.getId());
+    }
+
+    @DeleteMapping(path = "v1/holds/{token}", produces = "application/json; charset=utf-8")
+    @ResponseBody
+    @ApiOperation(value = "Release a hold before it expires")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Hold released successfully"),
+            @ApiResponse(code = 400, message = "Hold is no longer active"),
+            @ApiResponse(code = 404, message = "Hold not found")
+    })
+    public HoldDTO releaseHold(@PathVariable String token) throws HoldNotFoundException, HoldNotActiveException {
+        return HoldMapper.toDto(service.releaseHold(token));
+    }
+}
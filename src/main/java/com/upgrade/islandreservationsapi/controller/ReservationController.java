@@ -1,28 +1,46 @@
 package com.upgrade.islandreservationsapi.controller;
 
-import com.upgrade.islandreservationsapi.dto.CreateReservationDTO;
-import com.upgrade.islandreservationsapi.dto.ReservationCreated;
-import com.upgrade.islandreservationsapi.dto.ReservationDTO;
+import com.upgrade.islandreservationsapi.dto.*;
 import com.upgrade.islandreservationsapi.exception.*;
+import com.upgrade.islandreservationsapi.mapper.ReservationMapper;
 import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.service.BatchMode;
+import com.upgrade.islandreservationsapi.service.IdempotencyCache;
+import com.upgrade.islandreservationsapi.service.ReservationBatchItem;
 import com.upgrade.islandreservationsapi.service.ReservationService;
+import com.upgrade.islandreservationsapi.service.WaitingRoom;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
 @Api(value = "reservations")
 public class ReservationController {
 
+    public static final String WAITING_ROOM_TOKEN = "Waiting-Room-Token";
+
     @Autowired
     private ReservationService service;
 
+    @Autowired
+    private IdempotencyCache idempotencyCache;
+
+    @Autowired
+    private WaitingRoom waitingRoom;
+
+    @Autowired
+    private Validator validator;
+
     @GetMapping(path = "v1/reservations/{id}", produces = "application/json; charset=utf-8")
     @ResponseBody
     @ApiOperation(value = "Read a reservation by its ID")
@@ -32,21 +50,118 @@ public class ReservationController {
     })
     public ReservationDTO getReservation(@PathVariable Integer id) throws ReservationNotFoundException {
         Reservation reservation = service.getReservation(id);
-        return new ModelMapper().map(reservation, ReservationDTO.class);
+        return ReservationMapper.toDto(reservation);
     }
 
     @PostMapping(path = "v1/reservations", produces = "application/json; charset=utf-8")
     @ResponseBody
-    @ApiOperation(value = "Create a new reservation")
+    @ApiOperation(value = "Create a new reservation. Requests with the same Idempotency-Key create it only once. " +
+            "Reservations of dates in high demand need a Waiting-Room-Token admitted by the waiting room")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Reservation created successfully"),
-            @ApiResponse(code = 400, message = "There's no availability, or validation error")
+            @ApiResponse(code = 400, message = "There's no availability, or validation error"),
+            @ApiResponse(code = 409, message = "A request with the same Idempotency-Key is still being processed"),
+            @ApiResponse(code = 429, message = "Not admitted yet. Poll the Location URL of the Waiting-Room-Token " +
+                    "until it is ADMITTED, then retry with it")
     })
-    public ReservationCreated createReservation(@Valid @RequestBody CreateReservationDTO reservationDto)
-            throws NoAvailabilityForDateException {
-        Reservation reservation = new ModelMapper().map(reservationDto, Reservation.class);
-        reservation = service.createReservation(reservation);
-        return new ReservationCreated(reservation.getId());
+    public ReservationCreated createReservation(
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestHeader(name = WAITING_ROOM_TOKEN, required = false) String waitingRoomToken,
+            @Valid @RequestBody CreateReservationDTO reservationDto)
+            throws NoAvailabilityForDateException, InvalidReservationException, NotAdmittedException {
+        final Reservation reservation = ReservationMapper.toReservation(reservationDto);
+        if(!waitingRoom.isHot(reservation.getStart(), reservation.getEnd())) {
+            return createReservation(idempotencyKey, reservation);
+        }
+        waitingRoom.attempt(waitingRoomToken);
+        boolean used = false;
+        try {
+            final ReservationCreated created = createReservation(idempotencyKey, reservation);
+            used = true;
+            return created;
+        } catch (NoAvailabilityForDateException e) {
+            used = true;
+            throw e;
+        } finally {
+            waitingRoom.complete(waitingRoomToken, used);
+        }
+    }
+
+    private ReservationCreated createReservation(String idempotencyKey, Reservation reservation)
+            throws NoAvailabilityForDateException, InvalidReservationException {
+        if(idempotencyKey == null) {
+            return new ReservationCreated(service.createReservation(reservation).getId());
+        }
+        IdempotencyCache.validateKey(idempotencyKey);
+        return new ReservationCreated(idempotencyCache.createReservation(idempotencyKey, reservation));
+    }
+
+    @PostMapping(path = "v1/reservations/batch", produces = "application/json; charset=utf-8")
+    @ResponseBody
+    @ApiOperation(value = "Create many reservations at once. Batches with any reservation of dates in high demand " +
+            "need a Waiting-Room-Token admitted by the waiting room")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Batch processed. Returns whether every reservation was created"),
+            @ApiResponse(code = 400, message = "Validation error"),
+            @ApiResponse(code = 429, message = "Not admitted yet. Poll the Location URL of the Waiting-Room-Token " +
+                    "until it is ADMITTED, then retry with it")
+    })
+    public ReservationBatchDTO createReservations(
+            @RequestHeader(name = WAITING_ROOM_TOKEN, required = false) String waitingRoomToken,
+            @Valid @RequestBody CreateReservationBatchDTO batchDto) throws NotAdmittedException {
+        final List<CreateReservationDTO> dtos = batchDto.getReservations();
+        final ReservationBatchItemDTO[] items = new ReservationBatchItemDTO[dtos.size()];
+        final List<Integer> indexes = new ArrayList<>();
+        final List<Reservation> reservations = new ArrayList<>();
+        for(int i = 0; i < dtos.size(); i++) {
+            final List<ApiFieldError> errors = validate(dtos.get(i));
+            if(errors.isEmpty()) {
+                indexes.add(i);
+                reservations.add(ReservationMapper.toReservation(dtos.get(i)));
+            } else {
+                items[i] = new ReservationBatchItemDTO(i, "Validation failed", errors);
+            }
+        }
+
+        if(batchDto.getMode() == BatchMode.ALL_OR_NOTHING && reservations.size() < dtos.size()) {
+            indexes.forEach(i -> items[i] = new ReservationBatchItemDTO(i, ReservationBatchItem.BATCH_FAILED, null));
+        } else if(!reservations.isEmpty()) {
+            final List<ReservationBatchItem> results = createReservations(waitingRoomToken, reservations, batchDto.getMode());
+            for(int i = 0; i < results.size(); i++) {
+                final int index = indexes.get(i);
+                final ReservationBatchItem result = results.get(i);
+                items[index] = result.isCreated()
+                        ? new ReservationBatchItemDTO(index, result.getReservation().getId())
+                        : new ReservationBatchItemDTO(index, result.getError(), null);
+            }
+        }
+        return new ReservationBatchDTO(batchDto.getMode(), Arrays.asList(items));
+    }
+
+    private List<ReservationBatchItem> createReservations(String waitingRoomToken, List<Reservation> reservations,
+                                                          BatchMode mode) throws NotAdmittedException {
+        if(reservations.stream().noneMatch(r -> waitingRoom.isHot(r.getStart(), r.getEnd()))) {
+            return service.createReservations(reservations, mode);
+        }
+        // the whole batch is one attempt
+        waitingRoom.attempt(waitingRoomToken);
+        boolean used = false;
+        try {
+            final List<ReservationBatchItem> results = service.createReservations(reservations, mode);
+            used = true;
+            return results;
+        } finally {
+            waitingRoom.complete(waitingRoomToken, used);
+        }
+    }
+
+    private List<ApiFieldError> validate(CreateReservationDTO reservationDto) {
+        if(reservationDto == null) {
+            return List.of(new ApiFieldError("reservation", "must not be null"));
+        }
+        return validator.validate(reservationDto).stream()
+                .map(v -> new ApiFieldError(v.getPropertyPath().toString(), v.getMessage()))
+                .collect(Collectors.toList());
     }
 
     @PutMapping(path = "v1/reservations/{id}", produces = "application/json; charset=utf-8")
@@ -59,14 +174,13 @@ public class ReservationController {
     })
     public ReservationDTO updateReservation(@PathVariable Integer id, @Valid @RequestBody ReservationDTO reservationDto)
             throws NoAvailabilityForDateException, ReservationNotFoundException, InvalidReservationException {
-        ModelMapper mapper = new ModelMapper();
-        Reservation reservation = mapper.map(reservationDto, Reservation.class);
+        Reservation reservation = ReservationMapper.toReservation(reservationDto);
         reservation.setId(id);
         if(reservation.getStatus() == null) {
             reservation.setStatus(Reservation.Status.ACTIVE);
         }
         reservation = service.updateReservation(reservation);
-        return mapper.map(reservation, ReservationDTO.class);
+        return ReservationMapper.toDto(reservation);
     }
 
     @DeleteMapping(path = "v1/reservations/{id}", produces = "application/json; charset=utf-8")
@@ -80,7 +194,6 @@ public class ReservationController {
     public ReservationDTO cancelReservation(@PathVariable Integer id)
             throws ReservationNotFoundException, ReservationAlreadyCancelledException {
         Reservation reservation = service.cancelReservation(id);
-        ModelMapper mapper = new ModelMapper();
-        return mapper.map(reservation, ReservationDTO.class);
+        return ReservationMapper.toDto(reservation);
     }
 }
@@ -0,0 +1,104 @@
+package com.upgrade.islandreservationsapi.controller;
+
+import com.upgrade.islandreservationsapi.dto.CreateReservationDTO;
+import com.upgrade.islandreservationsapi.dto.ReservationSubmissionDTO;
+import com.upgrade.islandreservationsapi.exception.InvalidReservationException;
+import com.upgrade.islandreservationsapi.exception.NotAdmittedException;
+import com.upgrade.islandreservationsapi.exception.SubmissionNotFoundException;
+import com.upgrade.islandreservationsapi.mapper.ReservationMapper;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.service.IdempotencyCache;
+import com.upgrade.islandreservationsapi.service.ReservationSubmission;
+import com.upgrade.islandreservationsapi.service.ReservationSubmissionQueue;
+import com.upgrade.islandreservationsapi.service.WaitingRoom;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.validation.Valid;
+import java.net.URI;
+
+@RestController
+@Api(value = "reservation submissions")
+public class ReservationSubmissionController {
+
+    @Autowired
+    private ReservationSubmissionQueue submissionQueue;
+
+    @Autowired
+    private WaitingRoom waitingRoom;
+
+    @Value("${island.submissions.max-wait-ms:30000}")
+    private long maxWaitMs;
+
+    @PostMapping(path = "v1/reservations/submissions", produces = "application/json; charset=utf-8")
+    @ApiOperation(value = "Submit a new reservation to be created in the background. Reservations of dates in high " +
+            "demand need a Waiting-Room-Token admitted by the waiting room")
+    @ApiResponses(value = {
+            @ApiResponse(code = 202, message = "Reservation accepted. Poll the Location URL for the outcome"),
+            @ApiResponse(code = 400, message = "Validation error"),
+            @ApiResponse(code = 429, message = "Not admitted yet. Poll the Location URL of the Waiting-Room-Token " +
+                    "until it is ADMITTED, then retry with it"),
+            @ApiResponse(code = 503, message = "Too many reservations waiting to be processed")
+    })
+    public ResponseEntity<ReservationSubmissionDTO> submitReservation(
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestHeader(name = ReservationController.WAITING_ROOM_TOKEN, required = false) String waitingRoomToken,
+            @Valid @RequestBody CreateReservationDTO reservationDto)
+            throws InvalidReservationException, NotAdmittedException {
+        if(idempotencyKey != null) {
+            IdempotencyCache.validateKey(idempotencyKey);
+        }
+        final Reservation reservation = ReservationMapper.toReservation(reservationDto);
+        final ReservationSubmission submission;
+        if(!waitingRoom.isHot(reservation.getStart(), reservation.getEnd())) {
+            submission = submissionQueue.submit(reservation, idempotencyKey);
+        } else {
+            waitingRoom.attempt(waitingRoomToken);
+            try {
+                submission = submissionQueue.submit(reservation, idempotencyKey);
+            } catch (RuntimeException e) {
+                waitingRoom.complete(waitingRoomToken, false);
+                throw e;
+            }
+            // the attempt lasts until the reservation is processed. it can be retried with the ticket if it failed
+            submission.getCompletion().thenAccept(s ->
+                    waitingRoom.complete(waitingRoomToken, s.getStatus() != ReservationSubmission.Status.FAILED));
+        }
+        // the outcome may be known already if it was rejected before booking, but it is only returned when polled
+        final ReservationSubmissionDTO accepted = new ReservationSubmissionDTO();
+        accepted.setId(submission.getId());
+        accepted.setStatus(ReservationSubmission.Status.PENDING);
+        return ResponseEntity.accepted()
+                .location(URI.create("/v1/reservations/submissions/" + submission.getId()))
+                .body(accepted);
+    }
+
+    @GetMapping(path = "v1/reservations/submissions/{id}", produces = "application/json; charset=utf-8")
+    @ApiOperation(value = "Read the outcome of a reservation submission. With waitMs, waits for the outcome while PENDING")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Submission returned, PENDING or with its outcome"),
+            @ApiResponse(code = 404, message = "Submission not found")
+    })
+    public DeferredResult<ReservationSubmissionDTO> getSubmission(@PathVariable String id,
+                                                                  @RequestParam(defaultValue = "0") long waitMs)
+            throws SubmissionNotFoundException {
+        final ReservationSubmission submission = submissionQueue.getSubmission(id);
+        final long timeout = Math.max(1, Math.min(waitMs, maxWaitMs));
+        // on timeout, the submission is returned still PENDING
+        final DeferredResult<ReservationSubmissionDTO> result =
+                new DeferredResult<>(timeout, () -> new ReservationSubmissionDTO(submission));
+        if(waitMs <= 0 || submission.getStatus() != ReservationSubmission.Status.PENDING) {
+            result.setResult(new ReservationSubmissionDTO(submission));
+        } else {
+            submission.getCompletion().thenAccept(s -> result.setResult(new ReservationSubmissionDTO(s)));
+        }
+        return result;
+    }
+}
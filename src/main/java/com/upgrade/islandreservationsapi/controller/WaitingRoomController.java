@@ -0,0 +1,31 @@
+package com.upgrade.islandreservationsapi.controller;
+
+import com.upgrade.islandreservationsapi.dto.WaitingRoomTicketDTO;
+import com.upgrade.islandreservationsapi.exception.WaitingRoomTicketNotFoundException;
+import com.upgrade.islandreservationsapi.service.WaitingRoom;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@Api(value = "waiting room")
+public class WaitingRoomController {
+
+    @Autowired
+    private WaitingRoom waitingRoom;
+
+    @GetMapping(path = "v1/waiting-room/{token}", produces = "application/json; charset=utf-8")
+    @ResponseBody
+    @ApiOperation(value = "Read a waiting room ticket. Once ADMITTED, retry the reservation with it in the " +
+            "Waiting-Room-Token header")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Ticket returned, WAITING with its position or ADMITTED"),
+            @ApiResponse(code = 404, message = "Ticket not found, used or expired")
+    })
+    public WaitingRoomTicketDTO getTicket(@PathVariable String token) throws WaitingRoomTicketNotFoundException {
+        return new WaitingRoomTicketDTO(waitingRoom.getTicket(token));
+    }
+}
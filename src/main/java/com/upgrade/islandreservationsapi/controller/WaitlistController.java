@@ -0,0 +1,59 @@
+package com.upgrade.islandreservationsapi.controller;
+
+import com.upgrade.islandreservationsapi.dto.CreateWaitlistEntryDTO;
+import com.upgrade.islandreservationsapi.dto.WaitlistEntryDTO;
+import com.upgrade.islandreservationsapi.exception.WaitlistEntryNotFoundException;
+import com.upgrade.islandreservationsapi.exception.WaitlistEntryNotWaitingException;
+import com.upgrade.islandreservationsapi.mapper.WaitlistMapper;
+import com.upgrade.islandreservationsapi.service.WaitlistService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+
+@RestController
+@Api(value = "waitlist")
+public class WaitlistController {
+
+    @Autowired
+    private WaitlistService service;
+
+    @GetMapping(path = "v1/waitlist/{id}", produces = "application/json; charset=utf-8")
+    @ResponseBody
+    @ApiOperation(value = "Read a waitlist entry by its ID")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Waitlist entry returned"),
+            @ApiResponse(code = 404, message = "Waitlist entry not found")
+    })
+    public WaitlistEntryDTO getEntry(@PathVariable Integer id) throws WaitlistEntryNotFoundException {
+        return WaitlistMapper.toDto(service.getEntry(id));
+    }
+
+    @PostMapping(path = "v1/waitlist", produces = "application/json; charset=utf-8")
+    @ResponseBody
+    @ApiOperation(value = "Join the waitlist, to be booked as soon as there's availability for the dates")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Waitlist entry created"),
+            @ApiResponse(code = 400, message = "Validation error")
+    })
+    public WaitlistEntryDTO joinWaitlist(@Valid @RequestBody CreateWaitlistEntryDTO entryDto) {
+        return WaitlistMapper.toDto(service.joinWaitlist(WaitlistMapper.toEntry(entryDto)));
+    }
+
+    @DeleteMapping(path = "v1/waitlist/{id}", produces = "application/json; charset=utf-8")
+    @ResponseBody
+    @ApiOperation(value = "Leave the waitlist")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Waitlist entry cancelled"),
+            @ApiResponse(code = 400, message = "Waitlist entry was already booked, cancelled or expired"),
+            @ApiResponse(code = 404, message = "Waitlist entry not found")
+    })
+    public WaitlistEntryDTO leaveWaitlist(@PathVariable Integer id)
+            throws WaitlistEntryNotFoundException, WaitlistEntryNotWaitingException {
+        return WaitlistMapper.toDto(service.leaveWaitlist(id));
+    }
+}
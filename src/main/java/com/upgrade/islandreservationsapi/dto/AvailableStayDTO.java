@@ -0,0 +1,36 @@
+package com.upgrade.islandreservationsapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+
+public class AvailableStayDTO {
+
+    @JsonFormat(pattern="yyyy-MM-dd")
+    private LocalDate start;
+    @JsonFormat(pattern="yyyy-MM-dd")
+    private LocalDate end;
+
+    public AvailableStayDTO() {}
+
+    public AvailableStayDTO(LocalDate start, LocalDate end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public void setStart(LocalDate start) {
+        this.start = start;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public void setEnd(LocalDate end) {
+        this.end = end;
+    }
+}
@@ -0,0 +1,38 @@
+package com.upgrade.islandreservationsapi.dto;
+
+import javax.validation.constraints.*;
+
+public class ConfirmHoldDTO {
+
+    @NotBlank()
+    private String fistName;
+    @NotBlank
+    private String lastName;
+    @NotBlank
+    @Email
+    private String email;
+
+    public String getFistName() {
+        return fistName;
+    }
+
+    public void setFistName(String fistName) {
+        this.fistName = fistName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+}
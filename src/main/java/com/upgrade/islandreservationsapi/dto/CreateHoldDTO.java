@@ -0,0 +1,45 @@
+package com.upgrade.islandreservationsapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.upgrade.islandreservationsapi.validator.ReservationDates;
+import javax.validation.constraints.*;
+import java.time.LocalDate;
+
+@ReservationDates(startDateField = "start", endDateField = "end")
+public class CreateHoldDTO {
+
+    @NotNull
+    @Future
+    @JsonFormat(pattern="yyyy-MM-dd")
+    private LocalDate start;
+    @NotNull
+    @JsonFormat(pattern="yyyy-MM-dd")
+    private LocalDate end;
+    @NotNull
+    @Positive
+    private Integer numberOfPersons;
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public void setStart(LocalDate start) {
+        this.start = start;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public void setEnd(LocalDate end) {
+        this.end = end;
+    }
+
+    public Integer getNumberOfPersons() {
+        return numberOfPersons;
+    }
+
+    public void setNumberOfPersons(Integer numberOfPersons) {
+        this.numberOfPersons = numberOfPersons;
+    }
+}
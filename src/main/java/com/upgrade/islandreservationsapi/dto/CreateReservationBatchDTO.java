@@ -0,0 +1,34 @@
+package com.upgrade.islandreservationsapi.dto;
+
+import com.upgrade.islandreservationsapi.service.BatchMode;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+public class CreateReservationBatchDTO {
+
+    @NotNull
+    private BatchMode mode = BatchMode.ALL_OR_NOTHING;
+    // reservations are validated one by one, so an invalid one doesn't reject the whole batch
+    @NotEmpty
+    @Size(max = 100)
+    private List<CreateReservationDTO> reservations;
+
+    public BatchMode getMode() {
+        return mode;
+    }
+
+    public void setMode(BatchMode mode) {
+        this.mode = mode;
+    }
+
+    public List<CreateReservationDTO> getReservations() {
+        return reservations;
+    }
+
+    public void setReservations(List<CreateReservationDTO> reservations) {
+        this.reservations = reservations;
+    }
+}
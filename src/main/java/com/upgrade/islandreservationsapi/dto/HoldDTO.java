@@ -0,0 +1,77 @@
+package com.upgrade.islandreservationsapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.upgrade.islandreservationsapi.model.Hold;
+import java.time.Instant;
+import java.time.LocalDate;
+
+public class HoldDTO {
+
+    private String token;
+    @JsonFormat(pattern="yyyy-MM-dd")
+    private LocalDate start;
+    @JsonFormat(pattern="yyyy-MM-dd")
+    private LocalDate end;
+    private Integer numberOfPersons;
+    private Instant expiresAt;
+    private Hold.Status status;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer reservationId;
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public void setStart(LocalDate start) {
+        this.start = start;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public void setEnd(LocalDate end) {
+        this.end = end;
+    }
+
+    public Integer getNumberOfPersons() {
+        return numberOfPersons;
+    }
+
+    public void setNumberOfPersons(Integer numberOfPersons) {
+        this.numberOfPersons = numberOfPersons;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public Hold.Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Hold.Status status) {
+        this.status = status;
+    }
+
+    public Integer getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(Integer reservationId) {
+        this.reservationId = reservationId;
+    }
+}
@@ -0,0 +1,54 @@
+package com.upgrade.islandreservationsapi.dto;
+
+import com.upgrade.islandreservationsapi.service.BatchMode;
+
+import java.util.List;
+
+public class ReservationBatchDTO {
+
+    private BatchMode mode;
+    private int created;
+    private int failed;
+    private List<ReservationBatchItemDTO> reservations;
+
+    public ReservationBatchDTO() {}
+
+    public ReservationBatchDTO(BatchMode mode, List<ReservationBatchItemDTO> reservations) {
+        this.mode = mode;
+        this.reservations = reservations;
+        this.created = (int) reservations.stream().filter(ReservationBatchItemDTO::isCreated).count();
+        this.failed = reservations.size() - created;
+    }
+
+    public BatchMode getMode() {
+        return mode;
+    }
+
+    public void setMode(BatchMode mode) {
+        this.mode = mode;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public List<ReservationBatchItemDTO> getReservations() {
+        return reservations;
+    }
+
+    public void setReservations(List<ReservationBatchItemDTO> reservations) {
+        this.reservations = reservations;
+    }
+}
@@ -0,0 +1,69 @@
+package com.upgrade.islandreservationsapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReservationBatchItemDTO {
+
+    private int index;
+    private boolean created;
+    private Integer id;
+    private String message;
+    private List<ApiFieldError> errors;
+
+    public ReservationBatchItemDTO() {}
+
+    public ReservationBatchItemDTO(int index, Integer id) {
+        this.index = index;
+        this.created = true;
+        this.id = id;
+    }
+
+    public ReservationBatchItemDTO(int index, String message, List<ApiFieldError> errors) {
+        this.index = index;
+        this.message = message;
+        this.errors = errors;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public boolean isCreated() {
+        return created;
+    }
+
+    public void setCreated(boolean created) {
+        this.created = created;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public List<ApiFieldError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<ApiFieldError> errors) {
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,54 @@
+package com.upgrade.islandreservationsapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.upgrade.islandreservationsapi.service.ReservationSubmission;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReservationSubmissionDTO {
+
+    private String id;
+    private ReservationSubmission.Status status;
+    private Integer reservationId;
+    private String error;
+
+    public ReservationSubmissionDTO() {}
+
+    public ReservationSubmissionDTO(ReservationSubmission submission) {
+        this.id = submission.getId();
+        this.status = submission.getStatus();
+        this.reservationId = submission.getReservationId();
+        this.error = submission.getError();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public ReservationSubmission.Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(ReservationSubmission.Status status) {
+        this.status = status;
+    }
+
+    public Integer getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(Integer reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,44 @@
+package com.upgrade.islandreservationsapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.upgrade.islandreservationsapi.model.WaitingRoomTicket;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WaitingRoomTicketDTO {
+
+    private String token;
+    private WaitingRoomTicket.Status status;
+    private Long position;
+
+    public WaitingRoomTicketDTO() {}
+
+    public WaitingRoomTicketDTO(WaitingRoomTicket ticket) {
+        this.token = ticket.getToken();
+        this.status = ticket.getStatus();
+        this.position = ticket.getPosition();
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public WaitingRoomTicket.Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(WaitingRoomTicket.Status status) {
+        this.status = status;
+    }
+
+    public Long getPosition() {
+        return position;
+    }
+
+    public void setPosition(Long position) {
+        this.position = position;
+    }
+}
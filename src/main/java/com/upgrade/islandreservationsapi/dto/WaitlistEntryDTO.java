@@ -0,0 +1,76 @@
+package com.upgrade.islandreservationsapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.upgrade.islandreservationsapi.model.WaitlistEntry;
+import java.time.LocalDate;
+
+public class WaitlistEntryDTO {
+
+    private Integer id;
+    private String email;
+    @JsonFormat(pattern="yyyy-MM-dd")
+    private LocalDate start;
+    @JsonFormat(pattern="yyyy-MM-dd")
+    private LocalDate end;
+    private Integer numberOfPersons;
+    private WaitlistEntry.Status status;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer reservationId;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public void setStart(LocalDate start) {
+        this.start = start;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public void setEnd(LocalDate end) {
+        this.end = end;
+    }
+
+    public Integer getNumberOfPersons() {
+        return numberOfPersons;
+    }
+
+    public void setNumberOfPersons(Integer numberOfPersons) {
+        this.numberOfPersons = numberOfPersons;
+    }
+
+    public WaitlistEntry.Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(WaitlistEntry.Status status) {
+        this.status = status;
+    }
+
+    public Integer getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(Integer reservationId) {
+        this.reservationId = reservationId;
+    }
+}
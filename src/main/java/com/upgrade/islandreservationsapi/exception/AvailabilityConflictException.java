@@ -0,0 +1,17 @@
+package com.upgrade.islandreservationsapi.exception;
+
+import com.upgrade.islandreservationsapi.model.DayAvailability;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.LocalDate;
+
+/**
+ * Thrown when the availability of a date was updated by another transaction between reading it and writing it.
+ */
+public class AvailabilityConflictException extends ObjectOptimisticLockingFailureException {
+
+    public AvailabilityConflictException(LocalDate date) {
+        super(DayAvailability.class, date);
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.upgrade.islandreservationsapi.exception;
+
+import com.upgrade.islandreservationsapi.model.Hold;
+
+/**
+ * Thrown when confirming or releasing a hold that was already confirmed, released or expired.
+ */
+public class HoldNotActiveException extends Exception {
+
+    public HoldNotActiveException(String token, Hold.Status status) {
+        super(String.format("Hold %s is %s.", token, status.name().toLowerCase()));
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.upgrade.islandreservationsapi.exception;
+
+public class HoldNotFoundException extends Exception {
+
+    public HoldNotFoundException() {
+        super("Hold not found");
+    }
+
+    public HoldNotFoundException(String token) {
+        super(String.format("Hold %s not found", token));
+    }
+
+}
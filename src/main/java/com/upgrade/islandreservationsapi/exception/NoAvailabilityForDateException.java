@@ -2,8 +2,14 @@ package com.upgrade.islandreservationsapi.exception;
 
 public class NoAvailabilityForDateException extends Exception {
 
+    public static final String MESSAGE = "There's no availability for the date period.";
+
     public NoAvailabilityForDateException() {
-        super("There's no availability for the date period.");
+        super(MESSAGE);
+    }
+
+    protected NoAvailabilityForDateException(boolean writableStackTrace) {
+        super(MESSAGE, null, false, writableStackTrace);
     }
 
 }
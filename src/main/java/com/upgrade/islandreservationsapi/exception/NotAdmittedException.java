@@ -0,0 +1,24 @@
+package com.upgrade.islandreservationsapi.exception;
+
+import com.upgrade.islandreservationsapi.model.WaitingRoomTicket;
+
+/**
+ * Thrown when a reservation for hot dates is attempted without a ticket admitted by the waiting room.
+ */
+public class NotAdmittedException extends Exception {
+
+    private final WaitingRoomTicket ticket;
+
+    public NotAdmittedException(WaitingRoomTicket ticket) {
+        super(String.format("The dates are in high demand. Your position in the waiting room is %d.",
+                ticket.getPosition()));
+        this.ticket = ticket;
+    }
+
+    /**
+     * @return ticket to retry the reservation with once it is admitted
+     */
+    public WaitingRoomTicket getTicket() {
+        return ticket;
+    }
+}
@@ -0,0 +1,13 @@
+package com.upgrade.islandreservationsapi.exception;
+
+/**
+ * Thrown when a request waited too long for the result of a previous request with the same idempotency key,
+ * which is still being processed.
+ */
+public class RequestInProgressException extends RuntimeException {
+
+    public RequestInProgressException(String idempotencyKey) {
+        super(String.format("A request with idempotency key %s is still being processed.", idempotencyKey));
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.upgrade.islandreservationsapi.exception;
+
+/**
+ * Thrown when a reservation is rejected before booking, because the availability ledger shows that some of its
+ * nights don't have enough availability. It has no stack trace, so rejecting is cheap.
+ */
+public class SoldOutException extends NoAvailabilityForDateException {
+
+    public SoldOutException() {
+        super(false);
+    }
+
+}
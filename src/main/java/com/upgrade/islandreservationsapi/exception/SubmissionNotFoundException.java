@@ -0,0 +1,9 @@
+package com.upgrade.islandreservationsapi.exception;
+
+public class SubmissionNotFoundException extends Exception {
+
+    public SubmissionNotFoundException(String id) {
+        super(String.format("Reservation submission %s not found", id));
+    }
+
+}
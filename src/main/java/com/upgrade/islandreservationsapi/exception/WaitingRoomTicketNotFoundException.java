@@ -0,0 +1,9 @@
+package com.upgrade.islandreservationsapi.exception;
+
+public class WaitingRoomTicketNotFoundException extends Exception {
+
+    public WaitingRoomTicketNotFoundException(String token) {
+        super(String.format("Waiting room ticket %s not found", token));
+    }
+
+}
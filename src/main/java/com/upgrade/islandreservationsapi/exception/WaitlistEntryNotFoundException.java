@@ -0,0 +1,9 @@
+package com.upgrade.islandreservationsapi.exception;
+
+public class WaitlistEntryNotFoundException extends Exception {
+
+    public WaitlistEntryNotFoundException(Integer id) {
+        super(String.format("Waitlist entry with id %d not found", id));
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.upgrade.islandreservationsapi.exception;
+
+import com.upgrade.islandreservationsapi.model.WaitlistEntry;
+
+/**
+ * Thrown when leaving the waitlist with an entry that was already booked, cancelled or expired.
+ */
+public class WaitlistEntryNotWaitingException extends Exception {
+
+    public WaitlistEntryNotWaitingException(Integer id, WaitlistEntry.Status status) {
+        super(String.format("Waitlist entry with id %d is %s.", id, status.name().toLowerCase()));
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.upgrade.islandreservationsapi.mapper;
+
+import com.upgrade.islandreservationsapi.dto.ConfirmHoldDTO;
+import com.upgrade.islandreservationsapi.dto.HoldDTO;
+import com.upgrade.islandreservationsapi.model.Hold;
+import com.upgrade.islandreservationsapi.model.Reservation;
+
+/**
+ * Maps holds between the API DTOs and the model, like {@link ReservationMapper}.
+ */
+public final class HoldMapper {
+
+    private HoldMapper() {}
+
+    public static HoldDTO toDto(Hold hold) {
+        final HoldDTO dto = new HoldDTO();
+        dto.setToken(hold.getToken());
+        dto.setStart(hold.getStart());
+        dto.setEnd(hold.getEnd());
+        dto.setNumberOfPersons(hold.getNumberOfPersons());
+        dto.setExpiresAt(hold.getExpiresAt());
+        dto.setStatus(hold.getStatus());
+        dto.setReservationId(hold.getReservationId());
+        return dto;
+    }
+
+    public static Reservation toGuest(ConfirmHoldDTO dto) {
+        final Reservation reservation = new Reservation();
+        reservation.setFistName(dto.getFistName());
+        reservation.setLastName(dto.getLastName());
+        reservation.setEmail(dto.getEmail());
+        return reservation;
+    }
+}
@@ -0,0 +1,50 @@
+package com.upgrade.islandreservationsapi.mapper;
+
+import com.upgrade.islandreservationsapi.dto.CreateReservationDTO;
+import com.upgrade.islandreservationsapi.dto.ReservationDTO;
+import com.upgrade.islandreservationsapi.model.Reservation;
+
+/**
+ * Maps reservations between the API DTOs and the model with plain getters and setters,
+ * so no reflection is needed when handling a request.
+ */
+public final class ReservationMapper {
+
+    private ReservationMapper() {}
+
+    public static Reservation toReservation(CreateReservationDTO dto) {
+        final Reservation reservation = new Reservation();
+        reservation.setFistName(dto.getFistName());
+        reservation.setLastName(dto.getLastName());
+        reservation.setEmail(dto.getEmail());
+        reservation.setStart(dto.getStart());
+        reservation.setEnd(dto.getEnd());
+        reservation.setNumberOfPersons(dto.getNumberOfPersons());
+        reservation.setStatus(dto.getStatus());
+        return reservation;
+    }
+
+    public static Reservation toReservation(ReservationDTO dto) {
+        final Reservation reservation = new Reservation();
+        reservation.setFistName(dto.getFistName());
+        reservation.setLastName(dto.getLastName());
+        reservation.setEmail(dto.getEmail());
+        reservation.setStart(dto.getStart());
+        reservation.setEnd(dto.getEnd());
+        reservation.setNumberOfPersons(dto.getNumberOfPersons());
+        reservation.setStatus(dto.getStatus());
+        return reservation;
+    }
+
+    public static ReservationDTO toDto(Reservation reservation) {
+        final ReservationDTO dto = new ReservationDTO();
+        dto.setFistName(reservation.getFistName());
+        dto.setLastName(reservation.getLastName());
+        dto.setEmail(reservation.getEmail());
+        dto.setStart(reservation.getStart());
+        dto.setEnd(reservation.getEnd());
+        dto.setNumberOfPersons(reservation.getNumberOfPersons());
+        dto.setStatus(reservation.getStatus());
+        return dto;
+    }
+}
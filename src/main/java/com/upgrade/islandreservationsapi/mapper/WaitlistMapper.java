@@ -0,0 +1,30 @@
+package com.upgrade.islandreservationsapi.mapper;
+
+import com.upgrade.islandreservationsapi.dto.CreateWaitlistEntryDTO;
+import com.upgrade.islandreservationsapi.dto.WaitlistEntryDTO;
+import com.upgrade.islandreservationsapi.model.WaitlistEntry;
+
+/**
+ * Maps waitlist entries between the API DTOs and the model, like {@link ReservationMapper}.
+ */
+public final class WaitlistMapper {
+
+    private WaitlistMapper() {}
+
+    public static WaitlistEntry toEntry(CreateWaitlistEntryDTO dto) {
+        return new WaitlistEntry(dto.getFistName(), dto.getLastName(), dto.getEmail(),
+                dto.getStart(), dto.getEnd(), dto.getNumberOfPersons());
+    }
+
+    public static WaitlistEntryDTO toDto(WaitlistEntry entry) {
+        final WaitlistEntryDTO dto = new WaitlistEntryDTO();
+        dto.setId(entry.getId());
+        dto.setEmail(entry.getEmail());
+        dto.setStart(entry.getStart());
+        dto.setEnd(entry.getEnd());
+        dto.setNumberOfPersons(entry.getNumberOfPersons());
+        dto.setStatus(entry.getStatus());
+        dto.setReservationId(entry.getReservationId());
+        return dto;
+    }
+}
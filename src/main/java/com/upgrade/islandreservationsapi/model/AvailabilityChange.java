@@ -0,0 +1,129 @@
+package com.upgrade.islandreservationsapi.model;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Record of the append-only availability change log: how much the availability of one date changed, and why.
+ * Records are never updated, and their ids are increasing, so the availability of any date can be rebuilt from
+ * a snapshot by adding up the records written after it.
+ */
+@Entity
+@Table(name = "AvailabilityChange")
+public class AvailabilityChange {
+
+    public enum Cause {
+        BOOKING,
+        MODIFICATION,
+        CANCELLATION,
+        BATCH,
+        HOLD,
+        HOLD_RELEASE,
+        HOLD_EXPIRY,
+        WAITLIST,
+        SEQUENCER,
+        RECONCILIATION,
+        OTHER
+    }
+
+    @Column(name = "ChangeID")
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "Date")
+    private LocalDate date;
+    @Column(name = "Delta")
+    private int delta;
+    @Column(name = "ReservationID")
+    private Integer reservationId;
+    @Column(name = "Cause")
+    @Enumerated(EnumType.STRING)
+    private Cause cause;
+    @Column(name = "CreatedAt")
+    private Instant createdAt;
+
+    public AvailabilityChange() {}
+
+    public AvailabilityChange(LocalDate date, int delta, Integer reservationId, Cause cause, Instant createdAt) {
+        this.date = date;
+        this.delta = delta;
+        this.reservationId = reservationId;
+        this.cause = cause;
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AvailabilityChange that = (AvailabilityChange) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "AvailabilityChange{" +
+                "id=" + id +
+                ", date=" + date +
+                ", delta=" + delta +
+                ", reservationId=" + reservationId +
+                ", cause=" + cause +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public int getDelta() {
+        return delta;
+    }
+
+    public void setDelta(int delta) {
+        this.delta = delta;
+    }
+
+    public Integer getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(Integer reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public Cause getCause() {
+        return cause;
+    }
+
+    public void setCause(Cause cause) {
+        this.cause = cause;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,87 @@
+package com.upgrade.islandreservationsapi.model;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Checkpoint of the availability of every date. The availability itself is copied to AvailabilitySnapshotDay;
+ * lastChangeId is the last record of the change log already included in it.
+ */
+@Entity
+@Table(name = "AvailabilitySnapshot")
+public class AvailabilitySnapshot {
+
+    @Column(name = "SnapshotID")
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "LastChangeID")
+    private long lastChangeId;
+    @Column(name = "Days")
+    private int days;
+    @Column(name = "CreatedAt")
+    private Instant createdAt;
+
+    public AvailabilitySnapshot() {}
+
+    public AvailabilitySnapshot(long lastChangeId, Instant createdAt) {
+        this.lastChangeId = lastChangeId;
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AvailabilitySnapshot that = (AvailabilitySnapshot) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "AvailabilitySnapshot{" +
+                "id=" + id +
+                ", lastChangeId=" + lastChangeId +
+                ", days=" + days +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getLastChangeId() {
+        return lastChangeId;
+    }
+
+    public void setLastChangeId(long lastChangeId) {
+        this.lastChangeId = lastChangeId;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public void setDays(int days) {
+        this.days = days;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
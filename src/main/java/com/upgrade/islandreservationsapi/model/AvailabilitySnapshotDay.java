@@ -0,0 +1,63 @@
+package com.upgrade.islandreservationsapi.model;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Availability of one date in an {@link AvailabilitySnapshot}. Only written and read in bulk, with SQL.
+ */
+@Entity
+@Table(name = "AvailabilitySnapshotDay")
+@IdClass(AvailabilitySnapshotDay.Key.class)
+public class AvailabilitySnapshotDay {
+
+    public static class Key implements Serializable {
+
+        private Long snapshotId;
+        private LocalDate date;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return Objects.equals(snapshotId, key.snapshotId) && Objects.equals(date, key.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(snapshotId, date);
+        }
+    }
+
+    @Column(name = "SnapshotID")
+    @Id
+    private Long snapshotId;
+    @Column(name = "Date")
+    @Id
+    private LocalDate date;
+    @Column(name = "Availability")
+    private int availability;
+    @Column(name = "MaxAvailability")
+    private int maxAvailability;
+
+    public AvailabilitySnapshotDay() {}
+
+    public Long getSnapshotId() {
+        return snapshotId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public int getAvailability() {
+        return availability;
+    }
+
+    public int getMaxAvailability() {
+        return maxAvailability;
+    }
+}
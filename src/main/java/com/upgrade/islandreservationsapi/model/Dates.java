@@ -1,5 +1,6 @@
 package com.upgrade.islandreservationsapi.model;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
@@ -9,6 +10,7 @@ import java.time.LocalDate;
 @Table(name = "Dates")
 public class Dates {
 
+    @Column(name = "Date")
     @Id
     private LocalDate date;
 
@@ -4,6 +4,7 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import java.time.LocalDate;
 import java.util.Objects;
@@ -20,6 +21,9 @@ public class DayAvailability {
     private int availability;
     @Column(name = "MaxAvailability")
     private int maxAvailability;
+    @Version
+    @Column(name = "Version")
+    private long version;
 
     public DayAvailability() {}
 
@@ -48,6 +52,7 @@ public class DayAvailability {
                 "date=" + date +
                 ", availability=" + availability +
                 ", maxAvailability=" + maxAvailability +
+                ", version=" + version +
                 '}';
     }
 
@@ -75,4 +80,12 @@ public class DayAvailability {
         this.availability = availability;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
 }
@@ -0,0 +1,132 @@
+package com.upgrade.islandreservationsapi.model;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Availability taken for a limited time, while the guest completes the reservation. A hold is identified by a
+ * random token, and ends when it is confirmed into a reservation, released, or when it expires.
+ */
+@Entity
+@Table(name = "Hold")
+public class Hold {
+
+    public enum Status {
+        HELD,
+        CONFIRMED,
+        RELEASED,
+        EXPIRED
+    }
+
+    @Column(name = "HoldID")
+    @Id
+    private String token;
+    @Column(name = "Start")
+    private LocalDate start;
+    @Column(name = "End")
+    private LocalDate end;
+    @Column(name = "NumberOfPersons")
+    private Integer numberOfPersons;
+    @Column(name = "ExpiresAt")
+    private Instant expiresAt;
+    @Column(name = "Status")
+    @Enumerated(EnumType.STRING)
+    private Status status;
+    @Column(name = "ReservationID")
+    private Integer reservationId;
+
+    public Hold() {}
+
+    public Hold(String token, LocalDate start, LocalDate end, Integer numberOfPersons, Instant expiresAt) {
+        this.token = token;
+        this.start = start;
+        this.end = end;
+        this.numberOfPersons = numberOfPersons;
+        this.expiresAt = expiresAt;
+        this.status = Status.HELD;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Hold that = (Hold) o;
+        return Objects.equals(token, that.token);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(token);
+    }
+
+    @Override
+    public String toString() {
+        return "Hold{" +
+                "token='" + token + '\'' +
+                ", start=" + start +
+                ", end=" + end +
+                ", numberOfPersons=" + numberOfPersons +
+                ", expiresAt=" + expiresAt +
+                ", status=" + status +
+                ", reservationId=" + reservationId +
+                '}';
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public void setStart(LocalDate start) {
+        this.start = start;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public void setEnd(LocalDate end) {
+        this.end = end;
+    }
+
+    public Integer getNumberOfPersons() {
+        return numberOfPersons;
+    }
+
+    public void setNumberOfPersons(Integer numberOfPersons) {
+        this.numberOfPersons = numberOfPersons;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Integer getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(Integer reservationId) {
+        this.reservationId = reservationId;
+    }
+}
@@ -48,6 +48,8 @@ public class Reservation {
     @Version
     @Column(name = "Version")
     private long version;
+    @Column(name = "IdempotencyKey", unique = true)
+    private String idempotencyKey;
 
     public Reservation() {}
 
@@ -86,7 +88,8 @@ public class Reservation {
                 ", end=" + end +
                 ", numberOfPersons=" + numberOfPersons +
                 ", status=" + status +
-                ", version=" + version+
+                ", version=" + version +
+                ", idempotencyKey='" + idempotencyKey + '\'' +
                 '}';
     }
 
@@ -161,4 +164,12 @@ public class Reservation {
     public void setVersion(long version) {
         this.version = version;
     }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
 }
@@ -0,0 +1,139 @@
+package com.upgrade.islandreservationsapi.model;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Place in the waiting room of the hot dates. A ticket is identified by a random token, waits until it is
+ * admitted in arrival order, and is then used by a single booking attempt or expires.
+ */
+@Entity
+@Table(name = "WaitingRoomTicket")
+public class WaitingRoomTicket {
+
+    public enum Status {
+        WAITING,
+        ADMITTED,
+        USED,
+        EXPIRED
+    }
+
+    @Column(name = "TicketID")
+    @Id
+    private String token;
+    @Column(name = "Sequence")
+    private Long sequence;
+    @Column(name = "Status")
+    @Enumerated(EnumType.STRING)
+    private Status status;
+    @Column(name = "CreatedAt")
+    private Instant createdAt;
+    @Column(name = "AdmittedAt")
+    private Instant admittedAt;
+    // number of tickets waiting ahead, plus one. Only set on the copies returned by the waiting room
+    @Transient
+    private Long position;
+    // last time the client asked for the ticket, to skip the tickets that were abandoned
+    @Transient
+    private long lastSeenAt;
+
+    public WaitingRoomTicket() {}
+
+    public WaitingRoomTicket(String token, long sequence, Instant createdAt) {
+        this.token = token;
+        this.sequence = sequence;
+        this.createdAt = createdAt;
+        this.status = Status.WAITING;
+    }
+
+    public WaitingRoomTicket(WaitingRoomTicket ticket) {
+        this.token = ticket.token;
+        this.sequence = ticket.sequence;
+        this.status = ticket.status;
+        this.createdAt = ticket.createdAt;
+        this.admittedAt = ticket.admittedAt;
+        this.position = ticket.position;
+        this.lastSeenAt = ticket.lastSeenAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        WaitingRoomTicket that = (WaitingRoomTicket) o;
+        return Objects.equals(token, that.token);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(token);
+    }
+
+    @Override
+    public String toString() {
+        return "WaitingRoomTicket{" +
+                "token='" + token + '\'' +
+                ", sequence=" + sequence +
+                ", status=" + status +
+                ", createdAt=" + createdAt +
+                ", admittedAt=" + admittedAt +
+                '}';
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getAdmittedAt() {
+        return admittedAt;
+    }
+
+    public void setAdmittedAt(Instant admittedAt) {
+        this.admittedAt = admittedAt;
+    }
+
+    public Long getPosition() {
+        return position;
+    }
+
+    public void setPosition(Long position) {
+        this.position = position;
+    }
+
+    public long getLastSeenAt() {
+        return lastSeenAt;
+    }
+
+    public void setLastSeenAt(long lastSeenAt) {
+        this.lastSeenAt = lastSeenAt;
+    }
+}
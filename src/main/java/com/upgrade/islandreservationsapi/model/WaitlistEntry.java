@@ -0,0 +1,173 @@
+package com.upgrade.islandreservationsapi.model;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Request to be booked for some dates as soon as there's availability for them. Entries are booked in the order
+ * they joined the waitlist.
+ */
+@Entity
+@Table(name = "WaitlistEntry")
+public class WaitlistEntry {
+
+    public enum Status {
+        WAITING,
+        FULFILLED,
+        CANCELLED,
+        EXPIRED
+    }
+
+    @Column(name = "WaitlistEntryID")
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    @Column(name = "FirstName")
+    private String fistName;
+    @Column(name = "LastName")
+    private String lastName;
+    @Column(name = "Email")
+    private String email;
+    @Column(name = "Start")
+    private LocalDate start;
+    @Column(name = "End")
+    private LocalDate end;
+    @Column(name = "NumberOfPersons")
+    private Integer numberOfPersons;
+    @Column(name = "CreatedAt")
+    private Instant createdAt;
+    @Column(name = "Status")
+    @Enumerated(EnumType.STRING)
+    private Status status;
+    @Column(name = "ReservationID")
+    private Integer reservationId;
+
+    public WaitlistEntry() {}
+
+    public WaitlistEntry(String fistName, String lastName, String email,
+                         LocalDate start, LocalDate end, Integer numberOfPersons) {
+        this.fistName = fistName;
+        this.lastName = lastName;
+        this.email = email;
+        this.start = start;
+        this.end = end;
+        this.numberOfPersons = numberOfPersons;
+        this.status = Status.WAITING;
+    }
+
+    /**
+     * @return a new reservation for the guest, dates and number of persons of this entry
+     */
+    public Reservation toReservation() {
+        return new Reservation(fistName, lastName, email, start, end, numberOfPersons);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        WaitlistEntry that = (WaitlistEntry) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "WaitlistEntry{" +
+                "id=" + id +
+                ", email='" + email + '\'' +
+                ", start=" + start +
+                ", end=" + end +
+                ", numberOfPersons=" + numberOfPersons +
+                ", createdAt=" + createdAt +
+                ", status=" + status +
+                ", reservationId=" + reservationId +
+                '}';
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getFistName() {
+        return fistName;
+    }
+
+    public void setFistName(String fistName) {
+        this.fistName = fistName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public void setStart(LocalDate start) {
+        this.start = start;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public void setEnd(LocalDate end) {
+        this.end = end;
+    }
+
+    public Integer getNumberOfPersons() {
+        return numberOfPersons;
+    }
+
+    public void setNumberOfPersons(Integer numberOfPersons) {
+        this.numberOfPersons = numberOfPersons;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Integer getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(Integer reservationId) {
+        this.reservationId = reservationId;
+    }
+}
@@ -0,0 +1,31 @@
+package com.upgrade.islandreservationsapi.repository;
+
+import com.upgrade.islandreservationsapi.model.AvailabilityChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface AvailabilityChangeRepository extends JpaRepository<AvailabilityChange, Long>,
+        AvailabilityChangeRepositoryCustom {
+
+    List<AvailabilityChange> findByReservationIdOrderByIdAsc(Integer reservationId);
+
+    long countByIdGreaterThan(long id);
+
+    /**
+     * @return id of the last record of the change log, or 0 if it is empty
+     */
+    @Query("select coalesce(max(c.id), 0) from AvailabilityChange c")
+    long findLastId();
+
+    /**
+     * Adds up the changes of every date written after a record of the log.
+     * @param afterId id of the last record to skip
+     * @return date and total delta of every changed date, in date order
+     */
+    @Query("select c.date, sum(c.delta) from AvailabilityChange c where c.id > :afterId " +
+            "group by c.date order by c.date")
+    List<Object[]> sumDeltasAfter(@Param("afterId") long afterId);
+}
@@ -0,0 +1,13 @@
+package com.upgrade.islandreservationsapi.repository;
+
+import com.upgrade.islandreservationsapi.model.AvailabilityChange;
+
+import java.util.List;
+
+public interface AvailabilityChangeRepositoryCustom {
+
+    /**
+     * Appends records to the change log using a single JDBC batch. Their generated IDs are not read back.
+     */
+    void appendAll(List<AvailabilityChange> changes);
+}
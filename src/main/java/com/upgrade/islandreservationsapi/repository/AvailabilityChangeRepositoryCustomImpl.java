@@ -0,0 +1,44 @@
+package com.upgrade.islandreservationsapi.repository;
+
+import com.upgrade.islandreservationsapi.model.AvailabilityChange;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+public class AvailabilityChangeRepositoryCustomImpl implements AvailabilityChangeRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public void appendAll(List<AvailabilityChange> changes) {
+        if(changes.isEmpty()) {
+            return;
+        }
+        // IDENTITY ids disable the JDBC batching of Hibernate, so the batch is sent with plain JDBC
+        em.unwrap(Session.class).doWork(connection -> {
+            try(PreparedStatement statement = connection.prepareStatement("INSERT INTO AvailabilityChange " +
+                    "(Date, Delta, ReservationID, Cause, CreatedAt) VALUES (?, ?, ?, ?, ?)")) {
+                for(AvailabilityChange change: changes) {
+                    statement.setDate(1, Date.valueOf(change.getDate()));
+                    statement.setInt(2, change.getDelta());
+                    if(change.getReservationId() == null) {
+                        statement.setNull(3, Types.INTEGER);
+                    } else {
+                        statement.setInt(3, change.getReservationId());
+                    }
+                    statement.setString(4, change.getCause().name());
+                    statement.setTimestamp(5, Timestamp.from(change.getCreatedAt()));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+}
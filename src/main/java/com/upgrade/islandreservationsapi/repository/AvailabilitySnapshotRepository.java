@@ -0,0 +1,31 @@
+package com.upgrade.islandreservationsapi.repository;
+
+import com.upgrade.islandreservationsapi.model.AvailabilitySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface AvailabilitySnapshotRepository extends JpaRepository<AvailabilitySnapshot, Long> {
+
+    Optional<AvailabilitySnapshot> findFirstByOrderByIdDesc();
+
+    /**
+     * Copies the current availability of every date into a snapshot.
+     * @return number of copied dates
+     */
+    @Modifying
+    @Query(value = "INSERT INTO AvailabilitySnapshotDay (SnapshotID, Date, Availability, MaxAvailability) " +
+            "SELECT :snapshotId, d.Date, d.Availability, d.MaxAvailability FROM DayAvailability d", nativeQuery = true)
+    int copyDayAvailability(@Param("snapshotId") long snapshotId);
+
+    @Modifying
+    @Query("delete from AvailabilitySnapshotDay d where d.snapshotId < :snapshotId")
+    int deleteDaysBefore(@Param("snapshotId") long snapshotId);
+
+    @Modifying
+    @Query("delete from AvailabilitySnapshot s where s.id < :snapshotId")
+    int deleteBefore(@Param("snapshotId") long snapshotId);
+}
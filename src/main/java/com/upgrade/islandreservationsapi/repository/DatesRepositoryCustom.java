@@ -0,0 +1,14 @@
+package com.upgrade.islandreservationsapi.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DatesRepositoryCustom {
+
+    /**
+     * Inserts, in a single statement, the dates that are not in the calendar yet.
+     * @param dates dates to add to the calendar
+     * @return number of dates inserted
+     */
+    int insertMissing(List<LocalDate> dates);
+}
@@ -0,0 +1,29 @@
+package com.upgrade.islandreservationsapi.repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.time.LocalDate;
+import java.util.List;
+
+public class DatesRepositoryCustomImpl implements DatesRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public int insertMissing(List<LocalDate> dates) {
+        if(dates.isEmpty()) {
+            return 0;
+        }
+        final StringBuilder sql = new StringBuilder("INSERT IGNORE INTO Dates (Date) VALUES ");
+        for(int i = 1; i <= dates.size(); i++) {
+            sql.append(i > 1 ? ", " : "").append("(?").append(i).append(")");
+        }
+        final Query query = em.createNativeQuery(sql.toString());
+        for(int i = 1; i <= dates.size(); i++) {
+            query.setParameter(i, dates.get(i - 1));
+        }
+        return query.executeUpdate();
+    }
+}
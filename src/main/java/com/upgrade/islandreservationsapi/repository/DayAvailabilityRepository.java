@@ -3,6 +3,9 @@ package com.upgrade.islandreservationsapi.repository;
 import com.upgrade.islandreservationsapi.model.DayAvailability;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import javax.persistence.LockModeType;
 import java.time.LocalDate;
@@ -12,10 +15,79 @@ public interface DayAvailabilityRepository extends JpaRepository<DayAvailability
 
     List<DayAvailability> findByDateBetweenOrderByDateAsc(LocalDate from, LocalDate to);
 
-    @Override
-    @Lock(LockModeType.PESSIMISTIC_READ)
-    List<DayAvailability> findAllById(Iterable<LocalDate> iterable);
+    /**
+     * @param fromDate inclusive
+     * @param toDate exclusive
+     * @return lowest availability of the records in the range, or null if there are none
+     */
+    @Query("select min(d.availability) from DayAvailability d where d.date >= :fromDate and d.date < :toDate")
+    Integer findMinAvailability(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
 
-    void refresh(DayAvailability da);
+    /**
+     * Subtracts number from the availability of every date in the range, but only for the dates that
+     * have enough availability left.
+     * @param fromDate inclusive
+     * @param toDate exclusive
+     * @param number number to subtract
+     * @return number of updated records
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update DayAvailability d set d.availability = d.availability - :number, d.version = d.version + 1 " +
+            "where d.date >= :fromDate and d.date < :toDate and d.availability >= :number")
+    int decrementAvailability(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate,
+                              @Param("number") int number);
+
+    /**
+     * Adds number to the availability of every existing record in the range.
+     * @param fromDate inclusive
+     * @param toDate exclusive
+     * @param number number to add, can be negative
+     * @return number of updated records
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update DayAvailability d set d.availability = d.availability + :number, d.version = d.version + 1 " +
+            "where d.date >= :fromDate and d.date < :toDate")
+    int addAvailability(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate,
+                        @Param("number") int number);
+
+    /**
+     * Subtracts number from the availability of a date, but only if the record was not updated since it was read.
+     * @param date date of the record
+     * @param version version of the record when it was read
+     * @param number number to subtract
+     * @return 1 if the record was updated, 0 if it has a different version
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update DayAvailability d set d.availability = d.availability - :number, d.version = d.version + 1 " +
+            "where d.date = :date and d.version = :version")
+    int compareAndDecrementAvailability(@Param("date") LocalDate date, @Param("version") long version,
+                                        @Param("number") int number);
+
+    /**
+     * Locks every record, in date order. Waits for the transactions that are updating any of them.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from DayAvailability d order by d.date")
+    List<DayAvailability> findAndLockAll();
+
+    /**
+     * Sets the availability of every record to its value in a snapshot. Records that are not in the snapshot
+     * are set to their max availability, since they were created after it.
+     * @param snapshotId id of the snapshot
+     * @return number of updated records
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE DayAvailability d SET d.Availability = COALESCE((SELECT s.Availability " +
+            "FROM AvailabilitySnapshotDay s WHERE s.SnapshotID = :snapshotId AND s.Date = d.Date), d.MaxAvailability), " +
+            "d.Version = d.Version + 1", nativeQuery = true)
+    int restoreSnapshot(@Param("snapshotId") long snapshotId);
+
+    /**
+     * Sets the availability of every record to its max availability.
+     * @return number of updated records
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update DayAvailability d set d.availability = d.maxAvailability, d.version = d.version + 1")
+    int resetAvailability();
 
 }
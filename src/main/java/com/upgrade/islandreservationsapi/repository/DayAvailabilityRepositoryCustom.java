@@ -2,7 +2,37 @@ package com.upgrade.islandreservationsapi.repository;
 
 import com.upgrade.islandreservationsapi.model.DayAvailability;
 
+import java.time.LocalDate;
+import java.util.List;
+
 public interface DayAvailabilityRepositoryCustom {
 
-    void refresh(DayAvailability da);
+    /**
+     * Inserts, in a single statement, a DayAvailability record for every date of the Dates calendar
+     * in the range that does not have one yet. Existing records are left untouched.
+     * The statement reads the calendar with an index range scan, which locks the range of dates.
+     * @param fromDate inclusive
+     * @param toDate exclusive
+     * @param maxAvailability availability and max availability for the new records
+     * @return number of records created
+     */
+    int insertMissing(LocalDate fromDate, LocalDate toDate, int maxAvailability);
+
+    /**
+     * Reads the records of a range with plain JDBC, without adding them to the persistence context.
+     * @param fromDate inclusive
+     * @param toDate inclusive
+     * @param lock whether the records are locked for update until the end of the transaction
+     * @return records in date order
+     */
+    List<DayAvailability> readAvailabilities(LocalDate fromDate, LocalDate toDate, boolean lock);
+
+    /**
+     * Sets the availability of many records with a single JDBC batch, but only the ones that still have the
+     * availability they had when they were read.
+     * @param records records with the availability to set
+     * @param previous availability of every record when it was read
+     * @return whether every record was updated
+     */
+    boolean[] setAvailabilities(List<DayAvailability> records, int[] previous);
 }
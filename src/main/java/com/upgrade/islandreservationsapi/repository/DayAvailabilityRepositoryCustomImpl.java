@@ -2,8 +2,16 @@ package com.upgrade.islandreservationsapi.repository;
 
 import com.upgrade.islandreservationsapi.model.DayAvailability;
 
+import org.hibernate.Session;
+
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DayAvailabilityRepositoryCustomImpl implements DayAvailabilityRepositoryCustom {
 
@@ -11,7 +19,55 @@ public class DayAvailabilityRepositoryCustomImpl implements DayAvailabilityRepos
     private EntityManager em;
 
     @Override
-    public void refresh(DayAvailability da) {
-        em.refresh(da);
+    public int insertMissing(LocalDate fromDate, LocalDate toDate, int maxAvailability) {
+        return em.createNativeQuery("INSERT IGNORE INTO DayAvailability (Date, Availability, MaxAvailability, Version) " +
+                "SELECT d.Date, ?1, ?1, 0 FROM Dates d WHERE d.Date >= ?2 AND d.Date < ?3")
+                .setParameter(1, maxAvailability)
+                .setParameter(2, fromDate)
+                .setParameter(3, toDate)
+                .executeUpdate();
+    }
+
+    @Override
+    public List<DayAvailability> readAvailabilities(LocalDate fromDate, LocalDate toDate, boolean lock) {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            final List<DayAvailability> availabilities = new ArrayList<>();
+            try(PreparedStatement statement = connection.prepareStatement("SELECT Date, Availability, MaxAvailability " +
+                    "FROM DayAvailability WHERE Date >= ? AND Date <= ? ORDER BY Date" + (lock ? " FOR UPDATE" : ""))) {
+                statement.setDate(1, Date.valueOf(fromDate));
+                statement.setDate(2, Date.valueOf(toDate));
+                try(ResultSet rows = statement.executeQuery()) {
+                    while(rows.next()) {
+                        availabilities.add(new DayAvailability(rows.getDate(1).toLocalDate(),
+                                rows.getInt(2), rows.getInt(3)));
+                    }
+                }
+            }
+            return availabilities;
+        });
+    }
+
+    @Override
+    public boolean[] setAvailabilities(List<DayAvailability> records, int[] previous) {
+        final boolean[] updated = new boolean[records.size()];
+        if(records.isEmpty()) {
+            return updated;
+        }
+        em.unwrap(Session.class).doWork(connection -> {
+            try(PreparedStatement statement = connection.prepareStatement("UPDATE DayAvailability " +
+                    "SET Availability = ?, Version = Version + 1 WHERE Date = ? AND Availability = ?")) {
+                for(int i = 0; i < records.size(); i++) {
+                    statement.setInt(1, records.get(i).getAvailability());
+                    statement.setDate(2, Date.valueOf(records.get(i).getDate()));
+                    statement.setInt(3, previous[i]);
+                    statement.addBatch();
+                }
+                final int[] counts = statement.executeBatch();
+                for(int i = 0; i < counts.length; i++) {
+                    updated[i] = counts[i] != 0;
+                }
+            }
+        });
+        return updated;
     }
 }
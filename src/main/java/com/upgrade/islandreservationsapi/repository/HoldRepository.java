@@ -0,0 +1,46 @@
+package com.upgrade.islandreservationsapi.repository;
+
+import com.upgrade.islandreservationsapi.model.Hold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface HoldRepository extends JpaRepository<Hold, String> {
+
+    List<Hold> findByStatus(Hold.Status status);
+
+    /**
+     * @return start, end and number of persons of the holds with a status, without loading them as entities
+     */
+    @Query("select h.start, h.end, h.numberOfPersons from Hold h where h.status = :status")
+    List<Object[]> findStaysByStatus(@Param("status") Hold.Status status);
+
+    /**
+     * Reads and locks a hold for update, so it can't be confirmed, released and expired at the same time.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Hold> findAndLockByToken(String token);
+
+    /**
+     * Reads and locks many holds for update, in token order, so two transactions locking the same holds can't
+     * deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Hold> findAndLockByTokenInOrderByTokenAsc(Collection<String> tokens);
+
+    /**
+     * Sets the status of many holds.
+     * @return number of updated records
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Hold h set h.status = :status where h.token in :tokens")
+    int updateStatus(@Param("tokens") Collection<String> tokens, @Param("status") Hold.Status status);
+
+}
@@ -7,9 +7,15 @@ import org.springframework.data.jpa.repository.Lock;
 import javax.persistence.LockModeType;
 import java.util.Optional;
 
-public interface ReservationRepository extends JpaRepository<Reservation, Integer> {
+public interface ReservationRepository extends JpaRepository<Reservation, Integer>, ReservationRepositoryCustom {
 
-    @Lock(LockModeType.PESSIMISTIC_READ)
+    /**
+     * Reads and locks a reservation for update. It's an exclusive lock, so two transactions that update the same
+     * reservation can't deadlock upgrading a shared lock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
     Optional<Reservation> findAndLockById(Integer id);
 
+    Optional<Reservation> findByIdempotencyKey(String idempotencyKey);
+
 }
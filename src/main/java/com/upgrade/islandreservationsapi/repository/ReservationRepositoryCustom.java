@@ -0,0 +1,25 @@
+package com.upgrade.islandreservationsapi.repository;
+
+import com.upgrade.islandreservationsapi.model.Reservation;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ReservationRepositoryCustom {
+
+    /**
+     * Inserts new reservations using a single JDBC batch, and sets their generated IDs.
+     */
+    void insertAll(List<Reservation> reservations);
+
+    /**
+     * Streams the dates and number of persons of the active reservations that end after a date, with plain JDBC,
+     * without loading them into the persistence context.
+     * @param endAfter only reservations whose end is after this date are read
+     * @param fetchSize number of rows fetched from the database at once. MySQL only honours it with
+     * useCursorFetch=true in the connection URL.
+     * @param visitor called once per reservation
+     * @return number of reservations read
+     */
+    long visitActiveStays(LocalDate endAfter, int fetchSize, StayVisitor visitor);
+}
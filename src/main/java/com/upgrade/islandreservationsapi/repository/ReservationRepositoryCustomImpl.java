@@ -0,0 +1,72 @@
+package com.upgrade.islandreservationsapi.repository;
+
+import com.upgrade.islandreservationsapi.model.Reservation;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+
+public class ReservationRepositoryCustomImpl implements ReservationRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public void insertAll(List<Reservation> reservations) {
+        if(reservations.isEmpty()) {
+            return;
+        }
+        // IDENTITY ids disable the JDBC batching of Hibernate, so the batch is sent with plain JDBC
+        em.unwrap(Session.class).doWork(connection -> {
+            try(PreparedStatement statement = connection.prepareStatement("INSERT INTO Reservation " +
+                    "(FirstName, LastName, Email, Start, End, NumberOfPersons, Status, Version) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, 0)", Statement.RETURN_GENERATED_KEYS)) {
+                for(Reservation reservation: reservations) {
+                    statement.setString(1, reservation.getFistName());
+                    statement.setString(2, reservation.getLastName());
+                    statement.setString(3, reservation.getEmail());
+                    statement.setDate(4, Date.valueOf(reservation.getStart()));
+                    statement.setDate(5, Date.valueOf(reservation.getEnd()));
+                    statement.setInt(6, reservation.getNumberOfPersons());
+                    statement.setString(7, reservation.getStatus().name());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try(ResultSet keys = statement.getGeneratedKeys()) {
+                    for(Reservation reservation: reservations) {
+                        if(!keys.next()) {
+                            throw new IllegalStateException("Missing generated id for inserted reservation.");
+                        }
+                        reservation.setId(keys.getInt(1));
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public long visitActiveStays(LocalDate endAfter, int fetchSize, StayVisitor visitor) {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            long count = 0;
+            try(PreparedStatement statement = connection.prepareStatement("SELECT Start, End, NumberOfPersons " +
+                    "FROM Reservation WHERE Status = ? AND End > ?")) {
+                statement.setFetchSize(fetchSize);
+                statement.setString(1, Reservation.Status.ACTIVE.name());
+                statement.setDate(2, Date.valueOf(endAfter));
+                try(ResultSet rows = statement.executeQuery()) {
+                    while(rows.next()) {
+                        visitor.visit(rows.getDate(1).toLocalDate(), rows.getDate(2).toLocalDate(), rows.getInt(3));
+                        count++;
+                    }
+                }
+            }
+            return count;
+        });
+    }
+}
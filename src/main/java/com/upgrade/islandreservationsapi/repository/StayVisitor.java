@@ -0,0 +1,17 @@
+package com.upgrade.islandreservationsapi.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Receives the dates and number of persons of a stay (a reservation or a hold) read without creating an entity.
+ */
+@FunctionalInterface
+public interface StayVisitor {
+
+    /**
+     * @param start first night (inclusive)
+     * @param end last day (exclusive)
+     * @param numberOfPersons number of persons of the stay
+     */
+    void visit(LocalDate start, LocalDate end, int numberOfPersons);
+}
@@ -0,0 +1,26 @@
+package com.upgrade.islandreservationsapi.repository;
+
+import com.upgrade.islandreservationsapi.model.WaitingRoomTicket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface WaitingRoomTicketRepository extends JpaRepository<WaitingRoomTicket, String> {
+
+    List<WaitingRoomTicket> findByStatusInOrderBySequenceAsc(Collection<WaitingRoomTicket.Status> statuses);
+
+    /**
+     * Deletes many tickets. Tokens that don't exist are ignored.
+     * @return number of deleted records
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from WaitingRoomTicket t where t.token in :tokens")
+    int deleteByTokens(@Param("tokens") Collection<String> tokens);
+
+}
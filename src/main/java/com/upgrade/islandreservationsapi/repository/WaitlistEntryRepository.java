@@ -0,0 +1,28 @@
+package com.upgrade.islandreservationsapi.repository;
+
+import com.upgrade.islandreservationsapi.model.WaitlistEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Integer> {
+
+    List<WaitlistEntry> findByStatus(WaitlistEntry.Status status);
+
+    /**
+     * Reads and locks a waitlist entry for update, so it can't be cancelled while it is being booked.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<WaitlistEntry> findAndLockById(Integer id);
+
+    /**
+     * Reads and locks many waitlist entries for update, in the order they joined the waitlist.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<WaitlistEntry> findAndLockByIdInOrderByIdAsc(Collection<Integer> ids);
+
+}
@@ -0,0 +1,249 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.dto.DayAvailabilityDTO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes committed availability changes to Server-Sent Events subscribers. Every subscriber has a bounded queue
+ * drained by a small pool of sender threads, so publishing never blocks. A subscriber whose queue is full is
+ * too slow to keep up and is disconnected; it can subscribe again and read the current availability.
+ * Sends are blocking writes, so every send is watched: a subscriber whose send takes longer than the write timeout
+ * is disconnected by completing its async request, which closes the connection and fails the stalled write.
+ * An emitter holds its monitor for the whole send, so it is only ever completed by the sender thread draining the
+ * subscriber: publishers and the watchdog only mark the subscriber as dropped and never wait for a send.
+ */
+@Component
+public class AvailabilityBroadcaster {
+
+    @Autowired
+    private AvailabilityLedger ledger;
+
+    @Value("${island.stream.queue-size:64}")
+    private int queueSize;
+
+    @Value("${island.stream.timeout-ms:1800000}")
+    private long timeout;
+
+    @Value("${island.stream.sender-threads:2}")
+    private int senderThreads;
+
+    @Value("${island.stream.write-timeout-ms:5000}")
+    private long writeTimeoutMs;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService sender;
+
+    private ScheduledExecutorService watchdog;
+
+    private final Logger logger = LogManager.getLogger(AvailabilityBroadcaster.class);
+
+    @PostConstruct
+    public void init() {
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("availability-stream-");
+        threadFactory.setDaemon(true);
+        sender = Executors.newFixedThreadPool(senderThreads, threadFactory);
+        final CustomizableThreadFactory watchdogThreadFactory = new CustomizableThreadFactory("availability-stream-watchdog-");
+        watchdogThreadFactory.setDaemon(true);
+        watchdog = Executors.newSingleThreadScheduledExecutor(watchdogThreadFactory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(s -> drop(s, null));
+        sender.shutdown();
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * Subscribes to the changes of the availability of the dates in the range.
+     * @param fromDate inclusive
+     * @param toDate inclusive
+     * @return emitter to which changes are sent
+     */
+    public SseEmitter subscribe(LocalDate fromDate, LocalDate toDate) {
+        final RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        final HttpServletRequest request = attributes instanceof ServletRequestAttributes
+                ? ((ServletRequestAttributes) attributes).getRequest() : null;
+        return subscribe(new SseEmitter(timeout), fromDate, toDate, () -> {
+            if(request != null && request.isAsyncStarted()) {
+                request.getAsyncContext().complete();
+            }
+        });
+    }
+
+    /**
+     * @param closeConnection closes the connection of the emitter without taking its monitor. Only called while a
+     * send is in progress, so the request is still active
+     */
+    SseEmitter subscribe(SseEmitter emitter, LocalDate fromDate, LocalDate toDate, Runnable closeConnection) {
+        final Subscriber subscriber = new Subscriber(emitter, fromDate, toDate, closeConnection);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        logger.debug("subscribe(): {} subscriber(s).", subscribers.size());
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Sends the new availability of the changed dates, as read from the ledger after it applied the change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAvailabilityChanged(AvailabilityChangedEvent event) {
+        if(subscribers.isEmpty() || event.getDeltas().isEmpty()) {
+            return;
+        }
+        final List<DayAvailabilityDTO> changes = new ArrayList<>(event.getDeltas().size());
+        // changes of past dates are not in the ledger, and nobody subscribes to them
+        ledger.forEachWithinWindow(event.getDeltas().firstKey(), event.getDeltas().lastKey(), (d, a, m) -> {
+            if(event.getDeltas().containsKey(d)) {
+                final DayAvailabilityDTO change = new DayAvailabilityDTO();
+                change.setDate(d);
+                change.setAvailability(a);
+                changes.add(change);
+            }
+        });
+        for(Subscriber subscriber: subscribers) {
+            for(DayAvailabilityDTO change: changes) {
+                if(subscriber.accepts(change.getDate()) && !subscriber.offer(change)) {
+                    logger.info("onAvailabilityChanged(): dropping slow subscriber.");
+                    drop(subscriber, null);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Disconnects a subscriber without waiting: its emitter is completed by its sender thread, once any send in
+     * progress finishes.
+     * @param error error to complete the emitter with, or null to complete it normally
+     */
+    private void drop(Subscriber subscriber, Throwable error) {
+        if(!subscribers.remove(subscriber)) {
+            return;
+        }
+        subscriber.error = error;
+        subscriber.dropped = true;
+        subscriber.queue.clear();
+        if(subscriber.draining.compareAndSet(false, true)) {
+            sender.execute(subscriber::drain);
+        }
+    }
+
+    private void stalled(Subscriber subscriber) {
+        if(subscribers.contains(subscriber)) {
+            logger.info("stalled(): dropping subscriber whose send took longer than {} ms.", writeTimeoutMs);
+            drop(subscriber, new IOException("Send timed out after " + writeTimeoutMs + " ms."));
+            subscriber.closeConnection.run();
+        }
+    }
+
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+        private final LocalDate fromDate;
+        private final LocalDate toDate;
+        private final Runnable closeConnection;
+        private final BlockingQueue<DayAvailabilityDTO> queue = new ArrayBlockingQueue<>(queueSize);
+        // true while a sender thread owns the subscriber: only that thread sends to or completes the emitter
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean dropped;
+        private volatile Throwable error;
+
+        private Subscriber(SseEmitter emitter, LocalDate fromDate, LocalDate toDate, Runnable closeConnection) {
+            this.emitter = emitter;
+            this.fromDate = fromDate;
+            this.toDate = toDate;
+            this.closeConnection = closeConnection;
+        }
+
+        private boolean accepts(LocalDate date) {
+            return !date.isBefore(fromDate) && !date.isAfter(toDate);
+        }
+
+        private boolean offer(DayAvailabilityDTO change) {
+            if(!queue.offer(change)) {
+                return false;
+            }
+            if(draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+            return true;
+        }
+
+        private void drain() {
+            do {
+                DayAvailabilityDTO change;
+                while(!dropped && (change = queue.poll()) != null) {
+                    final ScheduledFuture<?> timeout =
+                            watchdog.schedule(() -> stalled(this), writeTimeoutMs, TimeUnit.MILLISECONDS);
+                    try {
+                        emitter.send(SseEmitter.event().name("availability").data(change, MediaType.APPLICATION_JSON));
+                    } catch (IOException | IllegalStateException e) {
+                        logger.debug("drain(): subscriber disconnected: {}", e.getMessage());
+                        subscribers.remove(this);
+                        queue.clear();
+                        return;
+                    } finally {
+                        timeout.cancel(false);
+                    }
+                }
+                if(dropped) {
+                    // draining is left set, so the emitter is completed only once
+                    complete();
+                    return;
+                }
+                draining.set(false);
+                // a change may have been queued, or the subscriber dropped, after the last poll but before the flag
+                // was cleared
+            } while((dropped || !queue.isEmpty()) && draining.compareAndSet(false, true));
+        }
+
+        private void complete() {
+            try {
+                if(error == null) {
+                    emitter.complete();
+                } else {
+                    emitter.completeWithError(error);
+                }
+            } catch (IllegalStateException e) {
+                logger.debug("complete(): subscriber already completed: {}", e.getMessage());
+            }
+        }
+    }
+}
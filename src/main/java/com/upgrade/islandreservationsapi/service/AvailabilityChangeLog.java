@@ -0,0 +1,127 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.model.AvailabilityChange;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.repository.AvailabilityChangeRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends every {@link AvailabilityChangedEvent} to the AvailabilityChange table, one record per date, in the
+ * transaction that changed the availability. The records of a transaction are written in one batch right
+ * before it commits, so the ids of reservations created in it are known. Changes made after a commit, like the
+ * waitlist bookings (see {@link WaitlistMatcher}), are made in a new transaction and logged with it.
+ * Callers describe why they change the availability with {@link #describe}; see {@link AvailabilitySnapshotService}
+ * for how the log is used. Changes published outside of a transaction are not logged.
+ */
+@Component
+public class AvailabilityChangeLog implements MeterBinder {
+
+    @Autowired
+    private AvailabilityChangeRepository changeRepository;
+
+    private final AtomicLong appended = new AtomicLong();
+
+    /**
+     * Sets the cause and reservation logged for the availability changes made from now on in the current
+     * transaction. Does nothing outside of a transaction.
+     * @param cause cause of the changes
+     * @param reservation reservation the changes are made for, or null if they are not made for a single one.
+     * Its id is read when the changes are written, so it can be a reservation that is not saved yet.
+     */
+    public void describe(AvailabilityChange.Cause cause, Reservation reservation) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        final PendingChanges pending = pendingChanges();
+        pending.cause = cause;
+        pending.reservation = reservation;
+    }
+
+    @EventListener
+    public void onAvailabilityChanged(AvailabilityChangedEvent event) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // changes kept in the JournalBookingStore, which is its own log
+            return;
+        }
+        final PendingChanges pending = pendingChanges();
+        event.getDeltas().forEach(pending::add);
+    }
+
+    private PendingChanges pendingChanges() {
+        // synchronizations are suspended with their transaction, unlike bound resources
+        for(TransactionSynchronization synchronization: TransactionSynchronizationManager.getSynchronizations()) {
+            if(synchronization instanceof PendingChanges && ((PendingChanges) synchronization).owner() == this) {
+                return (PendingChanges) synchronization;
+            }
+        }
+        final PendingChanges pending = new PendingChanges();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    private void append(List<AvailabilityChange> changes) {
+        changeRepository.appendAll(changes);
+        appended.addAndGet(changes.size());
+    }
+
+    private class PendingChanges extends TransactionSynchronizationAdapter {
+
+        private final List<LocalDate> dates = new ArrayList<>();
+        private final List<Integer> deltas = new ArrayList<>();
+        private final List<AvailabilityChange.Cause> causes = new ArrayList<>();
+        private final List<Reservation> reservations = new ArrayList<>();
+        private AvailabilityChange.Cause cause = AvailabilityChange.Cause.OTHER;
+        private Reservation reservation;
+
+        private AvailabilityChangeLog owner() {
+            return AvailabilityChangeLog.this;
+        }
+
+        private void add(LocalDate date, int delta) {
+            dates.add(date);
+            deltas.add(delta);
+            causes.add(cause);
+            reservations.add(reservation);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            final Instant now = Instant.now();
+            final List<AvailabilityChange> changes = new ArrayList<>(dates.size());
+            for(int i = 0; i < dates.size(); i++) {
+                final Reservation reservation = reservations.get(i);
+                changes.add(new AvailabilityChange(dates.get(i), deltas.get(i),
+                        reservation == null ? null : reservation.getId(), causes.get(i), now));
+            }
+            append(changes);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("island.availability.changes.logged", appended, AtomicLong::get)
+                .description("Records appended to the availability change log")
+                .register(registry);
+    }
+
+    /**
+     * @return number of records appended to the change log
+     */
+    public long getAppended() {
+        return appended.get();
+    }
+}
@@ -0,0 +1,31 @@
+package com.upgrade.islandreservationsapi.service;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Published by {@link DayAvailabilityService} implementations every time the availability of one or more
+ * dates is changed in the database. Deltas are relative (negative when capacity is taken, positive when it is
+ * released) so listeners can apply them in any order.
+ */
+public class AvailabilityChangedEvent {
+
+    private final SortedMap<LocalDate, Integer> deltas;
+
+    public AvailabilityChangedEvent(SortedMap<LocalDate, Integer> deltas) {
+        this.deltas = Collections.unmodifiableSortedMap(new TreeMap<>(deltas));
+    }
+
+    public SortedMap<LocalDate, Integer> getDeltas() {
+        return deltas;
+    }
+
+    @Override
+    public String toString() {
+        return "AvailabilityChangedEvent{" +
+                "deltas=" + deltas +
+                '}';
+    }
+}
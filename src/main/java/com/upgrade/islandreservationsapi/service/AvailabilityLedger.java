@@ -0,0 +1,429 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.model.DayAvailability;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * In-memory copy of the availability for the whole booking horizon. Values are kept in primitive arrays used as
+ * ring buffers indexed by epoch day, so the window rolls forward with the calendar without reallocating.
+ * The ledger is loaded once at startup and then kept up to date with the deltas of every committed
+ * {@link AvailabilityChangedEvent}. Changes the events do not carry (other nodes, manual updates) are picked up by
+ * {@link #resync}. Every load, every applied event and every resync that corrects a date increments the ledger
+ * version.
+ * A min segment tree over the ring slots answers "first date below a given availability" in O(log n), which is
+ * used to search for dates where a stay fits.
+ */
+@Component
+public class AvailabilityLedger {
+
+    private static final int NOT_COVERED = Integer.MIN_VALUE;
+
+    private final StampedLock lock = new StampedLock();
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final Logger logger = LogManager.getLogger(AvailabilityLedger.class);
+
+    // optional so the ledger can be built without a context. Without it, rolling keeps the loaded max availability
+    @Autowired(required = false)
+    private ConfigurationService configurationService;
+
+    private int[] availability = new int[0];
+    private int[] maxAvailability = new int[0];
+    // min segment tree over the availability slots. leaves start at treeSize, unused leaves hold Integer.MAX_VALUE
+    private int[] minTree = new int[0];
+    private int treeSize;
+    // first and last (inclusive) epoch day held in the ring buffers
+    private volatile long firstDay;
+    private long lastDay = -1;
+    private int defaultMaxAvailability;
+    private volatile boolean loaded;
+    // differences (availability, max availability) found by the last resync, by epoch day
+    private Map<Long, int[]> resyncDifferences = new HashMap<>();
+
+    /**
+     * Replaces the content of the ledger.
+     * @param firstDate first date of the window
+     * @param days number of days in the window
+     * @param defaultMaxAvailability availability for the dates without a DayAvailability record
+     * @param rows DayAvailability records within the window
+     */
+    public void load(LocalDate firstDate, int days, int defaultMaxAvailability, List<DayAvailability> rows) {
+        final long stamp = lock.writeLock();
+        try {
+            this.availability = new int[days];
+            this.maxAvailability = new int[days];
+            this.treeSize = Integer.highestOneBit(Math.max(days, 1) * 2 - 1);
+            this.minTree = new int[treeSize * 2];
+            Arrays.fill(minTree, Integer.MAX_VALUE);
+            this.defaultMaxAvailability = defaultMaxAvailability;
+            this.firstDay = firstDate.toEpochDay();
+            this.lastDay = firstDay + days - 1;
+            for(long day = firstDay; day <= lastDay; day++) {
+                resetSlot(day);
+            }
+            for(DayAvailability row: rows) {
+                final long day = row.getDate().toEpochDay();
+                if(day >= firstDay && day <= lastDay) {
+                    availability[slot(day)] = row.getAvailability();
+                    maxAvailability[slot(day)] = row.getMaxAvailability();
+                }
+            }
+            for(int slot = 0; slot < days; slot++) {
+                minTree[treeSize + slot] = availability[slot];
+            }
+            for(int node = treeSize - 1; node >= 1; node--) {
+                minTree[node] = Math.min(minTree[2 * node], minTree[2 * node + 1]);
+            }
+            resyncDifferences = new HashMap<>();
+            loaded = true;
+            version.incrementAndGet();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        logger.info("Availability ledger loaded for {} days starting {} ({} records).", days, firstDate, rows.size());
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Returns a number that increases every time committed availability changes. It is incremented after the
+     * change is applied, so data read after reading the version is at least as recent as the version.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Visits the availability of every date in the range.
+     * @param fromDate inclusive
+     * @param toDate inclusive
+     * @param visitor called once per date, in ascending order
+     * @return false (without visiting any date) if the ledger is not loaded or does not cover the whole range
+     */
+    public boolean forEach(LocalDate fromDate, LocalDate toDate, DayAvailabilityVisitor visitor) {
+        if(!loaded) {
+            return false;
+        }
+        rollTo(LocalDate.now().toEpochDay());
+        final long from = fromDate.toEpochDay();
+        final long to = toDate.toEpochDay();
+        final int days = (int) (to - from + 1);
+        final int[] availabilityCopy = new int[days];
+        final int[] maxCopy = new int[days];
+
+        long stamp = lock.tryOptimisticRead();
+        boolean covered = copy(from, to, availabilityCopy, maxCopy);
+        if(!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                covered = copy(from, to, availabilityCopy, maxCopy);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if(!covered) {
+            return false;
+        }
+        for(int i = 0; i < days; i++) {
+            visitor.visit(LocalDate.ofEpochDay(from + i), availabilityCopy[i], maxCopy[i]);
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@link #forEach}, but only visits the dates of the range within the window.
+     * @param fromDate inclusive
+     * @param toDate inclusive
+     * @param visitor called once per date, in ascending order
+     * @return false (without visiting any date) if the ledger is not loaded or no date of the range is in the window
+     */
+    public boolean forEachWithinWindow(LocalDate fromDate, LocalDate toDate, DayAvailabilityVisitor visitor) {
+        if(!loaded) {
+            return false;
+        }
+        rollTo(LocalDate.now().toEpochDay());
+        final long from;
+        final long to;
+        final long stamp = lock.readLock();
+        try {
+            from = Math.max(fromDate.toEpochDay(), firstDay);
+            to = Math.min(toDate.toEpochDay(), lastDay);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return from <= to && forEach(LocalDate.ofEpochDay(from), LocalDate.ofEpochDay(to), visitor);
+    }
+
+    /**
+     * Applies committed availability changes. Dates outside of the window are ignored.
+     * Runs before any other listener, so listeners can read the new availability from the ledger.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onAvailabilityChanged(AvailabilityChangedEvent event) {
+        if(!loaded) {
+            version.incrementAndGet();
+            return;
+        }
+        rollTo(LocalDate.now().toEpochDay());
+        final long stamp = lock.writeLock();
+        try {
+            for(Map.Entry<LocalDate, Integer> delta: event.getDeltas().entrySet()) {
+                final long day = delta.getKey().toEpochDay();
+                if(day >= firstDay && day <= lastDay) {
+                    availability[slot(day)] += delta.getValue();
+                    updateTree(slot(day));
+                }
+            }
+            // inside the lock, so resync can tell whether an event was applied while it read the database
+            version.incrementAndGet();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        logger.debug("Applied {} to availability ledger.", event);
+    }
+
+    /**
+     * Corrects the ledger with DayAvailability records read from the database, for the changes that are not
+     * published as events on this node. A date is only corrected when the same difference was also found by the
+     * previous resync: a commit whose event is not applied yet when the records are read shows up as a difference
+     * only once, so it is not counted twice.
+     * @param readVersion ledger version read before reading the records. Nothing is corrected if it changed since
+     * @param rows DayAvailability records. Dates outside of the window are ignored
+     * @return number of dates corrected
+     */
+    public int resync(long readVersion, List<DayAvailability> rows) {
+        if(!loaded) {
+            return 0;
+        }
+        rollTo(LocalDate.now().toEpochDay());
+        final long stamp = lock.writeLock();
+        try {
+            if(version.get() != readVersion) {
+                logger.debug("Availability ledger changed while reading version {}. Skipping resync.", readVersion);
+                return 0;
+            }
+            final Map<Long, int[]> differences = new HashMap<>();
+            int corrected = 0;
+            for(DayAvailability row: rows) {
+                final long day = row.getDate().toEpochDay();
+                if(day < firstDay || day > lastDay) {
+                    continue;
+                }
+                final int slot = slot(day);
+                final int[] difference = {row.getAvailability() - availability[slot],
+                        row.getMaxAvailability() - maxAvailability[slot]};
+                if(difference[0] == 0 && difference[1] == 0) {
+                    continue;
+                }
+                if(!Arrays.equals(difference, resyncDifferences.get(day))) {
+                    differences.put(day, difference);
+                    continue;
+                }
+                logger.info("Availability ledger resync: {} was {} of {}, database has {} of {}.", row.getDate(),
+                        availability[slot], maxAvailability[slot], row.getAvailability(), row.getMaxAvailability());
+                availability[slot] = row.getAvailability();
+                maxAvailability[slot] = row.getMaxAvailability();
+                updateTree(slot);
+                corrected++;
+            }
+            resyncDifferences = differences;
+            if(corrected > 0) {
+                version.incrementAndGet();
+            }
+            return corrected;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Reads the lowest availability of a range of dates. Lock-free unless a change is being applied at the same
+     * time, so it can be called before every booking.
+     * @param fromDate inclusive
+     * @param toDate inclusive
+     * @return lowest availability, or empty if the ledger is not loaded or does not cover the whole range
+     */
+    public OptionalInt minAvailability(LocalDate fromDate, LocalDate toDate) {
+        if(!loaded) {
+            return OptionalInt.empty();
+        }
+        rollTo(LocalDate.now().toEpochDay());
+        final long from = fromDate.toEpochDay();
+        final long to = toDate.toEpochDay();
+        long stamp = lock.tryOptimisticRead();
+        int min = min(from, to);
+        if(!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                min = min(from, to);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return min == NOT_COVERED ? OptionalInt.empty() : OptionalInt.of(min);
+    }
+
+    /**
+     * Finds the first dates in which a stay of the given number of nights can start, having at least the given
+     * availability for every night.
+     * @param fromDate first possible start date (inclusive)
+     * @param toDate last possible start date (inclusive)
+     * @param nights number of nights of the stay
+     * @param persons minimum availability for every night
+     * @param limit max number of start dates to find
+     * @param startDates list to which the start dates found are added, in ascending order
+     * @return false (without adding any date) if the ledger is not loaded or does not cover all the nights
+     */
+    public boolean findStartDates(LocalDate fromDate, LocalDate toDate, int nights, int persons, int limit,
+                                  List<LocalDate> startDates) {
+        if(!loaded) {
+            return false;
+        }
+        rollTo(LocalDate.now().toEpochDay());
+        final long lastStart = toDate.toEpochDay();
+        final long lastNight = lastStart + nights - 1;
+        final long stamp = lock.readLock();
+        try {
+            if(fromDate.toEpochDay() < firstDay || lastNight > lastDay) {
+                return false;
+            }
+            long day = fromDate.toEpochDay();
+            while(day <= lastStart && startDates.size() < limit) {
+                // every night from day to the one before the first full night is available
+                final long full = firstBelow(day, lastNight, persons);
+                final long lastAvailable = full < 0 ? lastNight : full - 1;
+                for(long start = day; start <= Math.min(lastAvailable - nights + 1, lastStart)
+                        && startDates.size() < limit; start++) {
+                    startDates.add(LocalDate.ofEpochDay(start));
+                }
+                if(full < 0) {
+                    break;
+                }
+                day = full + 1;
+            }
+            return true;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private int min(long from, long to) {
+        // read the field once: during an optimistic read it may be replaced concurrently by load()
+        final int[] availabilitySlots = this.availability;
+        if(from < firstDay || to > lastDay || to - from >= availabilitySlots.length) {
+            return NOT_COVERED;
+        }
+        int min = Integer.MAX_VALUE;
+        for(long day = from; day <= to; day++) {
+            min = Math.min(min, availabilitySlots[(int) Math.floorMod(day, (long) availabilitySlots.length)]);
+        }
+        return min;
+    }
+
+    private boolean copy(long from, long to, int[] availabilityCopy, int[] maxCopy) {
+        // read the fields once: during an optimistic read they may be replaced concurrently by load()
+        final int[] availabilitySlots = this.availability;
+        final int[] maxSlots = this.maxAvailability;
+        if(from < firstDay || to > lastDay || availabilitySlots.length != maxSlots.length) {
+            return false;
+        }
+        for(long day = from; day <= to; day++) {
+            final int slot = (int) Math.floorMod(day, (long) availabilitySlots.length);
+            availabilityCopy[(int) (day - from)] = availabilitySlots[slot];
+            maxCopy[(int) (day - from)] = maxSlots[slot];
+        }
+        return true;
+    }
+
+    private void rollTo(long today) {
+        if(today <= firstDay) {
+            return;
+        }
+        // read before locking: it may have to refresh the configuration from the database
+        final int newMaxAvailability = configurationService == null
+                ? defaultMaxAvailability : configurationService.getSnapshot().getMaxAvailability();
+        final long stamp = lock.writeLock();
+        try {
+            if(today <= firstDay) {
+                return;
+            }
+            defaultMaxAvailability = newMaxAvailability;
+            final long newLastDay = today + availability.length - 1;
+            for(long day = Math.max(lastDay + 1, today); day <= newLastDay; day++) {
+                resetSlot(day);
+            }
+            firstDay = today;
+            lastDay = newLastDay;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void resetSlot(long day) {
+        availability[slot(day)] = defaultMaxAvailability;
+        maxAvailability[slot(day)] = defaultMaxAvailability;
+        updateTree(slot(day));
+    }
+
+    private void updateTree(int slot) {
+        int node = treeSize + slot;
+        minTree[node] = availability[slot];
+        for(node /= 2; node >= 1; node /= 2) {
+            minTree[node] = Math.min(minTree[2 * node], minTree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * @return first epoch day in the range (inclusive) with availability below the threshold, or -1
+     */
+    private long firstBelow(long fromDay, long toDay, int threshold) {
+        final int fromSlot = slot(fromDay);
+        final int toSlot = slot(toDay);
+        if(fromSlot <= toSlot) {
+            final int slot = firstBelow(1, 0, treeSize - 1, fromSlot, toSlot, threshold);
+            return slot < 0 ? -1 : fromDay + slot - fromSlot;
+        }
+        // the range wraps around the end of the ring
+        int slot = firstBelow(1, 0, treeSize - 1, fromSlot, availability.length - 1, threshold);
+        if(slot >= 0) {
+            return fromDay + slot - fromSlot;
+        }
+        slot = firstBelow(1, 0, treeSize - 1, 0, toSlot, threshold);
+        return slot < 0 ? -1 : fromDay + availability.length - fromSlot + slot;
+    }
+
+    private int firstBelow(int node, int nodeFrom, int nodeTo, int from, int to, int threshold) {
+        if(nodeTo < from || nodeFrom > to || minTree[node] >= threshold) {
+            return -1;
+        }
+        if(nodeFrom == nodeTo) {
+            return nodeFrom;
+        }
+        final int middle = (nodeFrom + nodeTo) / 2;
+        final int left = firstBelow(2 * node, nodeFrom, middle, from, to, threshold);
+        return left >= 0 ? left : firstBelow(2 * node + 1, middle + 1, nodeTo, from, to, threshold);
+    }
+
+    private int slot(long day) {
+        return (int) Math.floorMod(day, (long) availability.length);
+    }
+}
@@ -0,0 +1,184 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.model.AvailabilityChange;
+import com.upgrade.islandreservationsapi.model.DayAvailability;
+import com.upgrade.islandreservationsapi.model.Hold;
+import com.upgrade.islandreservationsapi.repository.DayAvailabilityRepository;
+import com.upgrade.islandreservationsapi.repository.HoldRepository;
+import com.upgrade.islandreservationsapi.repository.ReservationRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Detects DayAvailability records out of sync with the reservations and holds, for instance after a partial
+ * failure or a manual SQL edit. The expected availability of a date is its max availability minus the persons
+ * of the active reservations and holds staying that night. Reservations are streamed with plain JDBC and
+ * added up with an {@link OccupancyCalculator}, so no entity is loaded.
+ * When repairing, the records of the calendar are locked first, so no booking changes them until the repair
+ * commits, and every drifted record is set to its expected availability in one JDBC batch. Repairs are
+ * published like any other availability change, and the availability ledger is reloaded once they commit.
+ * Runs every night, repairing only when island.reconciliation.repair is true, and on demand from the
+ * reconciliation actuator endpoint. Disabled in journal mode, where the availability is not kept in the database.
+ */
+@Component
+@ConditionalOnProperty(prefix = "island.journal", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class AvailabilityReconciliationJob implements MeterBinder {
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private HoldRepository holdRepository;
+
+    @Autowired
+    private DayAvailabilityRepository availabilityRepository;
+
+    @Autowired
+    private ConfigurationService configurationService;
+
+    @Autowired
+    private DayAvailabilityService availabilityService;
+
+    @Autowired
+    private AvailabilityChangeLog changeLog;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${island.reconciliation.repair:false}")
+    private boolean repairOnSchedule;
+
+    @Value("${island.reconciliation.fetch-size:10000}")
+    private int fetchSize;
+
+    private final AtomicInteger drifted = new AtomicInteger();
+
+    private final AtomicLong repaired = new AtomicLong();
+
+    private final Logger logger = LogManager.getLogger(AvailabilityReconciliationJob.class);
+
+    @Scheduled(cron = "${island.reconciliation.cron:0 30 3 * * *}")
+    public void reconcileOnSchedule() {
+        reconcile(repairOnSchedule);
+    }
+
+    /**
+     * Compares the availability of every date of the calendar with its reservations and holds.
+     * @param repair whether the drifted dates are set to their expected availability
+     * @return the drifted dates
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public ReconciliationReport reconcile(boolean repair) {
+        final long start = System.nanoTime();
+        final ConfigurationSnapshot configuration = configurationService.getSnapshot();
+        final LocalDate today = LocalDate.now();
+        // same window as the calendar
+        final LocalDate fromDate = today.minusDays(configuration.getMaxReservation());
+        final LocalDate toDate = today.plusDays(configuration.getHorizonDays() - 1);
+        final List<DayAvailability> availabilities = availabilityRepository.readAvailabilities(fromDate, toDate, repair);
+
+        final OccupancyCalculator occupancy = new OccupancyCalculator(fromDate, toDate);
+        reservationRepository.visitActiveStays(fromDate, fetchSize, occupancy::add);
+        for(Object[] hold: holdRepository.findStaysByStatus(Hold.Status.HELD)) {
+            occupancy.add((LocalDate) hold[0], (LocalDate) hold[1], (Integer) hold[2]);
+        }
+        final int[] persons = occupancy.compute(ForkJoinPool.commonPool());
+
+        final ReconciliationReport report = new ReconciliationReport(fromDate, toDate, occupancy.getStays(),
+                availabilities.size());
+        final List<DayAvailability> repairs = new ArrayList<>();
+        final List<ReconciliationReport.Drift> drifts = new ArrayList<>();
+        for(DayAvailability availability: availabilities) {
+            final int expected = availability.getMaxAvailability()
+                    - persons[(int) ChronoUnit.DAYS.between(fromDate, availability.getDate())];
+            if(availability.getAvailability() != expected) {
+                final ReconciliationReport.Drift drift = new ReconciliationReport.Drift(availability.getDate(),
+                        availability.getAvailability(), expected);
+                report.addDrift(drift);
+                drifts.add(drift);
+                repairs.add(new DayAvailability(availability.getDate(), expected, availability.getMaxAvailability()));
+            }
+        }
+        if(repair && !repairs.isEmpty()) {
+            repair(drifts, repairs);
+        }
+        drifted.set(drifts.size());
+        report.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if(drifts.isEmpty()) {
+            logger.info("reconcile(): availability of {} dates matches {} stays ({} ms).",
+                    report.getDates(), report.getStays(), report.getElapsedMs());
+        } else {
+            logger.warn("reconcile(): {} of {} dates drifted from {} stays, {} repaired ({} ms): {}", drifts.size(),
+                    report.getDates(), report.getStays(), report.getRepaired(), report.getElapsedMs(), drifts);
+        }
+        return report;
+    }
+
+    private void repair(List<ReconciliationReport.Drift> drifts, List<DayAvailability> repairs) {
+        final int[] previous = drifts.stream().mapToInt(ReconciliationReport.Drift::getAvailability).toArray();
+        final boolean[] updated = availabilityRepository.setAvailabilities(repairs, previous);
+        final TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        for(int i = 0; i < updated.length; i++) {
+            final ReconciliationReport.Drift drift = drifts.get(i);
+            drift.setRepaired(updated[i]);
+            if(updated[i]) {
+                deltas.put(drift.getDate(), drift.getExpected() - drift.getAvailability());
+            }
+        }
+        if(!deltas.isEmpty()) {
+            changeLog.describe(AvailabilityChange.Cause.RECONCILIATION, null);
+            eventPublisher.publishEvent(new AvailabilityChangedEvent(deltas));
+            repaired.addAndGet(deltas.size());
+            // the ledger may have drifted too. Reloaded once the event has been applied to it after commit
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if(status == STATUS_COMMITTED) {
+                        availabilityService.loadLedger();
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("island.reconciliation.drifted", drifted, AtomicInteger::get)
+                .description("Dates whose availability did not match their reservations in the last reconciliation")
+                .register(registry);
+        FunctionCounter.builder("island.reconciliation.repaired", repaired, AtomicLong::get)
+                .description("Dates whose availability was repaired by the reconciliation")
+                .register(registry);
+    }
+
+    /**
+     * @return number of dates repaired since startup
+     */
+    public long getRepaired() {
+        return repaired.get();
+    }
+}
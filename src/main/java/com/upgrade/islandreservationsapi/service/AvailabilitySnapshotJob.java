@@ -0,0 +1,23 @@
+package com.upgrade.islandreservationsapi.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checkpoints the availability periodically, so rebuilding it only replays the changes logged since the last
+ * checkpoint (see {@link AvailabilitySnapshotService}). Disabled in journal mode, along with the snapshot service.
+ */
+@Component
+@ConditionalOnProperty(prefix = "island.journal", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class AvailabilitySnapshotJob {
+
+    @Autowired
+    private AvailabilitySnapshotService snapshotService;
+
+    @Scheduled(cron = "${island.availability.snapshot-cron:0 */15 * * * *}")
+    public void snapshot() {
+        snapshotService.takeSnapshot();
+    }
+}
@@ -0,0 +1,34 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.model.AvailabilitySnapshot;
+
+import java.util.Optional;
+
+public interface AvailabilitySnapshotService {
+
+    /**
+     * Copies the availability of every date to a new snapshot, along with the position of the change log it
+     * includes. Waits for the transactions that are changing the availability, and blocks new ones until the
+     * copy is committed. Older snapshots are deleted, except for the most recent ones.
+     * @return the new snapshot, or the latest one if no change was logged since it was taken
+     */
+    AvailabilitySnapshot takeSnapshot();
+
+    /**
+     * Rebuilds the availability of every date from the latest snapshot plus the changes logged after it, and
+     * reloads the ledger once committed. Without a snapshot, the whole change log is replayed on top of the
+     * max availability of every date. Ledgers of other nodes have to be reloaded separately.
+     * @return number of replayed change log records
+     */
+    long rebuildAvailability();
+
+    /**
+     * @return the latest snapshot, if any
+     */
+    Optional<AvailabilitySnapshot> getLatestSnapshot();
+
+    /**
+     * @return number of change log records written after the latest snapshot, which a rebuild would replay
+     */
+    long getPendingChanges();
+}
@@ -0,0 +1,110 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.model.AvailabilitySnapshot;
+import com.upgrade.islandreservationsapi.repository.AvailabilityChangeRepository;
+import com.upgrade.islandreservationsapi.repository.AvailabilitySnapshotRepository;
+import com.upgrade.islandreservationsapi.repository.DayAvailabilityRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@ConditionalOnProperty(prefix = "island.journal", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class AvailabilitySnapshotServiceImpl implements AvailabilitySnapshotService {
+
+    @Autowired
+    private AvailabilitySnapshotRepository snapshotRepository;
+
+    @Autowired
+    private AvailabilityChangeRepository changeRepository;
+
+    @Autowired
+    private DayAvailabilityRepository availabilityRepository;
+
+    @Autowired
+    private DayAvailabilityService availabilityService;
+
+    @Value("${island.availability.snapshots-retained:2}")
+    private int snapshotsRetained;
+
+    private final Logger logger = LogManager.getLogger(AvailabilitySnapshotServiceImpl.class);
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public AvailabilitySnapshot takeSnapshot() {
+        // transactions write their change log records before committing, while they still lock the records they
+        // updated, so once every record is locked the log has no gaps up to its last id
+        final int dates = availabilityRepository.findAndLockAll().size();
+        final long lastChangeId = changeRepository.findLastId();
+        final Optional<AvailabilitySnapshot> latest = snapshotRepository.findFirstByOrderByIdDesc();
+        if(latest.isPresent() && latest.get().getLastChangeId() == lastChangeId) {
+            logger.info("takeSnapshot(): no changes since snapshot {}.", latest.get().getId());
+            return latest.get();
+        }
+        final AvailabilitySnapshot snapshot = snapshotRepository.save(new AvailabilitySnapshot(lastChangeId, Instant.now()));
+        snapshot.setDays(snapshotRepository.copyDayAvailability(snapshot.getId()));
+        final long keepFrom = snapshot.getId() - snapshotsRetained + 1;
+        snapshotRepository.deleteDaysBefore(keepFrom);
+        final int deleted = snapshotRepository.deleteBefore(keepFrom);
+        logger.info("takeSnapshot(): snapshot {} has the availability of {} of {} dates up to change {}. " +
+                "Deleted {} old snapshots.", snapshot.getId(), snapshot.getDays(), dates, lastChangeId, deleted);
+        return snapshotRepository.save(snapshot);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long rebuildAvailability() {
+        final long start = System.nanoTime();
+        availabilityRepository.findAndLockAll();
+        final Optional<AvailabilitySnapshot> snapshot = snapshotRepository.findFirstByOrderByIdDesc();
+        final long lastChangeId;
+        if(snapshot.isPresent()) {
+            lastChangeId = snapshot.get().getLastChangeId();
+            final int restored = availabilityRepository.restoreSnapshot(snapshot.get().getId());
+            logger.info("rebuildAvailability(): restored {} dates from snapshot {}.", restored, snapshot.get().getId());
+        } else {
+            lastChangeId = 0;
+            final int reset = availabilityRepository.resetAvailability();
+            logger.warn("rebuildAvailability(): no snapshot found. Replaying the whole change log on {} dates.", reset);
+        }
+        final long replayed = changeRepository.countByIdGreaterThan(lastChangeId);
+        final List<Object[]> deltas = changeRepository.sumDeltasAfter(lastChangeId);
+        for(Object[] delta: deltas) {
+            final LocalDate date = (LocalDate) delta[0];
+            availabilityRepository.addAvailability(date, date.plusDays(1), ((Number) delta[1]).intValue());
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                availabilityService.loadLedger();
+            }
+        });
+        logger.info("rebuildAvailability(): replayed {} changes of {} dates after change {} in {} ms.", replayed,
+                deltas.size(), lastChangeId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return replayed;
+    }
+
+    @Override
+    public Optional<AvailabilitySnapshot> getLatestSnapshot() {
+        return snapshotRepository.findFirstByOrderByIdDesc();
+    }
+
+    @Override
+    public long getPendingChanges() {
+        final long lastChangeId = getLatestSnapshot().map(AvailabilitySnapshot::getLastChangeId).orElse(0L);
+        return changeRepository.countByIdGreaterThan(lastChangeId);
+    }
+}
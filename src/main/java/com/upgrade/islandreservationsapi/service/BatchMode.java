@@ -0,0 +1,17 @@
+package com.upgrade.islandreservationsapi.service;
+
+/**
+ * How a batch of reservations is created when some of them can't be.
+ */
+public enum BatchMode {
+
+    /**
+     * No reservation is created unless all of them can be.
+     */
+    ALL_OR_NOTHING,
+
+    /**
+     * Reservations are taken in order, and the ones without availability left are skipped.
+     */
+    BEST_EFFORT
+}
@@ -0,0 +1,129 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.exception.SoldOutException;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.repository.DayAvailabilityRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rejects the reservations that can't fit before any transaction is started, reading the availability of
+ * their nights from the {@link AvailabilityLedger}. Applied to {@link ReservationServiceImpl#createReservation}
+ * ahead of the retry and transaction advice (see AdmissionConfig).
+ * The ledger only sees the changes committed by this node, so when it shows no availability the nights are read
+ * once from the database before rejecting: only reservations that don't fit there either are rejected, still
+ * without a transaction or locks. Reservations admitted by a stale ledger are checked by the booking itself.
+ * The availability read from the database is kept by range until the ledger version changes, so repeated
+ * rejections of the same nights cost one query per ledger version. Releases by other nodes are seen once they are
+ * applied to the ledger by the resync (see {@link AvailabilityLedger#resync}).
+ * In journal mode the ledger sees every change, so it is not confirmed by the database.
+ * Reservations with an idempotency key are always admitted, since they may have been created already.
+ * Enabled unless island.booking.admission.enabled is false.
+ */
+@Component
+public class BookingAdmission implements MeterBinder {
+
+    @Autowired
+    private AvailabilityLedger ledger;
+
+    @Autowired
+    private DayAvailabilityRepository availabilityRepository;
+
+    @Value("${island.booking.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${island.journal.enabled:false}")
+    private boolean journal;
+
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile Confirmations confirmations = new Confirmations(-1);
+
+    private final Logger logger = LogManager.getLogger(BookingAdmission.class);
+
+    /**
+     * @param reservation reservation about to be created
+     * @throws SoldOutException if the ledger shows that a night of the reservation doesn't have enough availability
+     */
+    public void admit(Reservation reservation) throws SoldOutException {
+        if(!enabled || reservation.getIdempotencyKey() != null || reservation.getStart() == null
+                || reservation.getEnd() == null || !reservation.getEnd().isAfter(reservation.getStart())) {
+            return;
+        }
+        final long version = ledger.getVersion();
+        final OptionalInt availability = ledger.minAvailability(reservation.getStart(), reservation.getEnd().minusDays(1));
+        if(!availability.isPresent() || availability.getAsInt() >= reservation.getNumberOfPersons()) {
+            return;
+        }
+        // the ledger misses the releases committed by other nodes, so it is confirmed by the database
+        final Integer stored = journal ? Integer.valueOf(availability.getAsInt())
+                : confirmMinAvailability(version, reservation.getStart(), reservation.getEnd());
+        if(stored == null || stored >= reservation.getNumberOfPersons()) {
+            logger.info("admit(): ledger shows availability {} from {} to {}, but the database shows {}.",
+                    availability.getAsInt(), reservation.getStart(), reservation.getEnd(), stored);
+            return;
+        }
+        rejected.increment();
+        logger.debug("admit(): rejected reservation for {} persons from {} to {}, availability is {}.",
+                reservation.getNumberOfPersons(), reservation.getStart(), reservation.getEnd(), stored);
+        throw new SoldOutException();
+    }
+
+    private Integer confirmMinAvailability(long version, LocalDate start, LocalDate end) {
+        Confirmations current = confirmations;
+        if(current.version != version) {
+            current = new Confirmations(version);
+            confirmations = current;
+        }
+        final List<LocalDate> range = List.of(start, end);
+        final Integer confirmed = current.minAvailability.get(range);
+        if(confirmed != null) {
+            return confirmed;
+        }
+        final Integer stored = availabilityRepository.findMinAvailability(start, end);
+        if(stored != null) {
+            current.minAvailability.put(range, stored);
+        }
+        return stored;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("island.booking.admission.rejected", rejected, LongAdder::sum)
+                .description("Reservations rejected before booking because the ledger showed no availability")
+                .register(registry);
+    }
+
+    /**
+     * @return number of reservations rejected since startup
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Min availability read from the database by range of nights, at a ledger version.
+     */
+    private static class Confirmations {
+
+        private final long version;
+        private final Map<List<LocalDate>, Integer> minAvailability = new ConcurrentHashMap<>();
+
+        private Confirmations(long version) {
+            this.version = version;
+        }
+    }
+}
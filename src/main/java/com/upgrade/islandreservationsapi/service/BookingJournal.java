@@ -0,0 +1,141 @@
+package com.upgrade.islandreservationsapi.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal in a memory-mapped file of fixed capacity. Every entry is written as its length, the
+ * CRC32 of its payload and the payload, followed by a zero length that marks the end of the journal, so
+ * appending an entry is a single sequential write to the mapped memory. An entry that was only partially
+ * written when the process died fails its checksum, and it is overwritten by the next append.
+ * Not thread safe.
+ */
+public class BookingJournal implements Closeable {
+
+    private static final int HEADER_SIZE = 8;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final boolean force;
+
+    /**
+     * Maps a journal file, creating it if it doesn't exist. {@link #recover} has to be called before appending.
+     * @param path path of the file
+     * @param capacity size of the file, in bytes
+     * @param force whether every append is forced to the storage device before returning
+     */
+    public BookingJournal(Path path, int capacity, boolean force) {
+        this.force = force;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map journal " + path, e);
+        }
+    }
+
+    /**
+     * Reads the entries from the start of the journal, up to the end mark or the first entry that is not intact.
+     * Appends go after the last entry read.
+     * @param consumer called with the payload of every entry, in order
+     * @return number of entries read
+     */
+    public int recover(Consumer<ByteBuffer> consumer) {
+        buffer.position(0);
+        int entries = 0;
+        final CRC32 crc = new CRC32();
+        while(buffer.remaining() >= HEADER_SIZE) {
+            final int start = buffer.position();
+            final int length = buffer.getInt();
+            final int checksum = buffer.getInt();
+            if(length <= 0 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            final ByteBuffer payload = buffer.slice();
+            payload.limit(length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if((int) crc.getValue() != checksum) {
+                buffer.position(start);
+                break;
+            }
+            consumer.accept(payload.asReadOnlyBuffer());
+            buffer.position(start + HEADER_SIZE + length);
+            entries++;
+        }
+        return entries;
+    }
+
+    /**
+     * @return whether an entry with a payload of the given size fits in the journal
+     */
+    public boolean fits(int payloadSize) {
+        return HEADER_SIZE + payloadSize <= buffer.remaining();
+    }
+
+    /**
+     * Appends an entry to the journal.
+     * @param payload content of the entry, from its position to its limit
+     * @throws IllegalStateException if the entry does not fit in the journal
+     */
+    public void append(ByteBuffer payload) {
+        final int length = payload.remaining();
+        if(length == 0 || !fits(length)) {
+            throw new IllegalStateException("Entry of " + length + " bytes does not fit in the journal.");
+        }
+        final int start = buffer.position();
+        final CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        buffer.position(start + HEADER_SIZE);
+        buffer.put(payload);
+        if(buffer.remaining() >= Integer.BYTES) {
+            buffer.putInt(buffer.position(), 0);
+        }
+        // the header goes last, so the entry is not valid until it is complete
+        buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+        buffer.putInt(start, length);
+        if(force) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * @return number of bytes used by the entries
+     */
+    public int size() {
+        return buffer.position();
+    }
+
+    /**
+     * @return size of the journal file, in bytes
+     */
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Forces every appended entry to the storage device.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() {
+        buffer.force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.upgrade.islandreservationsapi.service;
+
+/**
+ * How availability is taken when a reservation is booked. Set with the island.booking.mode property.
+ */
+public enum BookingMode {
+
+    /**
+     * A single update subtracts the availability of every date that has enough left. The database locks the
+     * rows until the transaction ends, so concurrent bookings of the same dates wait for each other.
+     * Best for dates with a lot of contention.
+     */
+    GUARDED,
+
+    /**
+     * Availability is read and checked without locking, then every date is updated only if its version did not
+     * change (compare-and-set). Conflicting bookings fail and are retried, so no booking waits for another.
+     * Best when most bookings are for different dates.
+     */
+    OPTIMISTIC
+}
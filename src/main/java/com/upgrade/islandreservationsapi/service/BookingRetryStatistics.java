@@ -0,0 +1,120 @@
+package com.upgrade.islandreservationsapi.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.listener.RetryListenerSupport;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the booking attempts that failed because of concurrent bookings, and the outcome of retrying them.
+ * Published as the island.booking.retryable-errors (tagged with the cause) and island.booking.retried (tagged with
+ * the outcome) metrics.
+ */
+@Component
+public class BookingRetryStatistics extends RetryListenerSupport implements MeterBinder {
+
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong deadlocks = new AtomicLong();
+    private final AtomicLong lockFailures = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    private final Logger logger = LogManager.getLogger(BookingRetryStatistics.class);
+
+    @Override
+    public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback,
+                                                 Throwable throwable) {
+        if(throwable instanceof ObjectOptimisticLockingFailureException) {
+            conflicts.incrementAndGet();
+        } else if(throwable instanceof DeadlockLoserDataAccessException) {
+            deadlocks.incrementAndGet();
+        } else if(throwable instanceof PessimisticLockingFailureException) {
+            lockFailures.incrementAndGet();
+        } else {
+            return;
+        }
+        logger.debug("Booking attempt {} failed: {}", context.getRetryCount(), throwable.getMessage());
+    }
+
+    @Override
+    public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback,
+                                               Throwable throwable) {
+        if(context.getRetryCount() == 0) {
+            return;
+        }
+        if(throwable == null) {
+            succeeded.incrementAndGet();
+        } else if(throwable instanceof ObjectOptimisticLockingFailureException
+                || throwable instanceof PessimisticLockingFailureException) {
+            exhausted.incrementAndGet();
+            logger.warn("Booking failed after {} attempts.", context.getRetryCount());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindError(registry, "conflict", conflicts);
+        bindError(registry, "deadlock", deadlocks);
+        bindError(registry, "lock", lockFailures);
+        FunctionCounter.builder("island.booking.retried", succeeded, AtomicLong::get)
+                .description("Bookings that were retried after a concurrency error")
+                .tag("outcome", "success")
+                .register(registry);
+        FunctionCounter.builder("island.booking.retried", exhausted, AtomicLong::get)
+                .description("Bookings that were retried after a concurrency error")
+                .tag("outcome", "exhausted")
+                .register(registry);
+    }
+
+    private static void bindError(MeterRegistry registry, String cause, AtomicLong counter) {
+        FunctionCounter.builder("island.booking.retryable-errors", counter, AtomicLong::get)
+                .description("Booking attempts that failed because of concurrent bookings")
+                .tag("cause", cause)
+                .register(registry);
+    }
+
+    /**
+     * @return number of booking attempts that failed because availability was updated concurrently
+     */
+    public long getConflicts() {
+        return conflicts.get();
+    }
+
+    /**
+     * @return number of booking attempts that were chosen as deadlock victims by the database
+     */
+    public long getDeadlocks() {
+        return deadlocks.get();
+    }
+
+    /**
+     * @return number of booking attempts that could not acquire a lock in time
+     */
+    public long getLockFailures() {
+        return lockFailures.get();
+    }
+
+    /**
+     * @return number of bookings that succeeded after one or more failed attempts
+     */
+    public long getSucceeded() {
+        return succeeded.get();
+    }
+
+    /**
+     * @return number of bookings that failed because every attempt failed, or the deadline passed
+     */
+    public long getExhausted() {
+        return exhausted.get();
+    }
+}
@@ -0,0 +1,406 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.exception.NoAvailabilityForDateException;
+import com.upgrade.islandreservationsapi.exception.ReservationAlreadyCancelledException;
+import com.upgrade.islandreservationsapi.exception.ReservationNotFoundException;
+import com.upgrade.islandreservationsapi.model.AvailabilityChange;
+import com.upgrade.islandreservationsapi.model.DayAvailability;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.repository.DayAvailabilityRepository;
+import com.upgrade.islandreservationsapi.repository.ReservationRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies reservation commands from a single writer thread. Commands are queued in a bounded buffer, and the
+ * writer takes all the queued commands (up to a max batch size) and commits them in one transaction: the
+ * availability of every date is read once, updated in memory by each command in order, and written once.
+ * Since there's only one writer, commands never wait for each other's locks, and the cost of a commit is shared
+ * by the whole batch. A command that fails (no availability, validation) does not change anything and does not
+ * affect the other commands of the batch. If the batch can't be committed, its commands are committed one by one.
+ * A command that conflicts with a concurrent update of its dates (by another node, or by a hold or a waitlist
+ * booking of this node) is committed again with the new availability, up to island.booking.sequencer.max-attempts
+ * times.
+ * Creations with the same idempotency key in a batch are applied once, and all of them get the same outcome.
+ * Enabled with island.booking.sequencer.enabled.
+ */
+@Component
+@ConditionalOnProperty(prefix = "island.booking.sequencer", name = "enabled", havingValue = "true")
+public class BookingSequencer implements MeterBinder {
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private DayAvailabilityRepository availabilityRepository;
+
+    @Autowired
+    private ConfigurationService configurationService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private AvailabilityChangeLog changeLog;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${island.booking.sequencer.queue-size:1024}")
+    private int queueSize;
+
+    @Value("${island.booking.sequencer.max-batch-size:256}")
+    private int maxBatchSize;
+
+    @Value("${island.booking.sequencer.batch-window-ms:2}")
+    private long batchWindowMs;
+
+    @Value("${island.booking.sequencer.max-attempts:3}")
+    private int maxAttempts;
+
+    private BlockingQueue<Command> queue;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong commands = new AtomicLong();
+
+    private final Logger logger = LogManager.getLogger(BookingSequencer.class);
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueSize);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        writer = new Thread(this::run, "booking-sequencer");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Booking sequencer started (queue size {}, max batch size {}).", queueSize, maxBatchSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Queues the creation of a reservation.
+     * @return future completed with the created reservation once committed, or with
+     * {@link NoAvailabilityForDateException}
+     */
+    public CompletableFuture<Reservation> submitCreate(Reservation reservation) {
+        return submit(reservation.getIdempotencyKey(), state -> {
+            if(reservation.getIdempotencyKey() != null) {
+                final Optional<Reservation> existing =
+                        reservationRepository.findByIdempotencyKey(reservation.getIdempotencyKey());
+                if(existing.isPresent()) {
+                    return existing.get();
+                }
+            }
+            state.apply(deltas(reservation.getStart(), reservation.getEnd(), -reservation.getNumberOfPersons()));
+            // a failed attempt leaves the id of the rolled back insert
+            reservation.setId(null);
+            reservation.setVersion(0);
+            return reservationRepository.save(reservation);
+        });
+    }
+
+    /**
+     * Queues the update of a reservation.
+     * @return future completed with the updated reservation once committed, or with
+     * {@link NoAvailabilityForDateException}, {@link ReservationNotFoundException} or
+     * {@link com.upgrade.islandreservationsapi.exception.InvalidReservationException}
+     */
+    public CompletableFuture<Reservation> submitUpdate(Reservation reservation) {
+        return submit(null, state -> {
+            final Reservation existing = reservationRepository.findById(reservation.getId())
+                    .orElseThrow(ReservationNotFoundException::new);
+            ReservationServiceImpl.validateReservationUpdate(reservation, existing,
+                    configurationService.getSnapshot().getMinAheadDays());
+            // release the old dates and take the new ones. dates in both only change by the difference
+            final TreeMap<LocalDate, Integer> deltas =
+                    deltas(existing.getStart(), existing.getEnd(), existing.getNumberOfPersons());
+            deltas(reservation.getStart(), reservation.getEnd(), -reservation.getNumberOfPersons())
+                    .forEach((date, delta) -> deltas.merge(date, delta, Integer::sum));
+            state.apply(deltas);
+            existing.setFistName(reservation.getFistName());
+            existing.setLastName(reservation.getLastName());
+            existing.setEmail(reservation.getEmail());
+            existing.setStart(reservation.getStart());
+            existing.setEnd(reservation.getEnd());
+            existing.setNumberOfPersons(reservation.getNumberOfPersons());
+            return existing;
+        });
+    }
+
+    /**
+     * Queues the cancellation of a reservation.
+     * @return future completed with the cancelled reservation once committed, or with
+     * {@link ReservationNotFoundException} or {@link ReservationAlreadyCancelledException}
+     */
+    public CompletableFuture<Reservation> submitCancel(Integer id) {
+        return submit(null, state -> {
+            final Reservation existing = reservationRepository.findById(id).orElseThrow(ReservationNotFoundException::new);
+            if(existing.getStatus() == Reservation.Status.CANCELLED) {
+                throw new ReservationAlreadyCancelledException(id);
+            }
+            state.apply(deltas(existing.getStart(), existing.getEnd(), existing.getNumberOfPersons()));
+            existing.setStatus(Reservation.Status.CANCELLED);
+            return existing;
+        });
+    }
+
+    private CompletableFuture<Reservation> submit(String idempotencyKey, Operation operation) {
+        final Command command = new Command(idempotencyKey, operation);
+        if(!running || !queue.offer(command)) {
+            logger.warn("Booking sequencer queue is full. Rejecting command.");
+            command.future.completeExceptionally(new TaskRejectedException("Too many bookings in progress."));
+        }
+        return command.future;
+    }
+
+    private void run() {
+        final List<Command> batch = new ArrayList<>(maxBatchSize);
+        while(running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWindowMs);
+                while(batch.size() < maxBatchSize) {
+                    final Command command = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if(command == null) {
+                        break;
+                    }
+                    batch.add(command);
+                }
+                commit(deduplicate(batch), 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error in booking sequencer.", e);
+                batch.forEach(c -> c.future.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+        queue.drainTo(batch);
+        batch.forEach(c -> c.future.completeExceptionally(new TaskRejectedException("Booking sequencer stopped.")));
+        logger.info("Booking sequencer stopped.");
+    }
+
+    /**
+     * Attaches the creations with an idempotency key already used in the batch to the first one with that key.
+     * Otherwise the second insert would violate the unique key and fail the whole batch.
+     * @return commands to execute
+     */
+    private static List<Command> deduplicate(List<Command> batch) {
+        final Map<String, Command> byKey = new HashMap<>();
+        final List<Command> unique = new ArrayList<>(batch.size());
+        for(Command command: batch) {
+            final Command first = command.idempotencyKey == null
+                    ? null : byKey.putIfAbsent(command.idempotencyKey, command);
+            if(first == null) {
+                unique.add(command);
+            } else {
+                first.duplicates.add(command);
+            }
+        }
+        return unique;
+    }
+
+    private void commit(List<Command> batch, int attempt) {
+        try {
+            transactionTemplate.execute(status -> {
+                final BatchState state = new BatchState();
+                for(Command command: batch) {
+                    command.execute(state);
+                }
+                if(!state.deltas.isEmpty()) {
+                    changeLog.describe(AvailabilityChange.Cause.SEQUENCER, null);
+                    eventPublisher.publishEvent(new AvailabilityChangedEvent(state.deltas));
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            if(batch.size() > 1) {
+                logger.warn("Could not commit a batch of {} commands. Committing them one by one.", batch.size(), e);
+                batch.forEach(c -> commit(List.of(c), 1));
+            } else if(e instanceof ConcurrencyFailureException && attempt < maxAttempts) {
+                logger.info("Command conflicted with a concurrent update (attempt {}). Committing it again.", attempt);
+                commit(batch, attempt + 1);
+            } else {
+                batch.get(0).fail(e);
+            }
+            return;
+        }
+        batches.incrementAndGet();
+        commands.addAndGet(batch.size());
+        logger.debug("Committed a batch of {} commands.", batch.size());
+        batch.forEach(Command::complete);
+    }
+
+    private static TreeMap<LocalDate, Integer> deltas(LocalDate start, LocalDate end, int delta) {
+        final TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        start.datesUntil(end).forEach(d -> deltas.put(d, delta));
+        return deltas;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("island.sequencer.batches", batches, AtomicLong::get)
+                .description("Batches of reservation commands committed by the booking sequencer")
+                .register(registry);
+        FunctionCounter.builder("island.sequencer.commands", commands, AtomicLong::get)
+                .description("Reservation commands committed by the booking sequencer in a batch")
+                .register(registry);
+        Gauge.builder("island.sequencer.queue", this, s -> s.queue.size())
+                .description("Reservation commands waiting for the booking sequencer")
+                .register(registry);
+    }
+
+    /**
+     * @return number of batches committed
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * @return number of commands committed in a batch
+     */
+    public long getCommands() {
+        return commands.get();
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        Reservation apply(BatchState state) throws Exception;
+    }
+
+    private static class Command {
+
+        private final String idempotencyKey;
+        private final Operation operation;
+        private final CompletableFuture<Reservation> future = new CompletableFuture<>();
+        // commands of the same batch with the same idempotency key, completed like this one
+        private final List<Command> duplicates = new ArrayList<>();
+        private Reservation result;
+        private Exception error;
+
+        private Command(String idempotencyKey, Operation operation) {
+            this.idempotencyKey = idempotencyKey;
+            this.operation = operation;
+        }
+
+        /**
+         * Business errors are kept for the command, any other error fails the whole batch.
+         */
+        private void execute(BatchState state) {
+            result = null;
+            error = null;
+            try {
+                result = operation.apply(state);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                error = e;
+            }
+        }
+
+        private void complete() {
+            if(error != null) {
+                fail(error);
+                return;
+            }
+            future.complete(result);
+            duplicates.forEach(d -> d.future.complete(result));
+        }
+
+        private void fail(Throwable e) {
+            future.completeExceptionally(e);
+            duplicates.forEach(d -> d.future.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Availability of the dates used by the commands of a batch. Records are read once, when a command first needs
+     * them, and are written when the transaction commits. Their version is checked then, so a concurrent update by
+     * another node fails the batch instead of being overwritten.
+     */
+    private class BatchState {
+
+        private final Map<LocalDate, DayAvailability> availabilities = new HashMap<>();
+        private final TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+
+        /**
+         * Applies the deltas of a command. Nothing is changed if any date with a negative delta doesn't have
+         * enough availability.
+         */
+        private void apply(TreeMap<LocalDate, Integer> commandDeltas) throws NoAvailabilityForDateException {
+            if(commandDeltas.isEmpty()) {
+                return;
+            }
+            load(commandDeltas.firstKey(), commandDeltas.lastKey());
+            for(Map.Entry<LocalDate, Integer> delta: commandDeltas.entrySet()) {
+                final DayAvailability availability = availabilities.get(delta.getKey());
+                if(delta.getValue() < 0 && (availability == null
+                        || availability.getAvailability() + delta.getValue() < 0)) {
+                    logger.info("no availability for {}", delta.getKey());
+                    throw new NoAvailabilityForDateException();
+                }
+            }
+            // days without a record are not updated, like in DayAvailabilityService.addAvailability()
+            for(Map.Entry<LocalDate, Integer> delta: commandDeltas.entrySet()) {
+                final DayAvailability availability = availabilities.get(delta.getKey());
+                if(availability != null && delta.getValue() != 0) {
+                    availability.setAvailability(availability.getAvailability() + delta.getValue());
+                    deltas.merge(delta.getKey(), delta.getValue(), Integer::sum);
+                }
+            }
+        }
+
+        private void load(LocalDate fromDate, LocalDate toDate) {
+            if(fromDate.datesUntil(toDate.plusDays(1)).allMatch(availabilities::containsKey)) {
+                return;
+            }
+            final List<DayAvailability> rows = availabilityRepository.findByDateBetweenOrderByDateAsc(fromDate, toDate);
+            fromDate.datesUntil(toDate.plusDays(1)).forEach(d -> availabilities.putIfAbsent(d, null));
+            rows.forEach(a -> availabilities.putIfAbsent(a.getDate(), a));
+        }
+    }
+}
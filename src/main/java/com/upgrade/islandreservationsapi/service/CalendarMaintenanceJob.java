@@ -0,0 +1,55 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.repository.DatesRepository;
+import com.upgrade.islandreservationsapi.repository.DayAvailabilityRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the Dates calendar table covering the booking horizon: appends the days that enter the window
+ * as it rolls forward and prunes the days that are older than the longest possible reservation.
+ * Also creates the DayAvailability records of the whole horizon in one batch, so bookings only update
+ * existing records and reads never have to fill gaps.
+ * Runs on startup (see ApplicationStartup) and every day at midnight.
+ */
+@Component
+public class CalendarMaintenanceJob {
+
+    @Autowired
+    private DatesRepository datesRepository;
+
+    @Autowired
+    private DayAvailabilityRepository availabilityRepository;
+
+    @Autowired
+    private ConfigurationService configurationService;
+
+    private final Logger logger = LogManager.getLogger(CalendarMaintenanceJob.class);
+
+    @Scheduled(cron = "${island.calendar.cron:0 0 0 * * *}")
+    @Transactional
+    public void maintainCalendar() {
+        final LocalDate today = LocalDate.now();
+        final ConfigurationSnapshot configuration = configurationService.getSnapshot();
+        final LocalDate keepFrom = today.minusDays(configuration.getMaxReservation());
+        final LocalDate keepUntil = today.plusDays(configuration.getHorizonDays());
+        // inserting the whole window also fills any gap left by a missed run
+        final List<LocalDate> dates = keepFrom.datesUntil(keepUntil).collect(Collectors.toList());
+        final int added = datesRepository.insertMissing(dates);
+        final int removed = datesRepository.deleteByDateBefore(keepFrom);
+        logger.info("maintainCalendar(): calendar covers {} to {}. Added {} dates, removed {} dates.",
+                keepFrom, keepUntil.minusDays(1), added, removed);
+        // reservations that already started can still be updated, so past dates in the calendar need records too
+        final int created = availabilityRepository.insertMissing(keepFrom, keepUntil, configuration.getMaxAvailability());
+        logger.info("maintainCalendar(): created {} DayAvailability records with availability {}.",
+                created, configuration.getMaxAvailability());
+    }
+}
@@ -3,38 +3,47 @@ package com.upgrade.islandreservationsapi.service;
 
 public interface ConfigurationService {
 
+    /**
+     * Returns the current configuration snapshot. Values are read from the database only when the snapshot
+     * is loaded or refreshed, and month-based values are recomputed once per day.
+     * Callers that need several values should read all of them from the same snapshot.
+     * @return current ConfigurationSnapshot
+     */
+    ConfigurationSnapshot getSnapshot();
+
+    /**
+     * Reloads the configuration from the database. Missing configuration records are inserted with
+     * their default value. The snapshot version only changes if some value changed.
+     * @return the refreshed ConfigurationSnapshot
+     */
+    ConfigurationSnapshot refresh();
+
     /**
      * Returns the max availability for any date.
-     * If this configuration record does not exist, inserts a new one with a default value
-     * and returns it
      * @return int with max availability
      */
     int getMaxAvailability();
 
     /**
      * Returns the max allowed duration for a reservation (number of days)
-     * If this configuration record does not exist, inserts a new one with a default value
      * @return int with max allowed duration
      */
     int getMaxReservation();
 
     /**
      * Returns the minimum number of days in ahead a reservation must be created/updated (number of days)
-     * If this configuration record does not exist, inserts a new one with a default value
      * @return int with minimum number of days ahead for creating/updating a reservation
      */
     int getMinAheadDays();
 
     /**
      * Returns the max number of days in ahead a reservation must be created (number of days)
-     * If this configuration record does not exist, inserts a new one with a default value
      * @return int with max number of days ahead for creating/updating a reservation
      */
     int getMaxAheadDays();
 
     /**
      * Gets the max number of days that it is allowed to check for availability
-     * If this configuration record does not exist, inserts a new one with a default value
      * @return int with max date range for availability check
      */
     int getMaxDateRange();
@@ -42,7 +51,6 @@ public interface ConfigurationService {
     /**
      * Gets the default number of days to check for availability when no parameters are provided
      * in the API call.
-     * If this configuration record does not exist, inserts a new one with a default value
      * @return int with default date range for availability check
      */
     int getDefaultDateRange();
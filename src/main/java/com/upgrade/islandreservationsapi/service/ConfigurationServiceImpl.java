@@ -5,11 +5,13 @@ import com.upgrade.islandreservationsapi.repository.ConfigurationRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
-import java.util.Optional;
+import java.util.EnumMap;
+import java.util.Map;
 
 @Service
 public class ConfigurationServiceImpl implements ConfigurationService {
@@ -27,56 +29,109 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     private static final int DEFAULT_DEFAULT_DATE_RANGE = 30;
     private static final String MISSING_RECORD_LOG_TEMPLATE = "Value for {} not found in database. Inserting row with default value {}";
 
+    // values as stored in the database, before converting months to days
+    private Map<Configuration.CONFIGURATION_NAMES, Integer> values;
+    private volatile ConfigurationSnapshot snapshot;
+    private long version;
+
+    @Override
+    public ConfigurationSnapshot getSnapshot() {
+        final ConfigurationSnapshot current = snapshot;
+        if(current != null && current.getDate().equals(LocalDate.now())) {
+            return current;
+        }
+        synchronized(this) {
+            if(snapshot == null) {
+                return refresh();
+            }
+            if(!snapshot.getDate().equals(LocalDate.now())) {
+                snapshot = buildSnapshot(values);
+            }
+            return snapshot;
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${island.configuration.refresh-interval-ms:60000}")
+    public synchronized ConfigurationSnapshot refresh() {
+        final Map<Configuration.CONFIGURATION_NAMES, Integer> newValues = new EnumMap<>(Configuration.CONFIGURATION_NAMES.class);
+        repository.findAll().forEach(c -> {
+            try {
+                newValues.put(Configuration.CONFIGURATION_NAMES.valueOf(c.getName()), Integer.valueOf(c.getValue()));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring invalid configuration {}={}", c.getName(), c.getValue());
+            }
+        });
+        putDefaultIfMissing(newValues, Configuration.CONFIGURATION_NAMES.MAX_AVAILABILITY, DEFAULT_MAX_AVAILABILITY);
+        putDefaultIfMissing(newValues, Configuration.CONFIGURATION_NAMES.MAX_RESERVATION, DEFAULT_MAX_DURATION);
+        putDefaultIfMissing(newValues, Configuration.CONFIGURATION_NAMES.MIN_AHEAD, DEFAULT_MIN_AHEAD_DAYS);
+        putDefaultIfMissing(newValues, Configuration.CONFIGURATION_NAMES.MAX_AHEAD, DEFAULT_MAX_AHEAD_DAYS);
+        putDefaultIfMissing(newValues, Configuration.CONFIGURATION_NAMES.MAX_DATE_RANGE, DEFAULT_MAX_DATE_RANGE);
+        putDefaultIfMissing(newValues, Configuration.CONFIGURATION_NAMES.DEFAULT_DATE_RANGE, DEFAULT_DEFAULT_DATE_RANGE);
+        if(snapshot == null || !newValues.equals(values) || !snapshot.getDate().equals(LocalDate.now())) {
+            values = newValues;
+            snapshot = buildSnapshot(newValues);
+        }
+        return snapshot;
+    }
+
     @Override
     public int getMaxAvailability() {
-        return getOrSaveIntegerConfiguration(Configuration.CONFIGURATION_NAMES.MAX_AVAILABILITY, DEFAULT_MAX_AVAILABILITY, false);
+        return getSnapshot().getMaxAvailability();
     }
 
     @Override
     public int getMaxReservation() {
-        return getOrSaveIntegerConfiguration(Configuration.CONFIGURATION_NAMES.MAX_RESERVATION, DEFAULT_MAX_DURATION, true);
+        return getSnapshot().getMaxReservation();
     }
 
     @Override
     public int getMinAheadDays() {
-        return getOrSaveIntegerConfiguration(Configuration.CONFIGURATION_NAMES.MIN_AHEAD, DEFAULT_MIN_AHEAD_DAYS, true);
+        return getSnapshot().getMinAheadDays();
     }
 
     @Override
     public int getMaxAheadDays() {
-        return getOrSaveIntegerConfiguration(Configuration.CONFIGURATION_NAMES.MAX_AHEAD, DEFAULT_MAX_AHEAD_DAYS, true);
+        return getSnapshot().getMaxAheadDays();
     }
 
     @Override
     public int getMaxDateRange() {
-        return getOrSaveIntegerConfiguration(Configuration.CONFIGURATION_NAMES.MAX_DATE_RANGE, DEFAULT_MAX_DATE_RANGE, true);
+        return getSnapshot().getMaxDateRange();
     }
 
     @Override
     public int getDefaultDateRange() {
-        return getOrSaveIntegerConfiguration(Configuration.CONFIGURATION_NAMES.DEFAULT_DATE_RANGE, DEFAULT_DEFAULT_DATE_RANGE, true);
+        return getSnapshot().getDefaultDateRange();
     }
 
-    private int getOrSaveIntegerConfiguration(Configuration.CONFIGURATION_NAMES name, Integer defaultValue, boolean updateDays) {
-        final Optional<Integer> valueOpt = getIntegerConfigurationByName(name);
-        if(valueOpt.isEmpty()) {
-            logger.info(MISSING_RECORD_LOG_TEMPLATE,
-                    name.toString(), defaultValue);
-            Configuration conf = new Configuration(name.toString(),
-                    Integer.toString(defaultValue));
-            repository.save(conf);
+    private void putDefaultIfMissing(Map<Configuration.CONFIGURATION_NAMES, Integer> values,
+                                     Configuration.CONFIGURATION_NAMES name, Integer defaultValue) {
+        if(!values.containsKey(name)) {
+            logger.info(MISSING_RECORD_LOG_TEMPLATE, name.toString(), defaultValue);
+            repository.save(new Configuration(name.toString(), Integer.toString(defaultValue)));
+            values.put(name, defaultValue);
         }
-        int value = valueOpt.orElse(defaultValue);
-        if(updateDays && value % 30 == 0) {
-            // if max date range is multiple of 30, then treat it as a month. so update it based on this month's number of days
-            value = (int) ChronoUnit.DAYS.between(LocalDate.now(), LocalDate.now().plusMonths(value / 30));
-            logger.debug("updated value of property {} to {} based on the number of days in the month(s).", name.toString(), value);
-        }
-        return value;
     }
 
-    private Optional<Integer> getIntegerConfigurationByName(Configuration.CONFIGURATION_NAMES name) {
-        final Optional<Configuration> maxValueOpt = repository.findById(name.toString());
-        return maxValueOpt.map(c -> Integer.valueOf(c.getValue()));
+    private ConfigurationSnapshot buildSnapshot(Map<Configuration.CONFIGURATION_NAMES, Integer> values) {
+        final LocalDate today = LocalDate.now();
+        final ConfigurationSnapshot newSnapshot = new ConfigurationSnapshot(++version, today,
+                values.get(Configuration.CONFIGURATION_NAMES.MAX_AVAILABILITY),
+                toDays(values.get(Configuration.CONFIGURATION_NAMES.MAX_RESERVATION), today),
+                toDays(values.get(Configuration.CONFIGURATION_NAMES.MIN_AHEAD), today),
+                toDays(values.get(Configuration.CONFIGURATION_NAMES.MAX_AHEAD), today),
+                toDays(values.get(Configuration.CONFIGURATION_NAMES.MAX_DATE_RANGE), today),
+                toDays(values.get(Configuration.CONFIGURATION_NAMES.DEFAULT_DATE_RANGE), today));
+        logger.info("Loaded configuration {}", newSnapshot);
+        return newSnapshot;
+    }
+
+    private int toDays(int value, LocalDate today) {
+        if(value % 30 == 0) {
+            // if value is multiple of 30, then treat it as a month. so update it based on this month's number of days
+            return (int) ChronoUnit.DAYS.between(today, today.plusMonths(value / 30));
+        }
+        return value;
     }
 }
@@ -0,0 +1,86 @@
+package com.upgrade.islandreservationsapi.service;
+
+import java.time.LocalDate;
+
+/**
+ * Immutable view of all the configuration values, as resolved for a given date (values that are a multiple
+ * of 30 are treated as months and converted to that date's number of days). The version changes every time
+ * a value changes, either in the database or because of the month conversion.
+ */
+public final class ConfigurationSnapshot {
+
+    private final long version;
+    private final LocalDate date;
+    private final int maxAvailability;
+    private final int maxReservation;
+    private final int minAheadDays;
+    private final int maxAheadDays;
+    private final int maxDateRange;
+    private final int defaultDateRange;
+
+    public ConfigurationSnapshot(long version, LocalDate date, int maxAvailability, int maxReservation,
+                                 int minAheadDays, int maxAheadDays, int maxDateRange, int defaultDateRange) {
+        this.version = version;
+        this.date = date;
+        this.maxAvailability = maxAvailability;
+        this.maxReservation = maxReservation;
+        this.minAheadDays = minAheadDays;
+        this.maxAheadDays = maxAheadDays;
+        this.maxDateRange = maxDateRange;
+        this.defaultDateRange = defaultDateRange;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public int getMaxAvailability() {
+        return maxAvailability;
+    }
+
+    public int getMaxReservation() {
+        return maxReservation;
+    }
+
+    public int getMinAheadDays() {
+        return minAheadDays;
+    }
+
+    public int getMaxAheadDays() {
+        return maxAheadDays;
+    }
+
+    public int getMaxDateRange() {
+        return maxDateRange;
+    }
+
+    public int getDefaultDateRange() {
+        return defaultDateRange;
+    }
+
+    /**
+     * Number of days, starting today, in which availability can be checked or booked: the longest of
+     * MIN_AHEAD + MAX_DATE_RANGE and MAX_AHEAD + MAX_RESERVATION, plus today.
+     */
+    public int getHorizonDays() {
+        return Math.max(minAheadDays + maxDateRange, maxAheadDays + maxReservation) + 1;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigurationSnapshot{" +
+                "version=" + version +
+                ", date=" + date +
+                ", maxAvailability=" + maxAvailability +
+                ", maxReservation=" + maxReservation +
+                ", minAheadDays=" + minAheadDays +
+                ", maxAheadDays=" + maxAheadDays +
+                ", maxDateRange=" + maxDateRange +
+                ", defaultDateRange=" + defaultDateRange +
+                '}';
+    }
+}
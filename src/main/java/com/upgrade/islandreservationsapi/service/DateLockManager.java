@@ -0,0 +1,256 @@
+package com.upgrade.islandreservationsapi.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory locks for the dates being booked, taken before the database rows are updated. Concurrent bookings of
+ * the same dates in this node wait here instead of waiting for the row locks of the database.
+ * Dates are mapped to a fixed number of stripes by epoch day (dates a multiple of the stripe count apart share a
+ * stripe), and each call locks its stripes in ascending order. A thread only waits for stripes higher than all
+ * the stripes it already holds, from an earlier call in the same transaction or from {@link #lock}: a lower
+ * stripe is only taken if it is free, otherwise {@link CannotAcquireLockException} is thrown and the booking is
+ * retried. So two transactions never wait for each other's stripes and can't deadlock on them, even when they
+ * lock dates in several calls. Locks are reentrant and are held until the transaction completes.
+ * Bookings whose dates are known from their arguments lock them with {@link #lock} before their transaction is
+ * opened (see DateLockConfig), so they don't hold a database connection while waiting. Locking the same dates
+ * again within the transaction doesn't wait.
+ */
+@Component
+public class DateLockManager implements MeterBinder {
+
+    @Value("${island.locks.stripes:256}")
+    private int stripeCount;
+
+    @Value("${island.locks.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private ReentrantLock[] stripes;
+
+    // stripes held by the current thread
+    private final ThreadLocal<BitSet> held = ThreadLocal.withInitial(BitSet::new);
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong contended = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong outOfOrder = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private final Logger logger = LogManager.getLogger(DateLockManager.class);
+
+    @PostConstruct
+    public void init() {
+        stripes = new ReentrantLock[stripeCount];
+        for(int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks the dates in the range until the current transaction completes.
+     * @param fromDate inclusive
+     * @param toDate exclusive
+     * @throws CannotAcquireLockException if any of the dates can't be locked within the timeout
+     */
+    public void lockUntilCompletion(LocalDate fromDate, LocalDate toDate) {
+        final List<LocalDate> dates = new ArrayList<>();
+        fromDate.datesUntil(toDate).forEach(dates::add);
+        lockUntilCompletion(dates);
+    }
+
+    /**
+     * Locks the dates until the current transaction completes.
+     * @param dates dates to lock, in any order
+     * @throws CannotAcquireLockException if any of the dates can't be locked within the timeout
+     */
+    public void lockUntilCompletion(Collection<LocalDate> dates) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Dates can only be locked within a transaction.");
+        }
+        final List<Integer> locked = lockStripes(dates);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public int getOrder() {
+                // before the after commit listeners, which may lock other dates (see WaitlistMatcher)
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                unlock(locked);
+            }
+        });
+    }
+
+    /**
+     * Locks the dates for the current thread, until {@link #unlock} is called with the same dates.
+     * @param dates dates to lock, in any order
+     * @throws CannotAcquireLockException if any of the dates can't be locked within the timeout
+     */
+    public void lock(Collection<LocalDate> dates) {
+        lockStripes(dates);
+    }
+
+    /**
+     * Unlocks dates locked with {@link #lock}.
+     * @param dates same dates passed to {@link #lock}
+     */
+    public void unlock(Collection<LocalDate> dates) {
+        final List<Integer> locked = new ArrayList<>();
+        stripeIndexes(dates).stream().forEach(locked::add);
+        unlock(locked);
+    }
+
+    private List<Integer> lockStripes(Collection<LocalDate> dates) {
+        final BitSet stripeIndexes = stripeIndexes(dates);
+        final List<Integer> locked = new ArrayList<>();
+        try {
+            for(int i = stripeIndexes.nextSetBit(0); i >= 0; i = stripeIndexes.nextSetBit(i + 1)) {
+                lock(i);
+                locked.add(i);
+            }
+        } catch (RuntimeException e) {
+            unlock(locked);
+            throw e;
+        }
+        return locked;
+    }
+
+    private BitSet stripeIndexes(Collection<LocalDate> dates) {
+        final BitSet stripeIndexes = new BitSet(stripeCount);
+        dates.forEach(d -> stripeIndexes.set((int) Math.floorMod(d.toEpochDay(), (long) stripeCount)));
+        return stripeIndexes;
+    }
+
+    private void lock(int index) {
+        final ReentrantLock stripe = stripes[index];
+        if(stripe.isHeldByCurrentThread()) {
+            // already acquired before the transaction, or earlier in the transaction, doesn't wait
+            stripe.lock();
+            return;
+        }
+        final BitSet heldStripes = held.get();
+        if(stripe.tryLock()) {
+            acquired.incrementAndGet();
+            heldStripes.set(index);
+            return;
+        }
+        if(heldStripes.length() > index) {
+            // waiting for a stripe below one already held could deadlock with a thread locking in order
+            outOfOrder.incrementAndGet();
+            logger.info("Date lock stripe {} is busy and can't be waited for after stripe {}.", index,
+                    heldStripes.length() - 1);
+            throw new CannotAcquireLockException("Dates locked out of order are busy.");
+        }
+        final long start = System.nanoTime();
+        boolean locked;
+        try {
+            locked = stripe.tryLock(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted while waiting for a date lock.", e);
+        }
+        final long waited = System.nanoTime() - start;
+        contended.incrementAndGet();
+        waitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        if(!locked) {
+            timeouts.incrementAndGet();
+            logger.warn("Could not lock dates within {} ms.", timeoutMs);
+            throw new CannotAcquireLockException("Could not lock dates within " + timeoutMs + " ms.");
+        }
+        acquired.incrementAndGet();
+        heldStripes.set(index);
+    }
+
+    private void unlock(List<Integer> locked) {
+        final BitSet heldStripes = held.get();
+        for(int i = locked.size() - 1; i >= 0; i--) {
+            final ReentrantLock stripe = stripes[locked.get(i)];
+            stripe.unlock();
+            if(!stripe.isHeldByCurrentThread()) {
+                heldStripes.clear(locked.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("island.locks.acquired", acquired, AtomicLong::get)
+                .description("Date lock stripes acquired")
+                .register(registry);
+        FunctionCounter.builder("island.locks.timeouts", timeouts, AtomicLong::get)
+                .description("Date lock stripes that could not be acquired within the timeout")
+                .register(registry);
+        FunctionCounter.builder("island.locks.out-of-order", outOfOrder, AtomicLong::get)
+                .description("Date lock stripes below a stripe already held that were busy")
+                .register(registry);
+        FunctionTimer.builder("island.locks.wait", this, m -> m.contended.get(), m -> m.waitNanos.get(),
+                TimeUnit.NANOSECONDS)
+                .description("Time waited for date lock stripes held by other transactions")
+                .register(registry);
+    }
+
+    /**
+     * @return number of stripes acquired
+     */
+    public long getAcquired() {
+        return acquired.get();
+    }
+
+    /**
+     * @return number of stripes that were held by another transaction when requested
+     */
+    public long getContended() {
+        return contended.get();
+    }
+
+    /**
+     * @return number of stripes that could not be acquired within the timeout
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * @return number of stripes below a stripe already held by the thread that were busy, so they were not waited for
+     */
+    public long getOutOfOrder() {
+        return outOfOrder.get();
+    }
+
+    /**
+     * @return total time waited for stripes held by other transactions, in nanoseconds
+     */
+    public long getWaitNanos() {
+        return waitNanos.get();
+    }
+
+    /**
+     * @return longest time waited for a stripe, in nanoseconds
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+}
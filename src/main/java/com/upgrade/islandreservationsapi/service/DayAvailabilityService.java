@@ -7,32 +7,93 @@ import com.upgrade.islandreservationsapi.model.Reservation;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.SortedMap;
 
 
 public interface DayAvailabilityService {
 
     /**
-     * Get DayAvailabilities between the provided date range. If a DayAvailability does not exist
-     * for any of the dates within the range a new DayAvailability is created (but not stored in DB).
+     * Get DayAvailabilities between the provided date range. DayAvailability records are created in advance
+     * for the whole booking horizon, so the range can't end after the horizon.
      * @param fromDate fromDate (inclusive)
      * @param toDate toDate (inclusive)
      * @return List of DayAvailability
      * @throws InvalidDatesException if fromDate > toDate, if date range is greater than the maximum allowed,
-     * if fromDate is before tomorrow.
+     * if fromDate is before tomorrow, if toDate is after the booking horizon.
      */
     List<DayAvailability> getAvailabilities(LocalDate fromDate, LocalDate toDate) throws InvalidDatesException;
 
     /**
-     * Based on reservation dates, updates existing DayAvailability records (or creates new ones) substracting
+     * Same as {@link #getAvailabilities(LocalDate, LocalDate)}, but passes the availability of each date to the
+     * visitor instead of building DayAvailability objects. Dates are validated before any date is visited.
+     * @param fromDate fromDate (inclusive)
+     * @param toDate toDate (inclusive)
+     * @param visitor called once per date, in ascending order
+     * @throws InvalidDatesException if fromDate > toDate, if date range is greater than the maximum allowed,
+     * if fromDate is before tomorrow.
+     */
+    void visitAvailabilities(LocalDate fromDate, LocalDate toDate, DayAvailabilityVisitor visitor)
+            throws InvalidDatesException;
+
+    /**
+     * Checks that availability can be returned for the date range, with the same rules as
+     * {@link #getAvailabilities(LocalDate, LocalDate)}.
+     * @param fromDate fromDate (inclusive)
+     * @param toDate toDate (inclusive)
+     * @throws InvalidDatesException if fromDate > toDate, if date range is greater than the maximum allowed,
+     * if fromDate is before tomorrow.
+     */
+    void validateDates(LocalDate fromDate, LocalDate toDate) throws InvalidDatesException;
+
+    /**
+     * Finds the first dates in which a reservation for the number of persons and nights can start.
+     * The window is narrowed to the dates in which a reservation can be created.
+     * @param persons number of persons of the reservation
+     * @param nights number of nights of the reservation
+     * @param fromDate first possible start date (inclusive)
+     * @param toDate last possible start date (inclusive)
+     * @param limit max number of start dates to return
+     * @return List of start dates, in ascending order
+     * @throws InvalidDatesException if fromDate > toDate, or if the number of nights is greater than the max
+     * reservation duration.
+     */
+    List<LocalDate> findStartDates(int persons, int nights, LocalDate fromDate, LocalDate toDate, int limit)
+            throws InvalidDatesException;
+
+    /**
+     * Based on reservation dates, updates existing DayAvailability records substracting
      * the number of persons in the reservation to the availability.
      * @param reservation Reservation based on which day availability should be updated
      * @return List of DayAvailability for the reservation dates: start (inclusive), end (exclusive)
      * @throws NoAvailabilityForDateException if there's no availability any of the dates to accomodate the
      * number of persons in the reservation.
+     * @throws com.upgrade.islandreservationsapi.exception.AvailabilityConflictException in optimistic booking mode,
+     * if the availability of any of the dates was updated concurrently.
      */
     List<DayAvailability> updateDayAvailability(Reservation reservation)
             throws NoAvailabilityForDateException;
 
+    /**
+     * Subtracts the number of persons of every reservation from the availability of its dates. The demand of all
+     * the reservations is added up per date, so every DayAvailability record is updated once.
+     * @param reservations reservations to take availability for, in order of preference
+     * @param mode with ALL_OR_NOTHING, nothing is updated unless every reservation fits. With BEST_EFFORT,
+     * reservations are taken in order and the ones that don't fit in the availability left are skipped.
+     * @return for every reservation, whether it fits in the availability (in order)
+     * @throws com.upgrade.islandreservationsapi.exception.AvailabilityConflictException if the availability of any of
+     * the dates was updated concurrently, and no longer fits the reservations.
+     */
+    boolean[] updateDayAvailability(List<Reservation> reservations, BatchMode mode);
+
+    /**
+     * Adds a different number to the availability of every date. Only the dates with a non-zero delta are
+     * locked and updated.
+     * @param deltas number to add to the availability of every date, negative to take availability
+     * @throws NoAvailabilityForDateException if any of the dates with a negative delta doesn't have enough
+     * availability. Nothing is changed then.
+     */
+    void adjustAvailability(SortedMap<LocalDate, Integer> deltas) throws NoAvailabilityForDateException;
+
     /**
      * Updates the availability of all DayAvailability records within the provided date range by adding the
      * provided number. To increase availability, use a positive number. To decrease availability, use a negative number.
@@ -44,4 +105,24 @@ public interface DayAvailabilityService {
      */
     List<DayAvailability> addAvailability(LocalDate fromDate, LocalDate toDate, int number);
 
+    /**
+     * Returns the availability version, which increases every time a change to the availability is committed.
+     * Responses built after reading a version are at least as recent as that version.
+     * @return current availability version
+     */
+    long getAvailabilityVersion();
+
+    /**
+     * Loads the in-memory availability ledger with the DayAvailability records of the booking horizon.
+     * Until it is loaded, availability is read from the database.
+     */
+    void loadLedger();
+
+    /**
+     * Corrects the in-memory availability ledger with the DayAvailability records of the booking horizon, for the
+     * changes this node was not notified of (other nodes, manual updates).
+     * @return number of dates corrected
+     */
+    int resyncLedger();
+
 }
@@ -1,15 +1,16 @@
 package com.upgrade.islandreservationsapi.service;
 
+import com.upgrade.islandreservationsapi.exception.AvailabilityConflictException;
 import com.upgrade.islandreservationsapi.exception.InvalidDatesException;
 import com.upgrade.islandreservationsapi.exception.NoAvailabilityForDateException;
-import com.upgrade.islandreservationsapi.model.Dates;
 import com.upgrade.islandreservationsapi.model.DayAvailability;
 import com.upgrade.islandreservationsapi.model.Reservation;
-import com.upgrade.islandreservationsapi.repository.DatesRepository;
 import com.upgrade.islandreservationsapi.repository.DayAvailabilityRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,9 +19,15 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,25 +37,86 @@ public class DayAvailabilityServiceImpl implements DayAvailabilityService {
     private DayAvailabilityRepository availabilityRepository;
 
     @Autowired
-    private DatesRepository datesRepository;
+    private ConfigurationService configurationService;
 
     @Autowired
-    private ConfigurationService configurationService;
+    private AvailabilityLedger ledger;
+
+    @Autowired
+    private DateLockManager dateLocks;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // only in journal mode, where reads that the ledger can't answer go to the store instead of the database
+    @Autowired(required = false)
+    private JournalBookingStore store;
+
+    @Value("${island.booking.mode:GUARDED}")
+    private BookingMode bookingMode;
 
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     private final Logger logger = LogManager.getLogger(DayAvailabilityServiceImpl.class);
 
+    @Override
+    public void loadLedger() {
+        final LocalDate today = LocalDate.now();
+        final ConfigurationSnapshot configuration = configurationService.getSnapshot();
+        final int horizon = configuration.getHorizonDays();
+        logger.info("loadLedger(): loading availability for {} days starting {}.", horizon, today.format(formatter));
+        final List<DayAvailability> availabilities =
+                availabilityRepository.findByDateBetweenOrderByDateAsc(today, today.plusDays(horizon - 1));
+        ledger.load(today, horizon, configuration.getMaxAvailability(), availabilities);
+    }
+
+    @Override
+    public int resyncLedger() {
+        final LocalDate today = LocalDate.now();
+        final int horizon = configurationService.getSnapshot().getHorizonDays();
+        // read the version first: if an event is applied while reading, the records may be older than the ledger
+        final long version = ledger.getVersion();
+        final List<DayAvailability> availabilities =
+                availabilityRepository.findByDateBetweenOrderByDateAsc(today, today.plusDays(horizon - 1));
+        return ledger.resync(version, availabilities);
+    }
+
+    @Override
+    public long getAvailabilityVersion() {
+        return ledger.getVersion();
+    }
+
     @Override
     public List<DayAvailability> getAvailabilities(LocalDate fromDate, LocalDate toDate) throws InvalidDatesException {
+        final List<DayAvailability> availabilities = new ArrayList<>();
+        visitAvailabilities(fromDate, toDate, (d, a, m) -> availabilities.add(new DayAvailability(d, a, m)));
+        return availabilities;
+    }
+
+    @Override
+    public void visitAvailabilities(LocalDate fromDate, LocalDate toDate, DayAvailabilityVisitor visitor)
+            throws InvalidDatesException {
 
         logger.info("getAvailabilities(): Checking availability for dates {}-{}.",
                 fromDate.format(formatter), toDate.format(formatter));
+        validateDates(fromDate, toDate);
+
+        if(ledger.forEach(fromDate, toDate, visitor)) {
+            logger.debug("getAvailabilities(): returning availability from ledger.");
+            return;
+        }
+
+        visitStored(fromDate, toDate, visitor);
+    }
+
+    @Override
+    public void validateDates(LocalDate fromDate, LocalDate toDate) throws InvalidDatesException {
         if(fromDate.isAfter(toDate)) {
             logger.info("getAvailabilities(): Invalid dates. toDate must be after fromDate.");
             throw new InvalidDatesException("toDate must be after fromDate.");
         }
-        long maxDateRange = configurationService.getMaxDateRange();
+        final ConfigurationSnapshot configuration = configurationService.getSnapshot();
+        long maxDateRange = configuration.getMaxDateRange();
         int range = (int) ChronoUnit.DAYS.between(fromDate, toDate.plusDays(1));
         if(range > maxDateRange) {
             logger.info("getAvailabilities(): Invalid dates. Date range {} is greater than the max {}", range, maxDateRange);
@@ -58,91 +126,256 @@ public class DayAvailabilityServiceImpl implements DayAvailabilityService {
             logger.info("getAvailabilities(): Invalid dates. fromDate must be at least tomorrow.");
             throw new InvalidDatesException("Can only check availability starting tomorrow.");
         }
+        final LocalDate lastDate = LocalDate.now().plusDays(configuration.getHorizonDays() - 1);
+        if(toDate.isAfter(lastDate)) {
+            logger.info("getAvailabilities(): Invalid dates. toDate is after the last date {}.", lastDate.format(formatter));
+            throw new InvalidDatesException("Can only check availability until " + lastDate.format(formatter) + ".");
+        }
+    }
 
-        final int maxAvailability = configurationService.getMaxAvailability();
-
-        final List<DayAvailability> availabilities = availabilityRepository.findByDateBetweenOrderByDateAsc(fromDate, toDate);
-        LocalDate date = LocalDate.from(fromDate);
-        final List<DayAvailability> allAvailabilities = new ArrayList<>();
-        if(availabilities.isEmpty()) {
-            logger.info("No DayAvailability records found in database for period {}-{}. " +
-                    "Will return max availability for all these dates.", fromDate.format(formatter), toDate.format(formatter));
-            fromDate.datesUntil(toDate.plusDays(1))
-                    .forEach(d -> allAvailabilities.add(new DayAvailability(d, maxAvailability, maxAvailability)));
-            date = toDate;
+    private void visitStored(LocalDate fromDate, LocalDate toDate, DayAvailabilityVisitor visitor) {
+        // records of the whole horizon are created in advance by the CalendarMaintenanceJob
+        final List<DayAvailability> availabilities = store != null ? store.getAvailabilities(fromDate, toDate)
+                : availabilityRepository.findByDateBetweenOrderByDateAsc(fromDate, toDate);
+        if(availabilities.size() < ChronoUnit.DAYS.between(fromDate, toDate) + 1) {
+            logger.warn("Missing DayAvailability records for period {}-{}.", fromDate.format(formatter), toDate.format(formatter));
         }
         for(DayAvailability availability: availabilities) {
-            if(availability.getDate().isAfter(date)) {
-                date.datesUntil(availability.getDate())
-                        .forEach(d -> allAvailabilities.add(new DayAvailability(d, maxAvailability, maxAvailability)));
-            }
-            allAvailabilities.add(availability);
-            date = availability.getDate().plusDays(1);
+            visitor.visit(availability.getDate(), availability.getAvailability(), availability.getMaxAvailability());
         }
-        if(toDate.isAfter(date)) {
-            date.datesUntil(toDate.plusDays(1))
-                    .forEach(d -> allAvailabilities.add(new DayAvailability(d, maxAvailability, maxAvailability)));
+    }
+
+    @Override
+    public List<LocalDate> findStartDates(int persons, int nights, LocalDate fromDate, LocalDate toDate, int limit)
+            throws InvalidDatesException {
+        logger.info("findStartDates(): Searching {} start date(s) for {} person(s) and {} night(s) between {} and {}.",
+                limit, persons, nights, fromDate.format(formatter), toDate.format(formatter));
+        if(fromDate.isAfter(toDate)) {
+            logger.info("findStartDates(): Invalid dates. toDate must be after fromDate.");
+            throw new InvalidDatesException("toDate must be after fromDate.");
+        }
+        final ConfigurationSnapshot configuration = configurationService.getSnapshot();
+        if(nights > configuration.getMaxReservation()) {
+            logger.info("findStartDates(): Invalid number of nights {}. max is {}", nights, configuration.getMaxReservation());
+            throw new InvalidDatesException(String.format("max duration is %d day(s).", configuration.getMaxReservation()));
+        }
+        final LocalDate today = LocalDate.now();
+        final LocalDate firstStart = max(fromDate, today.plusDays(configuration.getMinAheadDays()));
+        final LocalDate lastStart = min(toDate, today.plusDays(configuration.getMaxAheadDays()));
+        final List<LocalDate> startDates = new ArrayList<>();
+        if(firstStart.isAfter(lastStart)) {
+            return startDates;
         }
-        return allAvailabilities;
+        if(ledger.findStartDates(firstStart, lastStart, nights, persons, limit, startDates)) {
+            logger.debug("findStartDates(): found {} start date(s) in ledger.", startDates.size());
+            return startDates;
+        }
+
+        // number of consecutive nights, up to the visited one, with enough availability
+        final int[] available = new int[1];
+        final LocalDate[] previous = { firstStart.minusDays(1) };
+        visitStored(firstStart, lastStart.plusDays(nights - 1), (d, a, m) -> {
+            final boolean consecutive = d.equals(previous[0].plusDays(1));
+            previous[0] = d;
+            available[0] = a >= persons ? (consecutive ? available[0] + 1 : 1) : 0;
+            if(available[0] >= nights && startDates.size() < limit) {
+                startDates.add(d.minusDays(nights - 1));
+            }
+        });
+        return startDates;
     }
 
-    @Transactional(propagation = Propagation.REQUIRED)
+    private static LocalDate max(LocalDate d1, LocalDate d2) {
+        return d1.isAfter(d2) ? d1 : d2;
+    }
+
+    private static LocalDate min(LocalDate d1, LocalDate d2) {
+        return d1.isBefore(d2) ? d1 : d2;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = NoAvailabilityForDateException.class)
     public List<DayAvailability> updateDayAvailability(Reservation reservation)
             throws NoAvailabilityForDateException {
         final List<LocalDate> dates = reservation.getStart().datesUntil(reservation.getEnd()).collect(Collectors.toList());
-        logger.debug("updateDayAvailability(): finding dates by id: {}", dates);
-        // lock dates
-        final List<Dates> datesList = datesRepository.findAllById(dates);
-        logger.debug("locked dates {}", datesList);
-        logger.debug("updateDayAvailability(): finding availabilities by id: {}", dates);
-        List<DayAvailability> availabilities = availabilityRepository.findAllById(dates);
-        logger.debug("updateDayAvailability(): found {} DayAvailability records: {}", availabilities.size(), availabilities.toString());
-        final Map<LocalDate, DayAvailability> availabilityMap = availabilities.stream()
-                .collect(Collectors.toMap(DayAvailability::getDate, v -> v));
-        final int maxOccupancy = configurationService.getMaxAvailability();
-        for(LocalDate date: dates) {
-            Optional<DayAvailability> availabilityOpt = Optional.ofNullable(availabilityMap.get(date));
-            if(availabilityOpt.isEmpty()) {
-                logger.debug("no availability record for date {}, creating with availability: {}",
-                        date.format(formatter), maxOccupancy - reservation.getNumberOfPersons());
-                DayAvailability newDayAvailability = new DayAvailability(date, maxOccupancy - reservation.getNumberOfPersons(), maxOccupancy);
-                availabilities.add(newDayAvailability);
-                availabilityRepository.save(newDayAvailability);
-            } else {
-                DayAvailability availability = availabilityOpt.get();
-                if(availabilityOpt.get().getAvailability() - reservation.getNumberOfPersons() < 0) {
-                    logger.info("no availability for date {}", date.format(formatter));
-                    throw new NoAvailabilityForDateException();
-                }
-                logger.debug("updating availability for date {} from {} to {}",
-                        date.format(formatter),
-                        availability.getAvailability(),
-                        availability.getAvailability() - reservation.getNumberOfPersons());
-                availability.setAvailability(availability.getAvailability() - reservation.getNumberOfPersons());
-                availabilityRepository.save(availability);
+        lockUnlessOptimistic(dates);
+        final List<DayAvailability> availabilities =
+                takeAvailability(reservation.getStart(), reservation.getEnd(), reservation.getNumberOfPersons());
+        final TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        dates.forEach(d -> deltas.put(d, -reservation.getNumberOfPersons()));
+        eventPublisher.publishEvent(new AvailabilityChangedEvent(deltas));
+        return availabilities;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = NoAvailabilityForDateException.class)
+    public void adjustAvailability(SortedMap<LocalDate, Integer> deltas) throws NoAvailabilityForDateException {
+        final TreeMap<LocalDate, Integer> changes = new TreeMap<>();
+        deltas.forEach((date, delta) -> {
+            if(delta != 0) {
+                changes.put(date, delta);
+            }
+        });
+        if(changes.isEmpty()) {
+            return;
+        }
+        logger.info("adjustAvailability(): changing the availability of {} of {} dates between {} and {}.",
+                changes.size(), deltas.size(), deltas.firstKey().format(formatter), deltas.lastKey().format(formatter));
+        lockUnlessOptimistic(changes.keySet());
+        // consecutive dates with the same delta are updated together
+        LocalDate runStart = changes.firstKey();
+        LocalDate runEnd = runStart;
+        int runDelta = changes.get(runStart);
+        for(Map.Entry<LocalDate, Integer> change: changes.tailMap(runStart, false).entrySet()) {
+            if(change.getKey().equals(runEnd.plusDays(1)) && change.getValue() == runDelta) {
+                runEnd = change.getKey();
+                continue;
             }
+            applyDelta(runStart, runEnd.plusDays(1), runDelta);
+            runStart = change.getKey();
+            runEnd = runStart;
+            runDelta = change.getValue();
+        }
+        applyDelta(runStart, runEnd.plusDays(1), runDelta);
+        eventPublisher.publishEvent(new AvailabilityChangedEvent(changes));
+    }
+
+    /**
+     * Locks the dates until the transaction completes, except in OPTIMISTIC mode: there the availability taken is
+     * checked by the version of every date, so conflicting bookings are retried instead of waiting for each other.
+     */
+    private void lockUnlessOptimistic(Collection<LocalDate> dates) {
+        if(bookingMode != BookingMode.OPTIMISTIC) {
+            dateLocks.lockUntilCompletion(dates);
+        }
+    }
+
+    private void applyDelta(LocalDate fromDate, LocalDate toDate, int delta) throws NoAvailabilityForDateException {
+        if(delta < 0) {
+            takeAvailability(fromDate, toDate, -delta);
+        } else {
+            final int updated = availabilityRepository.addAvailability(fromDate, toDate, delta);
+            logger.debug("adjustAvailability(): added {} to the availability of {} dates", delta, updated);
+        }
+    }
+
+    /**
+     * Subtracts number from the availability of the dates, or fails if any of them doesn't have enough.
+     * @param fromDate inclusive
+     * @param toDate exclusive
+     */
+    private List<DayAvailability> takeAvailability(LocalDate fromDate, LocalDate toDate, int number)
+            throws NoAvailabilityForDateException {
+        return bookingMode == BookingMode.OPTIMISTIC
+                ? compareAndDecrementAvailability(fromDate, toDate, number)
+                : decrementAvailability(fromDate, toDate, number);
+    }
+
+    private List<DayAvailability> decrementAvailability(LocalDate fromDate, LocalDate toDate, int number)
+            throws NoAvailabilityForDateException {
+        final long days = ChronoUnit.DAYS.between(fromDate, toDate);
+        // records of the whole horizon are created in advance, and only the dates with enough availability are
+        // updated, so the booking succeeds if all of them were
+        final int updated = availabilityRepository.decrementAvailability(fromDate, toDate, number);
+        if(updated < days) {
+            logger.info("no availability for {} of the {} dates between {} and {}", days - updated, days,
+                    fromDate.format(formatter), toDate.format(formatter));
+            throw new NoAvailabilityForDateException();
         }
+        logger.debug("updateDayAvailability(): subtracted {} from the availability of {} dates", number, updated);
+        return availabilityRepository.findByDateBetweenOrderByDateAsc(fromDate, toDate.minusDays(1));
+    }
+
+    private List<DayAvailability> compareAndDecrementAvailability(LocalDate fromDate, LocalDate toDate, int number)
+            throws NoAvailabilityForDateException {
+        final List<DayAvailability> availabilities = availabilityRepository
+                .findByDateBetweenOrderByDateAsc(fromDate, toDate.minusDays(1));
+        if(availabilities.size() < ChronoUnit.DAYS.between(fromDate, toDate)
+                || availabilities.stream().anyMatch(a -> a.getAvailability() < number)) {
+            logger.info("no availability for the dates between {} and {}",
+                    fromDate.format(formatter), toDate.format(formatter));
+            throw new NoAvailabilityForDateException();
+        }
+        for(DayAvailability availability: availabilities) {
+            if(availabilityRepository.compareAndDecrementAvailability(availability.getDate(), availability.getVersion(),
+                    number) == 0) {
+                logger.info("updateDayAvailability(): availability for {} was updated concurrently.",
+                        availability.getDate().format(formatter));
+                throw new AvailabilityConflictException(availability.getDate());
+            }
+            availability.setAvailability(availability.getAvailability() - number);
+            availability.setVersion(availability.getVersion() + 1);
+        }
+        logger.debug("updateDayAvailability(): subtracted {} from the availability of {} dates",
+                number, availabilities.size());
         return availabilities;
     }
 
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED)
+    public boolean[] updateDayAvailability(List<Reservation> reservations, BatchMode mode) {
+        final boolean[] fits = new boolean[reservations.size()];
+        if(reservations.isEmpty()) {
+            return fits;
+        }
+        final Set<LocalDate> dates = new HashSet<>();
+        reservations.forEach(r -> r.getStart().datesUntil(r.getEnd()).forEach(dates::add));
+        final LocalDate fromDate = Collections.min(dates);
+        final LocalDate toDate = Collections.max(dates);
+        logger.info("updateDayAvailability(): taking availability for {} reservations between {} and {}.",
+                reservations.size(), fromDate.format(formatter), toDate.format(formatter));
+        dateLocks.lockUntilCompletion(dates);
+        final Map<LocalDate, Integer> available = new HashMap<>();
+        availabilityRepository.findByDateBetweenOrderByDateAsc(fromDate, toDate)
+                .forEach(a -> available.put(a.getDate(), a.getAvailability()));
+
+        final TreeMap<LocalDate, Integer> demand = new TreeMap<>();
+        boolean allFit = true;
+        for(int i = 0; i < reservations.size(); i++) {
+            final Reservation reservation = reservations.get(i);
+            final int number = reservation.getNumberOfPersons();
+            fits[i] = reservation.getStart().datesUntil(reservation.getEnd())
+                    .allMatch(d -> available.getOrDefault(d, 0) >= number);
+            if(fits[i]) {
+                reservation.getStart().datesUntil(reservation.getEnd()).forEach(d -> {
+                    available.merge(d, -number, Integer::sum);
+                    demand.merge(d, number, Integer::sum);
+                });
+            }
+            allFit &= fits[i];
+        }
+        if(!allFit && mode == BatchMode.ALL_OR_NOTHING) {
+            logger.info("updateDayAvailability(): not all the reservations fit. Nothing updated.");
+            return fits;
+        }
+
+        final TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        for(Map.Entry<LocalDate, Integer> dateDemand: demand.entrySet()) {
+            final LocalDate date = dateDemand.getKey();
+            if(availabilityRepository.decrementAvailability(date, date.plusDays(1), dateDemand.getValue()) == 0) {
+                // only possible if updated by another node, since the dates are locked
+                logger.info("updateDayAvailability(): availability for {} was updated concurrently.", date.format(formatter));
+                throw new AvailabilityConflictException(date);
+            }
+            deltas.put(date, -dateDemand.getValue());
+        }
+        logger.debug("updateDayAvailability(): updated the availability of {} dates", deltas.size());
+        eventPublisher.publishEvent(new AvailabilityChangedEvent(deltas));
+        return fits;
+    }
+
     @Transactional(propagation = Propagation.REQUIRED)
     public List<DayAvailability> addAvailability(LocalDate fromDate, LocalDate toDate, int number) {
         logger.info("Adding {} to the availability to all DayAvailability records between {} and {}.",
                 number, fromDate.format(formatter), toDate.format(formatter));
-        final List<LocalDate> dates = fromDate.datesUntil(toDate).collect(Collectors.toList());
-        // lock dates
-        final List<Dates> allDates = datesRepository.findAllById(dates);
-        logger.debug("locked dates {}", allDates);
-        logger.debug("addAvailability(): finding dates by id: {}", dates);
-        List<DayAvailability> availabilities = availabilityRepository.findAllById(dates);
-        logger.debug("addAvailability(): found {} DayAvailability records: {}", availabilities.size(), availabilities.toString());
-        for(DayAvailability availability: availabilities) {
-            availabilityRepository.refresh(availability);
-            availability.setAvailability(availability.getAvailability() + number);
-            logger.debug("addAvailability(): set availability for date {} to {}",
-                    availability.getDate().format(formatter), availability.getAvailability());
-            availabilityRepository.save(availability);
-        }
+        dateLocks.lockUntilCompletion(fromDate, toDate);
+        final int updated = availabilityRepository.addAvailability(fromDate, toDate, number);
+        logger.debug("addAvailability(): updated {} DayAvailability records", updated);
+        final List<DayAvailability> availabilities = availabilityRepository
+                .findByDateBetweenOrderByDateAsc(fromDate, toDate.minusDays(1));
+        // days without a record are not updated, so only changed records are published
+        final TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        availabilities.forEach(a -> deltas.put(a.getDate(), number));
+        eventPublisher.publishEvent(new AvailabilityChangedEvent(deltas));
         return availabilities;
     }
 }
@@ -0,0 +1,12 @@
+package com.upgrade.islandreservationsapi.service;
+
+import java.time.LocalDate;
+
+/**
+ * Receives the availability of a date without the need of a DayAvailability object.
+ */
+@FunctionalInterface
+public interface DayAvailabilityVisitor {
+
+    void visit(LocalDate date, int availability, int maxAvailability);
+}
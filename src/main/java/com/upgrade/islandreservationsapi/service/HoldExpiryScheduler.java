@@ -0,0 +1,120 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.model.Hold;
+import com.upgrade.islandreservationsapi.repository.HoldRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Expires holds when their time is up. Holds are kept in an in-memory {@link TimingWheel} by token, so finding
+ * the due holds doesn't query the database; the wheel is filled from the database on startup, so holds survive
+ * restarts. Due holds are expired in batches, each batch in one transaction (see {@link HoldService#expireHolds}).
+ * Holds confirmed or released before expiring stay in the wheel, and are skipped when they are due.
+ */
+@Component
+public class HoldExpiryScheduler implements MeterBinder {
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private HoldRepository holdRepository;
+
+    @Value("${island.holds.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${island.holds.wheel-levels:4}")
+    private int wheelLevels;
+
+    @Value("${island.holds.expiry-batch-size:500}")
+    private int batchSize;
+
+    private final AtomicLong expired = new AtomicLong();
+
+    private final Logger logger = LogManager.getLogger(HoldExpiryScheduler.class);
+
+    private TimingWheel<String> wheel;
+
+    @PostConstruct
+    public void init() {
+        wheel = new TimingWheel<>(tickMs, wheelLevels, System.currentTimeMillis());
+    }
+
+    /**
+     * Schedules every active hold in the database. Holds that expired while the application was down are
+     * expired on the next tick.
+     */
+    public void reload() {
+        final List<Hold> holds = holdRepository.findByStatus(Hold.Status.HELD);
+        synchronized(wheel) {
+            holds.forEach(h -> wheel.add(h.getToken(), h.getExpiresAt().toEpochMilli()));
+        }
+        logger.info("reload(): scheduled {} active holds to expire.", holds.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHoldPlaced(HoldPlacedEvent event) {
+        synchronized(wheel) {
+            wheel.add(event.getToken(), event.getExpiresAt().toEpochMilli());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${island.holds.tick-ms:1000}")
+    public void expireDue() {
+        final List<String> due = new ArrayList<>();
+        synchronized(wheel) {
+            wheel.advance(System.currentTimeMillis(), due::add);
+        }
+        for(int from = 0; from < due.size(); from += batchSize) {
+            final List<String> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            try {
+                expired.addAndGet(holdService.expireHolds(batch));
+            } catch (RuntimeException e) {
+                logger.error("expireDue(): could not expire {} holds. Trying again on the next tick.", batch.size(), e);
+                synchronized(wheel) {
+                    batch.forEach(t -> wheel.add(t, System.currentTimeMillis()));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("island.holds.expired", expired, AtomicLong::get)
+                .description("Holds expired before being confirmed or released")
+                .register(registry);
+        Gauge.builder("island.holds.scheduled", this, HoldExpiryScheduler::getScheduled)
+                .description("Holds waiting in the timing wheel")
+                .register(registry);
+    }
+
+    /**
+     * @return number of holds expired
+     */
+    public long getExpired() {
+        return expired.get();
+    }
+
+    /**
+     * @return number of holds waiting to expire, including the ones already confirmed or released
+     */
+    public int getScheduled() {
+        synchronized(wheel) {
+            return wheel.size();
+        }
+    }
+}
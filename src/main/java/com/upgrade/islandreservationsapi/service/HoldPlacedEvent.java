@@ -0,0 +1,34 @@
+package com.upgrade.islandreservationsapi.service;
+
+import java.time.Instant;
+
+/**
+ * Published by {@link HoldService} implementations when a hold is created, so it can be scheduled to expire
+ * once the transaction commits.
+ */
+public class HoldPlacedEvent {
+
+    private final String token;
+    private final Instant expiresAt;
+
+    public HoldPlacedEvent(String token, Instant expiresAt) {
+        this.token = token;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return "HoldPlacedEvent{" +
+                "token='" + token + '\'' +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
@@ -0,0 +1,61 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.exception.HoldNotActiveException;
+import com.upgrade.islandreservationsapi.exception.HoldNotFoundException;
+import com.upgrade.islandreservationsapi.exception.NoAvailabilityForDateException;
+import com.upgrade.islandreservationsapi.model.Hold;
+import com.upgrade.islandreservationsapi.model.Reservation;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+public interface HoldService {
+
+    /**
+     * Get a hold from the database based on its token.
+     * @param token token of the hold
+     * @return Hold from DB
+     * @throws HoldNotFoundException if the hold does not exist in the DB
+     */
+    Hold getHold(String token) throws HoldNotFoundException;
+
+    /**
+     * Takes availability for the dates and number of persons for a limited time. The hold expires automatically
+     * unless it is confirmed or released before.
+     * @param start first night (inclusive)
+     * @param end last day (exclusive)
+     * @param numberOfPersons number of persons to hold availability for
+     * @return the created hold, with its token and expiration time
+     * @throws NoAvailabilityForDateException if there's no availability to accomodate the number of persons
+     * for any of the dates.
+     */
+    Hold createHold(LocalDate start, LocalDate end, int numberOfPersons) throws NoAvailabilityForDateException;
+
+    /**
+     * Creates a reservation with the dates and number of persons of an active hold. The availability was already
+     * taken by the hold, so it is not updated again.
+     * @param token token of the hold
+     * @param guest reservation with the guest details. Dates and number of persons are taken from the hold.
+     * @return Created reservation
+     * @throws HoldNotFoundException if the hold does not exist in the DB
+     * @throws HoldNotActiveException if the hold was already confirmed or released, or if it expired
+     */
+    Reservation confirmHold(String token, Reservation guest) throws HoldNotFoundException, HoldNotActiveException;
+
+    /**
+     * Gives back the availability of an active hold before it expires.
+     * @param token token of the hold
+     * @return Released hold
+     * @throws HoldNotFoundException if the hold does not exist in the DB
+     * @throws HoldNotActiveException if the hold was already confirmed or released, or if it expired
+     */
+    Hold releaseHold(String token) throws HoldNotFoundException, HoldNotActiveException;
+
+    /**
+     * Expires the holds that are still active and past their expiration time, and gives back their availability.
+     * All of them are updated in a single transaction, with the availability added up per date.
+     * @param tokens tokens of the holds to expire. Tokens of holds that are no longer active are ignored.
+     * @return number of expired holds
+     */
+    int expireHolds(Collection<String> tokens);
+}
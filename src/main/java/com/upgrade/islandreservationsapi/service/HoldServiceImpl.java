@@ -0,0 +1,150 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.exception.HoldNotActiveException;
+import com.upgrade.islandreservationsapi.exception.HoldNotFoundException;
+import com.upgrade.islandreservationsapi.exception.NoAvailabilityForDateException;
+import com.upgrade.islandreservationsapi.model.AvailabilityChange;
+import com.upgrade.islandreservationsapi.model.Hold;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.repository.HoldRepository;
+import com.upgrade.islandreservationsapi.repository.ReservationRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+
+@Service
+public class HoldServiceImpl implements HoldService {
+
+    @Autowired
+    private HoldRepository holdRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private DayAvailabilityService availabilityService;
+
+    @Autowired
+    private AvailabilityChangeLog changeLog;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${island.holds.ttl-ms:600000}")
+    private long ttlMs;
+
+    private final Logger logger = LogManager.getLogger(HoldServiceImpl.class);
+
+    @Override
+    public Hold getHold(String token) throws HoldNotFoundException {
+        return holdRepository.findById(token).orElseThrow(() -> new HoldNotFoundException(token));
+    }
+
+    @Override
+    @Retryable(interceptor = "bookingRetryInterceptor")
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = NoAvailabilityForDateException.class)
+    public Hold createHold(LocalDate start, LocalDate end, int numberOfPersons) throws NoAvailabilityForDateException {
+        logger.info("Holding availability for {} person(s) between {} and {}.", numberOfPersons, start, end);
+        final TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        start.datesUntil(end).forEach(d -> deltas.put(d, -numberOfPersons));
+        changeLog.describe(AvailabilityChange.Cause.HOLD, null);
+        availabilityService.adjustAvailability(deltas);
+        final Hold hold = holdRepository.save(new Hold(UUID.randomUUID().toString(), start, end, numberOfPersons,
+                Instant.now().plusMillis(ttlMs)));
+        logger.info("Created hold {}", hold);
+        // scheduled to expire once committed
+        eventPublisher.publishEvent(new HoldPlacedEvent(hold.getToken(), hold.getExpiresAt()));
+        return hold;
+    }
+
+    @Override
+    @Retryable(interceptor = "bookingRetryInterceptor")
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Reservation confirmHold(String token, Reservation guest) throws HoldNotFoundException, HoldNotActiveException {
+        logger.info("Confirming hold {}", token);
+        final Hold hold = lockActiveHold(token);
+        final Reservation reservation = new Reservation(guest.getFistName(), guest.getLastName(), guest.getEmail(),
+                hold.getStart(), hold.getEnd(), hold.getNumberOfPersons());
+        reservationRepository.save(reservation);
+        hold.setStatus(Hold.Status.CONFIRMED);
+        hold.setReservationId(reservation.getId());
+        holdRepository.save(hold);
+        logger.info("Hold {} confirmed into reservation {}", token, reservation.getId());
+        return reservation;
+    }
+
+    @Override
+    @Retryable(interceptor = "bookingRetryInterceptor")
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Hold releaseHold(String token) throws HoldNotFoundException, HoldNotActiveException {
+        logger.info("Releasing hold {}", token);
+        final Hold hold = lockActiveHold(token);
+        hold.setStatus(Hold.Status.RELEASED);
+        changeLog.describe(AvailabilityChange.Cause.HOLD_RELEASE, null);
+        availabilityService.addAvailability(hold.getStart(), hold.getEnd(), hold.getNumberOfPersons());
+        return holdRepository.save(hold);
+    }
+
+    /**
+     * Locks a hold before any date, like reservations, and checks that it can still be confirmed or released.
+     */
+    private Hold lockActiveHold(String token) throws HoldNotFoundException, HoldNotActiveException {
+        final Hold hold = holdRepository.findAndLockByToken(token).orElseThrow(() -> new HoldNotFoundException(token));
+        if(hold.getStatus() != Hold.Status.HELD) {
+            throw new HoldNotActiveException(token, hold.getStatus());
+        }
+        if(!hold.getExpiresAt().isAfter(Instant.now())) {
+            // the expiry job did not get to it yet
+            throw new HoldNotActiveException(token, Hold.Status.EXPIRED);
+        }
+        return hold;
+    }
+
+    @Override
+    @Retryable(interceptor = "bookingRetryInterceptor")
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int expireHolds(Collection<String> tokens) {
+        if(tokens.isEmpty()) {
+            return 0;
+        }
+        final Instant now = Instant.now();
+        final List<String> expired = new ArrayList<>();
+        final TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        for(Hold hold: holdRepository.findAndLockByTokenInOrderByTokenAsc(tokens)) {
+            if(hold.getStatus() == Hold.Status.HELD && !hold.getExpiresAt().isAfter(now)) {
+                expired.add(hold.getToken());
+                hold.getStart().datesUntil(hold.getEnd())
+                        .forEach(d -> deltas.merge(d, hold.getNumberOfPersons(), Integer::sum));
+            }
+        }
+        if(expired.isEmpty()) {
+            logger.debug("expireHolds(): none of the {} holds is active.", tokens.size());
+            return 0;
+        }
+        holdRepository.updateStatus(expired, Hold.Status.EXPIRED);
+        changeLog.describe(AvailabilityChange.Cause.HOLD_EXPIRY, null);
+        try {
+            availabilityService.adjustAvailability(deltas);
+        } catch (NoAvailabilityForDateException e) {
+            // only possible when taking availability
+            throw new IllegalStateException(e);
+        }
+        logger.info("expireHolds(): expired {} of {} holds, releasing availability for {} dates.",
+                expired.size(), tokens.size(), deltas.size());
+        return expired.size();
+    }
+}
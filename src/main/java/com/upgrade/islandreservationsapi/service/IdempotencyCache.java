@@ -0,0 +1,157 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.dto.ApiFieldError;
+import com.upgrade.islandreservationsapi.exception.InvalidReservationException;
+import com.upgrade.islandreservationsapi.exception.NoAvailabilityForDateException;
+import com.upgrade.islandreservationsapi.exception.RequestInProgressException;
+import com.upgrade.islandreservationsapi.exception.ReservationNotFoundException;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates reservations at most once per idempotency key, so clients can safely retry a request that timed out.
+ * The ids of the reservations created for the most recent keys are kept in a bounded LRU map, so retries are
+ * answered without starting a transaction. A retry that arrives while the first request is still running waits
+ * for its result (up to island.idempotency.wait-ms) instead of creating the reservation again. Keys that are no
+ * longer in the map are checked against the IdempotencyKey column of the reservations, which is unique.
+ * The first request with a key that creates a reservation decides the response: later requests with the same key
+ * get the same reservation, whatever their body. Requests that fail release the key, so they can be retried;
+ * only the requests waiting for them at the time get the same error.
+ */
+@Component
+public class IdempotencyCache implements MeterBinder {
+
+    public static final int MAX_KEY_LENGTH = 64;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    private final Map<String, CompletableFuture<Integer>> reservationIds;
+
+    @Value("${island.idempotency.wait-ms:10000}")
+    private long waitMs;
+
+    private final AtomicLong replayed = new AtomicLong();
+
+    private final Logger logger = LogManager.getLogger(IdempotencyCache.class);
+
+    public IdempotencyCache(@Value("${island.idempotency.cache-size:10000}") int cacheSize) {
+        this.reservationIds = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<Integer>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Checks that a key sent by a client can be stored.
+     * @throws InvalidReservationException if the key is blank or too long
+     */
+    public static void validateKey(String idempotencyKey) throws InvalidReservationException {
+        if(idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidReservationException("Validation failed", List.of(new ApiFieldError("Idempotency-Key",
+                    String.format("must have between 1 and %d characters", MAX_KEY_LENGTH))));
+        }
+    }
+
+    /**
+     * Creates a reservation, unless one was already created (or is being created) with the same key.
+     * @param idempotencyKey key sent by the client
+     * @param reservation Reservation to create
+     * @return id of the reservation created for the key
+     * @throws NoAvailabilityForDateException if there's no availability for the reservation that was created first
+     * with the key
+     * @throws RequestInProgressException if the request that was received first with the key is still running
+     */
+    public Integer createReservation(String idempotencyKey, Reservation reservation)
+            throws NoAvailabilityForDateException {
+        final CompletableFuture<Integer> result = new CompletableFuture<>();
+        final CompletableFuture<Integer> previous;
+        synchronized(reservationIds) {
+            previous = reservationIds.putIfAbsent(idempotencyKey, result);
+        }
+        if(previous != null) {
+            logger.info("Request with idempotency key {} was already received. Returning its result.", idempotencyKey);
+            replayed.incrementAndGet();
+            return await(idempotencyKey, previous);
+        }
+
+        try {
+            reservation.setIdempotencyKey(idempotencyKey);
+            result.complete(create(reservation));
+        } catch (NoAvailabilityForDateException | RuntimeException e) {
+            // the request can be retried with the same key
+            synchronized(reservationIds) {
+                reservationIds.remove(idempotencyKey, result);
+            }
+            result.completeExceptionally(e);
+            throw e;
+        }
+        return result.join();
+    }
+
+    private Integer create(Reservation reservation) throws NoAvailabilityForDateException {
+        try {
+            return reservationService.createReservation(reservation).getId();
+        } catch (DataIntegrityViolationException e) {
+            // created concurrently with the same key by another instance, or by a request evicted from the map
+            logger.info("Reservation with idempotency key {} was created concurrently.", reservation.getIdempotencyKey());
+            try {
+                return reservationService.getReservationByIdempotencyKey(reservation.getIdempotencyKey()).getId();
+            } catch (ReservationNotFoundException notFound) {
+                throw e;
+            }
+        }
+    }
+
+    private Integer await(String idempotencyKey, CompletableFuture<Integer> result)
+            throws NoAvailabilityForDateException {
+        try {
+            return result.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.info("Request with idempotency key {} is still being processed.", idempotencyKey);
+            throw new RequestInProgressException(idempotencyKey);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the reservation to be created.", e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof NoAvailabilityForDateException) {
+                throw (NoAvailabilityForDateException) e.getCause();
+            }
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("island.idempotency.replayed", replayed, AtomicLong::get)
+                .description("Reservation requests answered with the result of a previous request with the same key")
+                .register(registry);
+    }
+
+    /**
+     * @return number of requests answered with the result of a previous request with the same key
+     */
+    public long getReplayed() {
+        return replayed.get();
+    }
+}
@@ -0,0 +1,376 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.exception.NoAvailabilityForDateException;
+import com.upgrade.islandreservationsapi.model.DayAvailability;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Keeps reservations and availability in memory and persists them to a {@link BookingJournal} instead of the
+ * database, for single-node deployments without a database nearby (see {@link JournalReservationService} and
+ * {@link JournalDayAvailabilityService}). Every commit writes the new state of the changed reservations and
+ * dates as a single journal entry, so it is applied completely or not at all; the state is rebuilt from the
+ * journal on startup. The journal is compacted to one record per reservation and date when it is half full.
+ * Dates without a record have the max availability.
+ * Every method synchronizes on the store. Callers that read and then commit synchronize on it too.
+ */
+@Component
+@ConditionalOnProperty(prefix = "island.journal", name = "enabled", havingValue = "true")
+public class JournalBookingStore {
+
+    private static final byte AVAILABILITY = 'A';
+    private static final byte RESERVATION = 'R';
+    // records written per entry when compacting
+    private static final int COMPACTION_RECORDS = 1000;
+
+    @Autowired
+    private ConfigurationService configurationService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${island.journal.path:island.journal}")
+    private String path;
+
+    @Value("${island.journal.size-mb:64}")
+    private int sizeMb;
+
+    @Value("${island.journal.force:false}")
+    private boolean force;
+
+    private final Logger logger = LogManager.getLogger(JournalBookingStore.class);
+
+    private final TreeMap<LocalDate, DayAvailability> availabilities = new TreeMap<>();
+    private final Map<Integer, Reservation> reservations = new HashMap<>();
+    private final Map<String, Integer> idempotencyKeys = new HashMap<>();
+    private int lastId;
+    private BookingJournal journal;
+
+    @PostConstruct
+    public synchronized void open() {
+        journal = new BookingJournal(Paths.get(path), sizeMb * 1024 * 1024, force);
+        final long start = System.nanoTime();
+        final int entries = journal.recover(this::replay);
+        logger.info("Recovered {} reservations and {} dates from {} journal entries ({} bytes) in {} ms.",
+                reservations.size(), availabilities.size(), entries, journal.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        journal.close();
+    }
+
+    public synchronized Optional<Reservation> getReservation(Integer id) {
+        return Optional.ofNullable(reservations.get(id)).map(JournalBookingStore::copy);
+    }
+
+    public synchronized Optional<Reservation> getReservationByIdempotencyKey(String idempotencyKey) {
+        return Optional.ofNullable(idempotencyKeys.get(idempotencyKey)).flatMap(this::getReservation);
+    }
+
+    /**
+     * @param fromDate inclusive
+     * @param toDate inclusive
+     * @return availability of every date in the range, including the ones without a record
+     */
+    public synchronized List<DayAvailability> getAvailabilities(LocalDate fromDate, LocalDate toDate) {
+        final List<DayAvailability> result = new ArrayList<>();
+        fromDate.datesUntil(toDate.plusDays(1)).forEach(d -> {
+            final DayAvailability availability = availabilities.get(d);
+            result.add(availability == null ? new DayAvailability(d, maxAvailability(), maxAvailability())
+                    : new DayAvailability(d, availability.getAvailability(), availability.getMaxAvailability()));
+        });
+        return result;
+    }
+
+    /**
+     * Changes the availability of some dates and saves some reservations, as a single journal entry. Once
+     * written, an {@link AvailabilityChangedEvent} is published with the deltas.
+     * @param changed reservations to save. New reservations (without id) get one.
+     * @param deltas changes of availability by date
+     * @throws NoAvailabilityForDateException if any date would end up with negative availability. Nothing is
+     * changed in that case.
+     */
+    public synchronized void commit(Collection<Reservation> changed, SortedMap<LocalDate, Integer> deltas)
+            throws NoAvailabilityForDateException {
+        commit(changed, deltas, true);
+    }
+
+    /**
+     * Gives back the availability taken by a commit that was never published, because the database transaction
+     * it was made from rolled back. No event is published.
+     * @param deltas changes of availability by date, all of them positive
+     */
+    synchronized void restore(SortedMap<LocalDate, Integer> deltas) {
+        try {
+            commit(List.of(), deltas, false);
+        } catch (NoAvailabilityForDateException e) {
+            // only possible when taking availability
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void commit(Collection<Reservation> changed, SortedMap<LocalDate, Integer> deltas, boolean publish)
+            throws NoAvailabilityForDateException {
+        final TreeMap<LocalDate, Integer> changes = new TreeMap<>();
+        for(Map.Entry<LocalDate, Integer> delta: deltas.entrySet()) {
+            if(delta.getValue() == 0) {
+                continue;
+            }
+            if(availability(delta.getKey()) + delta.getValue() < 0) {
+                logger.info("commit(): no availability for {}.", delta.getKey());
+                throw new NoAvailabilityForDateException();
+            }
+            changes.put(delta.getKey(), delta.getValue());
+        }
+        final List<DayAvailability> changedDates = new ArrayList<>();
+        changes.forEach((date, delta) -> changedDates.add(new DayAvailability(date, availability(date) + delta,
+                availabilities.containsKey(date) ? availabilities.get(date).getMaxAvailability() : maxAvailability())));
+        final List<Reservation> saved = new ArrayList<>();
+        int id = lastId;
+        for(Reservation reservation: changed) {
+            final Reservation copy = copy(reservation);
+            if(copy.getId() == null) {
+                copy.setId(++id);
+            }
+            saved.add(copy);
+        }
+        write(changedDates, saved);
+        final Iterator<Reservation> originals = changed.iterator();
+        saved.forEach(s -> originals.next().setId(s.getId()));
+        if(publish && !changes.isEmpty()) {
+            eventPublisher.publishEvent(new AvailabilityChangedEvent(changes));
+        }
+    }
+
+    /**
+     * Takes availability for the reservations of a batch that fit, in order, and saves them if asked to.
+     * @param batch reservations to take availability for
+     * @param mode whether the reservations that fit are committed when some others don't
+     * @param save whether the reservations that fit are saved too
+     * @return whether each reservation fits
+     */
+    public synchronized boolean[] commitBatch(List<Reservation> batch, BatchMode mode, boolean save) {
+        final boolean[] fits = new boolean[batch.size()];
+        final Map<LocalDate, Integer> available = new HashMap<>();
+        final TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        final List<Reservation> fitting = new ArrayList<>();
+        boolean allFit = true;
+        for(int i = 0; i < batch.size(); i++) {
+            final Reservation reservation = batch.get(i);
+            final int number = reservation.getNumberOfPersons();
+            fits[i] = reservation.getStart().datesUntil(reservation.getEnd())
+                    .allMatch(d -> available.computeIfAbsent(d, this::availability) >= number);
+            if(fits[i]) {
+                reservation.getStart().datesUntil(reservation.getEnd()).forEach(d -> {
+                    available.merge(d, -number, Integer::sum);
+                    deltas.merge(d, -number, Integer::sum);
+                });
+                fitting.add(reservation);
+            }
+            allFit &= fits[i];
+        }
+        if(!allFit && mode == BatchMode.ALL_OR_NOTHING) {
+            return fits;
+        }
+        try {
+            commit(save ? fitting : List.of(), deltas);
+        } catch (NoAvailabilityForDateException e) {
+            // not possible, the availability was checked with the lock held
+            throw new IllegalStateException(e);
+        }
+        return fits;
+    }
+
+    /**
+     * Rewrites the journal with one record per reservation and date, if it is more than half full.
+     */
+    @Scheduled(fixedDelayString = "${island.journal.compaction-check-ms:60000}")
+    public synchronized void compactIfNeeded() {
+        if(journal.size() > journal.capacity() / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the journal with one record per reservation and date. The records are written to a new file,
+     * which then replaces the journal, so a crash while compacting leaves the journal as it was.
+     */
+    public synchronized void compact() {
+        final long start = System.nanoTime();
+        final int before = journal.size();
+        final Path file = Paths.get(path);
+        final Path compactedFile = file.resolveSibling(file.getFileName() + ".compact");
+        try {
+            Files.deleteIfExists(compactedFile);
+            try(BookingJournal compacted = new BookingJournal(compactedFile, journal.capacity(), false)) {
+                compacted.recover(payload -> {});
+                final List<DayAvailability> dates = new ArrayList<>(availabilities.values());
+                for(int from = 0; from < dates.size(); from += COMPACTION_RECORDS) {
+                    compacted.append(encode(dates.subList(from, Math.min(from + COMPACTION_RECORDS, dates.size())),
+                            List.of()));
+                }
+                final List<Reservation> all = new ArrayList<>(reservations.values());
+                for(int from = 0; from < all.size(); from += COMPACTION_RECORDS) {
+                    compacted.append(encode(List.of(), all.subList(from, Math.min(from + COMPACTION_RECORDS, all.size()))));
+                }
+            }
+            journal.close();
+            Files.move(compactedFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not compact journal " + file, e);
+        }
+        journal = new BookingJournal(file, journal.capacity(), force);
+        journal.recover(payload -> {});
+        logger.info("compact(): journal compacted from {} to {} bytes in {} ms.", before, journal.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void write(List<DayAvailability> dates, List<Reservation> changed) {
+        if(dates.isEmpty() && changed.isEmpty()) {
+            return;
+        }
+        final ByteBuffer entry = encode(dates, changed);
+        if(!journal.fits(entry.remaining())) {
+            compact();
+        }
+        journal.append(entry);
+        dates.forEach(this::apply);
+        changed.forEach(this::apply);
+    }
+
+    private void replay(ByteBuffer entry) {
+        while(entry.hasRemaining()) {
+            final byte type = entry.get();
+            if(type == AVAILABILITY) {
+                apply(new DayAvailability(LocalDate.ofEpochDay(entry.getLong()), entry.getInt(), entry.getInt()));
+            } else if(type == RESERVATION) {
+                final int id = entry.getInt();
+                final Reservation reservation = new Reservation(getString(entry), getString(entry), getString(entry),
+                        LocalDate.ofEpochDay(entry.getLong()), LocalDate.ofEpochDay(entry.getLong()), entry.getInt());
+                reservation.setId(id);
+                reservation.setStatus(Reservation.Status.values()[entry.get()]);
+                reservation.setIdempotencyKey(getString(entry));
+                apply(reservation);
+            } else {
+                throw new IllegalStateException("Unknown journal record type " + type);
+            }
+        }
+    }
+
+    private void apply(DayAvailability availability) {
+        availabilities.put(availability.getDate(), availability);
+    }
+
+    private void apply(Reservation reservation) {
+        reservations.put(reservation.getId(), reservation);
+        lastId = Math.max(lastId, reservation.getId());
+        if(reservation.getIdempotencyKey() != null) {
+            idempotencyKeys.put(reservation.getIdempotencyKey(), reservation.getId());
+        }
+    }
+
+    private static ByteBuffer encode(List<DayAvailability> dates, List<Reservation> changed) {
+        final List<byte[][]> strings = new ArrayList<>();
+        int size = dates.size() * (1 + Long.BYTES + 2 * Integer.BYTES);
+        for(Reservation reservation: changed) {
+            final byte[][] values = { bytes(reservation.getFistName()), bytes(reservation.getLastName()),
+                    bytes(reservation.getEmail()), bytes(reservation.getIdempotencyKey()) };
+            strings.add(values);
+            size += 1 + 3 * Integer.BYTES + 2 * Long.BYTES + 1;
+            for(byte[] value: values) {
+                size += Short.BYTES + (value == null ? 0 : value.length);
+            }
+        }
+        final ByteBuffer entry = ByteBuffer.allocate(size);
+        for(DayAvailability availability: dates) {
+            entry.put(AVAILABILITY)
+                    .putLong(availability.getDate().toEpochDay())
+                    .putInt(availability.getAvailability())
+                    .putInt(availability.getMaxAvailability());
+        }
+        for(int i = 0; i < changed.size(); i++) {
+            final Reservation reservation = changed.get(i);
+            final byte[][] values = strings.get(i);
+            entry.put(RESERVATION).putInt(reservation.getId());
+            putString(entry, values[0]);
+            putString(entry, values[1]);
+            putString(entry, values[2]);
+            entry.putLong(reservation.getStart().toEpochDay())
+                    .putLong(reservation.getEnd().toEpochDay())
+                    .putInt(reservation.getNumberOfPersons())
+                    .put((byte) reservation.getStatus().ordinal());
+            putString(entry, values[3]);
+        }
+        return entry.flip();
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putString(ByteBuffer entry, byte[] value) {
+        if(value == null) {
+            entry.putShort((short) -1);
+            return;
+        }
+        entry.putShort((short) value.length).put(value);
+    }
+
+    private static String getString(ByteBuffer entry) {
+        final short length = entry.getShort();
+        if(length < 0) {
+            return null;
+        }
+        final byte[] value = new byte[length];
+        entry.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private int availability(LocalDate date) {
+        final DayAvailability availability = availabilities.get(date);
+        return availability == null ? maxAvailability() : availability.getAvailability();
+    }
+
+    private int maxAvailability() {
+        return configurationService.getMaxAvailability();
+    }
+
+    private static Reservation copy(Reservation reservation) {
+        final Reservation copy = new Reservation(reservation.getFistName(), reservation.getLastName(),
+                reservation.getEmail(), reservation.getStart(), reservation.getEnd(), reservation.getNumberOfPersons());
+        copy.setId(reservation.getId());
+        copy.setStatus(reservation.getStatus());
+        copy.setIdempotencyKey(reservation.getIdempotencyKey());
+        return copy;
+    }
+}
@@ -0,0 +1,181 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.exception.InvalidDatesException;
+import com.upgrade.islandreservationsapi.exception.NoAvailabilityForDateException;
+import com.upgrade.islandreservationsapi.model.DayAvailability;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * {@link DayAvailabilityService} that keeps the availability in the {@link JournalBookingStore} instead of the
+ * database. Used instead of {@link DayAvailabilityServiceImpl} when the journal is enabled. Reads are answered by
+ * {@link DayAvailabilityServiceImpl} from the ledger, which is loaded from the store and kept up to date with the
+ * events it publishes.
+ * Changes made from a database transaction (holds, waitlist) follow its outcome: availability is taken right
+ * away, so it is checked against concurrent bookings, and given back if the transaction rolls back; availability
+ * is only released once the transaction commits.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "island.journal", name = "enabled", havingValue = "true")
+public class JournalDayAvailabilityService implements DayAvailabilityService {
+
+    @Autowired
+    private DayAvailabilityServiceImpl availabilityService;
+
+    @Autowired
+    private JournalBookingStore store;
+
+    @Autowired
+    private AvailabilityLedger ledger;
+
+    @Autowired
+    private ConfigurationService configurationService;
+
+    @Override
+    public List<DayAvailability> getAvailabilities(LocalDate fromDate, LocalDate toDate) throws InvalidDatesException {
+        return availabilityService.getAvailabilities(fromDate, toDate);
+    }
+
+    @Override
+    public void visitAvailabilities(LocalDate fromDate, LocalDate toDate, DayAvailabilityVisitor visitor)
+            throws InvalidDatesException {
+        availabilityService.visitAvailabilities(fromDate, toDate, visitor);
+    }
+
+    @Override
+    public void validateDates(LocalDate fromDate, LocalDate toDate) throws InvalidDatesException {
+        availabilityService.validateDates(fromDate, toDate);
+    }
+
+    @Override
+    public List<LocalDate> findStartDates(int persons, int nights, LocalDate fromDate, LocalDate toDate, int limit)
+            throws InvalidDatesException {
+        return availabilityService.findStartDates(persons, nights, fromDate, toDate, limit);
+    }
+
+    @Override
+    public List<DayAvailability> updateDayAvailability(Reservation reservation) throws NoAvailabilityForDateException {
+        commit(deltas(reservation.getStart(), reservation.getEnd(), -reservation.getNumberOfPersons()));
+        return store.getAvailabilities(reservation.getStart(), reservation.getEnd().minusDays(1));
+    }
+
+    @Override
+    public boolean[] updateDayAvailability(List<Reservation> reservations, BatchMode mode) {
+        final boolean[] fits = store.commitBatch(reservations, mode, false);
+        if(inTransaction()) {
+            final TreeMap<LocalDate, Integer> taken = new TreeMap<>();
+            for(int i = 0; i < fits.length; i++) {
+                if(!fits[i] && mode == BatchMode.ALL_OR_NOTHING) {
+                    // nothing was taken
+                    return fits;
+                }
+                if(fits[i]) {
+                    final int number = reservations.get(i).getNumberOfPersons();
+                    reservations.get(i).getStart().datesUntil(reservations.get(i).getEnd())
+                            .forEach(d -> taken.merge(d, -number, Integer::sum));
+                }
+            }
+            completeWithTransaction(taken, new TreeMap<>());
+        }
+        return fits;
+    }
+
+    @Override
+    public void adjustAvailability(SortedMap<LocalDate, Integer> deltas) throws NoAvailabilityForDateException {
+        commit(deltas);
+    }
+
+    @Override
+    public List<DayAvailability> addAvailability(LocalDate fromDate, LocalDate toDate, int number) {
+        try {
+            commit(deltas(fromDate, toDate, number));
+        } catch (NoAvailabilityForDateException e) {
+            // only possible when taking availability
+            throw new IllegalStateException(e);
+        }
+        return store.getAvailabilities(fromDate, toDate.minusDays(1));
+    }
+
+    @Override
+    public long getAvailabilityVersion() {
+        return availabilityService.getAvailabilityVersion();
+    }
+
+    @Override
+    public void loadLedger() {
+        final LocalDate today = LocalDate.now();
+        final ConfigurationSnapshot configuration = configurationService.getSnapshot();
+        final int horizon = configuration.getHorizonDays();
+        ledger.load(today, horizon, configuration.getMaxAvailability(),
+                store.getAvailabilities(today, today.plusDays(horizon - 1)));
+    }
+
+    @Override
+    public int resyncLedger() {
+        // the journal is only written by this node and every change to it publishes an event
+        return 0;
+    }
+
+    /**
+     * Commits the deltas to the store right away, unless called from a database transaction: then only the
+     * availability taken is committed, and the rest waits for the outcome of the transaction.
+     */
+    private void commit(SortedMap<LocalDate, Integer> deltas) throws NoAvailabilityForDateException {
+        if(!inTransaction()) {
+            store.commit(List.of(), deltas);
+            return;
+        }
+        final TreeMap<LocalDate, Integer> taken = new TreeMap<>();
+        final TreeMap<LocalDate, Integer> released = new TreeMap<>();
+        deltas.forEach((date, delta) -> (delta < 0 ? taken : released).put(date, delta));
+        store.commit(List.of(), taken);
+        completeWithTransaction(taken, released);
+    }
+
+    /**
+     * Once the current transaction completes, commits the availability released if it committed, or gives back
+     * the availability taken if it rolled back.
+     */
+    private void completeWithTransaction(TreeMap<LocalDate, Integer> taken, TreeMap<LocalDate, Integer> released) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            // after completion the transaction synchronization is cleared, so the events are published right away
+            @Override
+            public void afterCompletion(int status) {
+                if(status == STATUS_COMMITTED) {
+                    try {
+                        store.commit(List.of(), released);
+                    } catch (NoAvailabilityForDateException e) {
+                        // only possible when taking availability
+                        throw new IllegalStateException(e);
+                    }
+                } else {
+                    final TreeMap<LocalDate, Integer> restored = new TreeMap<>();
+                    taken.forEach((date, delta) -> restored.put(date, -delta));
+                    store.restore(restored);
+                }
+            }
+        });
+    }
+
+    private static boolean inTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isSynchronizationActive();
+    }
+
+    static TreeMap<LocalDate, Integer> deltas(LocalDate fromDate, LocalDate toDate, int delta) {
+        final TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        fromDate.datesUntil(toDate).forEach(d -> deltas.put(d, delta));
+        return deltas;
+    }
+}
@@ -0,0 +1,114 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.exception.*;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * {@link ReservationService} that keeps the reservations in the {@link JournalBookingStore} instead of the
+ * database. Used instead of {@link ReservationServiceImpl} when the journal is enabled: every change of a
+ * reservation and its availability is a single journal write, without opening a transaction.
+ * Can't be enabled along with the booking sequencer.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "island.journal", name = "enabled", havingValue = "true")
+public class JournalReservationService implements ReservationService {
+
+    @Autowired
+    private JournalBookingStore store;
+
+    @Autowired
+    private ConfigurationService configurationService;
+
+    private final Logger logger = LogManager.getLogger(JournalReservationService.class);
+
+    @Override
+    public Reservation getReservation(Integer id) throws ReservationNotFoundException {
+        return store.getReservation(id).orElseThrow(ReservationNotFoundException::new);
+    }
+
+    @Override
+    public Reservation getReservationByIdempotencyKey(String idempotencyKey) throws ReservationNotFoundException {
+        return store.getReservationByIdempotencyKey(idempotencyKey).orElseThrow(ReservationNotFoundException::new);
+    }
+
+    @Override
+    public Reservation createReservation(Reservation reservation) throws NoAvailabilityForDateException {
+        synchronized(store) {
+            if(reservation.getIdempotencyKey() != null) {
+                final Optional<Reservation> existing = store.getReservationByIdempotencyKey(reservation.getIdempotencyKey());
+                if(existing.isPresent()) {
+                    logger.info("Reservation {} was already created with idempotency key {}.",
+                            existing.get().getId(), reservation.getIdempotencyKey());
+                    return existing.get();
+                }
+            }
+            store.commit(List.of(reservation), JournalDayAvailabilityService.deltas(reservation.getStart(),
+                    reservation.getEnd(), -reservation.getNumberOfPersons()));
+        }
+        logger.info("Created reservation {}", reservation);
+        return reservation;
+    }
+
+    @Override
+    public List<ReservationBatchItem> createReservations(List<Reservation> reservations, BatchMode mode) {
+        final boolean[] fits = store.commitBatch(reservations, mode, true);
+        boolean created = false;
+        for(int i = 0; i < fits.length; i++) {
+            created |= fits[i] && reservations.get(i).getId() != null;
+        }
+        return ReservationBatchItem.of(reservations, fits, created);
+    }
+
+    @Override
+    public Reservation updateReservation(Reservation reservation)
+            throws NoAvailabilityForDateException, ReservationNotFoundException, InvalidReservationException {
+        synchronized(store) {
+            final Reservation existing = getReservation(reservation.getId());
+            ReservationServiceImpl.validateReservationUpdate(reservation, existing, configurationService.getMinAheadDays());
+            final TreeMap<LocalDate, Integer> deltas = JournalDayAvailabilityService.deltas(existing.getStart(),
+                    existing.getEnd(), existing.getNumberOfPersons());
+            reservation.getStart().datesUntil(reservation.getEnd())
+                    .forEach(d -> deltas.merge(d, -reservation.getNumberOfPersons(), Integer::sum));
+            existing.setFistName(reservation.getFistName());
+            existing.setLastName(reservation.getLastName());
+            existing.setEmail(reservation.getEmail());
+            existing.setStart(reservation.getStart());
+            existing.setEnd(reservation.getEnd());
+            existing.setNumberOfPersons(reservation.getNumberOfPersons());
+            store.commit(List.of(existing), deltas);
+            return existing;
+        }
+    }
+
+    @Override
+    public Reservation cancelReservation(Integer id)
+            throws ReservationNotFoundException, ReservationAlreadyCancelledException {
+        synchronized(store) {
+            final Reservation existing = getReservation(id);
+            if(existing.getStatus() == Reservation.Status.CANCELLED) {
+                throw new ReservationAlreadyCancelledException(id);
+            }
+            existing.setStatus(Reservation.Status.CANCELLED);
+            try {
+                store.commit(List.of(existing), JournalDayAvailabilityService.deltas(existing.getStart(),
+                        existing.getEnd(), existing.getNumberOfPersons()));
+            } catch (NoAvailabilityForDateException e) {
+                // only possible when taking availability
+                throw new IllegalStateException(e);
+            }
+            return existing;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.upgrade.islandreservationsapi.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Corrects the availability ledger periodically with the DayAvailability records, so changes committed by other
+ * nodes or made directly on the database are seen by this node (see {@link AvailabilityLedger#resync}).
+ */
+@Component
+public class LedgerResyncJob {
+
+    @Autowired
+    private DayAvailabilityService availabilityService;
+
+    @Scheduled(fixedDelayString = "${island.availability.ledger-resync-ms:60000}")
+    public void resync() {
+        availabilityService.resyncLedger();
+    }
+}
@@ -0,0 +1,154 @@
+package com.upgrade.islandreservationsapi.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Adds up the number of persons staying every night of a range of dates. Stays are added one by one as they are
+ * read, clipped to the range and bucketed by the month of their first night in primitive arrays; the
+ * occupancy is then computed in parallel with fork/join, one task per month. A month only reads its own
+ * bucket and the buckets of earlier months with stays that reach it, and writes its own slice of the result.
+ * Adding stays is not thread safe.
+ */
+public class OccupancyCalculator {
+
+    private final LocalDate fromDate;
+    private final int days;
+    private final YearMonth firstMonth;
+    private final Bucket[] buckets;
+    private long stays;
+
+    /**
+     * @param fromDate first night of the range (inclusive)
+     * @param toDate last night of the range (inclusive)
+     */
+    public OccupancyCalculator(LocalDate fromDate, LocalDate toDate) {
+        this.fromDate = fromDate;
+        this.days = (int) ChronoUnit.DAYS.between(fromDate, toDate) + 1;
+        this.firstMonth = YearMonth.from(fromDate);
+        this.buckets = new Bucket[(int) ChronoUnit.MONTHS.between(firstMonth, YearMonth.from(toDate)) + 1];
+        for(int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    /**
+     * Adds a stay. Nights outside of the range are ignored.
+     * @param start first night (inclusive)
+     * @param end last day (exclusive)
+     * @param numberOfPersons number of persons of the stay
+     */
+    public void add(LocalDate start, LocalDate end, int numberOfPersons) {
+        final int first = Math.max(0, (int) ChronoUnit.DAYS.between(fromDate, start));
+        final int last = Math.min(days, (int) ChronoUnit.DAYS.between(fromDate, end));
+        if(first >= last) {
+            return;
+        }
+        buckets[month(first)].add(first, last, numberOfPersons);
+        stays++;
+    }
+
+    /**
+     * @return number of stays added with at least one night in the range
+     */
+    public long getStays() {
+        return stays;
+    }
+
+    /**
+     * @param pool pool that runs the tasks of every month
+     * @return number of persons staying every night of the range, indexed by day since the first night
+     */
+    public int[] compute(ForkJoinPool pool) {
+        final int[] occupancy = new int[days];
+        pool.invoke(new MonthsTask(occupancy, 0, buckets.length));
+        return occupancy;
+    }
+
+    private int month(int day) {
+        return (int) ChronoUnit.MONTHS.between(firstMonth, YearMonth.from(fromDate.plusDays(day)));
+    }
+
+    /**
+     * @return first day of a month since the first night, or the number of days after the last month
+     */
+    private int monthStart(int month) {
+        if(month == 0) {
+            return 0;
+        }
+        if(month >= buckets.length) {
+            return days;
+        }
+        return (int) ChronoUnit.DAYS.between(fromDate, firstMonth.plusMonths(month).atDay(1));
+    }
+
+    private class MonthsTask extends RecursiveAction {
+
+        private final int[] occupancy;
+        private final int fromMonth;
+        private final int toMonth;
+
+        private MonthsTask(int[] occupancy, int fromMonth, int toMonth) {
+            this.occupancy = occupancy;
+            this.fromMonth = fromMonth;
+            this.toMonth = toMonth;
+        }
+
+        @Override
+        protected void compute() {
+            if(toMonth - fromMonth > 1) {
+                final int middle = (fromMonth + toMonth) >>> 1;
+                invokeAll(new MonthsTask(occupancy, fromMonth, middle), new MonthsTask(occupancy, middle, toMonth));
+                return;
+            }
+            final int monthStart = monthStart(fromMonth);
+            final int monthEnd = monthStart(fromMonth + 1);
+            for(int month = fromMonth; month >= 0; month--) {
+                if(buckets[month].maxLast > monthStart) {
+                    buckets[month].addTo(occupancy, monthStart, monthEnd);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stays that start in the same month, as parallel arrays of first night, last night (exclusive) and persons.
+     */
+    private static class Bucket {
+
+        private int[] first = new int[16];
+        private int[] last = new int[16];
+        private int[] persons = new int[16];
+        private int size;
+        private int maxLast;
+
+        private void add(int firstNight, int lastNight, int numberOfPersons) {
+            if(size == first.length) {
+                first = Arrays.copyOf(first, size * 2);
+                last = Arrays.copyOf(last, size * 2);
+                persons = Arrays.copyOf(persons, size * 2);
+            }
+            first[size] = firstNight;
+            last[size] = lastNight;
+            persons[size] = numberOfPersons;
+            size++;
+            maxLast = Math.max(maxLast, lastNight);
+        }
+
+        /**
+         * Adds the nights of the stays that fall between two days to the occupancy.
+         */
+        private void addTo(int[] occupancy, int fromDay, int toDay) {
+            for(int i = 0; i < size; i++) {
+                final int to = Math.min(last[i], toDay);
+                for(int day = Math.max(first[i], fromDay); day < to; day++) {
+                    occupancy[day] += persons[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.upgrade.islandreservationsapi.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of comparing the DayAvailability records with the reservations and holds (see
+ * {@link AvailabilityReconciliationJob}).
+ */
+public class ReconciliationReport {
+
+    /**
+     * A date whose availability does not match its max availability minus its reservations and holds.
+     */
+    public static class Drift {
+
+        private final LocalDate date;
+        private final int availability;
+        private final int expected;
+        private boolean repaired;
+
+        public Drift(LocalDate date, int availability, int expected) {
+            this.date = date;
+            this.availability = availability;
+            this.expected = expected;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public int getAvailability() {
+            return availability;
+        }
+
+        public int getExpected() {
+            return expected;
+        }
+
+        public boolean isRepaired() {
+            return repaired;
+        }
+
+        void setRepaired(boolean repaired) {
+            this.repaired = repaired;
+        }
+
+        @Override
+        public String toString() {
+            return "Drift{" +
+                    "date=" + date +
+                    ", availability=" + availability +
+                    ", expected=" + expected +
+                    ", repaired=" + repaired +
+                    '}';
+        }
+    }
+
+    private final LocalDate fromDate;
+    private final LocalDate toDate;
+    private final long stays;
+    private final int dates;
+    private final List<Drift> drifts = new ArrayList<>();
+    private long elapsedMs;
+
+    public ReconciliationReport(LocalDate fromDate, LocalDate toDate, long stays, int dates) {
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.stays = stays;
+        this.dates = dates;
+    }
+
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    public LocalDate getToDate() {
+        return toDate;
+    }
+
+    /**
+     * @return number of reservations and holds with nights in the range
+     */
+    public long getStays() {
+        return stays;
+    }
+
+    /**
+     * @return number of DayAvailability records compared
+     */
+    public int getDates() {
+        return dates;
+    }
+
+    public List<Drift> getDrifts() {
+        return Collections.unmodifiableList(drifts);
+    }
+
+    public long getRepaired() {
+        return drifts.stream().filter(Drift::isRepaired).count();
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    void addDrift(Drift drift) {
+        drifts.add(drift);
+    }
+
+    void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+
+    @Override
+    public String toString() {
+        return "ReconciliationReport{" +
+                "fromDate=" + fromDate +
+                ", toDate=" + toDate +
+                ", stays=" + stays +
+                ", dates=" + dates +
+                ", drifts=" + drifts +
+                ", elapsedMs=" + elapsedMs +
+                '}';
+    }
+}
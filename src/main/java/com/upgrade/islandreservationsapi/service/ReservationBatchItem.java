@@ -0,0 +1,64 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.exception.NoAvailabilityForDateException;
+import com.upgrade.islandreservationsapi.model.Reservation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of creating one reservation of a batch.
+ */
+public class ReservationBatchItem {
+
+    public static final String BATCH_FAILED = "Not created because other reservations of the batch could not be created.";
+
+    private final Reservation reservation;
+    private final String error;
+
+    private ReservationBatchItem(Reservation reservation, String error) {
+        this.reservation = reservation;
+        this.error = error;
+    }
+
+    public static ReservationBatchItem created(Reservation reservation) {
+        return new ReservationBatchItem(reservation, null);
+    }
+
+    public static ReservationBatchItem failed(Reservation reservation, String error) {
+        return new ReservationBatchItem(reservation, error);
+    }
+
+    /**
+     * @param reservations reservations of the batch
+     * @param fits whether each reservation fits in the availability
+     * @param created whether the reservations that fit were created
+     * @return the result of every reservation of the batch, in order
+     */
+    public static List<ReservationBatchItem> of(List<Reservation> reservations, boolean[] fits, boolean created) {
+        final List<ReservationBatchItem> items = new ArrayList<>();
+        for(int i = 0; i < reservations.size(); i++) {
+            final Reservation reservation = reservations.get(i);
+            if(!fits[i]) {
+                items.add(failed(reservation, NoAvailabilityForDateException.MESSAGE));
+            } else if(!created) {
+                items.add(failed(reservation, BATCH_FAILED));
+            } else {
+                items.add(created(reservation));
+            }
+        }
+        return items;
+    }
+
+    public boolean isCreated() {
+        return error == null;
+    }
+
+    public Reservation getReservation() {
+        return reservation;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -3,6 +3,8 @@ package com.upgrade.islandreservationsapi.service;
 import com.upgrade.islandreservationsapi.exception.*;
 import com.upgrade.islandreservationsapi.model.Reservation;
 
+import java.util.List;
+
 public interface ReservationService {
 
     /**
@@ -14,7 +16,16 @@ public interface ReservationService {
     Reservation getReservation(Integer id) throws ReservationNotFoundException;
 
     /**
-     * Create a new reservation in the DB.
+     * Get the reservation created by the request with the given idempotency key.
+     * @param idempotencyKey key sent by the client when creating the reservation
+     * @return Reservation from DB
+     * @throws ReservationNotFoundException if no reservation was created with the key
+     */
+    Reservation getReservationByIdempotencyKey(String idempotencyKey) throws ReservationNotFoundException;
+
+    /**
+     * Create a new reservation in the DB. If the reservation has an idempotency key, and a reservation was already
+     * created with the same key, the existing reservation is returned and nothing is created.
      * @param reservation Reservation to create
      * @return Created reservation
      * @throws NoAvailabilityForDateException if there's no availability to accomodate the number of persons
@@ -23,6 +34,14 @@ public interface ReservationService {
     Reservation createReservation(Reservation reservation)
             throws NoAvailabilityForDateException;
 
+    /**
+     * Creates many reservations in a single transaction.
+     * @param reservations Reservations to create, in order of preference
+     * @param mode whether all the reservations must be created, or as many as possible
+     * @return the result of creating every reservation, in the same order
+     */
+    List<ReservationBatchItem> createReservations(List<Reservation> reservations, BatchMode mode);
+
     /**
      * Updates an existing reservation
      * @param reservation Reservation to update
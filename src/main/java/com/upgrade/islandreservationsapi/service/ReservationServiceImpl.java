@@ -2,11 +2,13 @@ package com.upgrade.islandreservationsapi.service;
 
 import com.upgrade.islandreservationsapi.dto.ApiFieldError;
 import com.upgrade.islandreservationsapi.exception.*;
+import com.upgrade.islandreservationsapi.model.AvailabilityChange;
 import com.upgrade.islandreservationsapi.model.Reservation;
 import com.upgrade.islandreservationsapi.repository.ReservationRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,6 +29,9 @@ public class ReservationServiceImpl implements ReservationService {
     @Autowired
     private DayAvailabilityService availabilityService;
 
+    @Autowired
+    private AvailabilityChangeLog changeLog;
+
     private final Logger logger = LogManager.getLogger(ReservationServiceImpl.class);
 
     @Override
@@ -39,16 +44,56 @@ public class ReservationServiceImpl implements ReservationService {
     }
 
     @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Reservation getReservationByIdempotencyKey(String idempotencyKey) throws ReservationNotFoundException {
+        return reservationRepository.findByIdempotencyKey(idempotencyKey).orElseThrow(ReservationNotFoundException::new);
+    }
+
+    @Override
+    @Retryable(interceptor = "bookingRetryInterceptor")
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = NoAvailabilityForDateException.class)
     public Reservation createReservation(Reservation reservation) throws NoAvailabilityForDateException {
+        if(reservation.getIdempotencyKey() != null) {
+            final Optional<Reservation> existing = reservationRepository.findByIdempotencyKey(reservation.getIdempotencyKey());
+            if(existing.isPresent()) {
+                logger.info("Reservation {} was already created with idempotency key {}.",
+                        existing.get().getId(), reservation.getIdempotencyKey());
+                return existing.get();
+            }
+        }
         logger.debug("createReservation(): updating avalability...");
+        changeLog.describe(AvailabilityChange.Cause.BOOKING, reservation);
         availabilityService.updateDayAvailability(reservation);
         logger.info("Creating reservation {}", reservation.toString());
         return reservationRepository.save(reservation);
     }
 
     @Override
+    @Retryable(interceptor = "bookingRetryInterceptor")
     @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public List<ReservationBatchItem> createReservations(List<Reservation> reservations, BatchMode mode) {
+        logger.info("Creating a batch of {} reservations ({}).", reservations.size(), mode);
+        changeLog.describe(AvailabilityChange.Cause.BATCH, null);
+        final boolean[] fits = availabilityService.updateDayAvailability(reservations, mode);
+        boolean allFit = true;
+        for(boolean fit: fits) {
+            allFit &= fit;
+        }
+        final List<Reservation> created = new ArrayList<>();
+        if(allFit || mode == BatchMode.BEST_EFFORT) {
+            for(int i = 0; i < reservations.size(); i++) {
+                if(fits[i]) {
+                    created.add(reservations.get(i));
+                }
+            }
+            reservationRepository.insertAll(created);
+        }
+        logger.info("Created {} of {} reservations.", created.size(), reservations.size());
+        return ReservationBatchItem.of(reservations, fits, !created.isEmpty());
+    }
+
+    @Override
+    @Retryable(interceptor = "bookingRetryInterceptor")
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = NoAvailabilityForDateException.class)
     public Reservation updateReservation(Reservation reservation)
             throws NoAvailabilityForDateException, ReservationNotFoundException,
                 InvalidReservationException {
@@ -56,10 +101,10 @@ public class ReservationServiceImpl implements ReservationService {
         final Optional<Reservation> oldReservationOpt = reservationRepository.findAndLockById(reservation.getId());
         oldReservationOpt.ifPresentOrElse(r -> logger.info("Found existing reservation with id {}", r.getId()),
                 () -> logger.info("Reservation not found. Can't update."));
-        Reservation oldReservation = oldReservationOpt
+        final Reservation oldReservation = oldReservationOpt
                 .orElseThrow(ReservationNotFoundException::new);
         // validation for update
-        validateReservationUpdate(reservation, oldReservation);
+        validateReservationUpdate(reservation, oldReservation, configurationService.getMinAheadDays());
 
         final boolean datesChanged = !oldReservation.getStart().equals(reservation.getStart())
                 || !oldReservation.getEnd().equals(reservation.getEnd());
@@ -75,17 +120,15 @@ public class ReservationServiceImpl implements ReservationService {
             return reservationRepository.save(oldReservation);
         }
 
-        if(!datesChanged) {
-            logger.info("udpateReservation(): Dates did not change. Updating availability for dates.");
-            int difference = oldReservation.getNumberOfPersons() - reservation.getNumberOfPersons();
-            availabilityService.addAvailability(oldReservation.getStart(), oldReservation.getEnd(), difference);
-        } else {
-            logger.info("udpateReservation(): Updating availability for old and new dates");
-            // increase availability for old reservation dates (like if reservation was cancelled) by the old number of persons
-            availabilityService.addAvailability(oldReservation.getStart(), oldReservation.getEnd(), oldReservation.getNumberOfPersons());
-            // decrease availability for new reservation dates by the new number of persons
-            availabilityService.updateDayAvailability(reservation);
-        }
+        // release the old nights and take the new ones, but only lock and update the nights that change
+        final TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        oldReservation.getStart().datesUntil(oldReservation.getEnd())
+                .forEach(d -> deltas.put(d, oldReservation.getNumberOfPersons()));
+        reservation.getStart().datesUntil(reservation.getEnd())
+                .forEach(d -> deltas.merge(d, -reservation.getNumberOfPersons(), Integer::sum));
+        logger.info("udpateReservation(): Updating availability for old and new dates");
+        changeLog.describe(AvailabilityChange.Cause.MODIFICATION, oldReservation);
+        availabilityService.adjustAvailability(deltas);
         oldReservation.setStart(reservation.getStart());
         oldReservation.setEnd(reservation.getEnd());
         oldReservation.setNumberOfPersons(reservation.getNumberOfPersons());
@@ -93,7 +136,7 @@ public class ReservationServiceImpl implements ReservationService {
         return reservationRepository.save(oldReservation);
     }
 
-    private void validateReservationUpdate(Reservation reservation, Reservation existingReservation)
+    static void validateReservationUpdate(Reservation reservation, Reservation existingReservation, int minAheadDays)
             throws InvalidReservationException {
         if(existingReservation.getStatus() == Reservation.Status.CANCELLED) {
             throw new ReservationCancelledException();
@@ -125,7 +168,6 @@ public class ReservationServiceImpl implements ReservationService {
                 throw new InvalidReservationException("Validation failed", errors);
             }
         } else {
-            int minAheadDays = configurationService.getMinAheadDays();
             // reservation did not start, need to enforce validation for start date
             if(ChronoUnit.DAYS.between(LocalDate.now(), reservation.getStart()) < minAheadDays) {
                 throw new InvalidReservationException("Validation failed",
@@ -136,11 +178,13 @@ public class ReservationServiceImpl implements ReservationService {
     }
 
     @Override
+    @Retryable(interceptor = "bookingRetryInterceptor")
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public Reservation cancelReservation(Integer id)
             throws ReservationNotFoundException, ReservationAlreadyCancelledException {
         logger.info("Cancelling reservation id {}", id);
-        final Optional<Reservation> reservationOpt = reservationRepository.findById(id);
+        // the reservation is locked before the dates, like in updateReservation, so they can't deadlock
+        final Optional<Reservation> reservationOpt = reservationRepository.findAndLockById(id);
         reservationOpt.ifPresentOrElse(r -> logger.info("Reservation id {} found", r.getId()),
                 () -> logger.info("Reservation not found. Can't cancel."));
         final Reservation reservation = reservationOpt.orElseThrow(ReservationNotFoundException::new);
@@ -152,6 +196,7 @@ public class ReservationServiceImpl implements ReservationService {
 
         // update availability
         logger.info("Updating availability after cancellation");
+        changeLog.describe(AvailabilityChange.Cause.CANCELLATION, reservation);
         availabilityService.addAvailability(reservation.getStart(), reservation.getEnd(), reservation.getNumberOfPersons());
 
         return reservationRepository.save(reservation);
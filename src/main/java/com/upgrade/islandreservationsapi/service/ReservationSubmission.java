@@ -0,0 +1,85 @@
+package com.upgrade.islandreservationsapi.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reservation request accepted by the {@link ReservationSubmissionQueue}, and its outcome once processed.
+ */
+public class ReservationSubmission {
+
+    public enum Status {
+        PENDING,
+        CREATED,
+        REJECTED,
+        FAILED
+    }
+
+    private final String id;
+    private final CompletableFuture<ReservationSubmission> completion = new CompletableFuture<>();
+    private volatile Status status = Status.PENDING;
+    private volatile Integer reservationId;
+    private volatile String error;
+
+    public ReservationSubmission(String id) {
+        this.id = id;
+    }
+
+    void created(Integer reservationId) {
+        this.reservationId = reservationId;
+        this.status = Status.CREATED;
+        completion.complete(this);
+    }
+
+    void rejected(String error) {
+        complete(Status.REJECTED, error);
+    }
+
+    void failed(String error) {
+        complete(Status.FAILED, error);
+    }
+
+    private void complete(Status status, String error) {
+        this.error = error;
+        this.status = status;
+        completion.complete(this);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return id of the created reservation, or null if not CREATED
+     */
+    public Integer getReservationId() {
+        return reservationId;
+    }
+
+    /**
+     * @return why the reservation was not created, or null
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return future completed with this submission once it is no longer PENDING
+     */
+    public CompletableFuture<ReservationSubmission> getCompletion() {
+        return completion;
+    }
+
+    @Override
+    public String toString() {
+        return "ReservationSubmission{" +
+                "id='" + id + '\'' +
+                ", status=" + status +
+                ", reservationId=" + reservationId +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
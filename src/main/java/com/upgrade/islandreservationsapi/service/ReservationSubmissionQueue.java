@@ -0,0 +1,148 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.exception.NoAvailabilityForDateException;
+import com.upgrade.islandreservationsapi.exception.SubmissionNotFoundException;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates reservations in the background, so the web threads don't wait for locks and commits. Submissions are
+ * queued in a bounded queue drained by a dedicated pool of workers; when the queue is full, submissions are
+ * rejected with a {@link TaskRejectedException}. The outcome of the most recent submissions is kept in memory
+ * (island.submissions.retained), so clients can poll for it; outcomes are lost on restart, so clients that need
+ * to retry a submission safely should send an idempotency key.
+ */
+@Component
+public class ReservationSubmissionQueue implements MeterBinder {
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private IdempotencyCache idempotencyCache;
+
+    @Value("${island.submissions.workers:4}")
+    private int workers;
+
+    @Value("${island.submissions.queue-size:1000}")
+    private int queueSize;
+
+    @Value("${island.submissions.retained:10000}")
+    private int retained;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private Map<String, ReservationSubmission> submissions;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final Logger logger = LogManager.getLogger(ReservationSubmissionQueue.class);
+
+    @PostConstruct
+    public void start() {
+        submissions = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ReservationSubmission> eldest) {
+                return size() > retained;
+            }
+        };
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueSize);
+        executor.setThreadNamePrefix("reservation-submission-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        logger.info("Reservation submission queue started ({} workers, queue size {}).", workers, queueSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * Queues the creation of a reservation.
+     * @param reservation Reservation to create, already validated
+     * @param idempotencyKey key sent by the client, or null
+     * @return PENDING submission, completed once the reservation is created or rejected
+     * @throws TaskRejectedException if the queue is full
+     */
+    public ReservationSubmission submit(Reservation reservation, String idempotencyKey) {
+        final ReservationSubmission submission = new ReservationSubmission(UUID.randomUUID().toString());
+        try {
+            executor.execute(() -> process(submission, reservation, idempotencyKey));
+        } catch (TaskRejectedException e) {
+            rejected.incrementAndGet();
+            throw new TaskRejectedException("Too many reservations waiting to be processed.", e);
+        }
+        synchronized(submissions) {
+            submissions.put(submission.getId(), submission);
+        }
+        accepted.incrementAndGet();
+        return submission;
+    }
+
+    /**
+     * @param id id of the submission
+     * @return the submission, PENDING or with its outcome
+     * @throws SubmissionNotFoundException if the id is unknown, or its outcome is no longer retained
+     */
+    public ReservationSubmission getSubmission(String id) throws SubmissionNotFoundException {
+        final ReservationSubmission submission;
+        synchronized(submissions) {
+            submission = submissions.get(id);
+        }
+        if(submission == null) {
+            throw new SubmissionNotFoundException(id);
+        }
+        return submission;
+    }
+
+    private void process(ReservationSubmission submission, Reservation reservation, String idempotencyKey) {
+        try {
+            final Integer id = idempotencyKey == null
+                    ? reservationService.createReservation(reservation).getId()
+                    : idempotencyCache.createReservation(idempotencyKey, reservation);
+            submission.created(id);
+        } catch (NoAvailabilityForDateException e) {
+            submission.rejected(e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Reservation submission {} failed.", submission.getId(), e);
+            submission.failed(e.getMessage());
+        }
+        logger.info("Processed {}", submission);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("island.submissions.accepted", accepted, AtomicLong::get)
+                .description("Reservation submissions queued")
+                .register(registry);
+        FunctionCounter.builder("island.submissions.rejected", rejected, AtomicLong::get)
+                .description("Reservation submissions rejected because the queue was full")
+                .register(registry);
+        Gauge.builder("island.submissions.queued", this, q -> q.executor.getThreadPoolExecutor().getQueue().size())
+                .description("Reservation submissions waiting for a worker")
+                .register(registry);
+    }
+}
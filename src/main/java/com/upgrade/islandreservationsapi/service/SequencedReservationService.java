@@ -0,0 +1,127 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.exception.*;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link ReservationService} that sends every change of a reservation to the {@link BookingSequencer}, and waits
+ * for it to be committed. Used instead of {@link ReservationServiceImpl} when the sequencer is enabled.
+ * Creations are still checked by the {@link BookingAdmission} before they are queued. The other protections of
+ * {@link ReservationServiceImpl} don't apply to the commands of the sequencer: their dates are not locked with the
+ * {@link DateLockManager} (the sequencer is the only writer of reservations, but holds and waitlist bookings of
+ * the same node are not serialized with it), and they are not retried by the booking retry interceptor. Conflicts
+ * with those writers are detected by the version of the availability records, and the sequencer retries the
+ * commands itself (see {@link BookingSequencer}).
+ * A command that is not committed within island.booking.sequencer.wait-ms is answered with a
+ * {@link TaskRejectedException}, but it may still be committed later.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "island.booking.sequencer", name = "enabled", havingValue = "true")
+public class SequencedReservationService implements ReservationService {
+
+    @Autowired
+    private ReservationServiceImpl reservationService;
+
+    @Autowired
+    private BookingSequencer sequencer;
+
+    @Autowired
+    private BookingAdmission admission;
+
+    @Value("${island.booking.sequencer.wait-ms:10000}")
+    private long waitMs;
+
+    @Override
+    public Reservation getReservation(Integer id) throws ReservationNotFoundException {
+        return reservationService.getReservation(id);
+    }
+
+    @Override
+    public Reservation getReservationByIdempotencyKey(String idempotencyKey) throws ReservationNotFoundException {
+        return reservationService.getReservationByIdempotencyKey(idempotencyKey);
+    }
+
+    @Override
+    public Reservation createReservation(Reservation reservation) throws NoAvailabilityForDateException {
+        admission.admit(reservation);
+        final Throwable error;
+        try {
+            return await(sequencer.submitCreate(reservation));
+        } catch (ExecutionException e) {
+            error = e.getCause();
+        }
+        rethrowIf(error, NoAvailabilityForDateException.class);
+        throw unchecked(error);
+    }
+
+    /**
+     * Batches are already created in a single transaction, so they are not sent to the sequencer.
+     */
+    @Override
+    public List<ReservationBatchItem> createReservations(List<Reservation> reservations, BatchMode mode) {
+        return reservationService.createReservations(reservations, mode);
+    }
+
+    @Override
+    public Reservation updateReservation(Reservation reservation)
+            throws NoAvailabilityForDateException, ReservationNotFoundException, InvalidReservationException {
+        final Throwable error;
+        try {
+            return await(sequencer.submitUpdate(reservation));
+        } catch (ExecutionException e) {
+            error = e.getCause();
+        }
+        rethrowIf(error, NoAvailabilityForDateException.class);
+        rethrowIf(error, ReservationNotFoundException.class);
+        rethrowIf(error, InvalidReservationException.class);
+        throw unchecked(error);
+    }
+
+    @Override
+    public Reservation cancelReservation(Integer id)
+            throws ReservationNotFoundException, ReservationAlreadyCancelledException {
+        final Throwable error;
+        try {
+            return await(sequencer.submitCancel(id));
+        } catch (ExecutionException e) {
+            error = e.getCause();
+        }
+        rethrowIf(error, ReservationNotFoundException.class);
+        rethrowIf(error, ReservationAlreadyCancelledException.class);
+        throw unchecked(error);
+    }
+
+    private Reservation await(CompletableFuture<Reservation> future) throws ExecutionException {
+        try {
+            return future.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the reservation to be committed.", e);
+        } catch (TimeoutException e) {
+            throw new TaskRejectedException("The reservation was not processed in time.", e);
+        }
+    }
+
+    private static <E extends Exception> void rethrowIf(Throwable error, Class<E> type) throws E {
+        if(type.isInstance(error)) {
+            throw type.cast(error);
+        }
+    }
+
+    private static RuntimeException unchecked(Throwable error) {
+        return error instanceof RuntimeException ? (RuntimeException) error : new IllegalStateException(error);
+    }
+}
@@ -0,0 +1,138 @@
+package com.upgrade.islandreservationsapi.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: every level is a ring of 64 slots, and a slot of a level spans a whole turn of the
+ * level below. Items are added to the lowest level whose turn covers their deadline, and are cascaded to the
+ * lower levels when the time reaches their slot, so adding is O(1) and every item is moved at most once per level.
+ * Items beyond the top level are kept in an overflow list and placed again every time the top level moves.
+ * Not thread safe.
+ * @param <T> type of the items
+ */
+public class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final long tickMs;
+    private final int levels;
+    private final List<List<Entry<T>>> slots;
+    private final List<Entry<T>> overflow = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMs duration of a slot of the lowest level
+     * @param levels number of levels
+     * @param startMs time of the first tick
+     */
+    public TimingWheel(long tickMs, int levels, long startMs) {
+        if(tickMs <= 0 || levels <= 0 || levels * SLOT_BITS >= Long.SIZE - 1) {
+            throw new IllegalArgumentException("Invalid timing wheel: tick " + tickMs + "ms, " + levels + " levels.");
+        }
+        this.tickMs = tickMs;
+        this.levels = levels;
+        this.slots = new ArrayList<>(levels * SLOTS);
+        for(int i = 0; i < levels * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.currentTick = startMs / tickMs;
+    }
+
+    /**
+     * Adds an item. Items with a deadline that already passed expire on the next call to
+     * {@link #advance(long, Consumer)}.
+     * @param item item to add
+     * @param deadlineMs time at which the item expires
+     */
+    public void add(T item, long deadlineMs) {
+        // the deadline is rounded up, so items never expire early
+        final long tick = Math.max((deadlineMs + tickMs - 1) / tickMs, currentTick);
+        place(new Entry<>(item, tick));
+        size++;
+    }
+
+    /**
+     * Moves the time forward, tick by tick, and passes the items that expire to the consumer.
+     * @param nowMs current time
+     * @param expired called once per expired item, in deadline order (items of the same tick in no specific order)
+     * @return number of expired items
+     */
+    public int advance(long nowMs, Consumer<T> expired) {
+        final long nowTick = nowMs / tickMs;
+        int count = 0;
+        while(currentTick <= nowTick) {
+            cascade();
+            final List<Entry<T>> slot = slots.get((int) (currentTick & SLOT_MASK));
+            if(!slot.isEmpty()) {
+                final List<Entry<T>> due = new ArrayList<>(slot);
+                slot.clear();
+                for(Entry<T> entry: due) {
+                    expired.accept(entry.item);
+                }
+                count += due.size();
+                size -= due.size();
+            }
+            currentTick++;
+        }
+        return count;
+    }
+
+    /**
+     * @return number of items that did not expire yet
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * When the current tick starts a new turn of a level, places the items of the level above that are due in
+     * this turn again, into the lower levels.
+     */
+    private void cascade() {
+        for(int level = 1; level < levels; level++) {
+            final int shift = level * SLOT_BITS;
+            if((currentTick & ((1L << shift) - 1)) != 0) {
+                return;
+            }
+            final List<Entry<T>> slot = slots.get(level * SLOTS + (int) ((currentTick >>> shift) & SLOT_MASK));
+            if(!slot.isEmpty()) {
+                final List<Entry<T>> entries = new ArrayList<>(slot);
+                slot.clear();
+                entries.forEach(this::place);
+            }
+        }
+        // the top level started a new turn
+        if(!overflow.isEmpty()) {
+            final List<Entry<T>> entries = new ArrayList<>(overflow);
+            overflow.clear();
+            entries.forEach(this::place);
+        }
+    }
+
+    private void place(Entry<T> entry) {
+        final long delta = entry.tick - currentTick;
+        for(int level = 0; level < levels; level++) {
+            final int shift = level * SLOT_BITS;
+            if(delta < 1L << (shift + SLOT_BITS)) {
+                slots.get(level * SLOTS + (int) ((entry.tick >>> shift) & SLOT_MASK)).add(entry);
+                return;
+            }
+        }
+        overflow.add(entry);
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private final long tick;
+
+        private Entry(T item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+    }
+}
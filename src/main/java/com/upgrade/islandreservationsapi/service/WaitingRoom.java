@@ -0,0 +1,360 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.exception.NotAdmittedException;
+import com.upgrade.islandreservationsapi.exception.WaitingRoomTicketNotFoundException;
+import com.upgrade.islandreservationsapi.model.WaitingRoomTicket;
+import com.upgrade.islandreservationsapi.repository.WaitingRoomTicketRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Queues the reservations of hot dates, so a spike of clients booking the same nights doesn't pile up on their
+ * locks. Hot dates are the newest start dates of the booking window (island.waiting-room.newest-days), which
+ * open every midnight, and the dates listed in island.waiting-room.dates.
+ * A reservation of hot dates needs a ticket admitted by the waiting room. Clients without one get a ticket with
+ * their position, poll it until it is admitted and then have one attempt to book with it. Tickets are admitted
+ * in arrival order every island.waiting-room.tick-ms, at up to 1.5 times the measured rate of completed attempts
+ * (and at least island.waiting-room.min-rate per second), so the rate grows while commits keep up with it, and
+ * with no more than island.waiting-room.max-in-flight tickets admitted and not yet completed at once.
+ * Tickets not polled for island.waiting-room.abandon-ms are skipped, and admitted tickets not used within
+ * island.waiting-room.admission-ttl-ms expire.
+ * Tickets are kept in memory and written to the WaitingRoomTicket table in batches, so the queue is restored on
+ * startup. Disabled unless island.waiting-room.enabled is true.
+ */
+@Component
+public class WaitingRoom implements MeterBinder {
+
+    private static final double RATE_HEADROOM = 1.5;
+
+    // weight of the last tick in the measured rate
+    private static final double RATE_SMOOTHING = 0.2;
+
+    @Autowired
+    private WaitingRoomTicketRepository ticketRepository;
+
+    @Autowired
+    private ConfigurationService configurationService;
+
+    @Value("${island.waiting-room.enabled:false}")
+    private boolean enabled;
+
+    @Value("${island.waiting-room.dates:}")
+    private String dates;
+
+    @Value("${island.waiting-room.newest-days:1}")
+    private int newestDays;
+
+    @Value("${island.waiting-room.max-size:100000}")
+    private int maxSize;
+
+    @Value("${island.waiting-room.max-in-flight:50}")
+    private int maxInFlight;
+
+    @Value("${island.waiting-room.min-rate:10}")
+    private double minRate;
+
+    @Value("${island.waiting-room.admission-ttl-ms:30000}")
+    private long admissionTtlMs;
+
+    @Value("${island.waiting-room.abandon-ms:30000}")
+    private long abandonMs;
+
+    @Value("${island.waiting-room.persist:true}")
+    private boolean persist;
+
+    private Set<LocalDate> hotDates;
+
+    // tickets waiting or admitted, by token
+    private final Map<String, WaitingRoomTicket> tickets = new HashMap<>();
+    private final ArrayDeque<WaitingRoomTicket> waiting = new ArrayDeque<>();
+    private final List<WaitingRoomTicket> admitted = new ArrayList<>();
+    // tickets changed since the last flush, by token
+    private final Map<String, WaitingRoomTicket> dirty = new LinkedHashMap<>();
+    private long nextSequence = 1;
+    private int inFlight;
+    private int completed;
+    // completed attempts per second
+    private double rate;
+    private double credit;
+    private long lastTick = System.nanoTime();
+
+    private final AtomicLong admissions = new AtomicLong();
+
+    private final Logger logger = LogManager.getLogger(WaitingRoom.class);
+
+    @PostConstruct
+    public void init() {
+        hotDates = StringUtils.commaDelimitedListToSet(dates).stream()
+                .map(String::trim)
+                .filter(d -> !d.isEmpty())
+                .map(LocalDate::parse)
+                .collect(Collectors.toSet());
+        if(enabled) {
+            logger.info("Waiting room enabled for the newest {} day(s) of the booking window and dates {}.",
+                    newestDays, hotDates);
+        }
+    }
+
+    /**
+     * @param start first night of a stay (inclusive)
+     * @param end last day of a stay (exclusive)
+     * @return whether the waiting room is enabled and any night of the stay is hot
+     */
+    public boolean isHot(LocalDate start, LocalDate end) {
+        if(!enabled) {
+            return false;
+        }
+        final LocalDate newest = LocalDate.now().plusDays(configurationService.getSnapshot().getMaxAheadDays());
+        if(end.isAfter(newest.minusDays(newestDays - 1)) && !start.isAfter(newest)) {
+            return true;
+        }
+        for(LocalDate date: hotDates) {
+            if(!date.isBefore(start) && date.isBefore(end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes the admitted ticket for one booking attempt, which has to be followed by {@link #complete}.
+     * @param token token of the ticket, or null
+     * @throws NotAdmittedException if the ticket is still waiting. A new ticket is given if the token is null, or
+     * its ticket was used, expired or is unknown.
+     * @throws TaskRejectedException if a new ticket is needed and the waiting room is full
+     */
+    public synchronized void attempt(String token) throws NotAdmittedException {
+        WaitingRoomTicket ticket = token == null ? null : tickets.get(token);
+        // a ticket being used by another attempt can't be shared
+        if(ticket == null || ticket.getStatus() == WaitingRoomTicket.Status.USED) {
+            ticket = enter();
+        }
+        ticket.setLastSeenAt(System.currentTimeMillis());
+        if(ticket.getStatus() != WaitingRoomTicket.Status.ADMITTED) {
+            throw new NotAdmittedException(view(ticket));
+        }
+        ticket.setStatus(WaitingRoomTicket.Status.USED);
+        admitted.remove(ticket);
+        inFlight++;
+        changed(ticket);
+    }
+
+    /**
+     * Ends the booking attempt of a ticket.
+     * @param token token given to {@link #attempt}
+     * @param used false if the attempt failed for reasons other than the reservation itself (like lock timeouts),
+     * so the ticket can be used again until it expires
+     */
+    public synchronized void complete(String token, boolean used) {
+        inFlight--;
+        completed++;
+        final WaitingRoomTicket ticket = tickets.get(token);
+        if(ticket == null) {
+            return;
+        }
+        if(used) {
+            tickets.remove(token);
+        } else {
+            ticket.setStatus(WaitingRoomTicket.Status.ADMITTED);
+            admitted.add(ticket);
+        }
+        changed(ticket);
+    }
+
+    /**
+     * @param token token of a ticket
+     * @return copy of the ticket, with its position if it is waiting
+     * @throws WaitingRoomTicketNotFoundException if the ticket is unknown, used or expired
+     */
+    public synchronized WaitingRoomTicket getTicket(String token) throws WaitingRoomTicketNotFoundException {
+        final WaitingRoomTicket ticket = tickets.get(token);
+        if(ticket == null) {
+            throw new WaitingRoomTicketNotFoundException(token);
+        }
+        ticket.setLastSeenAt(System.currentTimeMillis());
+        return view(ticket);
+    }
+
+    /**
+     * Expires the admitted tickets that were not used in time, measures the rate of completed attempts and
+     * admits the next tickets.
+     */
+    @Scheduled(fixedDelayString = "${island.waiting-room.tick-ms:100}")
+    public synchronized void tick() {
+        if(!enabled) {
+            return;
+        }
+        final long now = System.nanoTime();
+        final double elapsed = (now - lastTick) / 1e9;
+        lastTick = now;
+        if(elapsed <= 0) {
+            return;
+        }
+        rate = RATE_SMOOTHING * completed / elapsed + (1 - RATE_SMOOTHING) * rate;
+        completed = 0;
+
+        final Instant expiry = Instant.now().minusMillis(admissionTtlMs);
+        admitted.removeIf(ticket -> {
+            if(ticket.getAdmittedAt().isAfter(expiry)) {
+                return false;
+            }
+            expire(ticket);
+            return true;
+        });
+
+        final double target = Math.max(minRate, rate * RATE_HEADROOM);
+        // no bursts after idle ticks
+        credit = Math.min(credit + target * elapsed, Math.max(1, target * elapsed));
+        final long abandoned = System.currentTimeMillis() - abandonMs;
+        while(credit >= 1 && admitted.size() + inFlight < maxInFlight && !waiting.isEmpty()) {
+            final WaitingRoomTicket ticket = waiting.poll();
+            if(ticket.getLastSeenAt() < abandoned) {
+                expire(ticket);
+                continue;
+            }
+            ticket.setStatus(WaitingRoomTicket.Status.ADMITTED);
+            ticket.setAdmittedAt(Instant.now());
+            admitted.add(ticket);
+            changed(ticket);
+            admissions.incrementAndGet();
+            credit--;
+        }
+    }
+
+    /**
+     * Writes the tickets changed since the last flush. Used and expired tickets are deleted.
+     */
+    @Scheduled(fixedDelayString = "${island.waiting-room.flush-ms:1000}")
+    public void flush() {
+        if(!enabled || !persist) {
+            return;
+        }
+        final List<WaitingRoomTicket> saved = new ArrayList<>();
+        final List<String> deleted = new ArrayList<>();
+        synchronized(this) {
+            for(WaitingRoomTicket ticket: dirty.values()) {
+                if(ticket.getStatus() == WaitingRoomTicket.Status.WAITING
+                        || ticket.getStatus() == WaitingRoomTicket.Status.ADMITTED) {
+                    saved.add(new WaitingRoomTicket(ticket));
+                } else {
+                    deleted.add(ticket.getToken());
+                }
+            }
+            dirty.clear();
+        }
+        if(saved.isEmpty() && deleted.isEmpty()) {
+            return;
+        }
+        try {
+            if(!deleted.isEmpty()) {
+                ticketRepository.deleteByTokens(deleted);
+            }
+            ticketRepository.saveAll(saved);
+            logger.debug("flush(): saved {} and deleted {} tickets.", saved.size(), deleted.size());
+        } catch (DataAccessException e) {
+            // the queue works without its copy. Written again with the next changes
+            logger.warn("flush(): could not write {} waiting room tickets.", saved.size() + deleted.size(), e);
+        }
+    }
+
+    /**
+     * Restores the tickets waiting and admitted from the WaitingRoomTicket table. Called on startup.
+     */
+    public void reload() {
+        if(!enabled || !persist) {
+            return;
+        }
+        final List<WaitingRoomTicket> rows = ticketRepository.findByStatusInOrderBySequenceAsc(
+                List.of(WaitingRoomTicket.Status.WAITING, WaitingRoomTicket.Status.ADMITTED));
+        synchronized(this) {
+            tickets.clear();
+            waiting.clear();
+            admitted.clear();
+            final long now = System.currentTimeMillis();
+            for(WaitingRoomTicket ticket: rows) {
+                // clients get a full abandon period to come back after a restart
+                ticket.setLastSeenAt(now);
+                tickets.put(ticket.getToken(), ticket);
+                if(ticket.getStatus() == WaitingRoomTicket.Status.WAITING) {
+                    waiting.add(ticket);
+                } else {
+                    admitted.add(ticket);
+                }
+                nextSequence = Math.max(nextSequence, ticket.getSequence() + 1);
+            }
+            logger.info("reload(): restored {} waiting and {} admitted tickets.", waiting.size(), admitted.size());
+        }
+    }
+
+    private WaitingRoomTicket enter() {
+        if(waiting.size() >= maxSize) {
+            throw new TaskRejectedException("The waiting room is full.");
+        }
+        final WaitingRoomTicket ticket =
+                new WaitingRoomTicket(UUID.randomUUID().toString(), nextSequence++, Instant.now());
+        tickets.put(ticket.getToken(), ticket);
+        waiting.add(ticket);
+        changed(ticket);
+        return ticket;
+    }
+
+    private void expire(WaitingRoomTicket ticket) {
+        ticket.setStatus(WaitingRoomTicket.Status.EXPIRED);
+        tickets.remove(ticket.getToken());
+        changed(ticket);
+    }
+
+    private void changed(WaitingRoomTicket ticket) {
+        if(persist) {
+            dirty.put(ticket.getToken(), ticket);
+        }
+    }
+
+    private WaitingRoomTicket view(WaitingRoomTicket ticket) {
+        final WaitingRoomTicket copy = new WaitingRoomTicket(ticket);
+        if(ticket.getStatus() == WaitingRoomTicket.Status.WAITING) {
+            // counts the abandoned tickets ahead too, so the position only gets better
+            copy.setPosition(ticket.getSequence() - waiting.peek().getSequence() + 1);
+        }
+        return copy;
+    }
+
+    private synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    private synchronized double getRate() {
+        return rate;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("island.waiting-room.waiting", this, WaitingRoom::getWaiting)
+                .description("Tickets waiting to be admitted")
+                .register(registry);
+        Gauge.builder("island.waiting-room.rate", this, WaitingRoom::getRate)
+                .description("Booking attempts of admitted tickets completed per second")
+                .register(registry);
+        FunctionCounter.builder("island.waiting-room.admitted", admissions, AtomicLong::get)
+                .description("Tickets admitted by the waiting room")
+                .register(registry);
+    }
+}
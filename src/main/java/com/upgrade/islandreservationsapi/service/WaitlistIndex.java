@@ -0,0 +1,87 @@
+package com.upgrade.islandreservationsapi.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * In-memory interval index of the waiting entries of the waitlist, by their dates. Entries are kept in a map
+ * sorted by start date, and the longest stay in the index bounds how far before a date an overlapping entry can
+ * start, so finding the entries that overlap a range only visits the start dates within that bound.
+ * Thread safe.
+ */
+@Component
+public class WaitlistIndex {
+
+    private final NavigableMap<LocalDate, TreeSet<Integer>> idsByStart = new TreeMap<>();
+    private final Map<Integer, LocalDate[]> datesById = new HashMap<>();
+    // longest stay ever added. it is never decreased, which only makes queries visit a few more start dates
+    private long maxNights;
+
+    /**
+     * Adds an entry, or replaces its dates.
+     * @param id id of the entry
+     * @param start first night (inclusive)
+     * @param end last day (exclusive)
+     */
+    public synchronized void add(Integer id, LocalDate start, LocalDate end) {
+        remove(id);
+        idsByStart.computeIfAbsent(start, d -> new TreeSet<>()).add(id);
+        datesById.put(id, new LocalDate[] { start, end });
+        maxNights = Math.max(maxNights, ChronoUnit.DAYS.between(start, end));
+    }
+
+    public synchronized void remove(Integer id) {
+        final LocalDate[] dates = datesById.remove(id);
+        if(dates != null) {
+            final TreeSet<Integer> ids = idsByStart.get(dates[0]);
+            ids.remove(id);
+            if(ids.isEmpty()) {
+                idsByStart.remove(dates[0]);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return datesById.size();
+    }
+
+    /**
+     * Finds the entries with at least one night in the range.
+     * @param from first night (inclusive)
+     * @param to last day (exclusive)
+     * @param limit max number of entries to return
+     * @return ids of the entries, in ascending order (the order in which they joined the waitlist)
+     */
+    public synchronized List<Integer> findOverlapping(LocalDate from, LocalDate to, int limit) {
+        if(maxNights == 0) {
+            return Collections.emptyList();
+        }
+        final TreeSet<Integer> found = new TreeSet<>();
+        for(Map.Entry<LocalDate, TreeSet<Integer>> start:
+                idsByStart.subMap(from.minusDays(maxNights - 1), true, to, false).entrySet()) {
+            for(Integer id: start.getValue()) {
+                if(datesById.get(id)[1].isAfter(from)) {
+                    found.add(id);
+                }
+            }
+        }
+        final List<Integer> ids = new ArrayList<>(Math.min(found.size(), limit));
+        for(Integer id: found) {
+            if(ids.size() == limit) {
+                break;
+            }
+            ids.add(id);
+        }
+        return ids;
+    }
+}
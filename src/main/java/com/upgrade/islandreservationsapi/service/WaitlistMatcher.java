@@ -0,0 +1,58 @@
+package com.upgrade.islandreservationsapi.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offers the availability released by any booking operation (cancellations, updates, expired holds) to the
+ * waitlist right after the operation commits. The waiting requests are booked in a new transaction, after the
+ * dates of the operation are unlocked (see {@link DateLockManager}): locking the dates of the waiting requests
+ * while still holding the released ones could take the stripes out of order and deadlock. Other clients may book
+ * the released availability in between.
+ * Does nothing in journal mode ({@link JournalBookingStore}), where the changes are published outside of any
+ * transaction.
+ */
+@Component
+public class WaitlistMatcher implements MeterBinder {
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    @Autowired
+    private WaitlistIndex index;
+
+    private final AtomicLong fulfilled = new AtomicLong();
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onAvailabilityChanged(AvailabilityChangedEvent event) {
+        if(index.size() == 0 || event.getDeltas().values().stream().noneMatch(d -> d > 0)) {
+            return;
+        }
+        fulfilled.addAndGet(waitlistService.fillReleasedAvailability(event.getDeltas()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("island.waitlist.fulfilled", fulfilled, AtomicLong::get)
+                .description("Waitlist entries booked with released availability")
+                .register(registry);
+        Gauge.builder("island.waitlist.waiting", index, WaitlistIndex::size)
+                .description("Waitlist entries waiting for availability")
+                .register(registry);
+    }
+
+    /**
+     * @return number of waitlist entries booked
+     */
+    public long getFulfilled() {
+        return fulfilled.get();
+    }
+}
@@ -0,0 +1,52 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.exception.WaitlistEntryNotFoundException;
+import com.upgrade.islandreservationsapi.exception.WaitlistEntryNotWaitingException;
+import com.upgrade.islandreservationsapi.model.WaitlistEntry;
+
+import java.time.LocalDate;
+import java.util.SortedMap;
+
+public interface WaitlistService {
+
+    /**
+     * Get a waitlist entry from the database based on its ID.
+     * @param id ID of the entry
+     * @return WaitlistEntry from DB
+     * @throws WaitlistEntryNotFoundException if the entry does not exist in the DB
+     */
+    WaitlistEntry getEntry(Integer id) throws WaitlistEntryNotFoundException;
+
+    /**
+     * Adds a request to the waitlist. It is booked automatically when enough availability is released for all
+     * of its dates.
+     * @param entry guest, dates and number of persons to book
+     * @return the created entry, WAITING
+     */
+    WaitlistEntry joinWaitlist(WaitlistEntry entry);
+
+    /**
+     * Removes a request from the waitlist before it is booked.
+     * @param id ID of the entry
+     * @return the CANCELLED entry
+     * @throws WaitlistEntryNotFoundException if the entry does not exist in the DB
+     * @throws WaitlistEntryNotWaitingException if the entry was already booked, cancelled or expired
+     */
+    WaitlistEntry leaveWaitlist(Integer id) throws WaitlistEntryNotFoundException, WaitlistEntryNotWaitingException;
+
+    /**
+     * Books the waiting entries with nights in the dates for which availability was released, in the order they
+     * joined the waitlist, as long as they fit. The availability of all the booked entries is taken at once, and
+     * their reservations are inserted in a batch. Runs in a new transaction, once the one that released the
+     * availability has completed and unlocked its dates.
+     * Entries that start today or earlier are expired.
+     * @param released availability added to every date
+     * @return number of booked entries
+     */
+    int fillReleasedAvailability(SortedMap<LocalDate, Integer> released);
+
+    /**
+     * Loads the in-memory index of the waiting entries.
+     */
+    void loadIndex();
+}
@@ -0,0 +1,159 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.exception.WaitlistEntryNotFoundException;
+import com.upgrade.islandreservationsapi.exception.WaitlistEntryNotWaitingException;
+import com.upgrade.islandreservationsapi.model.AvailabilityChange;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.model.WaitlistEntry;
+import com.upgrade.islandreservationsapi.repository.ReservationRepository;
+import com.upgrade.islandreservationsapi.repository.WaitlistEntryRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+@Service
+public class WaitlistServiceImpl implements WaitlistService {
+
+    @Autowired
+    private WaitlistEntryRepository waitlistRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private DayAvailabilityService availabilityService;
+
+    @Autowired
+    private AvailabilityChangeLog changeLog;
+
+    @Autowired
+    private WaitlistIndex index;
+
+    @Value("${island.waitlist.max-candidates:100}")
+    private int maxCandidates;
+
+    private final Logger logger = LogManager.getLogger(WaitlistServiceImpl.class);
+
+    @Override
+    public void loadIndex() {
+        final List<WaitlistEntry> entries = waitlistRepository.findByStatus(WaitlistEntry.Status.WAITING);
+        entries.forEach(e -> index.add(e.getId(), e.getStart(), e.getEnd()));
+        logger.info("loadIndex(): {} entries waiting.", entries.size());
+    }
+
+    @Override
+    public WaitlistEntry getEntry(Integer id) throws WaitlistEntryNotFoundException {
+        return waitlistRepository.findById(id).orElseThrow(() -> new WaitlistEntryNotFoundException(id));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public WaitlistEntry joinWaitlist(WaitlistEntry entry) {
+        entry.setStatus(WaitlistEntry.Status.WAITING);
+        entry.setCreatedAt(Instant.now());
+        final WaitlistEntry created = waitlistRepository.save(entry);
+        logger.info("Added to the waitlist: {}", created);
+        afterCommit(() -> index.add(created.getId(), created.getStart(), created.getEnd()));
+        return created;
+    }
+
+    @Override
+    @Retryable(interceptor = "bookingRetryInterceptor")
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public WaitlistEntry leaveWaitlist(Integer id) throws WaitlistEntryNotFoundException, WaitlistEntryNotWaitingException {
+        final WaitlistEntry entry = waitlistRepository.findAndLockById(id)
+                .orElseThrow(() -> new WaitlistEntryNotFoundException(id));
+        if(entry.getStatus() != WaitlistEntry.Status.WAITING) {
+            throw new WaitlistEntryNotWaitingException(id, entry.getStatus());
+        }
+        entry.setStatus(WaitlistEntry.Status.CANCELLED);
+        logger.info("Removed from the waitlist: {}", entry);
+        afterCommit(() -> index.remove(id));
+        return waitlistRepository.save(entry);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int fillReleasedAvailability(SortedMap<LocalDate, Integer> released) {
+        final TreeMap<LocalDate, Integer> releasedDates = new TreeMap<>();
+        released.forEach((date, delta) -> {
+            if(delta > 0) {
+                releasedDates.put(date, delta);
+            }
+        });
+        if(releasedDates.isEmpty()) {
+            return 0;
+        }
+        final List<Integer> candidates = index.findOverlapping(releasedDates.firstKey(),
+                releasedDates.lastKey().plusDays(1), maxCandidates);
+        if(candidates.isEmpty()) {
+            return 0;
+        }
+
+        final LocalDate today = LocalDate.now();
+        final List<WaitlistEntry> changed = new ArrayList<>();
+        final List<WaitlistEntry> matched = new ArrayList<>();
+        for(WaitlistEntry entry: waitlistRepository.findAndLockByIdInOrderByIdAsc(candidates)) {
+            if(entry.getStatus() != WaitlistEntry.Status.WAITING) {
+                // changed by another node
+                afterCommit(() -> index.remove(entry.getId()));
+            } else if(!entry.getStart().isAfter(today)) {
+                entry.setStatus(WaitlistEntry.Status.EXPIRED);
+                changed.add(entry);
+            } else if(entry.getStart().datesUntil(entry.getEnd()).anyMatch(releasedDates::containsKey)) {
+                matched.add(entry);
+            }
+        }
+        int booked = 0;
+        if(!matched.isEmpty()) {
+            final List<Reservation> reservations = new ArrayList<>();
+            matched.forEach(e -> reservations.add(e.toReservation()));
+            changeLog.describe(AvailabilityChange.Cause.WAITLIST, null);
+            final boolean[] fits = availabilityService.updateDayAvailability(reservations, BatchMode.BEST_EFFORT);
+            final List<Reservation> created = new ArrayList<>();
+            for(int i = 0; i < fits.length; i++) {
+                if(fits[i]) {
+                    created.add(reservations.get(i));
+                }
+            }
+            reservationRepository.insertAll(created);
+            for(int i = 0; i < fits.length; i++) {
+                if(fits[i]) {
+                    matched.get(i).setStatus(WaitlistEntry.Status.FULFILLED);
+                    matched.get(i).setReservationId(reservations.get(i).getId());
+                    changed.add(matched.get(i));
+                }
+            }
+            booked = created.size();
+        }
+        // the entries may have been detached by the availability updates
+        waitlistRepository.saveAll(changed);
+        changed.forEach(e -> afterCommit(() -> index.remove(e.getId())));
+        logger.info("fillReleasedAvailability(): {} of {} candidates booked, {} expired.", booked, candidates.size(),
+                changed.size() - booked);
+        return booked;
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
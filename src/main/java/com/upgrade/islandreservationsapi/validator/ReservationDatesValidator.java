@@ -1,6 +1,7 @@
 package com.upgrade.islandreservationsapi.validator;
 
 import com.upgrade.islandreservationsapi.service.ConfigurationService;
+import com.upgrade.islandreservationsapi.service.ConfigurationSnapshot;
 import org.springframework.beans.BeanWrapper;
 import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,15 +47,16 @@ public class ReservationDatesValidator implements ConstraintValidator<Reservatio
         final LocalDate endDate = (LocalDate) endDateObj;
 
         boolean valid = true;
+        final ConfigurationSnapshot configuration = configurationService.getSnapshot();
 
         final long aheadTime = ChronoUnit.DAYS.between(LocalDate.now(), startDate);
-        final int minAheadDays = configurationService.getMinAheadDays();
+        final int minAheadDays = configuration.getMinAheadDays();
         if("CREATING".equals(action) && aheadTime < minAheadDays) {
             context.buildConstraintViolationWithTemplate(String.format("start date must be at least %d day(s) in the future.", minAheadDays))
                     .addPropertyNode("start").addConstraintViolation();
             valid = false;
         }
-        final int maxAheadDays = configurationService.getMaxAheadDays();
+        final int maxAheadDays = configuration.getMaxAheadDays();
         if(aheadTime > maxAheadDays) {
             context.buildConstraintViolationWithTemplate(String.format("reservations can't be created with more than %d day(s) in advance.", maxAheadDays))
                     .addPropertyNode("start").addConstraintViolation();
@@ -68,7 +70,7 @@ public class ReservationDatesValidator implements ConstraintValidator<Reservatio
         }
 
         final long reservationDuration = ChronoUnit.DAYS.between(startDate, endDate);
-        final int maxReservation = configurationService.getMaxReservation();
+        final int maxReservation = configuration.getMaxReservation();
         if(reservationDuration > maxReservation) {
             context.buildConstraintViolationWithTemplate(String.format("max duration is %d day(s).", maxReservation))
                     .addPropertyNode("end").addConstraintViolation();
@@ -2,17 +2,22 @@ package com.upgrade.islandreservationsapi.controller;
 
 import com.upgrade.islandreservationsapi.exception.InvalidDatesException;
 import com.upgrade.islandreservationsapi.model.DayAvailability;
+import com.upgrade.islandreservationsapi.service.AvailabilityBroadcaster;
 import com.upgrade.islandreservationsapi.service.ConfigurationService;
+import com.upgrade.islandreservationsapi.service.ConfigurationSnapshot;
 import com.upgrade.islandreservationsapi.service.DayAvailabilityService;
+import com.upgrade.islandreservationsapi.service.DayAvailabilityVisitor;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -20,10 +25,19 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -39,6 +53,9 @@ public class AvailabilityControllerTest {
     @MockBean
     private ConfigurationService configurationService;
 
+    @MockBean
+    private AvailabilityBroadcaster broadcaster;
+
     private static final int DEFAULT_MAX_AVAILABILITY = 100;
     private static final int DEFAULT_MAX_DATE_RANGE = 30;
     private static final String DATE_FORMAT = "yyyy-MM-dd";
@@ -46,7 +63,8 @@ public class AvailabilityControllerTest {
 
     @Before
     public void initialize() {
-        given(configurationService.getMaxDateRange()).willReturn(DEFAULT_MAX_DATE_RANGE);
+        given(configurationService.getSnapshot()).willReturn(new ConfigurationSnapshot(1, LocalDate.now(),
+                DEFAULT_MAX_AVAILABILITY, 3, 1, 30, DEFAULT_MAX_DATE_RANGE, DEFAULT_MAX_DATE_RANGE));
     }
 
     @Test
@@ -58,7 +76,11 @@ public class AvailabilityControllerTest {
             availabilities.add(new DayAvailability(LocalDate.now().plusDays(i), DEFAULT_MAX_AVAILABILITY, DEFAULT_MAX_AVAILABILITY));
         }
 
-        given(availabilityService.getAvailabilities(fromDate, toDate)).willReturn(availabilities);
+        willAnswer(invocation -> {
+            DayAvailabilityVisitor visitor = invocation.getArgument(2);
+            availabilities.forEach(a -> visitor.visit(a.getDate(), a.getAvailability(), a.getMaxAvailability()));
+            return null;
+        }).given(availabilityService).visitAvailabilities(eq(fromDate), eq(toDate), any());
 
         mvc.perform(get("/v1/availability")
                 .param("fromDate", fromDate.format(DATE_FORMATTER))
@@ -67,16 +89,96 @@ public class AvailabilityControllerTest {
                 .characterEncoding("UTF-8"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.length()", is(10)))
+                .andExpect(jsonPath("$[0].date", is(fromDate.format(DATE_FORMATTER))))
+                .andExpect(jsonPath("$[0].availability", is(DEFAULT_MAX_AVAILABILITY)))
+                .andExpect(jsonPath("$[0].maxAvailability").doesNotExist())
                 .andDo(print());
     }
 
+    @Test
+    public void testGetAvailabilityNotModified() throws Exception {
+        LocalDate fromDate = LocalDate.now().plusDays(1);
+        LocalDate toDate = LocalDate.now().plusDays(10);
+
+        given(availabilityService.getAvailabilityVersion()).willReturn(5L);
+
+        String etag = mvc.perform(get("/v1/availability")
+                .param("fromDate", fromDate.format(DATE_FORMATTER))
+                .param("toDate", toDate.format(DATE_FORMATTER)))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/v1/availability")
+                .param("fromDate", fromDate.format(DATE_FORMATTER))
+                .param("toDate", toDate.format(DATE_FORMATTER))
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(availabilityService, times(1)).visitAvailabilities(eq(fromDate), eq(toDate), any());
+
+        given(availabilityService.getAvailabilityVersion()).willReturn(6L);
+
+        mvc.perform(get("/v1/availability")
+                .param("fromDate", fromDate.format(DATE_FORMATTER))
+                .param("toDate", toDate.format(DATE_FORMATTER))
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testSearchAvailability() throws Exception {
+        LocalDate fromDate = LocalDate.now().plusDays(1);
+        LocalDate toDate = LocalDate.now().plusDays(10);
+
+        given(availabilityService.findStartDates(4, 2, fromDate, toDate, 2))
+                .willReturn(List.of(fromDate, fromDate.plusDays(3)));
+
+        mvc.perform(get("/v1/availability/search")
+                .param("persons", "4")
+                .param("nights", "2")
+                .param("fromDate", fromDate.format(DATE_FORMATTER))
+                .param("toDate", toDate.format(DATE_FORMATTER))
+                .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(2)))
+                .andExpect(jsonPath("$[1].start", is(fromDate.plusDays(3).format(DATE_FORMATTER))))
+                .andExpect(jsonPath("$[1].end", is(fromDate.plusDays(5).format(DATE_FORMATTER))))
+                .andDo(print());
+    }
+
+    @Test
+    public void testSearchAvailabilityInvalidPersons() throws Exception {
+        mvc.perform(get("/v1/availability/search")
+                .param("persons", "0")
+                .param("nights", "2"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Validation failed")))
+                .andDo(print());
+    }
+
+    @Test
+    public void testStreamAvailability() throws Exception {
+        LocalDate fromDate = LocalDate.now().plusDays(1);
+        LocalDate toDate = LocalDate.now().plusDays(10);
+
+        given(broadcaster.subscribe(fromDate, toDate)).willReturn(new SseEmitter());
+
+        mvc.perform(get("/v1/availability/stream")
+                .param("fromDate", fromDate.format(DATE_FORMATTER))
+                .param("toDate", toDate.format(DATE_FORMATTER))
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+        verify(broadcaster).subscribe(fromDate, toDate);
+    }
+
     @Test
     public void testGetAvailabilityInvalidDates() throws Exception {
         LocalDate fromDate = LocalDate.now().plusDays(4);
         LocalDate toDate = LocalDate.now().plusDays(2);
 
-        given(availabilityService.getAvailabilities(fromDate, toDate))
-                .willThrow(new InvalidDatesException("toDate must be after fromDate."));
+        willThrow(new InvalidDatesException("toDate must be after fromDate."))
+                .given(availabilityService).validateDates(fromDate, toDate);
 
         mvc.perform(get("/v1/availability")
                 .param("fromDate", fromDate.format(DATE_FORMATTER))
@@ -84,6 +186,7 @@ public class AvailabilityControllerTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .characterEncoding("UTF-8"))
                 .andExpect(status().isBadRequest())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
                 .andExpect(jsonPath("$.message", is("toDate must be after fromDate.")))
                 .andDo(print());
     }
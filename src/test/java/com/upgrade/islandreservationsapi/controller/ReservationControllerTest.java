@@ -2,11 +2,19 @@ package com.upgrade.islandreservationsapi.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.upgrade.islandreservationsapi.dto.CreateReservationBatchDTO;
+import com.upgrade.islandreservationsapi.dto.CreateReservationDTO;
 import com.upgrade.islandreservationsapi.dto.ReservationDTO;
+import com.upgrade.islandreservationsapi.exception.RequestInProgressException;
 import com.upgrade.islandreservationsapi.exception.ReservationNotFoundException;
 import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.service.BatchMode;
 import com.upgrade.islandreservationsapi.service.ConfigurationService;
+import com.upgrade.islandreservationsapi.service.ConfigurationSnapshot;
+import com.upgrade.islandreservationsapi.service.IdempotencyCache;
+import com.upgrade.islandreservationsapi.service.ReservationBatchItem;
 import com.upgrade.islandreservationsapi.service.ReservationService;
+import com.upgrade.islandreservationsapi.service.WaitingRoom;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -19,9 +27,19 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.hamcrest.Matchers.*;
@@ -39,11 +57,16 @@ public class ReservationControllerTest {
     @MockBean
     private ConfigurationService configurationService;
 
+    @MockBean
+    private IdempotencyCache idempotencyCache;
+
+    @MockBean
+    private WaitingRoom waitingRoom;
+
     @Before
     public void initialize() throws Exception {
-        given(configurationService.getMinAheadDays()).willReturn(1);
-        given(configurationService.getMaxAheadDays()).willReturn(30);
-        given(configurationService.getMaxReservation()).willReturn(3);
+        given(configurationService.getSnapshot()).willReturn(new ConfigurationSnapshot(1, LocalDate.now(),
+                100, 3, 1, 30, 90, 30));
 
         Reservation reservationReturned = new Reservation();
         reservationReturned.setId(91);
@@ -121,6 +144,48 @@ public class ReservationControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    public void testCreateReservationIdempotencyKey() throws Exception {
+        CreateReservationDTO dto = new ModelMapper().map(new Reservation("John", "Oliver", "johnoliver@gmail.com",
+                LocalDate.now().plusDays(2), LocalDate.now().plusDays(4), 3), CreateReservationDTO.class);
+        String jsonBody = new ObjectMapper().registerModule(new JavaTimeModule()).writeValueAsString(dto);
+        given(idempotencyCache.createReservation(eq("key-1"), any(Reservation.class))).willReturn(92);
+
+        mvc.perform(post("/v1/reservations")
+                .header("Idempotency-Key", "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(jsonBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(92)));
+        verify(reservationService, never()).createReservation(any(Reservation.class));
+
+        mvc.perform(post("/v1/reservations")
+                .header("Idempotency-Key", "k".repeat(65))
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(jsonBody))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.fieldErrors[0].path", is("Idempotency-Key")));
+    }
+
+    @Test
+    public void testCreateReservationIdempotencyKeyInProgress() throws Exception {
+        CreateReservationDTO dto = new ModelMapper().map(new Reservation("John", "Oliver", "johnoliver@gmail.com",
+                LocalDate.now().plusDays(2), LocalDate.now().plusDays(4), 3), CreateReservationDTO.class);
+        String jsonBody = new ObjectMapper().registerModule(new JavaTimeModule()).writeValueAsString(dto);
+        given(idempotencyCache.createReservation(eq("key-1"), any(Reservation.class)))
+                .willThrow(new RequestInProgressException("key-1"));
+
+        mvc.perform(post("/v1/reservations")
+                .header("Idempotency-Key", "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(jsonBody))
+                .andExpect(status().isConflict())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
     @Test
     public void updateReservation() throws Exception {
         Reservation reservation = new Reservation("John", "Oliver", "johnoliver@gmail.com",
@@ -190,4 +255,61 @@ public class ReservationControllerTest {
                 .andExpect(jsonPath("$.status", is("Cancelled")));
     }
 
+    @Test
+    public void testCreateReservationsBestEffort() throws Exception {
+        Reservation valid = new Reservation("John", "Oliver", "johnoliver@gmail.com",
+                LocalDate.now().plusDays(2), LocalDate.now().plusDays(4), 3);
+        Reservation invalid = new Reservation("Jane", "Oliver", "janeoliver@gmail.com",
+                LocalDate.now().plusDays(2), LocalDate.now().plusDays(9), 3);
+        Reservation created = new Reservation();
+        created.setId(91);
+        given(reservationService.createReservations(List.of(valid, valid), BatchMode.BEST_EFFORT))
+                .willReturn(List.of(ReservationBatchItem.created(created),
+                        ReservationBatchItem.failed(valid, "There's no availability for the date period.")));
+
+        mvc.perform(post("/v1/reservations/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(batchJson(BatchMode.BEST_EFFORT, valid, invalid, valid)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created", is(1)))
+                .andExpect(jsonPath("$.failed", is(2)))
+                .andExpect(jsonPath("$.reservations[0].id", is(91)))
+                .andExpect(jsonPath("$.reservations[1].created", is(false)))
+                .andExpect(jsonPath("$.reservations[1].errors[*].path", containsInAnyOrder("end")))
+                .andExpect(jsonPath("$.reservations[2].message", is("There's no availability for the date period.")));
+    }
+
+    @Test
+    public void testCreateReservationsAllOrNothingInvalid() throws Exception {
+        Reservation valid = new Reservation("John", "Oliver", "johnoliver@gmail.com",
+                LocalDate.now().plusDays(2), LocalDate.now().plusDays(4), 3);
+        Reservation invalid = new Reservation("Jane", "Oliver", "janeoliver",
+                LocalDate.now().plusDays(2), LocalDate.now().plusDays(4), 3);
+
+        mvc.perform(post("/v1/reservations/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(batchJson(BatchMode.ALL_OR_NOTHING, valid, invalid)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created", is(0)))
+                .andExpect(jsonPath("$.reservations[0].message", is(ReservationBatchItem.BATCH_FAILED)))
+                .andExpect(jsonPath("$.reservations[1].errors[*].path", containsInAnyOrder("email")));
+        verify(reservationService, never()).createReservations(anyList(), any());
+    }
+
+    private String batchJson(BatchMode mode, Reservation... reservations) throws Exception {
+        ModelMapper modelMapper = new ModelMapper();
+        CreateReservationBatchDTO batch = new CreateReservationBatchDTO();
+        batch.setMode(mode);
+        batch.setReservations(Arrays.stream(reservations)
+                .map(r -> modelMapper.map(r, CreateReservationDTO.class))
+                .collect(Collectors.toList()));
+
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        return mapper.writeValueAsString(batch);
+    }
+
 }
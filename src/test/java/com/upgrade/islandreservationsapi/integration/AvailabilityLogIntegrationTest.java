@@ -0,0 +1,112 @@
+package com.upgrade.islandreservationsapi.integration;
+
+import com.upgrade.islandreservationsapi.model.AvailabilityChange;
+import com.upgrade.islandreservationsapi.model.AvailabilitySnapshot;
+import com.upgrade.islandreservationsapi.model.DayAvailability;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.repository.AvailabilityChangeRepository;
+import com.upgrade.islandreservationsapi.repository.DayAvailabilityRepository;
+import com.upgrade.islandreservationsapi.service.AvailabilitySnapshotService;
+import com.upgrade.islandreservationsapi.service.HoldService;
+import com.upgrade.islandreservationsapi.service.ReservationService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class AvailabilityLogIntegrationTest {
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private AvailabilitySnapshotService snapshotService;
+
+    @Autowired
+    private AvailabilityChangeRepository changeRepository;
+
+    @Autowired
+    private DayAvailabilityRepository availabilityRepository;
+
+    @Test
+    public void testChangesAreLogged() throws Exception {
+        Reservation reservation = reservationService.createReservation(new Reservation("Luke", "Warm",
+                "lukew@gmail.com", LocalDate.now().plusDays(6), LocalDate.now().plusDays(8), 20));
+        reservationService.cancelReservation(reservation.getId());
+        holdService.createHold(LocalDate.now().plusDays(7), LocalDate.now().plusDays(8), 5);
+
+        List<AvailabilityChange> changes = changeRepository.findByReservationIdOrderByIdAsc(reservation.getId());
+        assertEquals(4, changes.size());
+        assertEquals(AvailabilityChange.Cause.BOOKING, changes.get(0).getCause());
+        assertEquals(LocalDate.now().plusDays(6), changes.get(0).getDate());
+        assertEquals(-20, changes.get(0).getDelta());
+        assertEquals(AvailabilityChange.Cause.CANCELLATION, changes.get(3).getCause());
+        assertEquals(20, changes.get(3).getDelta());
+        AvailabilityChange hold = changeRepository.findAll().get(4);
+        assertEquals(AvailabilityChange.Cause.HOLD, hold.getCause());
+        assertNull(hold.getReservationId());
+        assertEquals(-5, hold.getDelta());
+    }
+
+    @Test
+    public void testRebuildFromSnapshotAndTail() throws Exception {
+        reservationService.createReservation(new Reservation("Luke", "Warm",
+                "lukew@gmail.com", LocalDate.now().plusDays(6), LocalDate.now().plusDays(8), 20));
+        AvailabilitySnapshot snapshot = snapshotService.takeSnapshot();
+        assertEquals(2, snapshot.getLastChangeId());
+        assertEquals(snapshot.getId(), snapshotService.takeSnapshot().getId());
+
+        Reservation reservation = reservationService.createReservation(new Reservation("Luke", "Warm",
+                "lukew@gmail.com", LocalDate.now().plusDays(7), LocalDate.now().plusDays(9), 30));
+        reservation.setNumberOfPersons(10);
+        reservationService.updateReservation(reservation);
+        assertEquals(4, snapshotService.getPendingChanges());
+        // lost updates
+        for(DayAvailability availability: availabilityRepository.findAll()) {
+            availability.setAvailability(0);
+            availabilityRepository.save(availability);
+        }
+
+        assertEquals(4, snapshotService.rebuildAvailability());
+
+        assertEquals(70, availability(6));
+        assertEquals(70, availability(7));
+        assertEquals(90, availability(8));
+        assertEquals(90, availability(1));
+        // created by the calendar with max availability, never changed
+        assertEquals(100, availability(10));
+    }
+
+    @Test
+    public void testSnapshotsAreRetained() throws Exception {
+        long first = 0;
+        for(int i = 0; i < 3; i++) {
+            reservationService.createReservation(new Reservation("Luke", "Warm",
+                    "lukew@gmail.com", LocalDate.now().plusDays(6), LocalDate.now().plusDays(7), 1));
+            AvailabilitySnapshot snapshot = snapshotService.takeSnapshot();
+            first = i == 0 ? snapshot.getId() : first;
+        }
+        assertEquals(first + 2, snapshotService.getLatestSnapshot().get().getId().longValue());
+        assertEquals(0, snapshotService.getPendingChanges());
+        assertEquals(0, snapshotService.rebuildAvailability());
+        assertEquals(87, availability(6));
+    }
+
+    private int availability(int days) {
+        return availabilityRepository.findById(LocalDate.now().plusDays(days)).get().getAvailability();
+    }
+}
@@ -0,0 +1,129 @@
+package com.upgrade.islandreservationsapi.integration;
+
+import com.upgrade.islandreservationsapi.exception.NoAvailabilityForDateException;
+import com.upgrade.islandreservationsapi.exception.SoldOutException;
+import com.upgrade.islandreservationsapi.model.DayAvailability;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.repository.DayAvailabilityRepository;
+import com.upgrade.islandreservationsapi.service.BookingAdmission;
+import com.upgrade.islandreservationsapi.service.DayAvailabilityService;
+import com.upgrade.islandreservationsapi.service.ReservationService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class BookingAdmissionIntegrationTest {
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private DayAvailabilityService availabilityService;
+
+    @Autowired
+    private DayAvailabilityRepository availabilityRepository;
+
+    @Autowired
+    private BookingAdmission admission;
+
+    @Test
+    public void testSoldOutIsRejectedBeforeBooking() throws Exception {
+        reservationService.createReservation(new Reservation("Luke", "Warm",
+                "lukew@gmail.com", LocalDate.now().plusDays(7), LocalDate.now().plusDays(8), 95));
+        try {
+            reservationService.createReservation(new Reservation("Luke", "Warm",
+                    "lukew@gmail.com", LocalDate.now().plusDays(6), LocalDate.now().plusDays(9), 10));
+            fail("Reservation should have been rejected.");
+        } catch (SoldOutException e) {
+            assertEquals(0, e.getStackTrace().length);
+        }
+        assertEquals(1, admission.getRejected());
+        // fits
+        reservationService.createReservation(new Reservation("Luke", "Warm",
+                "lukew@gmail.com", LocalDate.now().plusDays(6), LocalDate.now().plusDays(9), 5));
+        assertEquals(1, admission.getRejected());
+    }
+
+    @Test
+    public void testReleaseFromAnotherNodeIsAdmitted() throws Exception {
+        reservationService.createReservation(new Reservation("Luke", "Warm",
+                "lukew@gmail.com", LocalDate.now().plusDays(7), LocalDate.now().plusDays(8), 95));
+        // released by another node, not applied to this ledger
+        DayAvailability availability = availabilityRepository.findById(LocalDate.now().plusDays(7)).get();
+        availability.setAvailability(100);
+        availabilityRepository.save(availability);
+
+        reservationService.createReservation(new Reservation("Luke", "Warm",
+                "lukew@gmail.com", LocalDate.now().plusDays(7), LocalDate.now().plusDays(8), 10));
+        assertEquals(0, admission.getRejected());
+        assertEquals(90, availabilityRepository.findById(LocalDate.now().plusDays(7)).get().getAvailability());
+    }
+
+    @Test
+    public void testDatabaseIsCheckedOncePerLedgerVersion() throws Exception {
+        reservationService.createReservation(new Reservation("Luke", "Warm",
+                "lukew@gmail.com", LocalDate.now().plusDays(7), LocalDate.now().plusDays(8), 95));
+        rejectSoldOut(LocalDate.now().plusDays(7), LocalDate.now().plusDays(8), 10);
+        // released by another node: not seen until the ledger changes, the database was read at this version
+        DayAvailability availability = availabilityRepository.findById(LocalDate.now().plusDays(7)).get();
+        availability.setAvailability(100);
+        availabilityRepository.save(availability);
+        rejectSoldOut(LocalDate.now().plusDays(7), LocalDate.now().plusDays(8), 10);
+        assertEquals(2, admission.getRejected());
+
+        // any change of the ledger reads the database again
+        reservationService.createReservation(new Reservation("Luke", "Warm",
+                "lukew@gmail.com", LocalDate.now().plusDays(20), LocalDate.now().plusDays(21), 1));
+        reservationService.createReservation(new Reservation("Luke", "Warm",
+                "lukew@gmail.com", LocalDate.now().plusDays(7), LocalDate.now().plusDays(8), 10));
+        assertEquals(2, admission.getRejected());
+    }
+
+    private void rejectSoldOut(LocalDate start, LocalDate end, int persons) throws Exception {
+        try {
+            reservationService.createReservation(new Reservation("Luke", "Warm", "lukew@gmail.com", start, end, persons));
+            fail("Reservation should have been rejected.");
+        } catch (SoldOutException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testStaleLedgerIsCheckedByDatabase() throws Exception {
+        DayAvailability availability = availabilityRepository.findById(LocalDate.now().plusDays(7)).get();
+        availability.setAvailability(5);
+        availabilityRepository.save(availability);
+        try {
+            reservationService.createReservation(new Reservation("Luke", "Warm",
+                    "lukew@gmail.com", LocalDate.now().plusDays(7), LocalDate.now().plusDays(8), 10));
+            fail("Reservation should have been rejected.");
+        } catch (NoAvailabilityForDateException e) {
+            assertFalse(e instanceof SoldOutException);
+        }
+        assertEquals(0, admission.getRejected());
+
+        availabilityService.loadLedger();
+        Reservation keyed = new Reservation("Luke", "Warm",
+                "lukew@gmail.com", LocalDate.now().plusDays(7), LocalDate.now().plusDays(8), 10);
+        keyed.setIdempotencyKey("key");
+        try {
+            reservationService.createReservation(keyed);
+            fail("Reservation should have been rejected.");
+        } catch (NoAvailabilityForDateException e) {
+            assertFalse(e instanceof SoldOutException);
+        }
+        assertEquals(0, admission.getRejected());
+    }
+}
@@ -1,12 +1,14 @@
 package com.upgrade.islandreservationsapi.integration;
 
 import com.upgrade.islandreservationsapi.service.ConfigurationService;
+import com.upgrade.islandreservationsapi.service.DayAvailabilityService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -16,7 +18,9 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertNotEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
@@ -32,6 +36,9 @@ public class DayAvailabilityControllerIntegrationTest {
     @Autowired
     private ConfigurationService configService;
 
+    @Autowired
+    private DayAvailabilityService availabilityService;
+
     private int defaultRange;
     private  int maxRange;
     private int minAheadDays;
@@ -66,6 +73,28 @@ public class DayAvailabilityControllerIntegrationTest {
                 .andExpect(jsonPath("$", hasSize(maxRange)));
     }
 
+    @Test
+    public void getAvailabilitiesNotModified() throws Exception {
+        LocalDate d1 = LocalDate.now().plusDays(minAheadDays);
+        LocalDate d2 = d1.plusDays(defaultRange - 1);
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        String url = "/v1/availability?fromDate=" + d1.format(formatter) + "&toDate=" + d2.format(formatter);
+
+        String etag = mvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // a committed change creates a new version
+        availabilityService.addAvailability(d1, d2, 1);
+
+        String newEtag = mvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, newEtag);
+    }
+
     @Test
     public void getAvailabilitiesInvalidRange() throws Exception {
 
@@ -76,7 +105,8 @@ public class DayAvailabilityControllerIntegrationTest {
         mvc.perform(get("/v1/availability?fromDate=" + d1.format(formatter) + "&toDate=" + d2.format(formatter))
                 .contentType(MediaType.APPLICATION_JSON)
                 .characterEncoding("UTF-8"))
-                .andExpect(status().isBadRequest());
+                .andExpect(status().isBadRequest())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
     }
 
 }
@@ -0,0 +1,163 @@
+package com.upgrade.islandreservationsapi.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.upgrade.islandreservationsapi.dto.ConfirmHoldDTO;
+import com.upgrade.islandreservationsapi.dto.CreateHoldDTO;
+import com.upgrade.islandreservationsapi.dto.HoldDTO;
+import com.upgrade.islandreservationsapi.model.Hold;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.repository.DayAvailabilityRepository;
+import com.upgrade.islandreservationsapi.repository.HoldRepository;
+import com.upgrade.islandreservationsapi.repository.ReservationRepository;
+import com.upgrade.islandreservationsapi.service.HoldExpiryScheduler;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@RunWith(SpringRunner.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {"island.holds.ttl-ms=1500", "island.holds.tick-ms=100"})
+public class HoldIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private HoldRepository holdRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private DayAvailabilityRepository availabilityRepository;
+
+    @Autowired
+    private HoldExpiryScheduler holdExpiryScheduler;
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    public void testCreateAndConfirmHold() throws Exception {
+        HoldDTO hold = createHold(6, 8, 20);
+        assertEquals(70, availability(6));
+        assertEquals(80, availability(7));
+
+        ConfirmHoldDTO guest = new ConfirmHoldDTO();
+        guest.setFistName("Luke");
+        guest.setLastName("Warm");
+        guest.setEmail("lukew@gmail.com");
+        mvc.perform(post("/v1/holds/" + hold.getToken() + "/confirm")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(mapper.writeValueAsString(guest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(2)));
+
+        Optional<Reservation> reservation = reservationRepository.findById(2);
+        assertTrue(reservation.isPresent());
+        assertEquals(LocalDate.now().plusDays(6), reservation.get().getStart());
+        assertEquals(20, reservation.get().getNumberOfPersons().intValue());
+        assertEquals(Hold.Status.CONFIRMED, holdRepository.findById(hold.getToken()).get().getStatus());
+        assertEquals(2, holdRepository.findById(hold.getToken()).get().getReservationId().intValue());
+        // the availability was taken by the hold
+        assertEquals(70, availability(6));
+
+        mvc.perform(delete("/v1/holds/" + hold.getToken()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testCreateHoldNoAvailability() throws Exception {
+        CreateHoldDTO dto = new CreateHoldDTO();
+        dto.setStart(LocalDate.now().plusDays(6));
+        dto.setEnd(LocalDate.now().plusDays(8));
+        dto.setNumberOfPersons(95);
+        mvc.perform(post("/v1/holds")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(mapper.writeValueAsString(dto)))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(0, holdRepository.count());
+        assertEquals(90, availability(6));
+    }
+
+    @Test
+    public void testReleaseHold() throws Exception {
+        HoldDTO hold = createHold(7, 9, 30);
+        assertEquals(70, availability(8));
+
+        mvc.perform(delete("/v1/holds/" + hold.getToken()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("RELEASED")));
+
+        assertEquals(100, availability(7));
+        assertEquals(100, availability(8));
+        mvc.perform(delete("/v1/holds/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testHoldsExpire() throws Exception {
+        HoldDTO first = createHold(6, 8, 10);
+        HoldDTO second = createHold(7, 9, 20);
+        assertEquals(70, availability(7));
+
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while(holdExpiryScheduler.getExpired() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        assertEquals(2, holdExpiryScheduler.getExpired());
+        assertEquals(Hold.Status.EXPIRED, holdRepository.findById(first.getToken()).get().getStatus());
+        assertEquals(Hold.Status.EXPIRED, holdRepository.findById(second.getToken()).get().getStatus());
+        assertEquals(90, availability(6));
+        assertEquals(100, availability(7));
+        assertEquals(100, availability(8));
+        mvc.perform(post("/v1/holds/" + first.getToken() + "/confirm")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content("{\"fistName\":\"Luke\",\"lastName\":\"Warm\",\"email\":\"lukew@gmail.com\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private HoldDTO createHold(int start, int end, int persons) throws Exception {
+        CreateHoldDTO dto = new CreateHoldDTO();
+        dto.setStart(LocalDate.now().plusDays(start));
+        dto.setEnd(LocalDate.now().plusDays(end));
+        dto.setNumberOfPersons(persons);
+        String response = mvc.perform(post("/v1/holds")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(mapper.writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("HELD")))
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readValue(response, HoldDTO.class);
+    }
+
+    private int availability(int days) {
+        return availabilityRepository.findById(LocalDate.now().plusDays(days)).get().getAvailability();
+    }
+}
@@ -0,0 +1,172 @@
+package com.upgrade.islandreservationsapi.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.upgrade.islandreservationsapi.dto.ReservationCreated;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.repository.ReservationRepository;
+import com.upgrade.islandreservationsapi.service.BookingJournal;
+import com.upgrade.islandreservationsapi.service.DayAvailabilityService;
+import com.upgrade.islandreservationsapi.service.JournalBookingStore;
+import com.upgrade.islandreservationsapi.service.ReservationService;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.TreeMap;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@RunWith(SpringRunner.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {"island.journal.enabled=true", "island.journal.path=target/test.journal",
+        "island.journal.size-mb=1"})
+public class JournalBookingIntegrationTest {
+
+    private static final Path JOURNAL = Paths.get("target/test.journal");
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private JournalBookingStore store;
+
+    @Autowired
+    private DayAvailabilityService availabilityService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @After
+    public void deleteJournal() throws Exception {
+        Files.deleteIfExists(JOURNAL);
+    }
+
+    @Test
+    public void testBookingsAreJournaled() throws Exception {
+        String response = mvc.perform(post("/v1/reservations")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(toJson(new Reservation("Luke", "Warm", "lukew@gmail.com",
+                        LocalDate.now().plusDays(6), LocalDate.now().plusDays(8), 20))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Integer id = mapper.readValue(response, ReservationCreated.class).getId();
+
+        mvc.perform(get("/v1/availability")
+                .param("fromDate", LocalDate.now().plusDays(6).toString())
+                .param("toDate", LocalDate.now().plusDays(6).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].availability", is(80)));
+        mvc.perform(delete("/v1/reservations/" + id))
+                .andExpect(status().isOk());
+
+        // nothing written to the database
+        assertEquals(1, reservationRepository.count());
+        assertEquals(Reservation.Status.CANCELLED, reservationService.getReservation(id).getStatus());
+        assertEquals(100, store.getAvailabilities(LocalDate.now().plusDays(6), LocalDate.now().plusDays(6))
+                .get(0).getAvailability());
+        try(BookingJournal journal = new BookingJournal(JOURNAL, 1024 * 1024, false)) {
+            assertEquals(2, journal.recover(e -> {}));
+        }
+    }
+
+    @Test
+    public void testNoAvailabilityAndCompaction() throws Exception {
+        Reservation reservation = reservationService.createReservation(new Reservation("Luke", "Warm",
+                "lukew@gmail.com", LocalDate.now().plusDays(6), LocalDate.now().plusDays(8), 90));
+        mvc.perform(post("/v1/reservations")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(toJson(new Reservation("Luke", "Warm", "lukew@gmail.com",
+                        LocalDate.now().plusDays(7), LocalDate.now().plusDays(8), 20))))
+                .andExpect(status().isBadRequest());
+        reservation.setNumberOfPersons(80);
+        reservationService.updateReservation(reservation);
+
+        store.compact();
+
+        try(BookingJournal journal = new BookingJournal(JOURNAL, 1024 * 1024, false)) {
+            // one entry with the dates and one with the reservations
+            assertEquals(2, journal.recover(e -> {}));
+        }
+        store.close();
+        store.open();
+        assertEquals(80, reservationService.getReservation(reservation.getId()).getNumberOfPersons().intValue());
+        assertEquals(20, store.getAvailabilities(LocalDate.now().plusDays(7), LocalDate.now().plusDays(7))
+                .get(0).getAvailability());
+    }
+
+    @Test
+    public void testChangesFollowTheDatabaseTransaction() throws Exception {
+        LocalDate day6 = LocalDate.now().plusDays(6);
+        LocalDate day7 = LocalDate.now().plusDays(7);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.execute(status -> {
+            TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+            deltas.put(day6, -30);
+            adjust(deltas);
+            return null;
+        });
+        assertEquals(70, store.getAvailabilities(day6, day6).get(0).getAvailability());
+
+        transaction.execute(status -> {
+            TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+            deltas.put(day6, 30);
+            deltas.put(day7, -20);
+            adjust(deltas);
+            // taken right away, released only on commit
+            assertEquals(70, store.getAvailabilities(day6, day6).get(0).getAvailability());
+            assertEquals(80, store.getAvailabilities(day7, day7).get(0).getAvailability());
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertEquals(70, store.getAvailabilities(day6, day6).get(0).getAvailability());
+        assertEquals(100, store.getAvailabilities(day7, day7).get(0).getAvailability());
+        assertEquals(70, availabilityService.getAvailabilities(day6, day6).get(0).getAvailability());
+        assertEquals(100, availabilityService.getAvailabilities(day7, day7).get(0).getAvailability());
+    }
+
+    private void adjust(TreeMap<LocalDate, Integer> deltas) {
+        try {
+            availabilityService.adjustAvailability(deltas);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(Reservation reservation) throws Exception {
+        return mapper.writeValueAsString(reservation);
+    }
+}
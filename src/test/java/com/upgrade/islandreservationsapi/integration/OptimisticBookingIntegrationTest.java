@@ -0,0 +1,113 @@
+package com.upgrade.islandreservationsapi.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.upgrade.islandreservationsapi.dto.ReservationDTO;
+import com.upgrade.islandreservationsapi.model.DayAvailability;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.repository.DayAvailabilityRepository;
+import com.upgrade.islandreservationsapi.repository.ReservationRepository;
+import com.upgrade.islandreservationsapi.service.BookingRetryStatistics;
+import com.upgrade.islandreservationsapi.service.DateLockManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static com.upgrade.islandreservationsapi.integration.ReservationControllerIntegrationTest.runMultithreaded;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@RunWith(SpringRunner.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {"island.booking.mode=OPTIMISTIC", "island.booking.retry.max-attempts=20"})
+public class OptimisticBookingIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private DayAvailabilityRepository availabilityRepository;
+
+    @Autowired
+    private BookingRetryStatistics retryStatistics;
+
+    @Autowired
+    private DateLockManager dateLocks;
+
+    private final Logger logger = LogManager.getLogger(OptimisticBookingIntegrationTest.class);
+
+    @Test
+    public void testConcurrentCreate() throws Exception {
+        String jsonBody = toJson(new Reservation("Luke", "Warm", "lukew@gmail.com",
+                LocalDate.now().plusDays(6), LocalDate.now().plusDays(8), 15));
+
+        runMultithreaded(() -> {
+            try {
+                mvc.perform(post("/v1/reservations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("UTF-8")
+                        .content(jsonBody));
+            } catch (Exception e) {
+                logger.error("exception in post", e);
+            }
+        }, 5);
+
+        logger.info("{} conflicts, {} bookings retried", retryStatistics.getConflicts(), retryStatistics.getSucceeded());
+        assertEquals(6, reservationRepository.count());
+        assertEquals(0, retryStatistics.getExhausted());
+        Optional<DayAvailability> availability = availabilityRepository.findById(LocalDate.now().plusDays(6));
+        assertTrue(availability.isPresent());
+        assertEquals(15, availability.get().getAvailability());
+        assertEquals(5, availability.get().getVersion());
+        // conflicts are retried, bookings don't wait for each other's dates
+        assertEquals(0, dateLocks.getAcquired());
+    }
+
+    @Test
+    public void testConcurrentCreateNoAvailabilityForAll() throws Exception {
+        String jsonBody = toJson(new Reservation("Luke", "Warm", "lukew@gmail.com",
+                LocalDate.now().plusDays(7), LocalDate.now().plusDays(9), 30));
+
+        runMultithreaded(() -> {
+            try {
+                mvc.perform(post("/v1/reservations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("UTF-8")
+                        .content(jsonBody));
+            } catch (Exception e) {
+                logger.error("exception in post", e);
+            }
+        }, 5);
+
+        assertEquals(4, reservationRepository.count());
+        Optional<DayAvailability> availability = availabilityRepository.findById(LocalDate.now().plusDays(8));
+        assertTrue(availability.isPresent());
+        assertEquals(10, availability.get().getAvailability());
+    }
+
+    private String toJson(Reservation reservation) throws Exception {
+        ReservationDTO dto = new ModelMapper().map(reservation, ReservationDTO.class);
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        return mapper.writeValueAsString(dto);
+    }
+}
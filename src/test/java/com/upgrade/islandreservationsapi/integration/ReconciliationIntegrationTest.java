@@ -0,0 +1,91 @@
+package com.upgrade.islandreservationsapi.integration;
+
+import com.upgrade.islandreservationsapi.model.AvailabilityChange;
+import com.upgrade.islandreservationsapi.model.DayAvailability;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.repository.AvailabilityChangeRepository;
+import com.upgrade.islandreservationsapi.repository.DayAvailabilityRepository;
+import com.upgrade.islandreservationsapi.service.AvailabilityReconciliationJob;
+import com.upgrade.islandreservationsapi.service.DayAvailabilityService;
+import com.upgrade.islandreservationsapi.service.HoldService;
+import com.upgrade.islandreservationsapi.service.ReconciliationReport;
+import com.upgrade.islandreservationsapi.service.ReservationService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ReconciliationIntegrationTest {
+
+    @Autowired
+    private AvailabilityReconciliationJob reconciliationJob;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private DayAvailabilityService availabilityService;
+
+    @Autowired
+    private DayAvailabilityRepository availabilityRepository;
+
+    @Autowired
+    private AvailabilityChangeRepository changeRepository;
+
+    @Test
+    public void testDriftIsReported() throws Exception {
+        reservationService.createReservation(new Reservation("Luke", "Warm",
+                "lukew@gmail.com", LocalDate.now().plusDays(7), LocalDate.now().plusDays(9), 20));
+        holdService.createHold(LocalDate.now().plusDays(8), LocalDate.now().plusDays(10), 5);
+
+        ReconciliationReport report = reconciliationJob.reconcile(false);
+
+        // day 6 of the test data has no reservation
+        assertEquals(3, report.getStays());
+        assertEquals(1, report.getDrifts().size());
+        ReconciliationReport.Drift drift = report.getDrifts().get(0);
+        assertEquals(LocalDate.now().plusDays(6), drift.getDate());
+        assertEquals(90, drift.getAvailability());
+        assertEquals(100, drift.getExpected());
+        assertFalse(drift.isRepaired());
+        assertEquals(90, availability(6));
+    }
+
+    @Test
+    public void testDriftIsRepaired() throws Exception {
+        DayAvailability lost = availabilityRepository.findById(LocalDate.now().plusDays(2)).get();
+        lost.setAvailability(100);
+        availabilityRepository.save(lost);
+
+        ReconciliationReport report = reconciliationJob.reconcile(true);
+
+        assertEquals(2, report.getRepaired());
+        assertEquals(90, availability(2));
+        assertEquals(100, availability(6));
+        assertEquals(90, availabilityService.getAvailabilities(LocalDate.now().plusDays(2),
+                LocalDate.now().plusDays(2)).get(0).getAvailability());
+        List<AvailabilityChange> changes = changeRepository.findAll();
+        assertEquals(2, changes.size());
+        assertTrue(changes.stream().allMatch(c -> c.getCause() == AvailabilityChange.Cause.RECONCILIATION));
+        assertEquals(0, reconciliationJob.reconcile(false).getDrifts().size());
+    }
+
+    private int availability(int days) {
+        return availabilityRepository.findById(LocalDate.now().plusDays(days)).get().getAvailability();
+    }
+}
@@ -2,12 +2,15 @@ package com.upgrade.islandreservationsapi.integration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.upgrade.islandreservationsapi.dto.CreateReservationBatchDTO;
+import com.upgrade.islandreservationsapi.dto.CreateReservationDTO;
 import com.upgrade.islandreservationsapi.dto.ReservationCreated;
 import com.upgrade.islandreservationsapi.dto.ReservationDTO;
 import com.upgrade.islandreservationsapi.model.DayAvailability;
 import com.upgrade.islandreservationsapi.model.Reservation;
 import com.upgrade.islandreservationsapi.repository.DayAvailabilityRepository;
 import com.upgrade.islandreservationsapi.repository.ReservationRepository;
+import com.upgrade.islandreservationsapi.service.BatchMode;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.Test;
@@ -24,7 +27,10 @@ import java.time.LocalDate;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.*;
@@ -134,6 +140,54 @@ public class ReservationControllerIntegrationTest {
         assertEquals(6, reservationRepository.count());
     }
 
+    @Test
+    public void testConcurrentCreateSameIdempotencyKey() throws Exception {
+        Reservation reservation = new Reservation("Luke", "Warm", "lukew@gmail.com",
+                LocalDate.now().plusDays(6), LocalDate.now().plusDays(8), 15);
+        ModelMapper modelMapper = new ModelMapper();
+        ReservationDTO dto = modelMapper.map(reservation, ReservationDTO.class);
+
+        ObjectMapper mapper = new ObjectMapper();
+        JavaTimeModule timeModule = new JavaTimeModule();
+        mapper.registerModule(timeModule);
+        String jsonBody = mapper.writeValueAsString(dto);
+        List<String> responses = new LinkedList<>();
+
+        runMultithreaded(() -> {
+            try {
+                String response = mvc.perform(post("/v1/reservations")
+                        .header("Idempotency-Key", "f3b1c2d4")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("UTF-8")
+                        .content(jsonBody))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsString();
+                synchronized(responses) {
+                    responses.add(response);
+                }
+            } catch (Exception e) {
+                logger.error("exception in post", e);
+            }
+        }, 5);
+
+        // a retry after the reservation was created
+        responses.add(mvc.perform(post("/v1/reservations")
+                .header("Idempotency-Key", "f3b1c2d4")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(jsonBody))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        assertEquals(2, reservationRepository.count());
+        assertEquals(6, responses.size());
+        responses.forEach(r -> assertEquals("{\"id\":2}", r));
+        assertEquals("f3b1c2d4", reservationRepository.findById(2).get().getIdempotencyKey());
+        Optional<DayAvailability> availability = availabilityRepository.findById(LocalDate.now().plusDays(6));
+        assertTrue(availability.isPresent());
+        assertEquals(75, availability.get().getAvailability());
+    }
+
     @Test
     public void testConcurrentCreateNoAvailabilityForAll() throws Exception {
         Reservation reservation = new Reservation("Luke", "Warm", "lukew@gmail.com",
@@ -378,6 +432,61 @@ public class ReservationControllerIntegrationTest {
         assertEquals(85, availabilityOpt3.get().getAvailability());
     }
 
+    @Test
+    public void testCreateReservationsBestEffort() throws Exception {
+        mvc.perform(post("/v1/reservations/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(batchJson(BatchMode.BEST_EFFORT)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created", is(2)))
+                .andExpect(jsonPath("$.reservations[*].created", contains(true, true, false)));
+
+        assertEquals(3, reservationRepository.count());
+        assertEquals(40, availabilityRepository.findById(LocalDate.now().plusDays(6)).get().getAvailability());
+        assertEquals(10, availabilityRepository.findById(LocalDate.now().plusDays(7)).get().getAvailability());
+        assertEquals(60, availabilityRepository.findById(LocalDate.now().plusDays(8)).get().getAvailability());
+    }
+
+    @Test
+    public void testCreateReservationsAllOrNothing() throws Exception {
+        mvc.perform(post("/v1/reservations/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(batchJson(BatchMode.ALL_OR_NOTHING)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created", is(0)))
+                .andExpect(jsonPath("$.failed", is(3)));
+
+        assertEquals(1, reservationRepository.count());
+        assertEquals(90, availabilityRepository.findById(LocalDate.now().plusDays(6)).get().getAvailability());
+        assertEquals(100, availabilityRepository.findById(LocalDate.now().plusDays(7)).get().getAvailability());
+    }
+
+    /**
+     * The third reservation does not fit on day 6 after the first one.
+     */
+    private String batchJson(BatchMode mode) throws Exception {
+        ModelMapper modelMapper = new ModelMapper();
+        CreateReservationBatchDTO batch = new CreateReservationBatchDTO();
+        batch.setMode(mode);
+        batch.setReservations(Stream.of(
+                new Reservation("Luke", "Warm", "lukew@gmail.com",
+                        LocalDate.now().plusDays(6), LocalDate.now().plusDays(8), 50),
+                new Reservation("Anna", "Warm", "annaw@gmail.com",
+                        LocalDate.now().plusDays(7), LocalDate.now().plusDays(9), 40),
+                new Reservation("Lucy", "Warm", "lucyw@gmail.com",
+                        LocalDate.now().plusDays(6), LocalDate.now().plusDays(7), 50))
+                .map(r -> modelMapper.map(r, CreateReservationDTO.class))
+                .collect(Collectors.toList()));
+
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        return mapper.writeValueAsString(batch);
+    }
+
     public static void runMultithreaded(Runnable  runnable, int threadCount) throws InterruptedException {
         List<Thread> threadList = new LinkedList<>();
 
@@ -0,0 +1,113 @@
+package com.upgrade.islandreservationsapi.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.upgrade.islandreservationsapi.dto.CreateReservationDTO;
+import com.upgrade.islandreservationsapi.dto.ReservationSubmissionDTO;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.repository.ReservationRepository;
+import com.upgrade.islandreservationsapi.service.ReservationSubmission;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@RunWith(SpringRunner.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ReservationSubmissionIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    public void testSubmitReservation() throws Exception {
+        ReservationSubmissionDTO submission = submit(20);
+        assertNotNull(submission.getId());
+
+        ReservationSubmissionDTO outcome = waitFor(submission.getId());
+
+        assertEquals(ReservationSubmission.Status.CREATED, outcome.getStatus());
+        assertEquals(2, outcome.getReservationId().intValue());
+        assertEquals(20, reservationRepository.findById(2).get().getNumberOfPersons().intValue());
+    }
+
+    @Test
+    public void testSubmitReservationNoAvailability() throws Exception {
+        ReservationSubmissionDTO submission = submit(95);
+
+        ReservationSubmissionDTO outcome = waitFor(submission.getId());
+
+        assertEquals(ReservationSubmission.Status.REJECTED, outcome.getStatus());
+        assertNotNull(outcome.getError());
+        assertEquals(1, reservationRepository.count());
+    }
+
+    @Test
+    public void testSubmissionNotFound() throws Exception {
+        mvc.perform(get("/v1/reservations/submissions/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    private ReservationSubmissionDTO submit(int persons) throws Exception {
+        CreateReservationDTO dto = new ModelMapper().map(new Reservation("Luke", "Warm", "lukew@gmail.com",
+                LocalDate.now().plusDays(6), LocalDate.now().plusDays(8), persons), CreateReservationDTO.class);
+        MockHttpServletResponse response = mvc.perform(post("/v1/reservations/submissions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(mapper.writeValueAsString(dto)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status", is("PENDING")))
+                .andReturn().getResponse();
+        ReservationSubmissionDTO submission =
+                mapper.readValue(response.getContentAsString(), ReservationSubmissionDTO.class);
+        assertEquals("/v1/reservations/submissions/" + submission.getId(), response.getHeader("Location"));
+        return submission;
+    }
+
+    /**
+     * Long-polls until the submission is no longer PENDING.
+     */
+    private ReservationSubmissionDTO waitFor(String id) throws Exception {
+        for(int i = 0; i < 10; i++) {
+            MvcResult result = mvc.perform(get("/v1/reservations/submissions/" + id).param("waitMs", "1000"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            result.getAsyncResult(2000);
+            String response = mvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            ReservationSubmissionDTO submission = mapper.readValue(response, ReservationSubmissionDTO.class);
+            if(submission.getStatus() != ReservationSubmission.Status.PENDING) {
+                return submission;
+            }
+        }
+        throw new AssertionError("Submission " + id + " still pending");
+    }
+}
@@ -0,0 +1,184 @@
+package com.upgrade.islandreservationsapi.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.upgrade.islandreservationsapi.dto.ReservationDTO;
+import com.upgrade.islandreservationsapi.model.DayAvailability;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.repository.DayAvailabilityRepository;
+import com.upgrade.islandreservationsapi.repository.ReservationRepository;
+import com.upgrade.islandreservationsapi.service.BookingAdmission;
+import com.upgrade.islandreservationsapi.service.BookingSequencer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.upgrade.islandreservationsapi.integration.ReservationControllerIntegrationTest.runMultithreaded;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@RunWith(SpringRunner.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {"island.booking.sequencer.enabled=true", "island.booking.sequencer.batch-window-ms=20"})
+public class SequencedBookingIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private DayAvailabilityRepository availabilityRepository;
+
+    @Autowired
+    private BookingSequencer sequencer;
+
+    @Autowired
+    private BookingAdmission admission;
+
+    private final Logger logger = LogManager.getLogger(SequencedBookingIntegrationTest.class);
+
+    @Test
+    public void testConcurrentCreate() throws Exception {
+        String jsonBody = toJson(new Reservation("Luke", "Warm", "lukew@gmail.com",
+                LocalDate.now().plusDays(6), LocalDate.now().plusDays(8), 15));
+
+        runMultithreaded(() -> {
+            try {
+                mvc.perform(post("/v1/reservations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("UTF-8")
+                        .content(jsonBody))
+                        .andExpect(status().isOk());
+            } catch (Exception e) {
+                logger.error("exception in post", e);
+            }
+        }, 5);
+
+        logger.info("{} commands committed in {} batches", sequencer.getCommands(), sequencer.getBatches());
+        assertEquals(6, reservationRepository.count());
+        assertEquals(5, sequencer.getCommands());
+        assertTrue(sequencer.getBatches() < 5);
+        Optional<DayAvailability> availability = availabilityRepository.findById(LocalDate.now().plusDays(6));
+        assertTrue(availability.isPresent());
+        assertEquals(15, availability.get().getAvailability());
+    }
+
+    @Test
+    public void testConcurrentCreateNoAvailabilityForAll() throws Exception {
+        String jsonBody = toJson(new Reservation("Luke", "Warm", "lukew@gmail.com",
+                LocalDate.now().plusDays(7), LocalDate.now().plusDays(9), 30));
+
+        runMultithreaded(() -> {
+            try {
+                mvc.perform(post("/v1/reservations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("UTF-8")
+                        .content(jsonBody));
+            } catch (Exception e) {
+                logger.error("exception in post", e);
+            }
+        }, 5);
+
+        assertEquals(4, reservationRepository.count());
+        Optional<DayAvailability> availability = availabilityRepository.findById(LocalDate.now().plusDays(8));
+        assertTrue(availability.isPresent());
+        assertEquals(10, availability.get().getAvailability());
+    }
+
+    @Test
+    public void testSoldOutRejectedBeforeQueueing() throws Exception {
+        mvc.perform(post("/v1/reservations")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(toJson(new Reservation("Luke", "Warm", "lukew@gmail.com",
+                        LocalDate.now().plusDays(7), LocalDate.now().plusDays(9), 101))))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(1, admission.getRejected());
+        assertEquals(0, sequencer.getBatches());
+    }
+
+    @Test
+    public void testDuplicateIdempotencyKeyInBatch() throws Exception {
+        Reservation first = new Reservation("Luke", "Warm", "lukew@gmail.com",
+                LocalDate.now().plusDays(6), LocalDate.now().plusDays(8), 5);
+        first.setIdempotencyKey("retried-request");
+        Reservation retry = new Reservation("Luke", "Warm", "lukew@gmail.com",
+                LocalDate.now().plusDays(6), LocalDate.now().plusDays(8), 5);
+        retry.setIdempotencyKey("retried-request");
+        Reservation other = new Reservation("John", "Oliver", "johno@gmail.com",
+                LocalDate.now().plusDays(6), LocalDate.now().plusDays(8), 5);
+
+        // queued within the batch window, so they are committed together
+        CompletableFuture<Reservation> firstCreated = sequencer.submitCreate(first);
+        CompletableFuture<Reservation> retryCreated = sequencer.submitCreate(retry);
+        CompletableFuture<Reservation> otherCreated = sequencer.submitCreate(other);
+
+        assertEquals(firstCreated.get(5, TimeUnit.SECONDS).getId(), retryCreated.get(5, TimeUnit.SECONDS).getId());
+        assertNotEquals(firstCreated.get().getId(), otherCreated.get(5, TimeUnit.SECONDS).getId());
+        // committed as one batch, not one by one after failing on the unique key
+        assertEquals(1, sequencer.getBatches());
+        assertEquals(3, reservationRepository.count());
+        assertEquals(80, availabilityRepository.findById(LocalDate.now().plusDays(6)).get().getAvailability());
+    }
+
+    @Test
+    public void testUpdateAndCancel() throws Exception {
+        Reservation reservation = new Reservation("John", "Oliver", "johno@gmail.com",
+                LocalDate.now().plusDays(2), LocalDate.now().plusDays(4), 15);
+        reservation.setStatus(Reservation.Status.ACTIVE);
+
+        mvc.perform(put("/v1/reservations/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(toJson(reservation)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numberOfPersons", is(15)));
+
+        assertEquals(100, availabilityRepository.findById(LocalDate.now().plusDays(1)).get().getAvailability());
+        assertEquals(85, availabilityRepository.findById(LocalDate.now().plusDays(2)).get().getAvailability());
+        assertEquals(85, availabilityRepository.findById(LocalDate.now().plusDays(3)).get().getAvailability());
+
+        mvc.perform(delete("/v1/reservations/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("Cancelled")));
+        mvc.perform(delete("/v1/reservations/1"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(100, availabilityRepository.findById(LocalDate.now().plusDays(2)).get().getAvailability());
+        assertEquals(Reservation.Status.CANCELLED, reservationRepository.findById(1).get().getStatus());
+    }
+
+    private String toJson(Reservation reservation) throws Exception {
+        ReservationDTO dto = new ModelMapper().map(reservation, ReservationDTO.class);
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        return mapper.writeValueAsString(dto);
+    }
+}
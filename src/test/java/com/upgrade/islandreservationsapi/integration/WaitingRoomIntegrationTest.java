@@ -0,0 +1,185 @@
+package com.upgrade.islandreservationsapi.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.upgrade.islandreservationsapi.dto.CreateHoldDTO;
+import com.upgrade.islandreservationsapi.dto.CreateReservationBatchDTO;
+import com.upgrade.islandreservationsapi.dto.CreateReservationDTO;
+import com.upgrade.islandreservationsapi.model.WaitingRoomTicket;
+import com.upgrade.islandreservationsapi.repository.WaitingRoomTicketRepository;
+import com.upgrade.islandreservationsapi.service.BatchMode;
+import com.upgrade.islandreservationsapi.service.ConfigurationService;
+import com.upgrade.islandreservationsapi.service.WaitingRoom;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@RunWith(SpringRunner.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {"island.waiting-room.enabled=true", "island.waiting-room.min-rate=100000",
+        "island.waiting-room.max-in-flight=1", "island.waiting-room.tick-ms=3600000",
+        "island.waiting-room.flush-ms=3600000"})
+public class WaitingRoomIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private WaitingRoom waitingRoom;
+
+    @Autowired
+    private WaitingRoomTicketRepository ticketRepository;
+
+    @Autowired
+    private ConfigurationService configurationService;
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    // newest start date of the booking window, in days from today
+    private int newest;
+
+    @Before
+    public void init() {
+        newest = configurationService.getSnapshot().getMaxAheadDays();
+    }
+
+    @Test
+    public void testHotDatesNeedAdmission() throws Exception {
+        // not hot
+        createReservation(6, 8, null).andExpect(status().isOk());
+
+        String first = createReservation(newest, newest + 1, null)
+                .andExpect(status().isTooManyRequests())
+                .andReturn().getResponse().getHeader("Waiting-Room-Token");
+        String second = createReservation(newest - 1, newest + 1, null)
+                .andExpect(status().isTooManyRequests())
+                .andReturn().getResponse().getHeader("Waiting-Room-Token");
+        getTicket(second)
+                .andExpect(jsonPath("$.status", is("WAITING")))
+                .andExpect(jsonPath("$.position", is(2)));
+
+        // one admitted at a time
+        waitingRoom.tick();
+        getTicket(first).andExpect(jsonPath("$.status", is("ADMITTED")));
+        createReservation(newest - 1, newest + 1, second).andExpect(status().isTooManyRequests());
+        createReservation(newest, newest + 1, first).andExpect(status().isOk());
+        getTicket(first).andExpect(status().isNotFound());
+
+        waitingRoom.tick();
+        getTicket(second).andExpect(jsonPath("$.status", is("ADMITTED")));
+        createReservation(newest - 1, newest + 1, second).andExpect(status().isOk());
+        // used
+        String third = createReservation(newest - 1, newest + 1, second)
+                .andExpect(status().isTooManyRequests())
+                .andReturn().getResponse().getHeader("Waiting-Room-Token");
+        assertNotEquals(second, third);
+    }
+
+    @Test
+    public void testTicketsAreRestored() throws Exception {
+        String first = createReservation(newest, newest + 1, null)
+                .andReturn().getResponse().getHeader("Waiting-Room-Token");
+        String second = createReservation(newest, newest + 1, null)
+                .andReturn().getResponse().getHeader("Waiting-Room-Token");
+        waitingRoom.tick();
+        waitingRoom.flush();
+        List<WaitingRoomTicket> tickets = ticketRepository.findAll();
+        assertEquals(2, tickets.size());
+
+        createReservation(newest, newest + 1, first).andExpect(status().isOk());
+        waitingRoom.flush();
+        assertEquals(1, ticketRepository.count());
+
+        waitingRoom.reload();
+        getTicket(first).andExpect(status().isNotFound());
+        getTicket(second)
+                .andExpect(jsonPath("$.status", is("WAITING")))
+                .andExpect(jsonPath("$.position", is(1)));
+        waitingRoom.tick();
+        createReservation(newest, newest + 1, second).andExpect(status().isOk());
+    }
+
+    @Test
+    public void testOtherBookingEndpointsNeedAdmission() throws Exception {
+        String holdToken = post("/v1/holds", hold(newest, newest + 1), null)
+                .andExpect(status().isTooManyRequests())
+                .andReturn().getResponse().getHeader("Waiting-Room-Token");
+        waitingRoom.tick();
+        post("/v1/holds", hold(newest, newest + 1), holdToken).andExpect(status().isOk());
+
+        CreateReservationBatchDTO batch = new CreateReservationBatchDTO();
+        batch.setMode(BatchMode.BEST_EFFORT);
+        batch.setReservations(List.of(reservation(6, 7), reservation(newest, newest + 1)));
+        String batchToken = post("/v1/reservations/batch", batch, null)
+                .andExpect(status().isTooManyRequests())
+                .andReturn().getResponse().getHeader("Waiting-Room-Token");
+        waitingRoom.tick();
+        post("/v1/reservations/batch", batch, batchToken)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reservations[1].created", is(true)));
+
+        post("/v1/reservations/submissions", reservation(newest, newest + 1), null)
+                .andExpect(status().isTooManyRequests());
+        // not hot
+        post("/v1/reservations/submissions", reservation(6, 7), null).andExpect(status().isAccepted());
+    }
+
+    private ResultActions createReservation(int start, int end, String token) throws Exception {
+        return post("/v1/reservations", reservation(start, end), token);
+    }
+
+    private ResultActions post(String url, Object body, String token) throws Exception {
+        return mvc.perform(MockMvcRequestBuilders.post(url)
+                .header("Waiting-Room-Token", token == null ? "" : token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(mapper.writeValueAsString(body)));
+    }
+
+    private CreateHoldDTO hold(int start, int end) {
+        CreateHoldDTO dto = new CreateHoldDTO();
+        dto.setStart(LocalDate.now().plusDays(start));
+        dto.setEnd(LocalDate.now().plusDays(end));
+        dto.setNumberOfPersons(2);
+        return dto;
+    }
+
+    private CreateReservationDTO reservation(int start, int end) {
+        CreateReservationDTO dto = new CreateReservationDTO();
+        dto.setFistName("Luke");
+        dto.setLastName("Warm");
+        dto.setEmail("lukew@gmail.com");
+        dto.setStart(LocalDate.now().plusDays(start));
+        dto.setEnd(LocalDate.now().plusDays(end));
+        dto.setNumberOfPersons(2);
+        return dto;
+    }
+
+    private ResultActions getTicket(String token) throws Exception {
+        return mvc.perform(get("/v1/waiting-room/" + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8"));
+    }
+}
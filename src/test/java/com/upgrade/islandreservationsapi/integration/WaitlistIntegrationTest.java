@@ -0,0 +1,136 @@
+package com.upgrade.islandreservationsapi.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.upgrade.islandreservationsapi.dto.CreateWaitlistEntryDTO;
+import com.upgrade.islandreservationsapi.dto.WaitlistEntryDTO;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import com.upgrade.islandreservationsapi.model.WaitlistEntry;
+import com.upgrade.islandreservationsapi.repository.DayAvailabilityRepository;
+import com.upgrade.islandreservationsapi.repository.ReservationRepository;
+import com.upgrade.islandreservationsapi.repository.WaitlistEntryRepository;
+import com.upgrade.islandreservationsapi.service.ReservationService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@RunWith(SpringRunner.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class WaitlistIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private WaitlistEntryRepository waitlistRepository;
+
+    @Autowired
+    private DayAvailabilityRepository availabilityRepository;
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    public void testCancellationFillsWaitlist() throws Exception {
+        Reservation reservation = reservationService.createReservation(new Reservation("Luke", "Warm",
+                "lukew@gmail.com", LocalDate.now().plusDays(6), LocalDate.now().plusDays(8), 85));
+        WaitlistEntryDTO first = joinWaitlist(6, 8, 20);
+        WaitlistEntryDTO second = joinWaitlist(7, 8, 30);
+        WaitlistEntryDTO tooLarge = joinWaitlist(7, 8, 60);
+
+        mvc.perform(delete("/v1/reservations/" + reservation.getId()))
+                .andExpect(status().isOk());
+
+        WaitlistEntry firstEntry = waitlistRepository.findById(first.getId()).get();
+        assertEquals(WaitlistEntry.Status.FULFILLED, firstEntry.getStatus());
+        assertEquals(WaitlistEntry.Status.FULFILLED, waitlistRepository.findById(second.getId()).get().getStatus());
+        assertEquals(WaitlistEntry.Status.WAITING, waitlistRepository.findById(tooLarge.getId()).get().getStatus());
+        Reservation booked = reservationRepository.findById(firstEntry.getReservationId()).get();
+        assertEquals(LocalDate.now().plusDays(6), booked.getStart());
+        assertEquals(20, booked.getNumberOfPersons().intValue());
+        assertEquals(4, reservationRepository.count());
+        assertEquals(70, availability(6));
+        assertEquals(50, availability(7));
+
+        mvc.perform(get("/v1/waitlist/" + first.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("FULFILLED")))
+                .andExpect(jsonPath("$.reservationId", is(firstEntry.getReservationId())));
+    }
+
+    @Test
+    public void testDownsizedUpdateFillsWaitlist() throws Exception {
+        Reservation reservation = reservationService.createReservation(new Reservation("Luke", "Warm",
+                "lukew@gmail.com", LocalDate.now().plusDays(7), LocalDate.now().plusDays(9), 100));
+        WaitlistEntryDTO entry = joinWaitlist(8, 9, 40);
+
+        reservation.setNumberOfPersons(50);
+        reservationService.updateReservation(reservation);
+
+        assertEquals(WaitlistEntry.Status.FULFILLED, waitlistRepository.findById(entry.getId()).get().getStatus());
+        assertEquals(50, availability(7));
+        assertEquals(10, availability(8));
+    }
+
+    @Test
+    public void testLeaveWaitlist() throws Exception {
+        Reservation reservation = reservationService.createReservation(new Reservation("Luke", "Warm",
+                "lukew@gmail.com", LocalDate.now().plusDays(6), LocalDate.now().plusDays(8), 85));
+        WaitlistEntryDTO entry = joinWaitlist(6, 8, 20);
+
+        mvc.perform(delete("/v1/waitlist/" + entry.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("CANCELLED")));
+        mvc.perform(delete("/v1/waitlist/" + entry.getId()))
+                .andExpect(status().isBadRequest());
+        reservationService.cancelReservation(reservation.getId());
+
+        assertEquals(WaitlistEntry.Status.CANCELLED, waitlistRepository.findById(entry.getId()).get().getStatus());
+        assertEquals(90, availability(6));
+    }
+
+    private WaitlistEntryDTO joinWaitlist(int start, int end, int persons) throws Exception {
+        CreateWaitlistEntryDTO dto = new CreateWaitlistEntryDTO();
+        dto.setFistName("Ann");
+        dto.setLastName("Chovey");
+        dto.setEmail("annc@gmail.com");
+        dto.setStart(LocalDate.now().plusDays(start));
+        dto.setEnd(LocalDate.now().plusDays(end));
+        dto.setNumberOfPersons(persons);
+        String response = mvc.perform(post("/v1/waitlist")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding("UTF-8")
+                .content(mapper.writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("WAITING")))
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readValue(response, WaitlistEntryDTO.class);
+    }
+
+    private int availability(int days) {
+        return availabilityRepository.findById(LocalDate.now().plusDays(days)).get().getAvailability();
+    }
+}
@@ -0,0 +1,54 @@
+package com.upgrade.islandreservationsapi.mapper;
+
+import com.upgrade.islandreservationsapi.dto.CreateReservationDTO;
+import com.upgrade.islandreservationsapi.dto.ReservationDTO;
+import com.upgrade.islandreservationsapi.model.Reservation;
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ReservationMapperTest {
+
+    @Test
+    public void testCreateReservationDtoToReservation() {
+        CreateReservationDTO dto = new CreateReservationDTO();
+        dto.setFistName("John");
+        dto.setLastName("Oliver");
+        dto.setEmail("johnoliver@gmail.com");
+        dto.setStart(LocalDate.now().plusDays(1));
+        dto.setEnd(LocalDate.now().plusDays(3));
+        dto.setNumberOfPersons(4);
+
+        Reservation reservation = ReservationMapper.toReservation(dto);
+
+        assertNull(reservation.getId());
+        assertEquals("John", reservation.getFistName());
+        assertEquals("Oliver", reservation.getLastName());
+        assertEquals("johnoliver@gmail.com", reservation.getEmail());
+        assertEquals(dto.getStart(), reservation.getStart());
+        assertEquals(dto.getEnd(), reservation.getEnd());
+        assertEquals(Integer.valueOf(4), reservation.getNumberOfPersons());
+        assertEquals(Reservation.Status.ACTIVE, reservation.getStatus());
+    }
+
+    @Test
+    public void testReservationToDtoAndBack() {
+        Reservation reservation = new Reservation("John", "Oliver", "johnoliver@gmail.com",
+                LocalDate.now().plusDays(1), LocalDate.now().plusDays(2), 5);
+        reservation.setId(10);
+        reservation.setStatus(Reservation.Status.CANCELLED);
+
+        ReservationDTO dto = ReservationMapper.toDto(reservation);
+        Reservation mapped = ReservationMapper.toReservation(dto);
+
+        assertEquals(Reservation.Status.CANCELLED, dto.getStatus());
+        assertEquals(reservation.getStart(), mapped.getStart());
+        assertEquals(reservation.getEnd(), mapped.getEnd());
+        assertEquals(reservation.getNumberOfPersons(), mapped.getNumberOfPersons());
+        assertEquals(reservation.getEmail(), mapped.getEmail());
+        assertNull(mapped.getId());
+    }
+}
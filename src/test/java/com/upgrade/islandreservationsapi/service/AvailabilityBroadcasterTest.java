@@ -0,0 +1,166 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.dto.DayAvailabilityDTO;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@TestPropertySource(properties = {"island.stream.queue-size=2", "island.stream.write-timeout-ms=1000"})
+public class AvailabilityBroadcasterTest {
+
+    @TestConfiguration
+    static class AvailabilityBroadcasterTestContextConfiguration {
+
+        @Bean
+        public AvailabilityBroadcaster availabilityBroadcaster() {
+            return new AvailabilityBroadcaster();
+        }
+
+        @Bean
+        public AvailabilityLedger availabilityLedger() {
+            return new AvailabilityLedger();
+        }
+    }
+
+    @Autowired
+    private AvailabilityBroadcaster broadcaster;
+
+    @Autowired
+    private AvailabilityLedger ledger;
+
+    private static final int DEFAULT_MAX_AVAILABILITY = 100;
+
+    @Before
+    public void init() {
+        ledger.load(LocalDate.now(), 30, DEFAULT_MAX_AVAILABILITY, List.of());
+    }
+
+    @Test
+    public void testSendsChangesInRange() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(1, null);
+        broadcaster.subscribe(emitter, LocalDate.now().plusDays(2), LocalDate.now().plusDays(5), () -> {});
+
+        publish(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2));
+
+        assertTrue(emitter.sent.await(5, TimeUnit.SECONDS));
+        assertEquals(1, emitter.changes.size());
+        assertEquals(LocalDate.now().plusDays(2), emitter.changes.get(0).getDate());
+        assertEquals(DEFAULT_MAX_AVAILABILITY - 10, emitter.changes.get(0).getAvailability());
+    }
+
+    @Test
+    public void testSendsChangesWithinWindow() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(1, null);
+        broadcaster.subscribe(emitter, LocalDate.now().plusDays(1), LocalDate.now().plusDays(5), () -> {});
+
+        // the past date is outside of the ledger window
+        publish(LocalDate.now().minusDays(1), LocalDate.now().plusDays(3));
+
+        assertTrue(emitter.sent.await(5, TimeUnit.SECONDS));
+        assertEquals(1, emitter.changes.size());
+        assertEquals(LocalDate.now().plusDays(3), emitter.changes.get(0).getDate());
+    }
+
+    @Test
+    public void testDropsSlowSubscriber() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(1, release);
+        int subscribers = broadcaster.getSubscriberCount();
+        broadcaster.subscribe(emitter, LocalDate.now().plusDays(10), LocalDate.now().plusDays(20), () -> {});
+
+        // the first change blocks the sender, the next two fill the queue and the last one can't be queued.
+        // publishing doesn't wait for the blocked send to drop the subscriber
+        publish(LocalDate.now().plusDays(10));
+        assertTrue(emitter.sent.await(5, TimeUnit.SECONDS));
+        publish(LocalDate.now().plusDays(11));
+        publish(LocalDate.now().plusDays(12));
+        publish(LocalDate.now().plusDays(13));
+        assertEquals(subscribers, broadcaster.getSubscriberCount());
+        release.countDown();
+
+        assertTrue(emitter.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(subscribers, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    public void testDropsStalledSubscriber() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(1, release);
+        int subscribers = broadcaster.getSubscriberCount();
+        // closing the connection fails the blocked write
+        broadcaster.subscribe(emitter, LocalDate.now().plusDays(21), LocalDate.now().plusDays(25), release::countDown);
+
+        // the send doesn't finish until the connection is closed, but the queue never fills
+        publish(LocalDate.now().plusDays(21));
+
+        assertTrue(emitter.failed.await(5, TimeUnit.SECONDS));
+        assertEquals(subscribers, broadcaster.getSubscriberCount());
+    }
+
+    private void publish(LocalDate... dates) {
+        TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        for(LocalDate date: dates) {
+            deltas.put(date, -10);
+        }
+        AvailabilityChangedEvent event = new AvailabilityChangedEvent(deltas);
+        ledger.onAvailabilityChanged(event);
+        broadcaster.onAvailabilityChanged(event);
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<DayAvailabilityDTO> changes = new CopyOnWriteArrayList<>();
+        private final CountDownLatch sent;
+        private final CountDownLatch release;
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final CountDownLatch failed = new CountDownLatch(1);
+
+        private RecordingEmitter(int expected, CountDownLatch release) {
+            this.sent = new CountDownLatch(expected);
+            this.release = release;
+        }
+
+        // synchronized like the methods of ResponseBodyEmitter, which hold the monitor for the whole send
+        @Override
+        public synchronized void send(SseEventBuilder builder) {
+            builder.build().stream()
+                    .filter(d -> d.getData() instanceof DayAvailabilityDTO)
+                    .forEach(d -> changes.add((DayAvailabilityDTO) d.getData()));
+            sent.countDown();
+            if(release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed.countDown();
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            failed.countDown();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.model.DayAvailability;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AvailabilityLedgerTest {
+
+    private static final int DEFAULT_MAX_AVAILABILITY = 100;
+    private static final int HORIZON = 40;
+
+    private AvailabilityLedger ledger;
+
+    @Before
+    public void init() {
+        ledger = new AvailabilityLedger();
+        List<DayAvailability> rows = List.of(
+                new DayAvailability(LocalDate.now().plusDays(2), 90, DEFAULT_MAX_AVAILABILITY),
+                new DayAvailability(LocalDate.now().plusDays(3), 75, 80));
+        ledger.load(LocalDate.now(), HORIZON, DEFAULT_MAX_AVAILABILITY, rows);
+    }
+
+    @Test
+    public void testNotLoaded() {
+        AvailabilityLedger emptyLedger = new AvailabilityLedger();
+        assertFalse(emptyLedger.isLoaded());
+        assertFalse(emptyLedger.forEach(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2), (d, a, m) -> {}));
+    }
+
+    @Test
+    public void testForEach() {
+        List<DayAvailability> visited = new ArrayList<>();
+        boolean covered = ledger.forEach(LocalDate.now().plusDays(1), LocalDate.now().plusDays(4),
+                (d, a, m) -> visited.add(new DayAvailability(d, a, m)));
+
+        assertTrue(covered);
+        assertEquals(4, visited.size());
+        assertEquals(LocalDate.now().plusDays(1), visited.get(0).getDate());
+        assertEquals(DEFAULT_MAX_AVAILABILITY, visited.get(0).getAvailability());
+        assertEquals(90, visited.get(1).getAvailability());
+        assertEquals(75, visited.get(2).getAvailability());
+        assertEquals(80, visited.get(2).getMaxAvailability());
+        assertEquals(DEFAULT_MAX_AVAILABILITY, visited.get(3).getAvailability());
+    }
+
+    @Test
+    public void testForEachOutsideWindow() {
+        boolean covered = ledger.forEach(LocalDate.now().plusDays(HORIZON - 2), LocalDate.now().plusDays(HORIZON),
+                (d, a, m) -> {});
+
+        assertFalse(covered);
+    }
+
+    @Test
+    public void testApplyDeltas() {
+        TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        deltas.put(LocalDate.now().plusDays(2), -10);
+        deltas.put(LocalDate.now().plusDays(3), 5);
+        deltas.put(LocalDate.now().plusDays(HORIZON + 5), -10);
+        long version = ledger.getVersion();
+        ledger.onAvailabilityChanged(new AvailabilityChangedEvent(deltas));
+        assertEquals(version + 1, ledger.getVersion());
+
+        List<Integer> visited = new ArrayList<>();
+        ledger.forEach(LocalDate.now().plusDays(2), LocalDate.now().plusDays(3), (d, a, m) -> visited.add(a));
+
+        assertEquals(List.of(80, 80), visited);
+    }
+
+    @Test
+    public void testResync() {
+        List<DayAvailability> rows = List.of(new DayAvailability(LocalDate.now().plusDays(2), 70, DEFAULT_MAX_AVAILABILITY));
+
+        // a difference is only corrected once the next resync finds it again
+        assertEquals(0, ledger.resync(ledger.getVersion(), rows));
+        long version = ledger.getVersion();
+        assertEquals(1, ledger.resync(version, rows));
+        assertEquals(version + 1, ledger.getVersion());
+
+        List<Integer> visited = new ArrayList<>();
+        ledger.forEach(LocalDate.now().plusDays(2), LocalDate.now().plusDays(2), (d, a, m) -> visited.add(a));
+        assertEquals(List.of(70), visited);
+    }
+
+    @Test
+    public void testResyncSkippedWhenChangedWhileReading() {
+        List<DayAvailability> rows = List.of(new DayAvailability(LocalDate.now().plusDays(2), 70, DEFAULT_MAX_AVAILABILITY));
+        ledger.resync(ledger.getVersion(), rows);
+        long version = ledger.getVersion();
+        TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        deltas.put(LocalDate.now().plusDays(5), -10);
+        ledger.onAvailabilityChanged(new AvailabilityChangedEvent(deltas));
+
+        assertEquals(0, ledger.resync(version, rows));
+        List<Integer> visited = new ArrayList<>();
+        ledger.forEach(LocalDate.now().plusDays(2), LocalDate.now().plusDays(2), (d, a, m) -> visited.add(a));
+        assertEquals(List.of(90), visited);
+    }
+
+    @Test
+    public void testFindStartDates() {
+        // day 2 has 90, day 3 has 75, every other day has 100
+        List<LocalDate> startDates = new ArrayList<>();
+        boolean covered = ledger.findStartDates(LocalDate.now().plusDays(1), LocalDate.now().plusDays(10),
+                2, 80, 3, startDates);
+
+        assertTrue(covered);
+        assertEquals(List.of(LocalDate.now().plusDays(1), LocalDate.now().plusDays(4), LocalDate.now().plusDays(5)),
+                startDates);
+    }
+
+    @Test
+    public void testFindStartDatesAfterRoll() {
+        // the window of a ledger loaded in the past rolls forward, so the search range wraps around the ring
+        AvailabilityLedger rolledLedger = new AvailabilityLedger();
+        rolledLedger.load(LocalDate.now().minusDays(HORIZON / 2), HORIZON, DEFAULT_MAX_AVAILABILITY, List.of());
+        TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        deltas.put(LocalDate.now().plusDays(5), -85);
+        deltas.put(LocalDate.now().plusDays(22), -90);
+        deltas.put(LocalDate.now().plusDays(37), -95);
+        rolledLedger.onAvailabilityChanged(new AvailabilityChangedEvent(deltas));
+
+        List<LocalDate> startDates = new ArrayList<>();
+        boolean covered = rolledLedger.findStartDates(LocalDate.now().plusDays(1), LocalDate.now().plusDays(37),
+                3, 20, HORIZON, startDates);
+
+        assertTrue(covered);
+        assertEquals(28, startDates.size());
+        assertEquals(LocalDate.now().plusDays(1), startDates.get(0));
+        assertFalse(startDates.contains(LocalDate.now().plusDays(3)));
+        assertTrue(startDates.contains(LocalDate.now().plusDays(6)));
+        assertTrue(startDates.contains(LocalDate.now().plusDays(19)));
+        assertFalse(startDates.contains(LocalDate.now().plusDays(20)));
+        assertEquals(LocalDate.now().plusDays(34), startDates.get(startDates.size() - 1));
+    }
+
+    @Test
+    public void testFindStartDatesOutsideWindow() {
+        List<LocalDate> startDates = new ArrayList<>();
+
+        assertFalse(ledger.findStartDates(LocalDate.now().plusDays(HORIZON - 3), LocalDate.now().plusDays(HORIZON - 2),
+                3, 1, 10, startDates));
+        assertTrue(startDates.isEmpty());
+    }
+}
@@ -0,0 +1,93 @@
+package com.upgrade.islandreservationsapi.service;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class BookingJournalTest {
+
+    private static final int CAPACITY = 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAppendAndRecover() throws IOException {
+        Path path = folder.newFile().toPath();
+        try(BookingJournal journal = new BookingJournal(path, CAPACITY, true)) {
+            assertEquals(0, journal.recover(e -> {}));
+            journal.append(entry("first"));
+            journal.append(entry("second"));
+        }
+
+        List<String> entries = new ArrayList<>();
+        try(BookingJournal journal = new BookingJournal(path, CAPACITY, false)) {
+            assertEquals(2, journal.recover(e -> entries.add(text(e))));
+            journal.append(entry("third"));
+        }
+        assertEquals(List.of("first", "second"), entries);
+        assertEquals(List.of("first", "second", "third"), recover(path));
+    }
+
+    @Test
+    public void testTornEntryIsOverwritten() throws IOException {
+        Path path = folder.newFile().toPath();
+        try(BookingJournal journal = new BookingJournal(path, CAPACITY, false)) {
+            journal.recover(e -> {});
+            journal.append(entry("first"));
+            journal.append(entry("second"));
+        }
+        // last byte of the second entry never made it to disk
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 'X' }), 8 + 5 + 8 + 5);
+        }
+
+        try(BookingJournal journal = new BookingJournal(path, CAPACITY, false)) {
+            assertEquals(1, journal.recover(e -> {}));
+            assertEquals(8 + 5, journal.size());
+            journal.append(entry("2nd"));
+        }
+        assertEquals(List.of("first", "2nd"), recover(path));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFull() throws IOException {
+        Path path = folder.newFile().toPath();
+        try(BookingJournal journal = new BookingJournal(path, 32, false)) {
+            journal.recover(e -> {});
+            journal.append(entry("0123456789"));
+            assertFalse(journal.fits(16));
+            journal.append(entry("0123456789abcdef"));
+        }
+    }
+
+    private static List<String> recover(Path path) {
+        List<String> entries = new ArrayList<>();
+        try(BookingJournal journal = new BookingJournal(path, CAPACITY, false)) {
+            journal.recover(e -> entries.add(text(e)));
+        }
+        return entries;
+    }
+
+    private static ByteBuffer entry(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String text(ByteBuffer entry) {
+        byte[] bytes = new byte[entry.remaining()];
+        entry.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
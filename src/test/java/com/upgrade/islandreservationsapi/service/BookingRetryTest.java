@@ -0,0 +1,126 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.config.RetryConfig;
+import com.upgrade.islandreservationsapi.exception.AvailabilityConflictException;
+import com.upgrade.islandreservationsapi.exception.NoAvailabilityForDateException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@RunWith(SpringRunner.class)
+@TestPropertySource(properties = {"island.booking.retry.max-attempts=3", "island.booking.retry.delay-ms=1"})
+public class BookingRetryTest {
+
+    @TestConfiguration
+    @Import(RetryConfig.class)
+    static class BookingRetryTestContextConfiguration {
+
+        @Bean
+        public BookingRetryStatistics bookingRetryStatistics() {
+            return new BookingRetryStatistics();
+        }
+
+        @Bean
+        public FailingBooking failingBooking() {
+            return new FailingBooking();
+        }
+    }
+
+    /**
+     * Throws the queued exceptions, one per call, and then succeeds. Fields are only accessed through methods,
+     * since the bean is proxied.
+     */
+    static class FailingBooking {
+
+        private final Deque<Exception> failures = new ArrayDeque<>();
+        private int calls;
+
+        @Retryable(interceptor = "bookingRetryInterceptor")
+        public String book() throws Exception {
+            calls++;
+            if(!failures.isEmpty()) {
+                throw failures.pop();
+            }
+            return "booked";
+        }
+
+        public void failWith(Exception failure) {
+            failures.add(failure);
+        }
+
+        public int getCalls() {
+            return calls;
+        }
+
+        public void reset() {
+            failures.clear();
+            calls = 0;
+        }
+    }
+
+    @Autowired
+    private FailingBooking booking;
+
+    @Autowired
+    private BookingRetryStatistics retryStatistics;
+
+    @Before
+    public void init() {
+        booking.reset();
+    }
+
+    @Test
+    public void testRetryLockFailures() throws Exception {
+        long succeeded = retryStatistics.getSucceeded();
+        booking.failWith(new CannotAcquireLockException("lock wait timeout"));
+        booking.failWith(new DeadlockLoserDataAccessException("deadlock", null));
+
+        assertEquals("booked", booking.book());
+        assertEquals(3, booking.getCalls());
+        assertEquals(succeeded + 1, retryStatistics.getSucceeded());
+    }
+
+    @Test
+    public void testRetryExhausted() throws Exception {
+        long conflicts = retryStatistics.getConflicts();
+        long exhausted = retryStatistics.getExhausted();
+        for(int i = 0; i < 3; i++) {
+            booking.failWith(new AvailabilityConflictException(LocalDate.now()));
+        }
+
+        try {
+            booking.book();
+            fail("AvailabilityConflictException expected");
+        } catch (AvailabilityConflictException e) {
+            assertEquals(3, booking.getCalls());
+            assertEquals(conflicts + 3, retryStatistics.getConflicts());
+            assertEquals(exhausted + 1, retryStatistics.getExhausted());
+        }
+    }
+
+    @Test(expected = NoAvailabilityForDateException.class)
+    public void testNoRetryForBusinessErrors() throws Exception {
+        booking.failWith(new NoAvailabilityForDateException());
+        try {
+            booking.book();
+        } finally {
+            assertEquals(1, booking.getCalls());
+        }
+    }
+}
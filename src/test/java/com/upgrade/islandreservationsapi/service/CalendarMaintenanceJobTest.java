@@ -0,0 +1,72 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.repository.DatesRepository;
+import com.upgrade.islandreservationsapi.repository.DayAvailabilityRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringRunner.class)
+public class CalendarMaintenanceJobTest {
+
+    @TestConfiguration
+    static class CalendarMaintenanceJobTestContextConfiguration {
+
+        @Bean
+        public CalendarMaintenanceJob calendarMaintenanceJob() {
+            return new CalendarMaintenanceJob();
+        }
+    }
+
+    @MockBean
+    private DatesRepository datesRepository;
+
+    @MockBean
+    private DayAvailabilityRepository availabilityRepository;
+
+    @MockBean
+    private ConfigurationService configurationService;
+
+    @Autowired
+    private CalendarMaintenanceJob calendarMaintenanceJob;
+
+    private static final int DEFAULT_MAX_RESERVATION = 3;
+    private static final int DEFAULT_MAX_AHEAD_DAYS = 396;
+    private static final int DEFAULT_HORIZON_DAYS = DEFAULT_MAX_AHEAD_DAYS + DEFAULT_MAX_RESERVATION + 1;
+
+    @Before
+    public void init() {
+        Mockito.when(configurationService.getSnapshot()).thenReturn(new ConfigurationSnapshot(1, LocalDate.now(),
+                100, DEFAULT_MAX_RESERVATION, 1, DEFAULT_MAX_AHEAD_DAYS, 90, 30));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testMaintainCalendar() {
+        LocalDate keepFrom = LocalDate.now().minusDays(DEFAULT_MAX_RESERVATION);
+        ArgumentCaptor<List<LocalDate>> captor = ArgumentCaptor.forClass(List.class);
+
+        Mockito.reset(datesRepository);
+        calendarMaintenanceJob.maintainCalendar();
+
+        Mockito.verify(datesRepository).insertMissing(captor.capture());
+        Mockito.verify(datesRepository).deleteByDateBefore(keepFrom);
+        Mockito.verify(availabilityRepository).insertMissing(keepFrom, LocalDate.now().plusDays(DEFAULT_HORIZON_DAYS), 100);
+        List<LocalDate> dates = captor.getValue();
+        assertEquals(DEFAULT_MAX_RESERVATION + DEFAULT_HORIZON_DAYS, dates.size());
+        assertEquals(keepFrom, dates.get(0));
+        assertEquals(LocalDate.now().plusDays(DEFAULT_HORIZON_DAYS - 1), dates.get(dates.size() - 1));
+    }
+}
@@ -0,0 +1,82 @@
+package com.upgrade.islandreservationsapi.service;
+
+import com.upgrade.islandreservationsapi.model.Configuration;
+import com.upgrade.islandreservationsapi.repository.ConfigurationRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(SpringRunner.class)
+public class ConfigurationServiceTest {
+
+    @TestConfiguration
+    static class ConfigurationServiceTestContextConfiguration {
+
+        @Bean
+        public ConfigurationServiceImpl configurationService() {
+            return new ConfigurationServiceImpl();
+        }
+    }
+
+    @MockBean
+    private ConfigurationRepository repository;
+
+    @Autowired
+    private ConfigurationService configurationService;
+
+    @Test
+    public void testSnapshotLoadedOnce() {
+        Mockito.when(repository.findAll()).thenReturn(List.of(
+                new Configuration("MAX_AVAILABILITY", "50"),
+                new Configuration("MAX_RESERVATION", "3"),
+                new Configuration("MIN_AHEAD", "1"),
+                new Configuration("MAX_AHEAD", "30"),
+                new Configuration("MAX_DATE_RANGE", "90"),
+                new Configuration("DEFAULT_DATE_RANGE", "30")));
+
+        ConfigurationSnapshot snapshot = configurationService.getSnapshot();
+
+        assertSame(snapshot, configurationService.getSnapshot());
+        assertEquals(50, configurationService.getMaxAvailability());
+        assertEquals(3, configurationService.getMaxReservation());
+        assertEquals(ChronoUnit.DAYS.between(LocalDate.now(), LocalDate.now().plusMonths(1)), snapshot.getMaxAheadDays());
+        assertEquals(ChronoUnit.DAYS.between(LocalDate.now(), LocalDate.now().plusMonths(3)), snapshot.getMaxDateRange());
+        Mockito.verify(repository, Mockito.times(1)).findAll();
+        Mockito.verify(repository, Mockito.never()).findById(Mockito.anyString());
+    }
+
+    @Test
+    public void testRefreshMissingValues() {
+        List<Configuration> configurations = new ArrayList<>();
+        configurations.add(new Configuration("MAX_AVAILABILITY", "50"));
+        Mockito.when(repository.findAll()).thenReturn(configurations);
+
+        ConfigurationSnapshot snapshot = configurationService.refresh();
+
+        assertEquals(50, snapshot.getMaxAvailability());
+        assertEquals(1, snapshot.getMinAheadDays());
+        Mockito.verify(repository, Mockito.times(5)).save(Mockito.any(Configuration.class));
+
+        // same values keep the same snapshot, a changed value creates a new version
+        configurations.add(new Configuration("MIN_AHEAD", "1"));
+        assertSame(snapshot, configurationService.refresh());
+        configurations.set(0, new Configuration("MAX_AVAILABILITY", "60"));
+        ConfigurationSnapshot refreshed = configurationService.refresh();
+        assertNotEquals(snapshot.getVersion(), refreshed.getVersion());
+        assertEquals(60, refreshed.getMaxAvailability());
+    }
+}
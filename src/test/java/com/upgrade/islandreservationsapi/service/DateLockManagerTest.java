@@ -0,0 +1,155 @@
+package com.upgrade.islandreservationsapi.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(SpringRunner.class)
+@TestPropertySource(properties = {"island.locks.stripes=8", "island.locks.timeout-ms=100"})
+public class DateLockManagerTest {
+
+    @TestConfiguration
+    static class DateLockManagerTestContextConfiguration {
+
+        @Bean
+        public DateLockManager dateLockManager() {
+            return new DateLockManager();
+        }
+    }
+
+    @Autowired
+    private DateLockManager dateLocks;
+
+    @Before
+    public void init() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @After
+    public void cleanup() {
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            complete();
+        }
+    }
+
+    @Test
+    public void testLockedUntilCompletion() throws Exception {
+        dateLocks.lockUntilCompletion(LocalDate.now().plusDays(1), LocalDate.now().plusDays(4));
+        // reentrant for the same thread
+        dateLocks.lockUntilCompletion(List.of(LocalDate.now().plusDays(3)));
+        long timeouts = dateLocks.getTimeouts();
+
+        // same stripe as tomorrow
+        assertTrue(lockInOtherThread(LocalDate.now().plusDays(9)) instanceof CannotAcquireLockException);
+        assertEquals(timeouts + 1, dateLocks.getTimeouts());
+        assertTrue(dateLocks.getWaitNanos() > 0);
+        assertNull(lockInOtherThread(LocalDate.now().plusDays(5)));
+
+        complete();
+        assertNull(lockInOtherThread(LocalDate.now().plusDays(9)));
+    }
+
+    @Test
+    public void testLockedBeforeTransaction() throws Exception {
+        List<LocalDate> dates = List.of(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2));
+        dateLocks.lock(dates);
+        long acquired = dateLocks.getAcquired();
+        // within the transaction, the dates locked before don't wait and are not acquired again
+        dateLocks.lockUntilCompletion(dates);
+        assertEquals(acquired, dateLocks.getAcquired());
+
+        complete();
+        assertTrue(lockInOtherThread(LocalDate.now().plusDays(1)) instanceof CannotAcquireLockException);
+
+        dateLocks.unlock(dates);
+        assertNull(lockInOtherThread(LocalDate.now().plusDays(1)));
+    }
+
+    @Test
+    public void testBusyStripeBelowHeldIsNotWaitedFor() throws Exception {
+        // stripes 0 and 5
+        LocalDate low = LocalDate.ofEpochDay(800);
+        LocalDate high = LocalDate.ofEpochDay(805);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> other = CompletableFuture.runAsync(() -> {
+            dateLocks.lock(List.of(low));
+            locked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                dateLocks.unlock(List.of(low));
+            }
+        });
+        locked.await();
+        try {
+            dateLocks.lockUntilCompletion(List.of(high));
+            long timeouts = dateLocks.getTimeouts();
+            try {
+                dateLocks.lockUntilCompletion(List.of(low));
+                fail("Stripe below a held stripe should not be waited for.");
+            } catch (CannotAcquireLockException e) {
+                assertEquals(1, dateLocks.getOutOfOrder());
+                assertEquals(timeouts, dateLocks.getTimeouts());
+            }
+        } finally {
+            release.countDown();
+            other.get();
+        }
+        // free stripes below are taken
+        dateLocks.lockUntilCompletion(List.of(low));
+        complete();
+        assertNull(lockInOtherThread(high));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLockWithoutTransaction() {
+        complete();
+        dateLocks.lockUntilCompletion(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2));
+    }
+
+    private void complete() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+
+    /**
+     * @return exception thrown when locking the date in another thread (and transaction), or null
+     */
+    private Exception lockInOtherThread(LocalDate date) throws InterruptedException, ExecutionException {
+        return CompletableFuture.supplyAsync(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                dateLocks.lockUntilCompletion(List.of(date));
+                return null;
+            } catch (CannotAcquireLockException e) {
+                return e;
+            } finally {
+                complete();
+            }
+        }).get();
+    }
+}
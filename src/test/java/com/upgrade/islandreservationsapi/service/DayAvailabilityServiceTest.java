@@ -2,10 +2,8 @@ package com.upgrade.islandreservationsapi.service;
 
 import com.upgrade.islandreservationsapi.exception.InvalidDatesException;
 import com.upgrade.islandreservationsapi.exception.NoAvailabilityForDateException;
-import com.upgrade.islandreservationsapi.model.Dates;
 import com.upgrade.islandreservationsapi.model.DayAvailability;
 import com.upgrade.islandreservationsapi.model.Reservation;
-import com.upgrade.islandreservationsapi.repository.DatesRepository;
 import com.upgrade.islandreservationsapi.repository.DayAvailabilityRepository;
 import org.junit.Before;
 import org.junit.Test;
@@ -21,10 +19,11 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
-import static org.mockito.ArgumentMatchers.any;
 
 @RunWith(SpringRunner.class)
 public class DayAvailabilityServiceTest {
@@ -45,7 +44,10 @@ public class DayAvailabilityServiceTest {
     private ConfigurationService configurationService;
 
     @MockBean
-    private DatesRepository datesRepository;
+    private AvailabilityLedger ledger;
+
+    @MockBean
+    private DateLockManager dateLocks;
 
     @Autowired
     private DayAvailabilityService availabilityService;
@@ -57,14 +59,8 @@ public class DayAvailabilityServiceTest {
 
     @Before
     public void init() {
-        Mockito.when(configurationService.getMaxAvailability()).thenReturn(DEFAULT_MAX_AVAILABILITY);
-        Mockito.when(configurationService.getMaxDateRange()).thenReturn(DEFAULT_MAX_DATE_RANGE);
-        Mockito.when(configurationService.getMinAheadDays()).thenReturn(DEFAULT_MIN_AHEAD_DAYS);
-        Mockito.when(configurationService.getDefaultDateRange()).thenReturn(DEFAULT_DEFAULT_DATE_RANGE);
-
-        List<Dates> dates = new ArrayList<>();
-        LocalDate.now().datesUntil(LocalDate.now().plusDays(30)).forEach(d -> dates.add(new Dates(d)));
-        Mockito.when(datesRepository.findAllById(any())).thenReturn(dates);
+        Mockito.when(configurationService.getSnapshot()).thenReturn(new ConfigurationSnapshot(1, LocalDate.now(),
+                DEFAULT_MAX_AVAILABILITY, 3, DEFAULT_MIN_AHEAD_DAYS, 30, DEFAULT_MAX_DATE_RANGE, DEFAULT_DEFAULT_DATE_RANGE));
     }
 
 
@@ -92,25 +88,13 @@ public class DayAvailabilityServiceTest {
         availabilityService.getAvailabilities(fromDate, toDate);
     }
 
-    @Test
-    public void testGetAvailabilityNoRecords() throws InvalidDatesException {
-        LocalDate fromDate = LocalDate.now().plusDays(1);
-        LocalDate toDate = LocalDate.now().plusDays(10);
-
-        Mockito.when(availabilityRepository.findByDateBetweenOrderByDateAsc(fromDate, toDate)).thenReturn(new ArrayList<>());
-
-        List<DayAvailability> avalabilities = availabilityService.getAvailabilities(fromDate, toDate);
-
-        assertNotNull(avalabilities);
-        assertEquals(10, avalabilities.size());
+    @Test(expected = InvalidDatesException.class)
+    public void testGetAvailabilityBeyondHorizon() throws InvalidDatesException {
+        // horizon is MAX_AHEAD + MAX_RESERVATION days after today
+        LocalDate fromDate = LocalDate.now().plusDays(25);
+        LocalDate toDate = LocalDate.now().plusDays(34);
 
-        for(int i = 0; i <= 9; i++) {
-            DayAvailability availability = avalabilities.get(i);
-            LocalDate date = LocalDate.now().plusDays(i + 1);
-            assertEquals(date, availability.getDate());
-            assertEquals(DEFAULT_MAX_AVAILABILITY, availability.getAvailability());
-            assertEquals(DEFAULT_MAX_AVAILABILITY, availability.getMaxAvailability());
-        }
+        availabilityService.getAvailabilities(fromDate, toDate);
     }
 
     @Test
@@ -118,42 +102,25 @@ public class DayAvailabilityServiceTest {
         LocalDate fromDate = LocalDate.now().plusDays(1);
         LocalDate toDate = LocalDate.now().plusDays(10);
 
-        DayAvailability a1 = new DayAvailability(LocalDate.now().plusDays(4), 90, DEFAULT_MAX_AVAILABILITY);
-        DayAvailability a2 = new DayAvailability(LocalDate.now().plusDays(5), 90, DEFAULT_MAX_AVAILABILITY);
-        DayAvailability a3 = new DayAvailability(LocalDate.now().plusDays(7), 85, DEFAULT_MAX_AVAILABILITY);
-        DayAvailability a4 = new DayAvailability(LocalDate.now().plusDays(8), 80, DEFAULT_MAX_AVAILABILITY);
-
-        List<DayAvailability> availabilitiesInDb = List.of(a1, a2, a3, a4);
+        List<DayAvailability> availabilitiesInDb = new ArrayList<>();
+        for(int i = 1; i <= 10; i++) {
+            availabilitiesInDb.add(new DayAvailability(LocalDate.now().plusDays(i), 100 - i, DEFAULT_MAX_AVAILABILITY));
+        }
 
         Mockito.when(availabilityRepository.findByDateBetweenOrderByDateAsc(fromDate, toDate)).thenReturn(availabilitiesInDb);
-        Mockito.when(configurationService.getMaxAvailability()).thenReturn(DEFAULT_MAX_AVAILABILITY);
 
         List<DayAvailability> avalabilities = availabilityService.getAvailabilities(fromDate, toDate);
 
         assertNotNull(avalabilities);
         assertEquals(10, avalabilities.size());
 
-        for(int i = 0; i <= 2; i++) {
+        for(int i = 0; i <= 9; i++) {
             DayAvailability availability = avalabilities.get(i);
             LocalDate date = LocalDate.now().plusDays(i + 1);
             assertEquals(date, availability.getDate());
-            assertEquals(DEFAULT_MAX_AVAILABILITY, availability.getAvailability());
+            assertEquals(100 - i - 1, availability.getAvailability());
             assertEquals(DEFAULT_MAX_AVAILABILITY, availability.getMaxAvailability());
         }
-        DayAvailability availability1 = avalabilities.get(3);
-        assertEquals(90, availability1.getAvailability());
-
-        DayAvailability availability2 = avalabilities.get(4);
-        assertEquals(90, availability2.getAvailability());
-
-        DayAvailability availability3 = avalabilities.get(5);
-        assertEquals(DEFAULT_MAX_AVAILABILITY, availability3.getAvailability());
-
-        DayAvailability availability4 = avalabilities.get(6);
-        assertEquals(85, availability4.getAvailability());
-
-        DayAvailability availability5 = avalabilities.get(7);
-        assertEquals(80, availability5.getAvailability());
     }
 
     @Test
@@ -165,15 +132,16 @@ public class DayAvailabilityServiceTest {
 
         int add = 8;
 
-        DayAvailability a1 = new DayAvailability(fromDate, 80, 100);
-        DayAvailability a2 = new DayAvailability(fromDate, 70, 100);
+        DayAvailability a1 = new DayAvailability(fromDate, 88, 100);
+        DayAvailability a2 = new DayAvailability(date2, 78, 100);
         List<DayAvailability> availabilities = List.of(a1, a2);
 
-        Mockito.when(availabilityRepository.findAllById(List.of(fromDate, date2))).thenReturn(availabilities);
-        Mockito.when(availabilityRepository.saveAll(availabilities)).thenReturn(availabilities);
+        Mockito.when(availabilityRepository.addAvailability(fromDate, toDate, add)).thenReturn(2);
+        Mockito.when(availabilityRepository.findByDateBetweenOrderByDateAsc(fromDate, date2)).thenReturn(availabilities);
 
         List<DayAvailability> updatedAvailabilities = availabilityService.addAvailability(fromDate, toDate, add);
 
+        Mockito.verify(availabilityRepository).addAvailability(fromDate, toDate, add);
         assertEquals(2, updatedAvailabilities.size());
         assertEquals(88, updatedAvailabilities.get(0).getAvailability());
         assertEquals(78, updatedAvailabilities.get(1).getAvailability());
@@ -188,20 +156,45 @@ public class DayAvailabilityServiceTest {
 
         int add = -5;
 
-        DayAvailability a1 = new DayAvailability(fromDate, 80, 100);
-        DayAvailability a2 = new DayAvailability(fromDate, 70, 100);
+        DayAvailability a1 = new DayAvailability(fromDate, 75, 100);
+        DayAvailability a2 = new DayAvailability(date2, 65, 100);
         List<DayAvailability> availabilities = List.of(a1, a2);
 
-        Mockito.when(availabilityRepository.findAllById(List.of(fromDate, date2))).thenReturn(availabilities);
-        Mockito.when(availabilityRepository.saveAll(availabilities)).thenReturn(availabilities);
+        Mockito.when(availabilityRepository.addAvailability(fromDate, toDate, add)).thenReturn(2);
+        Mockito.when(availabilityRepository.findByDateBetweenOrderByDateAsc(fromDate, date2)).thenReturn(availabilities);
 
         List<DayAvailability> updatedAvailabilities = availabilityService.addAvailability(fromDate, toDate, add);
 
+        Mockito.verify(availabilityRepository).addAvailability(fromDate, toDate, add);
         assertEquals(2, updatedAvailabilities.size());
         assertEquals(75, updatedAvailabilities.get(0).getAvailability());
         assertEquals(65, updatedAvailabilities.get(1).getAvailability());
     }
 
+    @Test
+    public void testFindStartDatesFromDatabase() throws InvalidDatesException {
+        LocalDate fromDate = LocalDate.now().plusDays(1);
+        LocalDate toDate = LocalDate.now().plusDays(6);
+
+        List<DayAvailability> availabilitiesInDb = new ArrayList<>();
+        for(int i = 1; i <= 7; i++) {
+            availabilitiesInDb.add(new DayAvailability(LocalDate.now().plusDays(i), i == 3 ? 5 : 50, DEFAULT_MAX_AVAILABILITY));
+        }
+
+        Mockito.when(availabilityRepository.findByDateBetweenOrderByDateAsc(fromDate, toDate.plusDays(1)))
+                .thenReturn(availabilitiesInDb);
+
+        List<LocalDate> startDates = availabilityService.findStartDates(10, 2, fromDate, toDate, 10);
+
+        assertEquals(List.of(LocalDate.now().plusDays(1), LocalDate.now().plusDays(4),
+                LocalDate.now().plusDays(5), LocalDate.now().plusDays(6)), startDates);
+    }
+
+    @Test(expected = InvalidDatesException.class)
+    public void testFindStartDatesTooManyNights() throws InvalidDatesException {
+        availabilityService.findStartDates(10, 4, LocalDate.now().plusDays(1), LocalDate.now().plusDays(6), 10);
+    }
+
     @Test
     public void testUpdateDayAvailabilityNoExistingRecords() throws Exception {
         LocalDate fromDate = LocalDate.now().plusDays(1);
@@ -217,11 +210,12 @@ public class DayAvailabilityServiceTest {
         DayAvailability a2 = new DayAvailability(middleDate, 90, DEFAULT_MAX_AVAILABILITY);
         List<DayAvailability> availabilities = Arrays.asList(a1, a2);
 
-        Mockito.when(availabilityRepository.findAllById(List.of(fromDate, middleDate))).thenReturn(new ArrayList<>());
-        Mockito.when(availabilityRepository.saveAll(availabilities)).thenReturn(availabilities);
+        Mockito.when(availabilityRepository.decrementAvailability(fromDate, toDate, 10)).thenReturn(2);
+        Mockito.when(availabilityRepository.findByDateBetweenOrderByDateAsc(fromDate, middleDate)).thenReturn(availabilities);
 
         List<DayAvailability> updatedAvalabilities = availabilityService.updateDayAvailability(reservation);
 
+        Mockito.verify(availabilityRepository, Mockito.never()).insertMissing(Mockito.any(), Mockito.any(), Mockito.anyInt());
         assertNotNull(updatedAvalabilities);
         assertEquals(2, updatedAvalabilities.size());
         assertEquals(90, updatedAvalabilities.get(0).getAvailability());
@@ -240,15 +234,12 @@ public class DayAvailabilityServiceTest {
         reservation.setStart(fromDate);
         reservation.setEnd(toDate);
 
-        DayAvailability a1 = new DayAvailability(fromDate, 75, DEFAULT_MAX_AVAILABILITY);
         DayAvailability updatedA1 = new DayAvailability(fromDate, 65, DEFAULT_MAX_AVAILABILITY);
         DayAvailability a2 = new DayAvailability(middleDate, 90, DEFAULT_MAX_AVAILABILITY);
-        List<DayAvailability> existingAvailabilities = new ArrayList<>();
-        existingAvailabilities.add(a1);
         List<DayAvailability> availabilities = Arrays.asList(updatedA1, a2);
 
-        Mockito.when(availabilityRepository.findAllById(List.of(fromDate, middleDate))).thenReturn(existingAvailabilities);
-        Mockito.when(availabilityRepository.saveAll(availabilities)).thenReturn(availabilities);
+        Mockito.when(availabilityRepository.decrementAvailability(fromDate, toDate, 10)).thenReturn(2);
+        Mockito.when(availabilityRepository.findByDateBetweenOrderByDateAsc(fromDate, middleDate)).thenReturn(availabilities);
 
         List<DayAvailability> updatedAvalabilities = availabilityService.updateDayAvailability(reservation);
 
@@ -269,17 +260,57 @@ public class DayAvailabilityServiceTest {
         reservation.setStart(fromDate);
         reservation.setEnd(toDate);
 
-        DayAvailability a1 = new DayAvailability(fromDate, 5, DEFAULT_MAX_AVAILABILITY);
-        DayAvailability updatedA1 = new DayAvailability(fromDate, 65, DEFAULT_MAX_AVAILABILITY);
-        DayAvailability a2 = new DayAvailability(middleDate, 90, DEFAULT_MAX_AVAILABILITY);
-        List<DayAvailability> existingAvailabilities = new ArrayList<>();
-        existingAvailabilities.add(a1);
-        List<DayAvailability> availabilities = Arrays.asList(updatedA1, a2);
-
-        Mockito.when(availabilityRepository.findAllById(List.of(fromDate, middleDate))).thenReturn(existingAvailabilities);
-        Mockito.when(availabilityRepository.saveAll(availabilities)).thenReturn(availabilities);
+        // only one of the two dates has enough availability
+        Mockito.when(availabilityRepository.decrementAvailability(fromDate, toDate, 10)).thenReturn(1);
 
         availabilityService.updateDayAvailability(reservation);
     }
 
+    @Test
+    public void testAdjustAvailabilityOnlyChangedDates() throws Exception {
+        // a 3 nights stay moved one day later: only the first old night and the last new night change
+        LocalDate day1 = LocalDate.now().plusDays(1);
+        LocalDate day4 = LocalDate.now().plusDays(4);
+        TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        deltas.put(day1, 10);
+        deltas.put(day1.plusDays(1), 0);
+        deltas.put(day1.plusDays(2), 0);
+        deltas.put(day4, -10);
+
+        Mockito.when(availabilityRepository.decrementAvailability(day4, day4.plusDays(1), 10)).thenReturn(1);
+
+        availabilityService.adjustAvailability(deltas);
+
+        Mockito.verify(dateLocks).lockUntilCompletion(Set.of(day1, day4));
+        Mockito.verify(availabilityRepository).addAvailability(day1, day1.plusDays(1), 10);
+        Mockito.verify(availabilityRepository).decrementAvailability(day4, day4.plusDays(1), 10);
+        Mockito.verifyNoMoreInteractions(dateLocks);
+    }
+
+    @Test
+    public void testAdjustAvailabilitySameDeltaUpdatedTogether() throws Exception {
+        LocalDate fromDate = LocalDate.now().plusDays(1);
+        LocalDate toDate = LocalDate.now().plusDays(4);
+        TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        fromDate.datesUntil(toDate).forEach(d -> deltas.put(d, -2));
+
+        Mockito.when(availabilityRepository.decrementAvailability(fromDate, toDate, 2)).thenReturn(3);
+
+        availabilityService.adjustAvailability(deltas);
+
+        Mockito.verify(availabilityRepository).decrementAvailability(fromDate, toDate, 2);
+        Mockito.verify(availabilityRepository, Mockito.never()).addAvailability(Mockito.any(), Mockito.any(), Mockito.anyInt());
+    }
+
+    @Test(expected = NoAvailabilityForDateException.class)
+    public void testAdjustAvailabilityNoAvailability() throws Exception {
+        LocalDate date = LocalDate.now().plusDays(2);
+        TreeMap<LocalDate, Integer> deltas = new TreeMap<>();
+        deltas.put(date, -20);
+
+        Mockito.when(availabilityRepository.decrementAvailability(date, date.plusDays(1), 20)).thenReturn(0);
+
+        availabilityService.adjustAvailability(deltas);
+    }
+
 }
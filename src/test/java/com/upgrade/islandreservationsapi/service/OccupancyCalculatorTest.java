@@ -0,0 +1,64 @@
+package com.upgrade.islandreservationsapi.service;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class OccupancyCalculatorTest {
+
+    private final LocalDate fromDate = LocalDate.of(2019, 1, 20);
+    private final LocalDate toDate = LocalDate.of(2019, 4, 10);
+
+    @Test
+    public void testStaysAcrossMonths() {
+        OccupancyCalculator calculator = new OccupancyCalculator(fromDate, toDate);
+        // Jan 30 to Feb 2
+        calculator.add(LocalDate.of(2019, 1, 30), LocalDate.of(2019, 2, 2), 3);
+        // starts before the range
+        calculator.add(LocalDate.of(2019, 1, 18), LocalDate.of(2019, 1, 21), 2);
+        // ends after the range
+        calculator.add(LocalDate.of(2019, 4, 9), LocalDate.of(2019, 4, 12), 4);
+        // outside of the range
+        calculator.add(LocalDate.of(2019, 1, 10), LocalDate.of(2019, 1, 20), 5);
+
+        int[] occupancy = calculator.compute(ForkJoinPool.commonPool());
+
+        assertEquals(3, calculator.getStays());
+        assertEquals(2, occupancy[0]);
+        assertEquals(0, occupancy[1]);
+        assertEquals(3, occupancy[day(LocalDate.of(2019, 1, 31))]);
+        assertEquals(3, occupancy[day(LocalDate.of(2019, 2, 1))]);
+        assertEquals(0, occupancy[day(LocalDate.of(2019, 2, 2))]);
+        assertEquals(4, occupancy[day(LocalDate.of(2019, 4, 10))]);
+    }
+
+    @Test
+    public void testMatchesNightByNightCount() {
+        OccupancyCalculator calculator = new OccupancyCalculator(fromDate, toDate);
+        int[] expected = new int[day(toDate) + 1];
+        Random random = new Random(42);
+        for(int i = 0; i < 2000; i++) {
+            LocalDate start = fromDate.plusDays(random.nextInt(expected.length + 10) - 5);
+            LocalDate end = start.plusDays(1 + random.nextInt(3));
+            int persons = 1 + random.nextInt(10);
+            calculator.add(start, end, persons);
+            for(LocalDate night = start; night.isBefore(end); night = night.plusDays(1)) {
+                if(!night.isBefore(fromDate) && !night.isAfter(toDate)) {
+                    expected[day(night)] += persons;
+                }
+            }
+        }
+
+        assertArrayEquals(expected, calculator.compute(ForkJoinPool.commonPool()));
+    }
+
+    private int day(LocalDate date) {
+        return (int) ChronoUnit.DAYS.between(fromDate, date);
+    }
+}
@@ -16,7 +16,9 @@ import org.springframework.test.context.junit4.SpringRunner;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -43,6 +45,9 @@ public class ReservationServiceTest {
     @MockBean
     private ConfigurationService configurationService;
 
+    @MockBean
+    private AvailabilityChangeLog changeLog;
+
     @Autowired
     private ReservationService reservationService;
 
@@ -98,6 +103,24 @@ public class ReservationServiceTest {
         assertEquals(reservationWithId, createdReservation);
     }
 
+    @Test
+    public void testCreateReservationExistingIdempotencyKey() throws NoAvailabilityForDateException {
+        Reservation reservation = new Reservation("John", "Doe", "johndoe@email.com",
+                LocalDate.now().plusDays(2), LocalDate.now().plusDays(3), 10);
+        reservation.setIdempotencyKey("key-1");
+        Reservation existingReservation = new Reservation("John", "Doe", "johndoe@email.com",
+                LocalDate.now().plusDays(2), LocalDate.now().plusDays(3), 10);
+        existingReservation.setId(100);
+
+        Mockito.when(reservationRepository.findByIdempotencyKey("key-1")).thenReturn(Optional.of(existingReservation));
+
+        Reservation createdReservation = reservationService.createReservation(reservation);
+
+        assertEquals(existingReservation, createdReservation);
+        Mockito.verify(availabilityService, Mockito.never()).updateDayAvailability(reservation);
+        Mockito.verify(reservationRepository, Mockito.never()).save(reservation);
+    }
+
     @Test
     public void testUpdateReservationNumberChange() throws Exception {
         LocalDate fromDate = LocalDate.now().plusDays(2);
@@ -110,15 +133,13 @@ public class ReservationServiceTest {
                 fromDate, toDate, 12);
         newReservation.setId(101);
 
-        DayAvailability a1 = new DayAvailability(fromDate, 88, 100);
-
         Mockito.when(reservationRepository.findAndLockById(101)).thenReturn(Optional.of(existingReservation));
-        Mockito.when(availabilityService.addAvailability(fromDate, toDate, -2)).thenReturn(List.of(a1));
         Mockito.when(reservationRepository.save(existingReservation)).thenReturn(newReservation);
 
         reservationService.updateReservation(newReservation);
 
         assertEquals((Integer) 12, newReservation.getNumberOfPersons());
+        Mockito.verify(availabilityService).adjustAvailability(new TreeMap<>(Map.of(fromDate, -2)));
     }
 
     @Test
@@ -136,14 +157,7 @@ public class ReservationServiceTest {
                 newFromDate, newToDate, 12);
         newReservation.setId(101);
 
-        DayAvailability a1 = new DayAvailability(newFromDate, 88, 100);
-        DayAvailability a2 = new DayAvailability(fromDate, 88, 100);
-        DayAvailability a3 = new DayAvailability(toDate, 88, 100);
-        List<DayAvailability> newAvailabilities = List.of(a1, a2, a3);
-
         Mockito.when(reservationRepository.findAndLockById(101)).thenReturn(Optional.of(existingReservation));
-        Mockito.when(availabilityService.addAvailability(fromDate, toDate, 10)).thenReturn(List.of(a2));
-        Mockito.when(availabilityService.updateDayAvailability(newReservation)).thenReturn(newAvailabilities);
         Mockito.when(reservationRepository.save(existingReservation)).thenReturn(newReservation);
 
         newReservation = reservationService.updateReservation(newReservation);
@@ -151,6 +165,9 @@ public class ReservationServiceTest {
         assertEquals((Integer) 12, newReservation.getNumberOfPersons());
         assertEquals(newFromDate, newReservation.getStart());
         assertEquals(newToDate, newReservation.getEnd());
+        // the night that was already booked only takes the additional persons
+        Mockito.verify(availabilityService).adjustAvailability(new TreeMap<>(Map.of(
+                newFromDate, -12, fromDate, -2, toDate, -12)));
     }
 
     @Test
@@ -171,6 +188,7 @@ public class ReservationServiceTest {
         Reservation result = reservationService.updateReservation(newReservation);
         assertEquals("Oliver", result.getLastName());
         assertEquals((Integer) 101, result.getId());
+        Mockito.verify(availabilityService, Mockito.never()).adjustAvailability(Mockito.any());
     }
 
 
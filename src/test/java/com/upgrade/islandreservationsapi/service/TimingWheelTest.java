@@ -0,0 +1,93 @@
+package com.upgrade.islandreservationsapi.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTest {
+
+    private static final long TICK = 10;
+    private static final long START = 1_000_000;
+
+    private TimingWheel<String> wheel;
+
+    @Before
+    public void init() {
+        wheel = new TimingWheel<>(TICK, 3, START);
+    }
+
+    @Test
+    public void testExpireInOrder() {
+        wheel.add("b", START + 200);
+        wheel.add("a", START + 50);
+        wheel.add("c", START + 5_000);
+        List<String> expired = new ArrayList<>();
+
+        assertEquals(0, wheel.advance(START + 40, expired::add));
+        assertEquals(1, wheel.advance(START + 50, expired::add));
+        assertEquals(List.of("a"), expired);
+        assertEquals(2, wheel.size());
+
+        wheel.advance(START + 4_990, expired::add);
+        assertEquals(List.of("a", "b"), expired);
+        wheel.advance(START + 5_000, expired::add);
+        assertEquals(List.of("a", "b", "c"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testNeverExpireEarly() {
+        // deadlines are rounded up to the next tick
+        wheel.add("a", START + 15);
+        List<String> expired = new ArrayList<>();
+
+        wheel.advance(START + 19, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(START + 20, expired::add);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    public void testPastDeadline() {
+        wheel.advance(START + 100, s -> {});
+        wheel.add("a", START);
+        List<String> expired = new ArrayList<>();
+
+        wheel.advance(START + 100, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(START + 110, expired::add);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    public void testCascadeAllLevels() {
+        // one item per tick for more than a turn of the top level (64^3 ticks), some of them in the overflow list
+        final int turn = 64 * 64 * 64;
+        List<Long> deadlines = new ArrayList<>();
+        for(long tick = 1; tick <= turn + 100; tick += 97) {
+            deadlines.add(START + tick * TICK);
+        }
+        TimingWheel<Long> longWheel = new TimingWheel<>(TICK, 3, START);
+        for(int i = deadlines.size() - 1; i >= 0; i--) {
+            longWheel.add(deadlines.get(i), deadlines.get(i));
+        }
+
+        List<Long> expired = new ArrayList<>();
+        for(long now = START; now <= START + (turn + 100) * TICK; now += 333 * TICK) {
+            final long time = now;
+            longWheel.advance(now, deadline -> {
+                assertTrue(deadline <= time);
+                expired.add(deadline);
+            });
+        }
+        longWheel.advance(START + (turn + 100) * TICK, expired::add);
+
+        assertEquals(deadlines, expired);
+        assertEquals(0, longWheel.size());
+    }
+}
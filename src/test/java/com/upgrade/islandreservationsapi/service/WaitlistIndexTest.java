@@ -0,0 +1,57 @@
+package com.upgrade.islandreservationsapi.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WaitlistIndexTest {
+
+    private final LocalDate today = LocalDate.now();
+
+    private WaitlistIndex index;
+
+    @Before
+    public void init() {
+        index = new WaitlistIndex();
+        index.add(1, today.plusDays(5), today.plusDays(8));
+        index.add(2, today.plusDays(2), today.plusDays(3));
+        index.add(3, today.plusDays(7), today.plusDays(8));
+        index.add(4, today.plusDays(8), today.plusDays(10));
+    }
+
+    @Test
+    public void testFindOverlapping() {
+        assertEquals(List.of(1, 3), index.findOverlapping(today.plusDays(7), today.plusDays(8), 10));
+        assertEquals(List.of(1), index.findOverlapping(today.plusDays(5), today.plusDays(6), 10));
+        assertEquals(List.of(1, 3, 4), index.findOverlapping(today.plusDays(6), today.plusDays(9), 10));
+        assertTrue(index.findOverlapping(today.plusDays(3), today.plusDays(5), 10).isEmpty());
+    }
+
+    @Test
+    public void testFindOverlappingLimit() {
+        assertEquals(List.of(1, 2), index.findOverlapping(today, today.plusDays(20), 2));
+    }
+
+    @Test
+    public void testRemove() {
+        index.remove(1);
+        index.remove(5);
+
+        assertEquals(3, index.size());
+        assertEquals(List.of(3), index.findOverlapping(today.plusDays(7), today.plusDays(8), 10));
+    }
+
+    @Test
+    public void testReplaceDates() {
+        index.add(2, today.plusDays(6), today.plusDays(8));
+
+        assertEquals(4, index.size());
+        assertTrue(index.findOverlapping(today.plusDays(2), today.plusDays(3), 10).isEmpty());
+        assertEquals(List.of(1, 2, 3), index.findOverlapping(today.plusDays(7), today.plusDays(8), 10));
+    }
+}